@@ -0,0 +1,101 @@
+package com.github.jlgrock.javascriptframework.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.jlgrock.javascriptframework.closurecompiler.DependencyInfo;
+import com.github.jlgrock.javascriptframework.closurecompiler.DependencyLexer;
+
+/**
+ * Compares the regular expression scan for goog.provide, goog.require and
+ * namespace statements against the DependencyLexer, in both its full and
+ * header only modes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnnotationScannerBenchmark {
+
+	/**
+	 * The kind of file to scan, either a closure style file or a minified
+	 * file on a single line.
+	 */
+	@Param({ "closure", "minified" })
+	private String style;
+
+	/**
+	 * The size of the file, in lines of body for closure style files and in
+	 * statements for minified files.
+	 */
+	@Param({ "100", "10000" })
+	private int size;
+
+	/**
+	 * The file the content is reported as belonging to.
+	 */
+	private final File file = new File("synthetic.js");
+
+	/**
+	 * The content to scan.
+	 */
+	private byte[] content;
+
+	/**
+	 * Generate the content.
+	 *
+	 * @throws IOException
+	 *             if the content cannot be encoded
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		String source;
+		if ("minified".equals(style)) {
+			source = SyntheticSources.minifiedFile(size);
+		} else {
+			source = SyntheticSources.closureFile("bench.file", 10, size);
+		}
+		content = source.getBytes("UTF-8");
+	}
+
+	/**
+	 * @return the result of the regular expression scan
+	 * @throws IOException
+	 *             if the content cannot be read
+	 */
+	@Benchmark
+	public DependencyInfo regex() throws IOException {
+		return RegexAnnotationScanner.scan(file, content);
+	}
+
+	/**
+	 * @return the result of a full lexer scan
+	 */
+	@Benchmark
+	public DependencyInfo lexer() {
+		return DependencyLexer.scan(file, content, false);
+	}
+
+	/**
+	 * @return the result of a header only lexer scan
+	 */
+	@Benchmark
+	public DependencyInfo lexerHeaderOnly() {
+		return DependencyLexer.scan(file, content, true);
+	}
+}
@@ -0,0 +1,278 @@
+package com.github.jlgrock.javascriptframework.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.openqa.selenium.By;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import com.github.jlgrock.javascriptframework.closurecompiler.CalcDeps;
+import com.github.jlgrock.javascriptframework.closurecompiler.ClosureCompilation;
+import com.github.jlgrock.javascriptframework.closurecompiler.DependencyGraph;
+import com.github.jlgrock.javascriptframework.closuretesting.resultparsing.parsers.TestCaseParser;
+import com.github.jlgrock.javascriptframework.jspreprocessor.CompilePreProcessor;
+import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryIO;
+import com.github.jlgrock.javascriptframework.mavenutils.io.ZipUtils;
+
+/**
+ * Runs the work of each plugin in a whole build against synthetic projects
+ * of increasing size, and writes the time each took to a csv file, so that
+ * the way each plugin scales with the size of a project can be seen.
+ *
+ * Unlike the JMH benchmarks, each phase of a build is run once per
+ * iteration against a fresh project, as it would be by maven, and the
+ * fastest iteration is reported.
+ */
+public final class BuildBenchmark {
+
+	/**
+	 * The preprocessor phase.
+	 */
+	static final String PREPROCESS = "preprocess";
+
+	/**
+	 * The dependency calculation phase.
+	 */
+	static final String DEPENDENCIES = "dependencies";
+
+	/**
+	 * The compile phase.
+	 */
+	static final String COMPILE = "compile";
+
+	/**
+	 * The test result parsing phase.
+	 */
+	static final String TEST = "test";
+
+	/**
+	 * The jsar packaging phase.
+	 */
+	static final String JSAR = "jsar";
+
+	/**
+	 * The project sizes measured when none are given.
+	 */
+	private static final int[] DEFAULT_SIZES = { 100, 500, 1000, 5000 };
+
+	/**
+	 * The number of times each size is built when no count is given.
+	 */
+	private static final int DEFAULT_ITERATIONS = 3;
+
+	/**
+	 * A stand in for base.js, which provides just enough for the compiler's
+	 * closure pass.
+	 */
+	private static final String BASE_JS = "var goog = goog || {};\n"
+			+ "goog.provide = function(name) {};\n"
+			+ "goog.require = function(name) {};\n";
+
+	/**
+	 * Private Constructor for Utility Class.
+	 */
+	private BuildBenchmark() {
+	}
+
+	/**
+	 * Build a project once, timing each phase.
+	 *
+	 * @param project
+	 *            the settings of the project to generate
+	 * @param dir
+	 *            the directory to generate the project in, which is deleted
+	 *            first
+	 * @return the milliseconds each phase took, by phase, in build order
+	 * @throws IOException
+	 *             if a file cannot be read or written
+	 * @throws MojoExecutionException
+	 *             if the compiler cannot be configured
+	 */
+	public static Map<String, Long> build(final SyntheticProject project,
+			final File dir) throws IOException, MojoExecutionException {
+		FileUtils.deleteQuietly(dir);
+		project.write(dir);
+		File target = new File(dir, "target/javascriptframework");
+		File sourceDir = new File(dir, "src/main/javascript");
+		File testDir = new File(dir, "src/test/javascript");
+		File debugDir = new File(target, "processed/debug");
+		File assertDir = new File(target, "processed/assert");
+		File testOutDir = new File(target, "processed/test");
+		File closureLibrary = new File(target, "closure-library");
+		File base = new File(closureLibrary, "closure/goog/base.js");
+		FileUtils.writeStringToFile(base, BASE_JS, "UTF-8");
+
+		Map<String, Long> millis = new LinkedHashMap<String, Long>();
+
+		// the compile and test preprocessors
+		long start = System.currentTimeMillis();
+		List<File> debugFiles = new ArrayList<File>();
+		for (File file : project.getSourceFiles()) {
+			String relative = relativize(sourceDir, file);
+			File debugFile = new File(debugDir, relative);
+			CompilePreProcessor.preprocessFile(file, new File(assertDir,
+					relative), debugFile);
+			debugFiles.add(debugFile);
+		}
+		for (File file : project.getTestFiles()) {
+			FileUtils.copyFile(file, new File(testOutDir, relativize(testDir,
+					file)));
+		}
+		millis.put(PREPROCESS, System.currentTimeMillis() - start);
+
+		// the dependency calculation, for the whole of the debug source
+		start = System.currentTimeMillis();
+		List<File> sorted = CalcDeps.executeCalcDeps(new DependencyGraph(base,
+				null, 1), debugFiles, debugFiles, new File(target,
+				"debug-deps.js"), new File(target, "debug-requires.js"));
+		millis.put(DEPENDENCIES, System.currentTimeMillis() - start);
+
+		// the compile, without any externs beyond the defaults
+		List<File> inputs = new ArrayList<File>();
+		inputs.add(base);
+		inputs.addAll(sorted);
+		ClosureCompilation compilation = new ClosureCompilation(inputs,
+				new ArrayList<File>(), new File(target, "compiled/bench.js"));
+		compilation.setCompileLevel("SIMPLE_OPTIMIZATIONS");
+		compilation.setErrorLevel("NONE");
+		compilation.setLanguageIn("ECMASCRIPT5");
+		compilation.setLanguageOut("ECMASCRIPT5");
+		compilation.setFrameworkTargetDirectory(target);
+		compilation.setClosureLibraryLocation(closureLibrary);
+		start = System.currentTimeMillis();
+		if (!compilation.execute(null)) {
+			throw new MojoExecutionException("The synthetic project of "
+					+ project.getFileCount() + " files did not compile.");
+		}
+		millis.put(COMPILE, System.currentTimeMillis() - start);
+
+		// parsing the results of the tests, as the testing plugin does once
+		// each test page has run
+		List<File> pages = new ArrayList<File>();
+		File pageDir = new File(target, "testSuite");
+		for (int i = 0; i < project.getTestFiles().size(); i++) {
+			File page = new File(pageDir, "test" + i + ".html");
+			FileUtils.writeStringToFile(page, SyntheticSources
+					.testOutputPage(project.getTestsPerFile()), "UTF-8");
+			pages.add(page);
+		}
+		HtmlUnitDriver driver = new HtmlUnitDriver(false);
+		start = System.currentTimeMillis();
+		try {
+			for (File page : pages) {
+				driver.get(page.toURI().toString());
+				new TestCaseParser(page).parse(driver.findElement(By
+						.tagName("body")));
+			}
+		} finally {
+			driver.quit();
+		}
+		millis.put(TEST, System.currentTimeMillis() - start);
+
+		// packaging the processed source
+		start = System.currentTimeMillis();
+		ZipUtils.zipFolder(new File(target, "processed"), new File(dir,
+				"target/bench.jsar"));
+		millis.put(JSAR, System.currentTimeMillis() - start);
+
+		return millis;
+	}
+
+	/**
+	 * The path of a file relative to a directory it is in.
+	 *
+	 * @param dir
+	 *            the directory
+	 * @param file
+	 *            the file
+	 * @return the relative path
+	 */
+	private static String relativize(final File dir, final File file) {
+		return file.getAbsolutePath().substring(
+				dir.getAbsolutePath().length() + 1);
+	}
+
+	/**
+	 * Build each size of project and write the fastest time of each phase to a
+	 * csv file, with a row for each size and phase.
+	 *
+	 * @param args
+	 *            the csv file to write, then optionally a comma separated list
+	 *            of project sizes and the number of times to build each size
+	 * @throws IOException
+	 *             if a file cannot be read or written
+	 * @throws MojoExecutionException
+	 *             if the compiler cannot be configured
+	 */
+	public static void main(final String[] args) throws IOException,
+			MojoExecutionException {
+		if (args.length < 1 || args.length > 3) {
+			throw new IllegalArgumentException(
+					"Usage: BuildBenchmark <output csv> [sizes] [iterations]");
+		}
+		File csvFile = new File(args[0]);
+		int[] sizes = DEFAULT_SIZES;
+		if (args.length > 1) {
+			String[] parts = args[1].split(",");
+			sizes = new int[parts.length];
+			for (int i = 0; i < parts.length; i++) {
+				sizes[i] = Integer.parseInt(parts[i].trim());
+			}
+		}
+		int iterations = DEFAULT_ITERATIONS;
+		if (args.length > 2) {
+			iterations = Integer.parseInt(args[2]);
+		}
+		if (iterations < 1) {
+			throw new IllegalArgumentException(
+					"Each size must be built at least once.");
+		}
+
+		File workDir = new File(System.getProperty("java.io.tmpdir"),
+				"build-benchmark-" + System.nanoTime());
+		DirectoryIO.createDir(csvFile.getAbsoluteFile().getParentFile());
+		Writer out = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(csvFile), "UTF-8"));
+		try {
+			out.write(SyntheticProject.CSV_HEADER + ",phase,millis\n");
+			for (int size : sizes) {
+				SyntheticProject project = new SyntheticProject();
+				project.setFileCount(size);
+				Map<String, Long> fastest = null;
+				for (int i = 0; i < iterations; i++) {
+					Map<String, Long> millis = build(project, workDir);
+					if (fastest == null) {
+						fastest = millis;
+					} else {
+						for (Map.Entry<String, Long> entry : millis.entrySet()) {
+							if (entry.getValue() < fastest.get(entry.getKey())) {
+								fastest.put(entry.getKey(), entry.getValue());
+							}
+						}
+					}
+				}
+				for (Map.Entry<String, Long> entry : fastest.entrySet()) {
+					out.write(project.toCsv() + "," + entry.getKey() + ","
+							+ entry.getValue() + "\n");
+				}
+				out.flush();
+				System.out.println("Built " + size + " files: " + fastest);
+			}
+		} finally {
+			IOUtils.closeQuietly(out);
+			FileUtils.deleteQuietly(workDir);
+		}
+		System.out.println("Timings written to " + csvFile.getAbsolutePath());
+	}
+}
@@ -0,0 +1,135 @@
+package com.github.jlgrock.javascriptframework.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.jlgrock.javascriptframework.closurecompiler.AnnotationFileReader;
+import com.github.jlgrock.javascriptframework.closurecompiler.CalcDeps;
+import com.github.jlgrock.javascriptframework.closurecompiler.DependencyGraph;
+import com.github.jlgrock.javascriptframework.closurecompiler.DependencyInfo;
+
+/**
+ * Measures scanning a project for dependency information, and calculating and
+ * writing the deps file for it from scratch, as a build without a dependency
+ * cache does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DependencyCalculationBenchmark {
+
+	/**
+	 * The number of files in the project.
+	 */
+	@Param({ "100", "1000" })
+	private int fileCount;
+
+	/**
+	 * The number of files each file requires.
+	 */
+	@Param({ "5" })
+	private int requiresPerFile;
+
+	/**
+	 * The approximate number of lines in the body of each file.
+	 */
+	@Param({ "200" })
+	private int bodyLines;
+
+	/**
+	 * The directory the project is written to.
+	 */
+	private File dir;
+
+	/**
+	 * The files of the project, in dependency order.
+	 */
+	private List<File> files;
+
+	/**
+	 * The file that depends on every other file.
+	 */
+	private List<File> inputs;
+
+	/**
+	 * The stand in for base.js, which is never scanned.
+	 */
+	private File base;
+
+	/**
+	 * The deps file to write.
+	 */
+	private File depsFile;
+
+	/**
+	 * Write the project.
+	 *
+	 * @throws IOException
+	 *             if the project cannot be written
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		dir = new File(System.getProperty("java.io.tmpdir"),
+				"dependency-benchmark-" + System.nanoTime());
+		files = SyntheticSources.writeProject(new File(dir, "src"), fileCount,
+				requiresPerFile, bodyLines);
+		inputs = Collections.singletonList(files.get(files.size() - 1));
+		base = new File(dir, "base.js");
+		FileUtils.writeStringToFile(base, "");
+		depsFile = new File(dir, "deps.js");
+	}
+
+	/**
+	 * Remove the project.
+	 */
+	@TearDown
+	public void tearDown() {
+		FileUtils.deleteQuietly(dir);
+	}
+
+	/**
+	 * @return the dependency information of every file
+	 * @throws IOException
+	 *             if the files cannot be read
+	 */
+	@Benchmark
+	public List<DependencyInfo> parseForDependencyInfo() throws IOException {
+		List<DependencyInfo> deps = new ArrayList<DependencyInfo>(files.size());
+		for (File file : files) {
+			deps.add(AnnotationFileReader.parseForDependencyInfo(file));
+		}
+		return deps;
+	}
+
+	/**
+	 * @return the files in dependency order
+	 * @throws IOException
+	 *             if the files cannot be read or the deps file written
+	 */
+	@Benchmark
+	public List<File> executeCalcDeps() throws IOException {
+		return CalcDeps.executeCalcDeps(new DependencyGraph(base, null, 1),
+				inputs, files, depsFile, null);
+	}
+}
@@ -0,0 +1,64 @@
+package com.github.jlgrock.javascriptframework.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.regex.Matcher;
+
+import com.github.jlgrock.javascriptframework.closurecompiler.AnnotationFileReader;
+import com.github.jlgrock.javascriptframework.closurecompiler.DependencyInfo;
+
+/**
+ * The line by line regular expression scan that AnnotationFileReader used
+ * before it was replaced by the DependencyLexer, kept as a baseline to compare
+ * against.
+ */
+public final class RegexAnnotationScanner {
+
+	/**
+	 * Private Constructor for Utility Class.
+	 */
+	private RegexAnnotationScanner() {
+	}
+
+	/**
+	 * Scan content for the google requires, provides, and namespace
+	 * statements.
+	 *
+	 * @param file
+	 *            the file the content belongs to
+	 * @param content
+	 *            the content to scan
+	 * @return the dependency info object, populated with the information
+	 * @throws IOException
+	 *             if the content cannot be read
+	 */
+	public static DependencyInfo scan(final File file, final byte[] content)
+			throws IOException {
+		DependencyInfo dep = new DependencyInfo(file);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				content));
+		BufferedReader br = new BufferedReader(new InputStreamReader(in));
+
+		String strLine;
+		while ((strLine = br.readLine()) != null) {
+			Matcher m;
+			m = AnnotationFileReader.PROV_REGEX.matcher(strLine);
+			if (m.lookingAt()) {
+				dep.addToProvides(m.group(1));
+			}
+			m = AnnotationFileReader.REQ_REGEX.matcher(strLine);
+			if (m.lookingAt()) {
+				dep.addToRequires(m.group(1));
+			}
+			m = AnnotationFileReader.NS_REGEX.matcher(strLine);
+			if (m.lookingAt()) {
+				dep.addToNamespaces(m.group(1));
+			}
+		}
+		return dep;
+	}
+}
@@ -0,0 +1,75 @@
+package com.github.jlgrock.javascriptframework.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.jlgrock.javascriptframework.mavenutils.pathing.RelativePath;
+
+/**
+ * Measures working out the relative path between two files, which is done
+ * for every line of every deps file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RelativePathBenchmark {
+
+	/**
+	 * How many directories deep the files are below the directory they share.
+	 */
+	@Param({ "2", "10" })
+	private int depth;
+
+	/**
+	 * The file to get the path to.
+	 */
+	private File from;
+
+	/**
+	 * The file the path is relative to.
+	 */
+	private File to;
+
+	/**
+	 * Build the paths. The files do not need to exist.
+	 */
+	@Setup
+	public void setUp() {
+		File shared = new File(System.getProperty("java.io.tmpdir"),
+				"relative-path-benchmark");
+		from = new File(shared, "src");
+		to = new File(shared, "closure-library");
+		for (int i = 0; i < depth; i++) {
+			from = new File(from, "package" + i);
+			to = new File(to, "goog" + i);
+		}
+		from = new File(from, "file.js");
+		to = new File(to, "base.js");
+	}
+
+	/**
+	 * @return the relative path
+	 * @throws IOException
+	 *             if the paths cannot be resolved
+	 */
+	@Benchmark
+	public String getRelPathFromBase() throws IOException {
+		return RelativePath.getRelPathFromBase(from, to);
+	}
+}
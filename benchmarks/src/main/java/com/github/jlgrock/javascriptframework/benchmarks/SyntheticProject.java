@@ -0,0 +1,371 @@
+package com.github.jlgrock.javascriptframework.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Generates a synthetic closure project laid out the way the plugins expect
+ * it, so that whole builds can be measured at any size. The same settings
+ * always generate the same project.
+ *
+ * The files are spread over a tree of namespaces, where each namespace holds
+ * up to the fan-out number of files and has up to the fan-out number of
+ * child namespaces. The files are split into layers, and each file requires
+ * files from the layer before it, so the longest chain of requires is the
+ * require depth.
+ */
+public class SyntheticProject {
+
+	/**
+	 * The root namespace of every generated file.
+	 */
+	public static final String ROOT_NAMESPACE = "bench";
+
+	/**
+	 * The names of the settings, as written by {@link #toCsv()}.
+	 */
+	public static final String CSV_HEADER = "files,fanOut,requireDepth,"
+			+ "requiresPerFile,bodyLines,assertEvery,testRatio,testsPerFile";
+
+	/**
+	 * The number of source files.
+	 */
+	private int fileCount = 100;
+
+	/**
+	 * The number of files and child namespaces in each namespace.
+	 */
+	private int fanOut = 8;
+
+	/**
+	 * The number of layers of requires.
+	 */
+	private int requireDepth = 10;
+
+	/**
+	 * The number of files each file requires from the layer before it.
+	 */
+	private int requiresPerFile = 3;
+
+	/**
+	 * The approximate number of lines in the body of each source file.
+	 */
+	private int bodyLines = 200;
+
+	/**
+	 * How many lines apart the assertions are, or 0 for no assertions.
+	 */
+	private int assertEvery = 20;
+
+	/**
+	 * The fraction of source files that have a test file.
+	 */
+	private double testRatio = 0.5;
+
+	/**
+	 * The number of tests in each test file.
+	 */
+	private int testsPerFile = 10;
+
+	/**
+	 * The source files written by the last call to write, in dependency order.
+	 */
+	private List<File> sourceFiles = Collections.emptyList();
+
+	/**
+	 * The test files written by the last call to write.
+	 */
+	private List<File> testFiles = Collections.emptyList();
+
+	/**
+	 * @param fileCountIn
+	 *            the number of source files
+	 */
+	public final void setFileCount(final int fileCountIn) {
+		this.fileCount = fileCountIn;
+	}
+
+	/**
+	 * @return the number of source files
+	 */
+	public final int getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * @param fanOutIn
+	 *            the number of files and child namespaces in each namespace
+	 */
+	public final void setFanOut(final int fanOutIn) {
+		this.fanOut = fanOutIn;
+	}
+
+	/**
+	 * @param requireDepthIn
+	 *            the number of layers of requires
+	 */
+	public final void setRequireDepth(final int requireDepthIn) {
+		this.requireDepth = requireDepthIn;
+	}
+
+	/**
+	 * @param requiresPerFileIn
+	 *            the number of files each file requires from the layer before
+	 *            it
+	 */
+	public final void setRequiresPerFile(final int requiresPerFileIn) {
+		this.requiresPerFile = requiresPerFileIn;
+	}
+
+	/**
+	 * @param bodyLinesIn
+	 *            the approximate number of lines in the body of each source
+	 *            file
+	 */
+	public final void setBodyLines(final int bodyLinesIn) {
+		this.bodyLines = bodyLinesIn;
+	}
+
+	/**
+	 * @param assertEveryIn
+	 *            how many lines apart the assertions are, or 0 for no
+	 *            assertions
+	 */
+	public final void setAssertEvery(final int assertEveryIn) {
+		this.assertEvery = assertEveryIn;
+	}
+
+	/**
+	 * @param testRatioIn
+	 *            the fraction of source files that have a test file
+	 */
+	public final void setTestRatio(final double testRatioIn) {
+		this.testRatio = testRatioIn;
+	}
+
+	/**
+	 * @param testsPerFileIn
+	 *            the number of tests in each test file
+	 */
+	public final void setTestsPerFile(final int testsPerFileIn) {
+		this.testsPerFile = testsPerFileIn;
+	}
+
+	/**
+	 * @return the number of tests in each test file
+	 */
+	public final int getTestsPerFile() {
+		return testsPerFile;
+	}
+
+	/**
+	 * @return the source files written by the last call to write, in
+	 *         dependency order
+	 */
+	public final List<File> getSourceFiles() {
+		return sourceFiles;
+	}
+
+	/**
+	 * @return the test files written by the last call to write
+	 */
+	public final List<File> getTestFiles() {
+		return testFiles;
+	}
+
+	/**
+	 * The namespace of a file.
+	 *
+	 * @param index
+	 *            the number of the file
+	 * @return the namespace the file provides
+	 */
+	public final String namespace(final int index) {
+		StringBuilder sb = new StringBuilder(ROOT_NAMESPACE);
+		// the digits of the namespace number in base fan-out are the path
+		// through the namespace tree
+		List<Integer> path = new ArrayList<Integer>();
+		for (int ns = index / fanOut; ns > 0; ns /= fanOut) {
+			path.add(0, ns % fanOut);
+		}
+		for (Integer part : path) {
+			sb.append(".n").append(part);
+		}
+		return sb.append(".file").append(index).toString();
+	}
+
+	/**
+	 * The layer of requires a file is in.
+	 *
+	 * @param index
+	 *            the number of the file
+	 * @return the layer, from 0 to the require depth - 1
+	 */
+	private int layer(final int index) {
+		return (int) ((long) index * requireDepth / fileCount);
+	}
+
+	/**
+	 * The namespaces a file requires, which are spread evenly over the layer
+	 * before it.
+	 *
+	 * @param index
+	 *            the number of the file
+	 * @return the namespaces
+	 */
+	private List<String> requires(final int index) {
+		List<String> requires = new ArrayList<String>();
+		int layer = layer(index);
+		if (layer == 0) {
+			return requires;
+		}
+		int first = firstInLayer(layer - 1);
+		int size = firstInLayer(layer) - first;
+		if (size <= 0) {
+			// there are fewer files than layers, so the layer is empty
+			return requires;
+		}
+		int count = Math.min(requiresPerFile, size);
+		for (int i = 0; i < count; i++) {
+			int required = first + (index + i * size / count) % size;
+			String namespace = namespace(required);
+			if (!requires.contains(namespace)) {
+				requires.add(namespace);
+			}
+		}
+		return requires;
+	}
+
+	/**
+	 * The first file in a layer.
+	 *
+	 * @param layer
+	 *            the layer
+	 * @return the number of the file
+	 */
+	private int firstInLayer(final int layer) {
+		return (int) (((long) layer * fileCount + requireDepth - 1) / requireDepth);
+	}
+
+	/**
+	 * Generate a source file: a file overview comment, the provides and
+	 * requires, then a body of documented functions using assertions.
+	 *
+	 * @param index
+	 *            the number of the file
+	 * @return the source
+	 */
+	private String sourceFile(final int index) {
+		String name = namespace(index);
+		StringBuilder sb = new StringBuilder();
+		sb.append("/**\n * @fileoverview Synthetic file ").append(name)
+				.append(".\n */\n\n");
+		sb.append("goog.provide('").append(name).append("');\n\n");
+		List<String> requires = requires(index);
+		for (String require : requires) {
+			sb.append("goog.require('").append(require).append("');\n");
+		}
+		sb.append('\n');
+		for (int i = 0; i < bodyLines; i += 6) {
+			sb.append("/**\n * @param {number} a the first value\n"
+					+ " * @return {number} the result\n */\n");
+			sb.append(name).append(".fn").append(i)
+					.append(" = function(a) {\n");
+			if (assertEvery > 0 && i % assertEvery < 6) {
+				sb.append("  $$assert(a > ").append(i)
+						.append(", \"a must be greater than ").append(i)
+						.append("\");\n");
+			}
+			if (requires.isEmpty()) {
+				sb.append("  return a + ").append(i).append(";\n};\n");
+			} else {
+				sb.append("  return ")
+						.append(requires.get(i % requires.size()))
+						.append(".fn0(a) + ").append(i).append(";\n};\n");
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Generate a test file for a source file.
+	 *
+	 * @param index
+	 *            the number of the file
+	 * @return the source
+	 */
+	private String testFile(final int index) {
+		String name = namespace(index);
+		StringBuilder sb = new StringBuilder();
+		sb.append("goog.provide('").append(name).append("_test');\n\n");
+		sb.append("goog.require('").append(name).append("');\n");
+		sb.append("goog.require('goog.testing.jsunit');\n\n");
+		for (int i = 0; i < testsPerFile; i++) {
+			sb.append("function testNumber").append(i).append("() {\n");
+			sb.append("  assertEquals(").append(i).append(", ").append(name)
+					.append(".fn0(").append(i).append(") - ").append(name)
+					.append(".fn0(0));\n}\n\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The path of a namespace's file relative to the source directory.
+	 *
+	 * @param namespace
+	 *            the namespace
+	 * @param suffix
+	 *            the end of the file name
+	 * @return the relative path
+	 */
+	private static String path(final String namespace, final String suffix) {
+		return namespace.replace('.', '/') + suffix;
+	}
+
+	/**
+	 * Write the project. The sources go in src/main/javascript and the tests
+	 * in src/test/javascript, as in a maven project.
+	 *
+	 * @param baseDir
+	 *            the directory to write the project to
+	 * @throws IOException
+	 *             if the files cannot be written
+	 */
+	public final void write(final File baseDir) throws IOException {
+		File sourceDir = new File(baseDir, "src/main/javascript");
+		File testDir = new File(baseDir, "src/test/javascript");
+		List<File> sources = new ArrayList<File>(fileCount);
+		List<File> tests = new ArrayList<File>();
+		int testFileCount = 0;
+		for (int i = 0; i < fileCount; i++) {
+			String name = namespace(i);
+			File file = new File(sourceDir, path(name, ".js"));
+			FileUtils.writeStringToFile(file, sourceFile(i), "UTF-8");
+			sources.add(file);
+
+			// spread the tests evenly over the files
+			if ((int) ((i + 1) * testRatio) > testFileCount) {
+				testFileCount++;
+				File test = new File(testDir, path(name, "_test.js"));
+				FileUtils.writeStringToFile(test, testFile(i), "UTF-8");
+				tests.add(test);
+			}
+		}
+		sourceFiles = sources;
+		testFiles = tests;
+	}
+
+	/**
+	 * @return the settings, in the order of {@link #CSV_HEADER}
+	 */
+	public final String toCsv() {
+		return fileCount + "," + fanOut + "," + requireDepth + ","
+				+ requiresPerFile + "," + bodyLines + "," + assertEvery + ","
+				+ testRatio + "," + testsPerFile;
+	}
+}
@@ -0,0 +1,191 @@
+package com.github.jlgrock.javascriptframework.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Generates synthetic javascript sources for the benchmarks, so that they do
+ * not depend on any files outside of this module.
+ */
+public final class SyntheticSources {
+
+	/**
+	 * Private Constructor for Utility Class.
+	 */
+	private SyntheticSources() {
+	}
+
+	/**
+	 * Generate a closure style file: a file overview comment, the provides and
+	 * requires at the top, then a body of documented functions.
+	 *
+	 * @param name
+	 *            the namespace the file provides
+	 * @param requires
+	 *            the number of namespaces the file requires
+	 * @param bodyLines
+	 *            the approximate number of lines in the body
+	 * @return the source
+	 */
+	public static String closureFile(final String name, final int requires,
+			final int bodyLines) {
+		List<String> namespaces = new ArrayList<String>();
+		for (int i = 0; i < requires; i++) {
+			namespaces.add(name + ".dep" + i);
+		}
+		return closureFile(name, namespaces, bodyLines);
+	}
+
+	/**
+	 * Generate a closure style file: a file overview comment, the provides and
+	 * requires at the top, then a body of documented functions.
+	 *
+	 * @param name
+	 *            the namespace the file provides
+	 * @param requires
+	 *            the namespaces the file requires
+	 * @param bodyLines
+	 *            the approximate number of lines in the body
+	 * @return the source
+	 */
+	public static String closureFile(final String name,
+			final List<String> requires, final int bodyLines) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("/**\n * @fileoverview Synthetic file ").append(name)
+				.append(".\n */\n\n");
+		sb.append("goog.provide('").append(name).append("');\n\n");
+		for (String require : requires) {
+			sb.append("goog.require('").append(require).append("');\n");
+		}
+		sb.append('\n');
+		for (int i = 0; i < bodyLines; i += 6) {
+			sb.append("/**\n * Function number ").append(i)
+					.append(", see goog.require('not.a.require').\n */\n");
+			sb.append(name).append(".fn").append(i)
+					.append(" = function(a, b) {\n");
+			sb.append("  return a + b + \"").append(i).append("\";\n};\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Write a project of closure style files to a directory. Each file
+	 * provides bench.fileN and requires the files just before it, so that the
+	 * last file depends on all of the others.
+	 *
+	 * @param dir
+	 *            the directory to write to
+	 * @param fileCount
+	 *            the number of files to write
+	 * @param requiresPerFile
+	 *            the number of files each file requires
+	 * @param bodyLines
+	 *            the approximate number of lines in the body of each file
+	 * @return the files written, in dependency order
+	 * @throws IOException
+	 *             if the files cannot be written
+	 */
+	public static List<File> writeProject(final File dir, final int fileCount,
+			final int requiresPerFile, final int bodyLines) throws IOException {
+		List<File> files = new ArrayList<File>(fileCount);
+		for (int i = 0; i < fileCount; i++) {
+			List<String> requires = new ArrayList<String>();
+			for (int j = Math.max(0, i - requiresPerFile); j < i; j++) {
+				requires.add("bench.file" + j);
+			}
+			File file = new File(dir, "file" + i + ".js");
+			FileUtils.writeStringToFile(file,
+					closureFile("bench.file" + i, requires, bodyLines), "UTF-8");
+			files.add(file);
+		}
+		return files;
+	}
+
+	/**
+	 * Generate a file that uses assertions, as the preprocessor expects them.
+	 *
+	 * @param lines
+	 *            the approximate number of lines
+	 * @param assertEvery
+	 *            how many lines apart the assertions are
+	 * @return the source
+	 */
+	public static String assertingFile(final int lines, final int assertEvery) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("goog.provide('bench.asserting');\n\n");
+		for (int i = 0; i < lines; i++) {
+			if (i % assertEvery == 0) {
+				sb.append("  $$assert(a").append(i).append(" > 0 && b.length < ")
+						.append(i).append(", \"a").append(i)
+						.append(" must be positive\");\n");
+			} else {
+				sb.append("  var a").append(i).append(" = b.length + ")
+						.append(i).append(";\n");
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Generate the text of the divs that the closure testing framework writes
+	 * for a test file, in the order it writes them.
+	 *
+	 * @param tests
+	 *            the number of tests in the file
+	 * @return the text of each div
+	 */
+	public static List<String> testOutputDivs(final int tests) {
+		List<String> divs = new ArrayList<String>();
+		divs.add("Test for bench/synthetic_test.html [PASSED]");
+		divs.add("/bench/synthetic_test.html");
+		divs.add(tests + " of " + tests + " tests run in 25ms.");
+		divs.add(tests + " passed, 0 failed.");
+		divs.add("3 ms/test, 120 files loaded.");
+		divs.add("12:00:00.000  Start");
+		for (int i = 0; i < tests; i++) {
+			divs.add("12:00:00.00" + (i % 10) + "  testNumber" + i
+					+ " : PASSED");
+		}
+		divs.add("12:00:00.100  Done");
+		return divs;
+	}
+
+	/**
+	 * Generate a page of closure testing framework output.
+	 *
+	 * @param tests
+	 *            the number of tests in the file
+	 * @return the html of the page
+	 */
+	public static String testOutputPage(final int tests) {
+		StringBuilder sb = new StringBuilder("<html><body>\n");
+		for (String div : testOutputDivs(tests)) {
+			sb.append("<div>").append(div).append("</div>\n");
+		}
+		sb.append("</body></html>\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Generate a minified file with no declarations at all, as third party
+	 * interns often are, where all of the code is on a single very long line.
+	 *
+	 * @param statements
+	 *            the number of statements on the line
+	 * @return the source
+	 */
+	public static String minifiedFile(final int statements) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("(function(){");
+		for (int i = 0; i < statements; i++) {
+			sb.append("var a").append(i).append("=function(b){return b+\"")
+					.append(i).append("\"};");
+		}
+		sb.append("})();\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,127 @@
+package com.github.jlgrock.javascriptframework.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import com.github.jlgrock.javascriptframework.closuretesting.resultparsing.DivParseFactory;
+import com.github.jlgrock.javascriptframework.closuretesting.resultparsing.parsers.TestCaseParser;
+import com.github.jlgrock.javascriptframework.closuretesting.resultparsing.testingcomponents.IParsedDivObject;
+import com.github.jlgrock.javascriptframework.closuretesting.resultparsing.testingcomponents.TestCase;
+
+/**
+ * Measures parsing the output of the closure testing framework, both through
+ * the page as the testing plugin does and through the div parsers alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TestResultParsingBenchmark {
+
+	/**
+	 * The number of tests in the test file.
+	 */
+	@Param({ "10", "500" })
+	private int tests;
+
+	/**
+	 * The directory the page is written to.
+	 */
+	private File dir;
+
+	/**
+	 * The page of test output.
+	 */
+	private File page;
+
+	/**
+	 * The driver the page is loaded into.
+	 */
+	private HtmlUnitDriver driver;
+
+	/**
+	 * The body of the loaded page.
+	 */
+	private WebElement body;
+
+	/**
+	 * The text of each div on the page.
+	 */
+	private List<String> divs;
+
+	/**
+	 * Write the page and load it.
+	 *
+	 * @throws IOException
+	 *             if the page cannot be written
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		dir = new File(System.getProperty("java.io.tmpdir"),
+				"test-result-benchmark-" + System.nanoTime());
+		page = new File(dir, "synthetic_test.html");
+		FileUtils.writeStringToFile(page,
+				SyntheticSources.testOutputPage(tests), "UTF-8");
+		divs = SyntheticSources.testOutputDivs(tests);
+		driver = new HtmlUnitDriver(false);
+		driver.get(page.toURI().toString());
+		body = driver.findElement(By.tagName("body"));
+	}
+
+	/**
+	 * Close the driver and remove the page.
+	 */
+	@TearDown
+	public void tearDown() {
+		driver.quit();
+		FileUtils.deleteQuietly(dir);
+	}
+
+	/**
+	 * @return the parsed test case
+	 */
+	@Benchmark
+	public TestCase parse() {
+		return new TestCaseParser(page).parse(body);
+	}
+
+	/**
+	 * Run every div through the factory against a fresh test case, which is
+	 * the matching the parser does for each div without the page access.
+	 *
+	 * @return the number of divs that a parser was found for
+	 */
+	@Benchmark
+	public int factory() {
+		TestCase testCase = new TestCase(page);
+		int matched = 0;
+		for (String div : divs) {
+			IParsedDivObject parsed = DivParseFactory.factory(testCase, div);
+			if (parsed != null) {
+				matched++;
+			}
+		}
+		return matched;
+	}
+}
@@ -0,0 +1,129 @@
+package com.github.jlgrock.javascriptframework.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.ZipUtils;
+
+/**
+ * Measures zipping a folder of javascript files and unzipping it again, as
+ * the jsar packaging and the dependency extraction do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZipBenchmark {
+
+	/**
+	 * The number of files in the folder.
+	 */
+	@Param({ "100", "1000" })
+	private int fileCount;
+
+	/**
+	 * The approximate number of lines in each file.
+	 */
+	@Param({ "200" })
+	private int bodyLines;
+
+	/**
+	 * The directory everything is written to.
+	 */
+	private File dir;
+
+	/**
+	 * The folder to zip.
+	 */
+	private File folder;
+
+	/**
+	 * The zip file written by the zip benchmark.
+	 */
+	private File zipFile;
+
+	/**
+	 * The zip file read by the unzip benchmark.
+	 */
+	private File existingZipFile;
+
+	/**
+	 * The directory the unzip benchmark writes to.
+	 */
+	private File unzipDir;
+
+	/**
+	 * Write the folder, and zip it once for the unzip benchmark.
+	 *
+	 * @throws IOException
+	 *             if the files cannot be written
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		dir = new File(System.getProperty("java.io.tmpdir"), "zip-benchmark-"
+				+ System.nanoTime());
+		folder = new File(dir, "folder");
+		SyntheticSources.writeProject(new File(folder, "nested"), fileCount,
+				1, bodyLines);
+		zipFile = new File(dir, "out.zip");
+		existingZipFile = new File(dir, "in.zip");
+		ZipUtils.zipFolder(folder, existingZipFile);
+		unzipDir = new File(dir, "unzipped");
+	}
+
+	/**
+	 * Remove everything.
+	 */
+	@TearDown
+	public void tearDown() {
+		FileUtils.deleteQuietly(dir);
+	}
+
+	/**
+	 * @return the zip file
+	 * @throws IOException
+	 *             if the zip file cannot be written
+	 */
+	@Benchmark
+	public File zipFolder() throws IOException {
+		ZipUtils.zipFolder(folder, zipFile);
+		return zipFile;
+	}
+
+	/**
+	 * @return the directory unzipped to
+	 * @throws IOException
+	 *             if the zip file cannot be read
+	 */
+	@Benchmark
+	public File unzip() throws IOException {
+		ZipInputStream zis = new ZipInputStream(new BufferedInputStream(
+				new FileInputStream(existingZipFile)));
+		try {
+			ZipUtils.unzip(zis, unzipDir);
+		} finally {
+			zis.close();
+		}
+		return unzipDir;
+	}
+}
@@ -0,0 +1,123 @@
+package com.github.jlgrock.javascriptframework.jspreprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.jlgrock.javascriptframework.benchmarks.SyntheticProject;
+import com.github.jlgrock.javascriptframework.mavenutils.io.ParallelFileProcessor;
+import com.github.jlgrock.javascriptframework.mavenutils.io.ParallelFileProcessor.FileTask;
+
+/**
+ * Measures preprocessing a large source directory into the assertion and
+ * debug copies with different numbers of threads, in the same way as the
+ * preprocessThreads setting of the preprocessor goals.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PreProcessDirectoryBenchmark {
+
+	/**
+	 * The number of files in the source directory.
+	 */
+	@Param({ "2000" })
+	private int fileCount;
+
+	/**
+	 * The number of threads to preprocess with.
+	 */
+	@Param({ "1", "2", "4", "8" })
+	private int threads;
+
+	/**
+	 * The directory the project is written to.
+	 */
+	private File dir;
+
+	/**
+	 * The source directory.
+	 */
+	private File sourceDir;
+
+	/**
+	 * The directory the assertion copies are written to.
+	 */
+	private File assertionDir;
+
+	/**
+	 * The directory the debug copies are written to.
+	 */
+	private File debugDir;
+
+	/**
+	 * The source files.
+	 */
+	private List<File> files;
+
+	/**
+	 * Write the project.
+	 *
+	 * @throws IOException
+	 *             if the project cannot be written
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		dir = new File(System.getProperty("java.io.tmpdir"),
+				"preprocess-benchmark-" + System.nanoTime());
+		SyntheticProject project = new SyntheticProject();
+		project.setFileCount(fileCount);
+		project.setTestRatio(0);
+		project.write(dir);
+		files = project.getSourceFiles();
+		sourceDir = new File(dir, "src/main/javascript");
+		assertionDir = new File(dir, "target/assert");
+		debugDir = new File(dir, "target/debug");
+	}
+
+	/**
+	 * Remove the project.
+	 */
+	@TearDown
+	public void tearDown() {
+		FileUtils.deleteQuietly(dir);
+	}
+
+	/**
+	 * @return the files preprocessed
+	 * @throws IOException
+	 *             if a file cannot be preprocessed
+	 */
+	@Benchmark
+	public List<File> preprocess() throws IOException {
+		final String sourcePath = sourceDir.getAbsolutePath();
+		return ParallelFileProcessor.process(files, new FileTask<File>() {
+			@Override
+			public File process(final File file) throws Exception {
+				String relative = file.getAbsolutePath().substring(
+						sourcePath.length());
+				CompilePreProcessor.preprocessFile(file, new File(assertionDir,
+						relative), new File(debugDir, relative));
+				return file;
+			}
+		}, threads);
+	}
+}
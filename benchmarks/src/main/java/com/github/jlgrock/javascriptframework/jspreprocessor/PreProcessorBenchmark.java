@@ -0,0 +1,122 @@
+package com.github.jlgrock.javascriptframework.jspreprocessor;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.jlgrock.javascriptframework.benchmarks.SyntheticSources;
+
+/**
+ * Measures the assertion preprocessor, both on a whole file and on a single
+ * assertion. This lives in the preprocessor's package so that it can reach the
+ * methods the mojo uses internally.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PreProcessorBenchmark {
+
+	/**
+	 * The approximate number of lines in the file.
+	 */
+	@Param({ "1000", "100000" })
+	private int lines;
+
+	/**
+	 * How many lines apart the assertions are.
+	 */
+	@Param({ "10" })
+	private int assertEvery;
+
+	/**
+	 * Whether the assertions are removed, as for the debug source, or
+	 * augmented, as for the assertion source.
+	 */
+	@Param({ "false", "true" })
+	private boolean removeAssertions;
+
+	/**
+	 * Whether the whole file is on a single line, as minified files are.
+	 */
+	@Param({ "false", "true" })
+	private boolean minified;
+
+	/**
+	 * The file to preprocess.
+	 */
+	private String source;
+
+	/**
+	 * A single assertion, starting from the opening parenthesis.
+	 */
+	private final String assertion = "(a > 0 && b.length < 10 /* (nested) */, \"a must be positive\");\n";
+
+	/**
+	 * Generate the file.
+	 */
+	@Setup
+	public void setUp() {
+		source = SyntheticSources.assertingFile(lines, assertEvery);
+		if (minified) {
+			source = source.replace("\n", "");
+		}
+	}
+
+	/**
+	 * @return the preprocessed file
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	@Benchmark
+	public String readAndWriteBuffer() throws IOException {
+		StringWriter out = new StringWriter(source.length());
+		CompilePreProcessor.readAndWriteBuffer(new StringReader(source), out,
+				"synthetic.js", removeAssertions);
+		return out.toString();
+	}
+
+	/**
+	 * Write both the assertion and debug copies from a single read. The
+	 * removeAssertions setting does not apply, since both are written.
+	 *
+	 * @return the preprocessed debug copy
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	@Benchmark
+	public String readAndWriteBuffers() throws IOException {
+		StringWriter assertionOut = new StringWriter(source.length());
+		StringWriter debugOut = new StringWriter(source.length());
+		CompilePreProcessor.readAndWriteBuffers(new StringReader(source),
+				assertionOut, debugOut, "synthetic.js");
+		return debugOut.toString();
+	}
+
+	/**
+	 * @return the replacement of the assertion
+	 * @throws IOException
+	 *             if the assertion cannot be read
+	 */
+	@Benchmark
+	public String assertReplacement() throws IOException {
+		return CompilePreProcessor.assertReplacement(
+				new StringReader(assertion), "synthetic.js", "1",
+				removeAssertions);
+	}
+}
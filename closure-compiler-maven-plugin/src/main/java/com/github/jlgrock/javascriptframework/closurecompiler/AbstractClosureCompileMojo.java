@@ -0,0 +1,1422 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import com.github.jlgrock.javascriptframework.closurecompiler.daemon.CompileDaemonClient;
+import com.github.jlgrock.javascriptframework.mavenutils.io.FileProcessingException;
+import com.github.jlgrock.javascriptframework.mavenutils.io.ParallelFileProcessor;
+import com.github.jlgrock.javascriptframework.mavenutils.io.ParallelFileProcessor.FileTask;
+import com.github.jlgrock.javascriptframework.mavenutils.logging.Log4jOutputStream;
+import com.github.jlgrock.javascriptframework.mavenutils.logging.MojoLogAppender;
+import com.github.jlgrock.javascriptframework.mavenutils.logging.MojoLogAppender.BufferedMessage;
+import com.github.jlgrock.javascriptframework.mavenutils.mavenobjects.JsarRelativeLocations;
+import com.github.jlgrock.javascriptframework.mavenutils.pathing.FileListBuilder;
+import com.google.common.io.Files;
+import com.google.javascript.jscomp.CompilationLevel;
+import com.google.javascript.jscomp.Compiler;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The parameters and steps shared by the goals that run the closure compiler.
+ */
+public abstract class AbstractClosureCompileMojo extends AbstractMojo {
+	/**
+	 * What extension to use for the source map file.
+	 */
+	private static final String SOURCE_MAP_EXTENSION = ".smap";
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(AbstractClosureCompileMojo.class);
+
+	/**
+	 * Create the dependencies JS file.
+	 * 
+	 * @param graph
+	 *            the dependency graph shared by every calculation in this
+	 *            execution
+	 * @param src
+	 *            the location of the source files
+	 * @param interns
+	 *            the internal dependencies
+	 * @param depsFile
+	 *            the location of the deps file
+	 * @param requiresFile
+	 *            the location of the requires file
+	 * @return the list of dependencies, in dependency order
+	 * @throws MojoExecutionException
+	 *             if the dependency generator is not able to make a file
+	 * @throws IOException
+	 *             if there is a problem reading or writing to any of the files
+	 */
+	private static List<File> createDepsAndRequiresJS(
+			final DependencyGraph graph, final Collection<File> src,
+			final Collection<File> interns, final File depsFile,
+			final File requiresFile) throws MojoExecutionException,
+			IOException {
+
+		// TODO when they fix the visibility rules in the DepsGenerator, replace
+		// it with Google's version
+		LOGGER.debug("base location: " + graph.getGoogleBaseFile());
+		LOGGER.debug("src files: " + src);
+		LOGGER.debug("intern files: " + interns);
+		LOGGER.debug("deps file location: " + depsFile);
+
+		return CalcDeps.executeCalcDeps(graph, src, interns, depsFile,
+				requiresFile);
+	}
+
+	/**
+	 * Get the location of base.js.
+	 * 
+	 * @param closureLibraryLocation
+	 *            the location of the google library
+	 * @return the base.js file reference
+	 * @throws MojoExecutionException
+	 *             If it couldn't find base.js
+	 */
+	private static File getBaseLocation(final File closureLibraryLocation)
+			throws MojoExecutionException {
+		File baseLocation = new File(closureLibraryLocation.getAbsoluteFile()
+				+ File.separator + "closure" + File.separator + "goog"
+				+ File.separator + "base.js");
+		if (!baseLocation.exists()) {
+			throw new MojoExecutionException(
+					"Could not locate \"base.js\" at location \""
+							+ baseLocation.getParentFile().getAbsolutePath()
+							+ "\"");
+		}
+		return baseLocation;
+	}
+
+	/**
+	 * List the javascript files in a directory.
+	 * 
+	 * @param directory
+	 *            the directory to search
+	 * @return the set of files with the ".js" extension
+	 */
+	private static List<File> listFiles(final File directory) {
+		return FileListBuilder.buildFilteredList(directory, "js");
+	}
+
+	/**
+	 * The location of the closure library. By default, this is expected in the
+	 * ${project.build.directory}${file.separator}javascriptFramework${file.
+	 * separator}closure-library${file.separator}closure${file.separator}goog
+	 * directory, as this is where the jsdependency plugin will put it by
+	 * default. If you would like to override this and use your own location,
+	 * this can be done by changing this path.
+	 */
+    @Parameter(required = true,
+            defaultValue = "${project.build.directory}${file.separator}javascriptFramework${file.separator}closure-library")
+	private File closureLibraryLocation;
+
+	/**
+	 * The file produced after running the dependencies and files through the
+	 * compiler.
+	 */
+    @Parameter(required = true,
+            defaultValue = "${project.build.finalName}-min.js")
+	private String compiledFilename;
+
+	/**
+	 * Specifies the compiler level to use.
+	 * 
+	 * Possible values are:
+	 * <ul>
+	 * <li>WHITESPACE_ONLY
+	 * <li>SIMPLE_OPTIMIZATIONS
+	 * <li>ADVANCED_OPTIMIZATIONS
+	 * </ul>
+	 * <br/>
+	 * 
+	 * Please see the <a href=
+	 * "http://code.google.com/closure/compiler/docs/compilation_levels.html"
+	 * >Google Compiler levels page</a> for more details.
+	 */
+    @Parameter(required = true,
+            defaultValue = "ADVANCED_OPTIMIZATIONS")
+	private String compileLevel;
+
+	/**
+	 * Specifies how strict the compiler is at following the rules. The compiler
+	 * is set to parameters matching SIMPLE by default, however, if you don't
+	 * use WARNING or better, this isn't very useful. STRICT is set by default
+	 * for this mojo.
+	 * 
+	 * Possible values are:
+	 * <ul>
+	 * <li>NONE
+	 * <li>SIMPLE
+	 * <li>WARNING
+	 * <li>STRICT
+	 * </ul>
+	 * <br/>
+	 */
+    @Parameter(required = true,
+            defaultValue = "STRICT")
+	private String errorLevel;
+
+	/**
+	 * The file produced after running the dependencies and files through the
+	 * compiler.
+	 */
+    @Parameter(required = true,
+            defaultValue = "${project.build.directory}${file.separator}javascriptFramework")
+	private File frameworkTargetDirectory;
+
+	/**
+	 * The file produced after running the dependencies and files through the
+	 * compiler.
+	 */
+    @Parameter(required = true,
+            defaultValue = "${project.build.finalName}-assert.js")
+	private String generatedAssertJS;
+
+	/**
+	 * The file produced that allows inclusion of assert into non-closure based
+	 * systems.
+	 */
+    @Parameter(required = true,
+            defaultValue = "${project.build.finalName}-assert-requires.js")
+	private String generatedAssertRequiresJS;
+
+	/**
+	 * The file produced after running the dependencies and files through the
+	 * compiler.
+	 */
+    @Parameter(required = true,
+            defaultValue = "${project.build.finalName}-debug.js")
+	private String generatedDebugJS;
+
+	/**
+	 * The file produced that allows inclusion of debug into non-closure based
+	 * systems.
+	 */
+    @Parameter(required = true,
+            defaultValue = "${project.build.finalName}-debug-requires.js")
+	private String generatedDebugRequiresJS;
+
+	/**
+	 * Whether or not to generate the exports file.  This is <pre>true</pre> by default.
+	 */
+    @Parameter(required = true, defaultValue = "true")
+	private boolean generateExports;
+    
+    /**
+     * Source file language, one of [ECMASCRIPT3, ECMASCRIPT5, ECMASCRIPT5_STRICT].
+     */
+    @Parameter(required = true, defaultValue = "ECMASCRIPT3")
+    private String languageIn;
+    
+    /**
+     * Output file language, one of [ECMASCRIPT3, ECMASCRIPT5, ECMASCRIPT5_STRICT].
+     */
+    @Parameter(required = true, defaultValue = "ECMASCRIPT3")
+    private String languageOut;
+
+	/**
+	 * What to include based off of maven includes. If you are creating an API
+	 * with an empty src folder, or you expect to use all of the maven
+	 * dependencies as source, set this to ALL.
+	 * 
+	 * Possible values are:
+	 * <ul>
+	 * <li>ALL
+	 * <li>WHEN_IN_SRCS
+	 * </ul>
+	 * <br/>
+	 */
+    @Parameter(defaultValue = "WHEN_IN_SRCS")
+	private String inclusionStrategy;
+
+	/**
+	 * The default directory to extract files to. This likely shouldn't be
+	 * changed unless there is a conflict with another plugin.
+	 */
+    @Parameter(required = true,
+            defaultValue = "${basedir}${file.separator}src${file.separator}test${file.separator}javascript")
+	private File testSourceDirectory;
+
+	/**
+	 * Will wrap the code in whatever you put in here. It uses '%output%' to
+	 * define what your code is. An example of this would be
+	 * "(function() {%output% window['my']['namespace'] = my.namespace;})();",
+	 * which would wrap the entire code in an anonymous function.
+	 */
+    @Parameter
+	private String outputWrapper = "";
+
+	/**
+	 * Whether or not to generate the source map file. This is <pre>true</pre> by default.
+	 */
+    @Parameter(defaultValue = "true")
+	private boolean generateSourceMap;
+
+	/**
+	 * When true, generates single debug and assert files that can be loaded
+	 * synchronously in addition to the async assert and debug output. Note that
+	 * setting this to true will initiate a second compilation process using the
+	 * WHITESPACE_ONLY level with the pretty-print setting enabled.
+	 */
+    @Parameter(defaultValue = "false")
+	private boolean generateSyncAssertAndDebug;
+
+	/**
+	 * If generateSyncAssertAndDebug is true, the filename for the synchronous
+	 * debug file.
+	 */
+    @Parameter(defaultValue = "${project.build.finalName}-debug-min.js")
+	private String syncDebugFilename;
+
+	/**
+	 * If generateSyncAssertAndDebug is true, the filename for the synchronous
+	 * assert file.
+	 */
+    @Parameter(defaultValue = "${project.build.finalName}-assert-min.js")
+	private String syncAssertFilename;
+
+	/**
+	 * If true, the configured output wrapper will be ignored when generating
+	 * the synchronous assert and debug files.
+	 */
+    @Parameter(defaultValue = "true")
+	private boolean ignoreOutputWrapperSyncDebugAndAssert;
+
+	/**
+	 * If generateSyncAssertAndDebug is true, whether to build the synchronous
+	 * debug and assert files by concatenating the files in dependency order
+	 * rather than running the WHITESPACE_ONLY compilation. The files are not
+	 * parsed, goog.require statements at the start of a line are blanked out,
+	 * and an index source map is written next to each file. This is much
+	 * faster for large projects. This is <pre>false</pre> by default.
+	 */
+    @Parameter(defaultValue = "false")
+	private boolean concatenateSyncAssertAndDebug;
+
+	/**
+	 * Whether or not to keep a cache of the goog.provide, goog.require and
+	 * namespace statements found in each file. Files that have not changed
+	 * since the last build are read from the cache rather than scanned again.
+	 * This is <pre>true</pre> by default.
+	 */
+	@Parameter(defaultValue = "true")
+	private boolean useDependencyCache;
+
+	/**
+	 * The number of threads used to scan files for goog.provide, goog.require
+	 * and namespace statements. A value of 0 or less will use one thread per
+	 * available processor. This is <pre>1</pre> by default.
+	 */
+	@Parameter(defaultValue = "1")
+	private int dependencyScanThreads;
+
+	/**
+	 * Whether or not to use the index of the bundled closure library that is
+	 * packaged with this plugin, rather than scanning every library file for
+	 * goog.provide and goog.require statements. Any library file that does not
+	 * match the index is still scanned. This is <pre>true</pre> by default.
+	 */
+	@Parameter(defaultValue = "true")
+	private boolean useLibraryIndex;
+
+	/**
+	 * Whether or not to only fully scan the internal dependency and library
+	 * files that are actually reached by following goog.require statements
+	 * from the source files. The remaining files are only checked for the
+	 * namespaces they provide. This is <pre>false</pre> by default.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean lazyDependencyResolution;
+
+	/**
+	 * Whether or not to stop scanning each file for goog.provide, goog.require
+	 * and namespace statements at the first statement that is not one of
+	 * them. This is much faster for large files, but any declaration that
+	 * comes after other code will be missed. This is <pre>false</pre> by
+	 * default.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean dependencyScanHeaderOnly;
+
+	/**
+	 * The number of threads used to run the main compile and the synchronous
+	 * debug and assert compiles. Each compile uses its own compiler instance.
+	 * A value of 0 or less will use one thread per available processor. This
+	 * is <pre>1</pre> by default.
+	 */
+	@Parameter(defaultValue = "1")
+	private int compileThreads;
+
+	/**
+	 * Whether or not to skip compiling an output when none of its input
+	 * files, extern files, defines or compiler options have changed since it
+	 * was last built. A fingerprint of the inputs to each output is kept in
+	 * the framework target directory. This is <pre>true</pre> by default.
+	 */
+	@Parameter(defaultValue = "true")
+	private boolean skipUnchangedOutputs;
+
+	/**
+	 * The maximum size, in megabytes, of the cache of extern and closure
+	 * library files that is kept for as long as the plugin is loaded, so that
+	 * later modules in the same build do not read the same files again. A
+	 * value of 0 or less turns the cache off. This is <pre>64</pre> by
+	 * default.
+	 */
+	@Parameter(defaultValue = "64")
+	private int sourceFileCacheSize;
+
+	/**
+	 * Whether or not to send each compile to the compile daemon started with
+	 * the compile-daemon-start goal, which keeps the compiler and the extern
+	 * and closure library files loaded between builds. If the daemon is not
+	 * running, the compile is run within the build as usual. This is
+	 * <pre>false</pre> by default.
+	 */
+	@Parameter(property = "useCompileDaemon", defaultValue = "false")
+	private boolean useCompileDaemon;
+
+	/**
+	 * The file the compile daemon writes its port to when it starts. This
+	 * must match the file given to the compile-daemon-start goal. The default
+	 * includes the plugin version, so each version has its own daemon.
+	 */
+	@Parameter(property = "compileDaemonStateFile",
+			defaultValue = "${user.home}${file.separator}.closure-compile-daemon-${plugin.version}")
+	private File compileDaemonStateFile;
+
+	/**
+	 * Array of define declarations.
+	 */
+    @Parameter
+	private Define[] defines;
+
+	/**
+	 * The chunks to split the compiled output into, rather than writing a
+	 * single compiled file. Each chunk lists the namespaces it is loaded for
+	 * and the chunks that must be loaded before it, and is written to a file
+	 * named after it, along with its own source map. The chunks must be listed
+	 * after the chunks they depend on, and every chunk must depend on the
+	 * first one. Each file is compiled into the deepest chunk that every chunk
+	 * needing it depends on. The output wrapper is applied to each chunk, so
+	 * it must not hide the names that the chunks share.
+	 */
+	@Parameter
+	private Chunk[] chunks;
+
+	/**
+	 * The manifest written alongside the chunks, which lists the file of each
+	 * chunk and the chunks it depends on, in the order they must be loaded
+	 * in. This is <pre>${project.build.finalName}-chunks.json</pre> by
+	 * default.
+	 */
+	@Parameter(defaultValue = "${project.build.finalName}-chunks.json")
+	private String chunkManifestFilename;
+
+	/**
+	 * Whether or not to record the time spent in each phase of the build. A
+	 * summary is logged, and the full timings are written to
+	 * build-timings.json in the framework target directory. This is
+	 * <pre>true</pre> by default.
+	 */
+	@Parameter(property = "recordBuildTimings", defaultValue = "true")
+	private boolean recordBuildTimings;
+
+	/**
+	 * The shared cache of extern and closure library files, or null if it is
+	 * turned off.
+	 */
+	private SourceFileCache sourceFileCache;
+
+	/**
+	 * The cache of the dependency information found in each file, or null if
+	 * it is turned off.
+	 */
+	private DependencyCache dependencyCache;
+
+	/**
+	 * Where the time spent in each phase of the current build is recorded.
+	 */
+	private BuildTimings buildTimings = new BuildTimings();
+
+	/**
+	 * The name recorded in the compile fingerprints in place of a compilation
+	 * level when the synchronous debug and assert files are concatenated.
+	 */
+	private static final String CONCATENATE_LEVEL = "CONCATENATE";
+
+	/**
+	 * Extract internal dependency libraries, source to the location specified
+	 * in the settings. Then create the deps to be loaded first.
+	 * 
+	 * @param internsLocation
+	 *            the location of the interns files
+	 * @param source
+	 *            the collection of source files
+	 * @param closureLibFiles
+	 *            the javascript files in the closure library
+	 * @return the list of the files that are extracted (plus the generated deps
+	 *         file)
+	 * @throws MojoExecutionException
+	 *             if there is a problem generating the dependency file
+	 * @throws IOException
+	 *             if there is a problem reading or extracting the files
+	 */
+	private Collection<File> calculateInternalFiles(final File internsLocation,
+			final Collection<File> source, final List<File> closureLibFiles)
+			throws MojoExecutionException, IOException {
+		List<File> internalSourceFiles = listFiles(internsLocation);
+		LOGGER.debug("number of internal dependency files:"
+				+ internalSourceFiles.size());
+
+		HashSet<File> combinedInternal = new HashSet<File>();
+
+		combinedInternal.addAll(source);
+		combinedInternal.addAll(internalSourceFiles);
+		combinedInternal.addAll(closureLibFiles);
+
+		return combinedInternal;
+	}
+
+	/**
+	 * Calculates the Source file collection.
+	 * 
+	 * @param sourceDir
+	 *            the source directory to scan
+	 * @param internsLocation
+	 *            the internal dependency
+	 * @return the set of files calculated
+	 */
+	private Set<File> calculateSourceFiles(final File sourceDir,
+			final File internsLocation) {
+		InclusionStrategy strategy = InclusionStrategy
+				.getByType(inclusionStrategy);
+		if (strategy == null) {
+			strategy = InclusionStrategy.WHEN_IN_SRCS;
+		}
+		LOGGER.info("Calculating source files using Inclusion strategy: "
+				+ strategy);
+		Set<File> listSourceFiles = new HashSet<File>();
+		if (strategy.equals(InclusionStrategy.WHEN_IN_SRCS)) {
+			listSourceFiles.addAll(listFiles(sourceDir));
+		} else {
+			listSourceFiles.addAll(listFiles(sourceDir));
+			listSourceFiles.addAll(listFiles(internsLocation));
+		}
+		LOGGER.debug("number of source files:" + listSourceFiles.size());
+		return listSourceFiles;
+	}
+
+	/**
+	 * Run each of the compiles, spreading them over up to compileThreads
+	 * threads. Every compile uses its own compiler instance and its own extern
+	 * source files. When more than one thread is used, the log output of each
+	 * compile is held back and written out once all of them have finished, in
+	 * the order the compiles were given.
+	 * 
+	 * @param tasks
+	 *            the compiles to run, keyed by the file they produce
+	 * @param manifest
+	 *            the fingerprints of the previous outputs, or null to always
+	 *            compile
+	 * @param externFiles
+	 *            the extern files extracted from the dependencies
+	 * @param parsedDefines
+	 *            the parsed define configurations
+	 * @return the result of each compile, in the same order as the tasks
+	 * @throws FileProcessingException
+	 *             if one or more of the compiles could not be run
+	 */
+	private List<Boolean> runCompileTasks(final Map<File, CompileTask> tasks,
+			final BuildFingerprint manifest, final List<File> externFiles,
+			final List<ParsedDefine> parsedDefines)
+			throws FileProcessingException {
+		int threads = ParallelFileProcessor.resolveThreadCount(compileThreads);
+		final boolean buffered = threads > 1 && tasks.size() > 1;
+		final Map<File, List<BufferedMessage>> logs = new ConcurrentHashMap<File, List<BufferedMessage>>();
+		List<File> outputs = new ArrayList<File>(tasks.keySet());
+		try {
+			return ParallelFileProcessor.process(outputs,
+					new FileTask<Boolean>() {
+						@Override
+						public Boolean process(final File output)
+								throws Exception {
+							if (!buffered) {
+								return runCompileTask(tasks.get(output),
+										manifest, externFiles, parsedDefines);
+							}
+							MojoLogAppender.beginBuffering();
+							try {
+								return runCompileTask(tasks.get(output),
+										manifest, externFiles, parsedDefines);
+							} finally {
+								logs.put(output,
+										MojoLogAppender.endBuffering());
+							}
+						}
+					}, threads);
+		} finally {
+			for (File output : outputs) {
+				List<BufferedMessage> log = logs.get(output);
+				if (log != null) {
+					MojoLogAppender.replay(log);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Run a single compile.
+	 * 
+	 * @param task
+	 *            the compile to run
+	 * @param manifest
+	 *            the fingerprints of the previous outputs, or null to always
+	 *            compile
+	 * @param externFiles
+	 *            the extern files extracted from the dependencies
+	 * @param parsedDefines
+	 *            the parsed define configurations
+	 * @return true if the compile works or was not needed, false otherwise
+	 * @throws MojoExecutionException
+	 *             if the options are set incorrectly for the compiler
+	 * @throws MojoFailureException
+	 *             if there is a problem executing the compiler
+	 * @throws IOException
+	 *             if there is a problem reading or writing to the files
+	 */
+	private Boolean runCompileTask(final CompileTask task,
+			final BuildFingerprint manifest, final List<File> externFiles,
+			final List<ParsedDefine> parsedDefines)
+			throws MojoExecutionException, MojoFailureException, IOException {
+		if (task.syncFilename == null) {
+			return compileIfChanged(manifest, task.inputs, task.chunks,
+					externFiles, parsedDefines);
+		}
+		return generateSyncLibraryIfChanged(manifest, task.inputs,
+				externFiles, task.syncFilename, parsedDefines);
+	}
+
+	/**
+	 * Run the compiler on the calculated dependencies, input files, and
+	 * external files, unless the compiled output was last built from the same
+	 * inputs.
+	 * 
+	 * @param manifest
+	 *            the fingerprints of the previous outputs, or null to always
+	 *            compile
+	 * @param inputs
+	 *            the files to compile
+	 * @param outputChunks
+	 *            the chunks to split the output into, or null to write a
+	 *            single compiled file
+	 * @param externFiles
+	 *            the extern files extracted from the dependencies
+	 * @param parsedDefines
+	 *            the parsed define configurations
+	 * @return true if the compile works or was not needed, false otherwise
+	 * @throws MojoExecutionException
+	 *             if the options are set incorrectly for the compiler
+	 * @throws MojoFailureException
+	 *             if there is a problem executing the dependency creation or
+	 *             the compiler
+	 * @throws IOException
+	 *             if there is a problem reading or writing to the files
+	 */
+	private boolean compileIfChanged(final BuildFingerprint manifest,
+			final List<File> inputs, final List<OutputChunk> outputChunks,
+			final List<File> externFiles,
+			final List<ParsedDefine> parsedDefines)
+			throws MojoExecutionException, MojoFailureException, IOException {
+		File compiledFile;
+		List<File> companions = new ArrayList<File>();
+		if (outputChunks == null) {
+			compiledFile = getCompiledFile();
+			if (generateSourceMap) {
+				companions.add(getSourceMapFile());
+			}
+		} else {
+			compiledFile = getChunkManifestFile();
+			for (OutputChunk chunk : outputChunks) {
+				companions.add(chunk.getOutputFile());
+				if (chunk.getSourceMapFile() != null) {
+					companions.add(chunk.getSourceMapFile());
+				}
+			}
+		}
+		String fingerprint = null;
+		if (manifest != null) {
+			Map<String, String> options = getFingerprintOptions(compileLevel,
+					outputWrapper, generateSourceMap, parsedDefines);
+			if (outputChunks != null) {
+				options.put("chunks", String.valueOf(outputChunks));
+			}
+			fingerprint = manifest.calculate(inputs, externFiles, options);
+			boolean upToDate = manifest.isUpToDate(compiledFile, fingerprint,
+					companions.toArray(new File[companions.size()]));
+			if (upToDate) {
+				LOGGER.info("\"" + compiledFile.getName()
+						+ "\" is up to date, skipping compilation.");
+				return true;
+			}
+			manifest.invalidate(compiledFile);
+		}
+		ClosureCompilation compilation = createCompilation(inputs,
+				externFiles, compiledFile, parsedDefines);
+		compilation.setCompileLevel(compileLevel);
+		compilation.setLanguageIn(languageIn);
+		compilation.setLanguageOut(languageOut);
+		compilation.setOutputWrapper(outputWrapper);
+		if (outputChunks != null) {
+			compilation.setChunks(outputChunks);
+		} else if (generateSourceMap) {
+			compilation.setSourceMapFile(getSourceMapFile());
+		}
+		boolean result = runCompilation(compilation);
+		if (result && manifest != null) {
+			manifest.record(compiledFile, fingerprint);
+		}
+		return result;
+	}
+
+	/**
+	 * Generate a synchronous debug or assert file, unless it was last built
+	 * from the same inputs.
+	 * 
+	 * @param manifest
+	 *            the fingerprints of the previous outputs, or null to always
+	 *            compile
+	 * @param inputs
+	 *            the files to compile
+	 * @param externFiles
+	 *            the extern files extracted from the dependencies
+	 * @param filename
+	 *            the filename to generate
+	 * @param parsedDefines
+	 *            the parsed define configurations
+	 * @return true if the compile works or was not needed, false otherwise
+	 * @throws MojoExecutionException
+	 *             if the options are set incorrectly for the compiler
+	 * @throws MojoFailureException
+	 *             if there is a problem executing the dependency creation or
+	 *             the compiler
+	 * @throws IOException
+	 *             if there is a problem reading or writing to the files
+	 */
+	private boolean generateSyncLibraryIfChanged(
+			final BuildFingerprint manifest, final List<File> inputs,
+			final List<File> externFiles, final String filename,
+			final List<ParsedDefine> parsedDefines)
+			throws MojoExecutionException, MojoFailureException, IOException {
+		File syncFile = getSyncFile(filename);
+		File sourceMapFile = getSyncSourceMapFile(filename);
+		String fingerprint = null;
+		if (manifest != null) {
+			String wrapper = outputWrapper;
+			if (ignoreOutputWrapperSyncDebugAndAssert) {
+				wrapper = "";
+			}
+			String level = CompilationLevel.WHITESPACE_ONLY.name();
+			if (concatenateSyncAssertAndDebug) {
+				level = CONCATENATE_LEVEL;
+			}
+			fingerprint = manifest.calculate(inputs, externFiles,
+					getFingerprintOptions(level, wrapper,
+							concatenateSyncAssertAndDebug, parsedDefines));
+			boolean upToDate;
+			if (concatenateSyncAssertAndDebug) {
+				upToDate = manifest.isUpToDate(syncFile, fingerprint,
+						sourceMapFile);
+			} else {
+				upToDate = manifest.isUpToDate(syncFile, fingerprint);
+			}
+			if (upToDate) {
+				LOGGER.info("\"" + syncFile.getName()
+						+ "\" is up to date, skipping compilation.");
+				return true;
+			}
+			manifest.invalidate(syncFile);
+		}
+		boolean result;
+		if (concatenateSyncAssertAndDebug) {
+			long start = buildTimings.start();
+			result = concatenateSyncLibrary(inputs, filename,
+					ignoreOutputWrapperSyncDebugAndAssert, parsedDefines);
+			buildTimings.stop(BuildTimings.SYNC_LIBRARY_GENERATION, start);
+			buildTimings.countFilesRead(BuildTimings.SYNC_LIBRARY_GENERATION,
+					inputs);
+		} else {
+			ClosureCompilation compilation = createCompilation(inputs,
+					externFiles, syncFile, parsedDefines);
+			compilation.setSyncLibrary(true);
+			if (!ignoreOutputWrapperSyncDebugAndAssert) {
+				compilation.setOutputWrapper(outputWrapper);
+			}
+			result = runCompilation(compilation);
+		}
+		if (result && manifest != null) {
+			manifest.record(syncFile, fingerprint);
+		}
+		return result;
+	}
+
+	/**
+	 * Create a compile with the options that are the same for every output.
+	 *
+	 * @param inputs
+	 *            the files to compile
+	 * @param externFiles
+	 *            the extern files extracted from the dependencies
+	 * @param outputFile
+	 *            the file to write the compiled code to
+	 * @param parsedDefines
+	 *            the parsed define configurations
+	 * @return the compile
+	 */
+	private ClosureCompilation createCompilation(final List<File> inputs,
+			final List<File> externFiles, final File outputFile,
+			final List<ParsedDefine> parsedDefines) {
+		ClosureCompilation compilation = new ClosureCompilation(inputs,
+				externFiles, outputFile);
+		compilation.setErrorLevel(errorLevel);
+		compilation.setGenerateExports(generateExports);
+		compilation.setDefines(parsedDefines);
+		compilation.setFrameworkTargetDirectory(frameworkTargetDirectory);
+		compilation.setClosureLibraryLocation(closureLibraryLocation);
+		return compilation;
+	}
+
+	/**
+	 * Run a compile on the compile daemon, if it is being used and is
+	 * running, or within this build otherwise.
+	 *
+	 * @param compilation
+	 *            the compile to run
+	 * @return true if the compile works, false otherwise
+	 * @throws MojoExecutionException
+	 *             if the options are set incorrectly for the compiler
+	 * @throws IOException
+	 *             if there is a problem reading or writing to the files
+	 */
+	private boolean runCompilation(final ClosureCompilation compilation)
+			throws MojoExecutionException, IOException {
+		if (useCompileDaemon) {
+			long start = buildTimings.start();
+			Boolean result = CompileDaemonClient.compile(
+					compileDaemonStateFile, compilation);
+			if (result != null) {
+				// the daemon does not report its own phases
+				buildTimings.stop(BuildTimings.COMPILATION, start);
+				return result.booleanValue();
+			}
+			LOGGER.info("The compile daemon is not available, compiling \""
+					+ compilation.getOutputFile().getName()
+					+ "\" within the build.");
+		}
+		return compilation.execute(sourceFileCache, buildTimings);
+	}
+
+	/**
+	 * Generate a synchronous debug or assert file by concatenating the files,
+	 * which are already in dependency order, without compiling them. An index
+	 * source map is written alongside the file.
+	 * 
+	 * @param inputs
+	 *            the files to concatenate, starting with base.js
+	 * @param filename
+	 *            the filename to generate
+	 * @param ignoreOutputWrapper
+	 *            if true, ignores the outputWrapper if it is configured
+	 * @param parsedDefines
+	 *            the parsed define configurations
+	 * @return true once the file has been written
+	 * @throws IOException
+	 *             if there is a problem reading or writing to the files
+	 */
+	private boolean concatenateSyncLibrary(final List<File> inputs,
+			final String filename, final boolean ignoreOutputWrapper,
+			final List<ParsedDefine> parsedDefines) throws IOException {
+		File syncFile = getSyncFile(filename);
+		Files.createParentDirs(syncFile);
+
+		String wrapper = "";
+		if (!ignoreOutputWrapper) {
+			wrapper = outputWrapper;
+		}
+		String prefix = "";
+		String suffix = "";
+		int pos = wrapper
+				.indexOf(ClosureCompilation.OUTPUT_WRAPPER_MARKER);
+		if (pos != -1) {
+			prefix = wrapper.substring(0, pos);
+			suffix = wrapper.substring(pos
+					+ ClosureCompilation.OUTPUT_WRAPPER_MARKER.length());
+		}
+
+		// the files are already in order, so base.js must not try to load
+		// deps.js. goog.global is whatever "this" is where base.js runs.
+		StringBuilder header = new StringBuilder(prefix);
+		header.append("this.CLOSURE_NO_DEPS = true;\n");
+		if (!parsedDefines.isEmpty()) {
+			header.append("this.CLOSURE_DEFINES = {");
+			for (int i = 0; i < parsedDefines.size(); i++) {
+				ParsedDefine p = parsedDefines.get(i);
+				if (i > 0) {
+					header.append(", ");
+				}
+				header.append('\'').append(p.getDefineName()).append("': ");
+				if (p.getValueType().isAssignableFrom(String.class)) {
+					header.append('\'')
+							.append(p.getValue().toString()
+									.replace("\\", "\\\\")
+									.replace("'", "\\'")).append('\'');
+				} else {
+					header.append(p.getValue());
+				}
+			}
+			header.append("};\n");
+		}
+
+		SyncLibraryConcatenator.concatenate(inputs, syncFile,
+				getSyncSourceMapFile(filename), frameworkTargetDirectory,
+				header.toString(), suffix);
+		return true;
+	}
+
+	@Override
+	public final void execute() throws MojoExecutionException,
+			MojoFailureException {
+		MojoLogAppender.beginLogging(this);
+		try {
+			run();
+		} catch (Exception e) {
+			e.printStackTrace();
+			e.printStackTrace(new PrintStream(new Log4jOutputStream(LOGGER,
+					Level.DEBUG), true));
+			throw new MojoExecutionException(
+					"Unable to closure compile files: " + e.getMessage());
+		} finally {
+			MojoLogAppender.endLogging();
+		}
+	}
+
+	/**
+	 * Run the goal. Logging has already been started, and any exception is
+	 * reported as a failure of the goal.
+	 * 
+	 * @throws MojoExecutionException
+	 *             if the options are set incorrectly
+	 * @throws MojoFailureException
+	 *             if the compile fails
+	 * @throws IOException
+	 *             if there is a problem reading or writing to the files
+	 */
+	protected abstract void run() throws MojoExecutionException,
+			MojoFailureException, IOException;
+
+	/**
+	 * Set up the caches that are kept for the whole execution and create the
+	 * dependency graph to build with. The same graph can be passed to
+	 * {@link #build(DependencyGraph, boolean)} more than once, as long as the
+	 * files that change in between are invalidated.
+	 * 
+	 * @return the dependency graph
+	 * @throws MojoExecutionException
+	 *             if base.js cannot be found
+	 * @throws IOException
+	 *             if the library index cannot be read
+	 */
+	protected final DependencyGraph initialize() throws MojoExecutionException,
+			IOException {
+		// get base location for closure library
+		File baseLocation = getBaseLocation(closureLibraryLocation);
+
+		if (sourceFileCacheSize > 0) {
+			sourceFileCache = SourceFileCache.getShared(sourceFileCacheSize);
+		}
+
+		// load the dependency information from previous builds
+		if (useDependencyCache) {
+			dependencyCache = DependencyCache.load(new File(
+					frameworkTargetDirectory,
+					DependencyCache.CACHE_FILENAME),
+					dependencyScanHeaderOnly);
+		}
+		LibraryIndex libraryIndex = null;
+		if (useLibraryIndex) {
+			libraryIndex = LibraryIndex.loadClosureLibraryIndex();
+		}
+		DependencyGraph dependencyGraph = new DependencyGraph(
+				baseLocation, dependencyCache,
+				ParallelFileProcessor
+						.resolveThreadCount(dependencyScanThreads),
+				closureLibraryLocation, libraryIndex);
+		dependencyGraph.setLazyResolution(lazyDependencyResolution);
+		dependencyGraph.setHeaderOnlyScan(dependencyScanHeaderOnly);
+		return dependencyGraph;
+	}
+
+	/**
+	 * Generate the assert, debug and test dependency and requires files, then
+	 * compile the outputs.
+	 * 
+	 * @param dependencyGraph
+	 *            the dependency graph, as created by {@link #initialize()}
+	 * @param compile
+	 *            whether to compile the outputs, or only generate the
+	 *            dependency and requires files
+	 * @throws MojoExecutionException
+	 *             if the options are set incorrectly
+	 * @throws MojoFailureException
+	 *             if the compile fails
+	 * @throws IOException
+	 *             if there is a problem reading or writing to the files
+	 */
+	protected final void build(final DependencyGraph dependencyGraph,
+			final boolean compile) throws MojoExecutionException,
+			MojoFailureException, IOException {
+		buildTimings = new BuildTimings();
+		dependencyGraph.setBuildTimings(buildTimings);
+		try {
+			runBuild(dependencyGraph, compile);
+		} finally {
+			reportBuildTimings();
+		}
+	}
+
+	/**
+	 * Log a summary of the time spent in each phase of the build, and write
+	 * the full timings to the framework target directory.
+	 */
+	private void reportBuildTimings() {
+		if (!recordBuildTimings) {
+			return;
+		}
+		LOGGER.info(buildTimings.summarize());
+		File timingsFile = new File(frameworkTargetDirectory,
+				BuildTimings.TIMINGS_FILENAME);
+		try {
+			buildTimings.write(timingsFile);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to write the build timings to \""
+					+ timingsFile.getAbsolutePath() + "\": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Generate the assert, debug and test dependency and requires files, then
+	 * compile the outputs, recording the time spent in each phase.
+	 * 
+	 * @param dependencyGraph
+	 *            the dependency graph, as created by {@link #initialize()}
+	 * @param compile
+	 *            whether to compile the outputs, or only generate the
+	 *            dependency and requires files
+	 * @throws MojoExecutionException
+	 *             if the options are set incorrectly
+	 * @throws MojoFailureException
+	 *             if the compile fails
+	 * @throws IOException
+	 *             if there is a problem reading or writing to the files
+	 */
+	private void runBuild(final DependencyGraph dependencyGraph,
+			final boolean compile) throws MojoExecutionException,
+			MojoFailureException, IOException {
+		// parse complex mojo parameter defines
+		List<ParsedDefine> parsedDefines = Collections.emptyList();
+		if (defines != null && defines.length > 0) {
+			LOGGER.debug("Number of defines to parse: " + defines.length);
+			parsedDefines = parseDefines();
+			for (ParsedDefine p : parsedDefines) {
+				LOGGER.debug("parsed define: " + p.toString());
+			}
+		}
+
+		LOGGER.info("Compiling source files and internal dependencies to location \""
+				+ JsarRelativeLocations.getCompileLocation(
+						frameworkTargetDirectory).getAbsolutePath() + "\".");
+		// gather externs for both asserts and debug
+		long start = buildTimings.start();
+		List<File> externFiles = listFiles(JsarRelativeLocations
+				.getExternsLocation(frameworkTargetDirectory));
+		buildTimings.stop(BuildTimings.EXTERN_COLLECTION, start);
+		buildTimings.countFilesRead(BuildTimings.EXTERN_COLLECTION,
+				externFiles);
+
+		// the closure library is the same for every pass, so only list it
+		// once
+		start = buildTimings.start();
+		List<File> closureLibFiles = listFiles(closureLibraryLocation);
+		LOGGER.debug("number of google lib files:" + closureLibFiles.size());
+
+		// create assert file
+		Collection<File> assertSourceFiles = calculateSourceFiles(
+				JsarRelativeLocations
+						.getAssertionSourceLocation(frameworkTargetDirectory),
+				JsarRelativeLocations
+						.getInternsAssertLocation(frameworkTargetDirectory));
+		File assertFile = getGeneratedAssertJS();
+		File assertRequiresFile = getGeneratedAssertRequiresJS();
+		Collection<File> assertInternFiles = calculateInternalFiles(
+				JsarRelativeLocations
+						.getInternsAssertLocation(frameworkTargetDirectory),
+				assertSourceFiles, closureLibFiles);
+		buildTimings.stop(BuildTimings.FILE_LISTING, start);
+		List<File> assertDepsFiles = createDepsAndRequiresJS(
+				dependencyGraph, assertSourceFiles, assertInternFiles,
+				assertFile, assertRequiresFile);
+
+		// create debug file
+		File debugFile = getGeneratedDebugJS();
+		File debugRequiresFile = getGeneratedDebugRequiresJS();
+		start = buildTimings.start();
+		Collection<File> sourceFiles = calculateSourceFiles(
+				JsarRelativeLocations
+						.getDebugSourceLocation(frameworkTargetDirectory),
+				JsarRelativeLocations
+						.getInternsDebugLocation(frameworkTargetDirectory));
+		Collection<File> debugInternFiles = calculateInternalFiles(
+				JsarRelativeLocations
+						.getInternsDebugLocation(frameworkTargetDirectory),
+				sourceFiles, closureLibFiles);
+		buildTimings.stop(BuildTimings.FILE_LISTING, start);
+		List<File> debugDepsFiles = createDepsAndRequiresJS(
+				dependencyGraph, sourceFiles, debugInternFiles, debugFile,
+				debugRequiresFile);
+
+		// create testing file
+		File testDepsFile = getGeneratedTestJS();
+		Collection<File> srcAndTest = new HashSet<File>();
+		srcAndTest.addAll(assertSourceFiles);
+		start = buildTimings.start();
+		srcAndTest.addAll(FileListBuilder.buildFilteredList(
+				testSourceDirectory, "js"));
+		buildTimings.stop(BuildTimings.FILE_LISTING, start);
+		createDepsAndRequiresJS(dependencyGraph, srcAndTest,
+				assertInternFiles, testDepsFile, null);
+		LOGGER.debug("number of files in the dependency graph:"
+				+ dependencyGraph.size());
+
+		if (dependencyCache != null) {
+			dependencyCache.save();
+		}
+
+		if (!compile) {
+			return;
+		}
+
+		// create file collection for compilation
+		List<File> debugFiles = new ArrayList<File>();
+		debugFiles.add(getBaseLocation(closureLibraryLocation));
+		debugFiles.add(debugFile);
+		debugFiles.addAll(debugDepsFiles);
+
+		// load the fingerprints of the inputs to the previous outputs
+		BuildFingerprint buildFingerprint = null;
+		if (skipUnchangedOutputs) {
+			buildFingerprint = BuildFingerprint.load(new File(
+					frameworkTargetDirectory,
+					BuildFingerprint.MANIFEST_FILENAME));
+		}
+
+		// compile synchronous debug and assert files, then compile debug
+		// into compiled dir
+		Map<File, CompileTask> tasks = new LinkedHashMap<File, CompileTask>();
+		if (generateSyncAssertAndDebug) {
+			// create assert file collection for compilation
+			List<File> assertFiles = new ArrayList<File>();
+			assertFiles.add(getBaseLocation(closureLibraryLocation));
+			assertFiles.add(assertFile);
+			assertFiles.addAll(assertDepsFiles);
+			tasks.put(getSyncFile(syncAssertFilename), new CompileTask(
+					assertFiles, syncAssertFilename, null));
+			tasks.put(getSyncFile(syncDebugFilename), new CompileTask(
+					debugFiles, syncDebugFilename, null));
+		}
+		if (chunks != null && chunks.length > 0) {
+			List<File> leadingFiles = new ArrayList<File>();
+			leadingFiles.add(getBaseLocation(closureLibraryLocation));
+			leadingFiles.add(debugFile);
+			List<OutputChunk> outputChunks = ChunkAssigner.assign(
+					Arrays.asList(chunks), leadingFiles,
+					dependencyGraph.getDependencyInfo(debugDepsFiles));
+			for (OutputChunk chunk : outputChunks) {
+				File chunkFile = getChunkFile(chunk.getName());
+				chunk.setOutputFile(chunkFile);
+				if (generateSourceMap) {
+					chunk.setSourceMapFile(new File(chunkFile.getPath()
+							+ SOURCE_MAP_EXTENSION));
+				}
+			}
+			tasks.put(getChunkManifestFile(), new CompileTask(debugFiles,
+					null, outputChunks));
+		} else {
+			tasks.put(getCompiledFile(), new CompileTask(debugFiles, null,
+					null));
+		}
+
+		boolean result;
+		try {
+			List<Boolean> results = runCompileTasks(tasks,
+					buildFingerprint, externFiles, parsedDefines);
+			result = results.get(results.size() - 1).booleanValue();
+		} finally {
+			if (buildFingerprint != null) {
+				buildFingerprint.save();
+			}
+			if (sourceFileCache != null) {
+				sourceFileCache.logStatistics();
+			}
+		}
+
+		if (!result) {
+			String message = "Google Closure Compilation failure.  Please review errors to continue.";
+			LOGGER.error(message);
+			throw new MojoFailureException(message);
+		}
+	}
+
+	/**
+	 * @return the directory containing the generated and compiled files
+	 */
+	protected final File getFrameworkTargetDirectory() {
+		return frameworkTargetDirectory;
+	}
+
+	/**
+	 * @return the directory containing the test javascript files
+	 */
+	protected final File getTestSourceDirectory() {
+		return testSourceDirectory;
+	}
+
+	/**
+	 * Parse array of Define into list of strongly typed ParsedDefine.
+	 * 
+	 * @return a list of the parsed configurations
+	 * @throws MojoExecutionException
+	 *             if encountering an unsupported types for the defines objects
+	 *             or bad format in the name
+	 */
+	private List<ParsedDefine> parseDefines() throws MojoExecutionException {
+		try {
+			List<ParsedDefine> parsedDefines = new ArrayList<ParsedDefine>();
+			for (Define d : defines) {
+
+				ParsedDefine p = new ParsedDefine();
+				ParsedDefine.parseDefine(d, p);
+				parsedDefines.add(p);
+			}
+			return parsedDefines;
+		} catch (Exception e) {
+			throw new MojoExecutionException("Error parsing define", e);
+		}
+	}
+
+	/**
+	 * @return the generated assert javascript file
+	 */
+	private File getGeneratedAssertJS() {
+		return new File(
+				JsarRelativeLocations
+						.getAssertDepsLocation(frameworkTargetDirectory),
+				generatedAssertJS);
+	}
+
+	/**
+	 * @return the generated debug javascript file
+	 */
+	private File getGeneratedDebugJS() {
+		return new File(
+				JsarRelativeLocations
+						.getDebugDepsLocation(frameworkTargetDirectory),
+				generatedDebugJS);
+	}
+
+	/**
+	 * @return the generated test javascript file
+	 */
+	private File getGeneratedTestJS() {
+		return new File(
+				JsarRelativeLocations
+						.getTestDepsLocation(frameworkTargetDirectory),
+				generatedAssertJS);
+	}
+
+	/**
+	 * @return the generated assert requires javascript file
+	 */
+	private File getGeneratedAssertRequiresJS() {
+		return new File(
+				JsarRelativeLocations
+						.getAssertRequiresLocation(frameworkTargetDirectory),
+				generatedAssertRequiresJS);
+	}
+
+	/**
+	 * @return the generated debug requires javascript file
+	 */
+	private File getGeneratedDebugRequiresJS() {
+		return new File(
+				JsarRelativeLocations
+						.getDebugRequiresLocation(frameworkTargetDirectory),
+				generatedDebugRequiresJS);
+	}
+
+	/**
+	 * @return the compiled output file
+	 */
+	private File getCompiledFile() {
+		return new File(
+				JsarRelativeLocations
+						.getCompileLocation(frameworkTargetDirectory),
+				compiledFilename);
+	}
+
+	/**
+	 * @return the source map of the compiled output file
+	 */
+	private File getSourceMapFile() {
+		return new File(
+				JsarRelativeLocations
+						.getCompileLocation(frameworkTargetDirectory),
+				compiledFilename + SOURCE_MAP_EXTENSION);
+	}
+
+	/**
+	 * @return the manifest of the chunks of the compiled output
+	 */
+	private File getChunkManifestFile() {
+		return new File(
+				JsarRelativeLocations
+						.getCompileLocation(frameworkTargetDirectory),
+				chunkManifestFilename);
+	}
+
+	/**
+	 * @param chunkName
+	 *            the name of the chunk
+	 * @return the compiled output file of the chunk
+	 */
+	private File getChunkFile(final String chunkName) {
+		return new File(
+				JsarRelativeLocations
+						.getCompileLocation(frameworkTargetDirectory),
+				chunkName + ".js");
+	}
+
+	/**
+	 * @param filename
+	 *            the name of the synchronous debug or assert file
+	 * @return the synchronous debug or assert output file
+	 */
+	private File getSyncFile(final String filename) {
+		return new File(
+				JsarRelativeLocations
+						.getCompileLocation(frameworkTargetDirectory),
+				filename);
+	}
+
+	/**
+	 * @param filename
+	 *            the name of the synchronous debug or assert file
+	 * @return the source map of a concatenated synchronous debug or assert
+	 *         file
+	 */
+	private File getSyncSourceMapFile(final String filename) {
+		return getSyncFile(filename + SOURCE_MAP_EXTENSION);
+	}
+
+	/**
+	 * Collect the options that affect the output of a compile, for use in its
+	 * fingerprint.
+	 * 
+	 * @param level
+	 *            the compilation level used
+	 * @param wrapper
+	 *            the output wrapper used
+	 * @param sourceMap
+	 *            whether a source map is generated
+	 * @param parsedDefines
+	 *            the parsed define configurations
+	 * @return the options, by name
+	 */
+	private Map<String, String> getFingerprintOptions(final String level,
+			final String wrapper, final boolean sourceMap,
+			final List<ParsedDefine> parsedDefines) {
+		Map<String, String> options = new HashMap<String, String>();
+		options.put("compilerVersion", Compiler.getReleaseVersion());
+		options.put("compileLevel", level);
+		options.put("errorLevel", errorLevel);
+		options.put("languageIn", languageIn);
+		options.put("languageOut", languageOut);
+		options.put("outputWrapper", wrapper);
+		options.put("generateExports", String.valueOf(generateExports));
+		options.put("generateSourceMap", String.valueOf(sourceMap));
+		options.put("defines", String.valueOf(parsedDefines));
+		return options;
+	}
+
+	/**
+	 * A single compile to run.
+	 */
+	private static final class CompileTask {
+		/**
+		 * The files to compile, in order.
+		 */
+		private final List<File> inputs;
+
+		/**
+		 * The name of the synchronous debug or assert file to generate, or
+		 * null for the compiled output.
+		 */
+		private final String syncFilename;
+
+		/**
+		 * The chunks to split the compiled output into, or null to write a
+		 * single compiled file.
+		 */
+		private final List<OutputChunk> chunks;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param compileInputs
+		 *            the files to compile, in order
+		 * @param filename
+		 *            the name of the synchronous debug or assert file to
+		 *            generate, or null for the compiled output
+		 * @param outputChunks
+		 *            the chunks to split the compiled output into, or null to
+		 *            write a single compiled file
+		 */
+		private CompileTask(final List<File> compileInputs,
+				final String filename, final List<OutputChunk> outputChunks) {
+			this.inputs = compileInputs;
+			this.syncFilename = filename;
+			this.chunks = outputChunks;
+		}
+	}
+}
@@ -1,19 +1,17 @@
 package com.github.jlgrock.javascriptframework.closurecompiler;
 
-import java.io.BufferedReader;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
 /**
  * A class that will scan all files provided and check for namespace,
- * goog.require, and goog.provides statements.
+ * goog.require, and goog.provides statements. The scanning itself is done by
+ * {@link DependencyLexer}; the regular expressions here describe the
+ * statements that are recognized.
  */
 public final class AnnotationFileReader {
 
@@ -57,48 +55,58 @@ public final class AnnotationFileReader {
 	 */
 	public static DependencyInfo parseForDependencyInfo(final File file)
 			throws IOException {
-		DependencyInfo dep = new DependencyInfo(file);
-		FileInputStream filestream = null;
-		try {
-			if (!file.exists() || !file.isFile()) {
-				throw new IOException("the File at location "
-						+ file.getCanonicalPath() + " does not exist");
-			}
-			filestream = new FileInputStream(file);
-			DataInputStream in = new DataInputStream(filestream);
-			BufferedReader br = new BufferedReader(new InputStreamReader(in));
+		return parseForDependencyInfo(file, false);
+	}
 
-			String strLine;
-			while ((strLine = br.readLine()) != null) {
-				Matcher m;
-				// goog.provides
-				m = PROV_REGEX.matcher(strLine);
-				if (m.lookingAt()) {
-					for (int i = 0; i < m.groupCount(); i++) {
-						String s = m.group(1);
-						dep.addToProvides(s);
-					}
-				}
-				// goog.requires
-				m = REQ_REGEX.matcher(strLine);
-				if (m.lookingAt()) {
-					String s = m.group(1);
-					dep.addToRequires(s);
-				}
+	/**
+	 * Parse a file for the google reqquires, provides, and namespace
+	 * statements, optionally stopping at the first statement that is not one
+	 * of these declarations.
+	 * 
+	 * @param file
+	 *            the file to scan
+	 * @param headerOnly
+	 *            whether to stop at the first statement that is not a
+	 *            declaration
+	 * @return the dependency info object, populated with the information
+	 * @throws IOException if file does not exist or parsing is not possible
+	 */
+	public static DependencyInfo parseForDependencyInfo(final File file,
+			final boolean headerOnly) throws IOException {
+		return DependencyLexer.scan(file, readFile(file), headerOnly);
+	}
 
-				// goog namespace
-				m = NS_REGEX.matcher(strLine);
-				if (m.lookingAt()) {
-					String s = m.group(1);
-					dep.addToNamespaces(s);
-				}
+	/**
+	 * Parse the already read content of a file for the google requires,
+	 * provides, and namespace statements.
+	 * 
+	 * @param file
+	 *            the file that the content was read from
+	 * @param content
+	 *            the content of the file
+	 * @param headerOnly
+	 *            whether to stop at the first statement that is not a
+	 *            declaration
+	 * @return the dependency info object, populated with the information
+	 */
+	static DependencyInfo parseForDependencyInfo(final File file,
+			final byte[] content, final boolean headerOnly) {
+		return DependencyLexer.scan(file, content, headerOnly);
+	}
 
-			}
-		} finally {
-			if (filestream != null) {
-				filestream.close();
-			}
+	/**
+	 * Read the content of a file.
+	 * 
+	 * @param file
+	 *            the file to read
+	 * @return the content
+	 * @throws IOException if file does not exist or cannot be read
+	 */
+	private static byte[] readFile(final File file) throws IOException {
+		if (!file.exists() || !file.isFile()) {
+			throw new IOException("the File at location "
+					+ file.getCanonicalPath() + " does not exist");
 		}
-		return dep;
+		return FileUtils.readFileToByteArray(file);
 	}
 }
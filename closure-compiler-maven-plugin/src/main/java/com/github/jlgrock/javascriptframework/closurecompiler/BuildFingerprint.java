@@ -0,0 +1,272 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.AtomicFileWriter;
+import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryIO;
+import com.github.jlgrock.javascriptframework.mavenutils.io.HashUtils;
+
+/**
+ * A manifest of the fingerprints of the inputs that each compiled output was
+ * last built from. A fingerprint is a hash of the ordered list of input files,
+ * their contents, the extern files and their contents, and any options that
+ * affect the output. If the fingerprint for an output matches the one in the
+ * manifest and the output still exists, the compile for that output can be
+ * skipped.
+ *
+ * Fingerprints are safe to calculate and record from multiple threads at once,
+ * so that outputs can be compiled in parallel.
+ */
+public final class BuildFingerprint {
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(BuildFingerprint.class);
+
+	/**
+	 * The default name of the manifest file within the framework target
+	 * directory.
+	 */
+	public static final String MANIFEST_FILENAME = "compile-fingerprints.txt";
+
+	/**
+	 * The header written as the first line of the manifest file. If the way
+	 * fingerprints are calculated or the way outputs are written changes, this
+	 * should be changed so that every output is rebuilt.
+	 */
+	private static final String HEADER = "# Closure compile fingerprints v1";
+
+	/**
+	 * The separator between the output and its fingerprint.
+	 */
+	private static final String FIELD_SEPARATOR = "\t";
+
+	/**
+	 * The location the manifest is read from and written to.
+	 */
+	private final File manifestFile;
+
+	/**
+	 * The fingerprints of each output, keyed by the absolute path of the
+	 * output.
+	 */
+	private final Map<String, String> fingerprints = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * The content hashes of the files hashed so far, keyed by absolute path,
+	 * so that files shared between outputs are only read once.
+	 */
+	private final Map<String, String> fileHashes = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param manifestLocation
+	 *            the file the manifest is read from and written to
+	 */
+	private BuildFingerprint(final File manifestLocation) {
+		this.manifestFile = manifestLocation;
+	}
+
+	/**
+	 * Load a manifest from a file. If the file does not exist or cannot be
+	 * read, an empty manifest is returned and every output will be built.
+	 *
+	 * @param manifestFile
+	 *            the file to load the manifest from (and save it to later)
+	 * @return the manifest
+	 */
+	public static BuildFingerprint load(final File manifestFile) {
+		BuildFingerprint manifest = new BuildFingerprint(manifestFile);
+		if (manifestFile.isFile()) {
+			try {
+				manifest.read();
+			} catch (IOException e) {
+				LOGGER.warn("Unable to read the compile fingerprints at \""
+						+ manifestFile.getAbsolutePath()
+						+ "\", all outputs will be compiled: " + e.getMessage());
+				manifest.fingerprints.clear();
+			}
+		}
+		return manifest;
+	}
+
+	/**
+	 * Calculate the fingerprint of a compile.
+	 *
+	 * @param inputs
+	 *            the files passed to the compiler, in the order they are
+	 *            passed
+	 * @param externs
+	 *            the extern files passed to the compiler
+	 * @param options
+	 *            the options that affect the output, by name
+	 * @return the hex encoded fingerprint
+	 * @throws IOException
+	 *             if there is a problem reading any of the files
+	 */
+	public String calculate(final Collection<File> inputs,
+			final Collection<File> externs, final Map<String, String> options)
+			throws IOException {
+		MessageDigest digest = HashUtils.newDigest();
+		for (File input : inputs) {
+			HashUtils.update(digest, "input" + FIELD_SEPARATOR
+					+ input.getAbsolutePath() + FIELD_SEPARATOR
+					+ hashFile(input) + "\n");
+		}
+		for (File extern : externs) {
+			HashUtils.update(digest, "extern" + FIELD_SEPARATOR
+					+ extern.getAbsolutePath() + FIELD_SEPARATOR
+					+ hashFile(extern) + "\n");
+		}
+		for (Map.Entry<String, String> option : new TreeMap<String, String>(
+				options).entrySet()) {
+			HashUtils.update(digest, "option" + FIELD_SEPARATOR
+					+ option.getKey() + FIELD_SEPARATOR + option.getValue()
+					+ "\n");
+		}
+		return HashUtils.toHex(digest.digest());
+	}
+
+	/**
+	 * Check whether an output was last built from inputs with the given
+	 * fingerprint. The output and every file that is written along with it
+	 * must also still exist.
+	 *
+	 * @param output
+	 *            the output file
+	 * @param fingerprint
+	 *            the fingerprint of the inputs the output would be built from
+	 * @param companions
+	 *            any other files written along with the output, such as a
+	 *            source map
+	 * @return true if the output does not need to be built again
+	 */
+	public boolean isUpToDate(final File output, final String fingerprint,
+			final File... companions) {
+		if (!fingerprint.equals(fingerprints.get(output.getAbsolutePath()))
+				|| !output.isFile()) {
+			return false;
+		}
+		for (File companion : companions) {
+			if (!companion.isFile()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Record the fingerprint of the inputs an output was built from.
+	 *
+	 * @param output
+	 *            the output file
+	 * @param fingerprint
+	 *            the fingerprint of the inputs
+	 */
+	public void record(final File output, final String fingerprint) {
+		fingerprints.put(output.getAbsolutePath(), fingerprint);
+	}
+
+	/**
+	 * Remove the fingerprint of an output, so that it will be built again.
+	 * This should be called before an output is overwritten, in case the
+	 * build fails part way through.
+	 *
+	 * @param output
+	 *            the output file
+	 */
+	public void invalidate(final File output) {
+		fingerprints.remove(output.getAbsolutePath());
+	}
+
+	/**
+	 * Write the manifest back to the file it was loaded from. The file is
+	 * replaced in one step, so that a build that is interrupted cannot leave
+	 * a partial manifest behind.
+	 *
+	 * @throws IOException
+	 *             if there is a problem writing the file
+	 */
+	public void save() throws IOException {
+		DirectoryIO.createDir(manifestFile.getParentFile());
+		AtomicFileWriter out = new AtomicFileWriter(manifestFile);
+		try {
+			out.write(HEADER);
+			out.write("\n");
+			for (Map.Entry<String, String> e : new TreeMap<String, String>(
+					fingerprints).entrySet()) {
+				out.write(e.getKey());
+				out.write(FIELD_SEPARATOR);
+				out.write(e.getValue());
+				out.write("\n");
+			}
+			out.commit();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Read the fingerprints from the manifest file.
+	 *
+	 * @throws IOException
+	 *             if there is a problem reading the file
+	 */
+	private void read() throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(manifestFile), "UTF-8"));
+		try {
+			String line = in.readLine();
+			if (!HEADER.equals(line)) {
+				LOGGER.debug("Compile fingerprint format has changed, ignoring it.");
+				return;
+			}
+			while ((line = in.readLine()) != null) {
+				int separator = line.lastIndexOf(FIELD_SEPARATOR);
+				if (separator <= 0) {
+					throw new IOException("Corrupt compile fingerprint entry: "
+							+ line);
+				}
+				fingerprints.put(line.substring(0, separator),
+						line.substring(separator + 1));
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Get the content hash of a file, reading it only the first time it is
+	 * requested.
+	 *
+	 * @param file
+	 *            the file to hash
+	 * @return the hex encoded hash
+	 * @throws IOException
+	 *             if there is a problem reading the file
+	 */
+	private String hashFile(final File file) throws IOException {
+		String path = file.getAbsolutePath();
+		String hash = fileHashes.get(path);
+		if (hash == null) {
+			hash = HashUtils.hash(file);
+			fileHashes.put(path, hash);
+		}
+		return hash;
+	}
+}
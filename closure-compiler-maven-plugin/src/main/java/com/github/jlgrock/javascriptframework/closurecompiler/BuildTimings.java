@@ -0,0 +1,337 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.AtomicFileWriter;
+import com.google.common.io.Files;
+
+/**
+ * The time spent in each phase of a build, along with counters such as the
+ * number of files and bytes each phase read. A phase that runs more than once,
+ * such as the dependency calculation for the assert, debug and test files,
+ * adds up. Phases that run on several threads at once add up the time spent
+ * on every thread, so may add up to more than the time the build took.
+ *
+ * Creating the timings resets the peak heap usage recorded by the JVM, so
+ * that in a reactor build the peak reported for each module is not simply the
+ * largest seen by any module so far.
+ */
+public final class BuildTimings {
+	/**
+	 * The name of the file the timings are written to, within the framework
+	 * target directory.
+	 */
+	public static final String TIMINGS_FILENAME = "build-timings.json";
+
+	/**
+	 * Collecting the extern files.
+	 */
+	public static final String EXTERN_COLLECTION = "externCollection";
+
+	/**
+	 * Listing the source, intern and closure library files.
+	 */
+	public static final String FILE_LISTING = "fileListing";
+
+	/**
+	 * Scanning files for goog.provide and goog.require statements.
+	 */
+	public static final String DEPENDENCY_SCANNING = "dependencyScanning";
+
+	/**
+	 * Sorting the files into dependency order.
+	 */
+	public static final String SORTING = "sorting";
+
+	/**
+	 * Writing the deps and requires files.
+	 */
+	public static final String DEPS_WRITING = "depsWriting";
+
+	/**
+	 * Generating the synchronous debug and assert libraries.
+	 */
+	public static final String SYNC_LIBRARY_GENERATION = "syncLibraryGeneration";
+
+	/**
+	 * Running the closure compiler.
+	 */
+	public static final String COMPILATION = "compilation";
+
+	/**
+	 * Writing the compiled code.
+	 */
+	public static final String OUTPUT_WRITING = "outputWriting";
+
+	/**
+	 * Writing the source maps.
+	 */
+	public static final String SOURCE_MAP_WRITING = "sourceMapWriting";
+
+	/**
+	 * The counter for the number of files a phase dealt with.
+	 */
+	public static final String FILES = "files";
+
+	/**
+	 * The counter for the number of bytes a phase read.
+	 */
+	public static final String BYTES_READ = "bytesRead";
+
+	/**
+	 * The counter for the number of bytes a phase wrote.
+	 */
+	public static final String BYTES_WRITTEN = "bytesWritten";
+
+	/**
+	 * The time the build started, in nanoseconds.
+	 */
+	private final long buildStart = System.nanoTime();
+
+	/**
+	 * The time and counters of each phase, in the order they first ran.
+	 */
+	private final Map<String, Phase> phases = new LinkedHashMap<String, Phase>();
+
+	/**
+	 * Constructor.
+	 */
+	public BuildTimings() {
+		resetPeakHeap();
+	}
+
+	/**
+	 * @return the time to pass to {@link #stop(String, long)} once the phase
+	 *         is over
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Record the time spent in a phase.
+	 *
+	 * @param phase
+	 *            the name of the phase
+	 * @param start
+	 *            the time returned by {@link #start()} when the phase began
+	 */
+	public synchronized void stop(final String phase, final long start) {
+		Phase p = getPhase(phase);
+		p.nanos += System.nanoTime() - start;
+		p.runs++;
+	}
+
+	/**
+	 * Add to one of the counters of a phase.
+	 *
+	 * @param phase
+	 *            the name of the phase
+	 * @param counter
+	 *            the name of the counter
+	 * @param amount
+	 *            the amount to add
+	 */
+	public synchronized void count(final String phase, final String counter,
+			final long amount) {
+		Map<String, Long> counters = getPhase(phase).counters;
+		Long current = counters.get(counter);
+		if (current == null) {
+			counters.put(counter, Long.valueOf(amount));
+		} else {
+			counters.put(counter, Long.valueOf(current.longValue() + amount));
+		}
+	}
+
+	/**
+	 * Count a group of files and the bytes in them against a phase.
+	 *
+	 * @param phase
+	 *            the name of the phase
+	 * @param files
+	 *            the files that were read
+	 */
+	public void countFilesRead(final String phase,
+			final Iterable<File> files) {
+		long fileCount = 0;
+		long bytes = 0;
+		for (File file : files) {
+			fileCount++;
+			bytes += file.length();
+		}
+		count(phase, FILES, fileCount);
+		count(phase, BYTES_READ, bytes);
+	}
+
+	/**
+	 * @param phase
+	 *            the name of the phase
+	 * @return the time spent in the phase so far, in milliseconds
+	 */
+	public synchronized long getMillis(final String phase) {
+		Phase p = phases.get(phase);
+		if (p == null) {
+			return 0;
+		}
+		return TimeUnit.NANOSECONDS.toMillis(p.nanos);
+	}
+
+	/**
+	 * @param phase
+	 *            the name of the phase
+	 * @param counter
+	 *            the name of the counter
+	 * @return the value of the counter, or 0 if it has not been counted
+	 */
+	public synchronized long getCount(final String phase, final String counter) {
+		Phase p = phases.get(phase);
+		if (p == null || !p.counters.containsKey(counter)) {
+			return 0;
+		}
+		return p.counters.get(counter).longValue();
+	}
+
+	/**
+	 * Reset the peak usage of each heap pool to its current usage.
+	 */
+	private static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * The sum of the peak usage of each heap pool since the peaks were last
+	 * reset. The pools do not all peak at the same time, so this is an upper
+	 * bound of the most heap that was actually in use at once.
+	 *
+	 * @return the upper bound of the peak heap usage, in bytes, or -1 if it is
+	 *         not available
+	 */
+	public static long getPeakHeapBytes() {
+		long peak = 0;
+		boolean found = false;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			MemoryUsage usage = pool.getPeakUsage();
+			if (pool.getType() == MemoryType.HEAP && usage != null) {
+				peak += usage.getUsed();
+				found = true;
+			}
+		}
+		if (!found) {
+			return -1;
+		}
+		return peak;
+	}
+
+	/**
+	 * Summarize the timings on one line, for the build log.
+	 *
+	 * @return the summary
+	 */
+	public synchronized String summarize() {
+		StringBuilder sb = new StringBuilder("Build timings: total ");
+		sb.append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStart))
+				.append("ms");
+		for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+			sb.append(", ").append(entry.getKey()).append(' ')
+					.append(TimeUnit.NANOSECONDS.toMillis(entry.getValue().nanos))
+					.append("ms");
+		}
+		long peakHeap = getPeakHeapBytes();
+		if (peakHeap >= 0) {
+			sb.append(", peak heap at most ")
+					.append(peakHeap / (1024 * 1024)).append("MB");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Write the timings to a JSON file.
+	 *
+	 * @param file
+	 *            the file to write to
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public synchronized void write(final File file) throws IOException {
+		Files.createParentDirs(file);
+		AtomicFileWriter out = new AtomicFileWriter(file);
+		try {
+			out.append("{\n  \"totalMillis\": ").append(
+					String.valueOf(TimeUnit.NANOSECONDS.toMillis(System
+							.nanoTime() - buildStart)));
+			out.append(",\n  \"peakHeapUpperBoundBytes\": ").append(
+					String.valueOf(getPeakHeapBytes()));
+			out.append(",\n  \"phases\": [");
+			boolean first = true;
+			for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+				Phase p = entry.getValue();
+				if (!first) {
+					out.append(',');
+				}
+				first = false;
+				out.append("\n    {\"name\": \"").append(entry.getKey())
+						.append("\", \"millis\": ")
+						.append(String.valueOf(TimeUnit.NANOSECONDS
+								.toMillis(p.nanos))).append(", \"runs\": ")
+						.append(String.valueOf(p.runs));
+				for (Map.Entry<String, Long> counter : p.counters.entrySet()) {
+					out.append(", \"").append(counter.getKey()).append("\": ")
+							.append(String.valueOf(counter.getValue()));
+				}
+				out.append('}');
+			}
+			out.append("\n  ]\n}\n");
+			out.commit();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Get a phase, adding it if it has not run before.
+	 *
+	 * @param phase
+	 *            the name of the phase
+	 * @return the phase
+	 */
+	private Phase getPhase(final String phase) {
+		Phase p = phases.get(phase);
+		if (p == null) {
+			p = new Phase();
+			phases.put(phase, p);
+		}
+		return p;
+	}
+
+	/**
+	 * The time and counters of a single phase.
+	 */
+	private static final class Phase {
+		/**
+		 * The time spent in the phase, in nanoseconds.
+		 */
+		private long nanos;
+
+		/**
+		 * The number of times the phase has run.
+		 */
+		private int runs;
+
+		/**
+		 * The counters of the phase, in the order they were first counted.
+		 */
+		private final Map<String, Long> counters = new LinkedHashMap<String, Long>();
+	}
+}
@@ -1,18 +1,14 @@
 package com.github.jlgrock.javascriptframework.closurecompiler;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.apache.log4j.Logger;
 
+import com.github.jlgrock.javascriptframework.mavenutils.io.AtomicFileWriter;
 import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryIO;
 
 /**
@@ -33,37 +29,6 @@ public final class CalcDeps {
 	 */
 	private static final Logger LOGGER = Logger.getLogger(CalcDeps.class);
 
-	/**
-	 * Build a list of dependencies from a list of files. Takes a list of files,
-	 * extracts their provides and requires, and builds out a list of dependency
-	 * objects.
-	 * 
-	 * @param googleBaseJS
-	 *            the location of base.js in the google library
-	 * @param files
-	 *            a list of files to be parsed for goog.provides and
-	 *            goog.requires.
-	 * @return A list of dependency objects, one for each file in the files
-	 *         argument.
-	 * @throws IOException
-	 *             if there is a problem parsing the files for dependency info
-	 */
-	private static HashMap<File, DependencyInfo> buildDependenciesFromFiles(
-			final File googleBaseJS, final Collection<File> files)
-			throws IOException {
-		HashMap<File, DependencyInfo> result = new HashMap<File, DependencyInfo>();
-		Set<File> searchedAlready = new HashSet<File>();
-		for (File file : files) {
-			if (!searchedAlready.contains(file) && !file.equals(googleBaseJS)) {
-				DependencyInfo dep = AnnotationFileReader
-						.parseForDependencyInfo(file);
-				result.put(file, dep);
-				searchedAlready.add(file);
-			}
-		}
-		return result;
-	}
-
 	/**
 	 * Calculates the dependencies for given inputs.
 	 * 
@@ -74,8 +39,8 @@ public final class CalcDeps {
 	 * including the inputs, that represent all of the code that is needed to
 	 * compile the given inputs.
 	 * 
-	 * @param baseJs
-	 *            the base.js file that is in the closure library
+	 * @param graph
+	 *            the graph that the files are scanned into
 	 * @param paths
 	 *            the references (files, directories) that are used to build the
 	 *            dependency hash.
@@ -85,28 +50,39 @@ public final class CalcDeps {
 	 * @return A list of all files, including inputs, that are needed to compile
 	 *         the given inputs.
 	 * @throws IOException
-	 *             if there is a problem parsing the files
+	 *             if there is a problem parsing the files, or a DependencyException
+	 *             if a goog.require has no matching goog.provide
 	 */
 	private static List<DependencyInfo> calculateDependencies(
-			final File baseJs, final Collection<File> inputs,
+			final DependencyGraph graph, final Collection<File> inputs,
 			final Collection<File> paths) throws IOException {
-		HashSet<File> temp = new HashSet<File>();
-		temp.addAll(inputs);
-		HashMap<File, DependencyInfo> inputHash = buildDependenciesFromFiles(
-				baseJs, inputs);
-		HashMap<File, DependencyInfo> searchHash = buildDependenciesFromFiles(
-				baseJs, paths);
+		BuildTimings timings = graph.getBuildTimings();
+		long start = timings.start();
+		List<DependencyInfo> inputDeps = graph.getDependencyInfo(inputs);
+		List<DependencyInfo> searchDeps;
+		if (graph.isLazyResolution()) {
+			searchDeps = graph.getReachableDependencyInfo(inputDeps, paths);
+		} else {
+			searchDeps = graph.getDependencyInfo(paths);
+		}
+		timings.stop(BuildTimings.DEPENDENCY_SCANNING, start);
 		LOGGER.info("Dependencies Calculated.");
 
-		List<DependencyInfo> sortedDeps = slowSort(inputHash.values(),
-				searchHash.values());
+		start = timings.start();
+		List<DependencyInfo> sortedDeps = new DependencySorter(searchDeps)
+				.sort(inputDeps);
+		timings.stop(BuildTimings.SORTING, start);
+		timings.count(BuildTimings.SORTING, BuildTimings.FILES,
+				sortedDeps.size());
 		LOGGER.info("Dependencies Sorted.");
 
 		return sortedDeps;
 	}
 
 	/**
-	 * Print out a deps.js file from a list of source paths.
+	 * Print out a deps.js file from a list of source paths. The file is only
+	 * replaced if its content has changed, so that its modification time can
+	 * be used to tell whether anything downstream needs to be rebuilt.
 	 * 
 	 * @param googleBaseFile
 	 *            the location of base.js in the google library
@@ -116,32 +92,37 @@ public final class CalcDeps {
 	 *            The output file.
 	 * @throws IOException
 	 *             if there is a problem writing the file
-	 * @return True on success, false if it was unable to find the base path to
-	 *         generate deps relative to.
+	 * @return true if the file was written, false if it was unchanged
 	 */
 	private static boolean outputDeps(final File googleBaseFile,
 			final Collection<DependencyInfo> sortedDeps, final File outputFile)
 			throws IOException {
 		DirectoryIO.createDir(outputFile.getParentFile());
-		FileWriter fw = new FileWriter(outputFile);
-		BufferedWriter buff = new BufferedWriter(fw);
-
-		buff.append("\n// This file was autogenerated by CalcDeps.java\n");
-		for (DependencyInfo fileDep : sortedDeps) {
-			if (fileDep != null) {
-				buff.write(fileDep.toDepsString(googleBaseFile));
-				buff.write("\n");
-				buff.flush();
+		boolean written;
+		AtomicFileWriter out = new AtomicFileWriter(outputFile);
+		try {
+			out.write("\n// This file was autogenerated by CalcDeps.java\n");
+			for (DependencyInfo fileDep : sortedDeps) {
+				if (fileDep != null) {
+					out.write(fileDep.toDepsString(googleBaseFile));
+					out.write("\n");
+				}
 			}
+			written = out.commitIfChanged();
+		} finally {
+			out.close();
 		}
-		LOGGER.info("Deps file written.");
-
-		return true;
-
+		if (written) {
+			LOGGER.info("Deps file written.");
+		} else {
+			LOGGER.info("Deps file unchanged.");
+		}
+		return written;
 	}
 
 	/**
-	 * Print out a requires.js file from a list of source paths.
+	 * Print out a requires.js file from a list of source paths. The file is
+	 * only replaced if its content has changed.
 	 * 
 	 * @param googleBaseFile
 	 *            the location of base.js in the google library
@@ -151,110 +132,31 @@ public final class CalcDeps {
 	 *            The output file.
 	 * @throws IOException
 	 *             if there is a problem writing the file
-	 * @return True on success, false if it was unable to find the base path to
-	 *         generate deps relative to.
+	 * @return true if the file was written, false if it was unchanged
 	 */
 	private static boolean outputRequires(final File googleBaseFile,
 			final Collection<DependencyInfo> sortedDeps, final File outputFile)
 			throws IOException {
 		DirectoryIO.createDir(outputFile.getParentFile());
-		FileWriter fw = new FileWriter(outputFile);
-		BufferedWriter buff = new BufferedWriter(fw);
-
-		buff.append("\n// This file was autogenerated by CalcDeps.java\n");
-		for (DependencyInfo fileDep : sortedDeps) {
-			if (fileDep != null) {
-				buff.write(fileDep.toRequiresString(googleBaseFile));
-				buff.flush();
-			}
-		}
-		LOGGER.info("Deps file written.");
-
-		return true;
-
-	}
-
-	/**
-	 * Compare every element to one another. This is significantly slower than a
-	 * merge sort, but guarantees that deps end up in the right order
-	 * 
-	 * @param inputs
-	 *            the inputs to scan
-	 * @param deps
-	 *            the external dependencies
-	 * @return the list of dependencyInfo objects
-	 */
-	private static List<DependencyInfo> slowSort(
-			final Collection<DependencyInfo> inputs,
-			final Collection<DependencyInfo> deps) {
-		HashMap<String, DependencyInfo> searchSet = buildSearchList(deps);
-		HashSet<File> seenList = new HashSet<File>();
-		ArrayList<DependencyInfo> resultList = new ArrayList<DependencyInfo>();
-		for (DependencyInfo input : inputs) {
-			if (!seenList.contains(input.getFile())) {
-				seenList.add(input.getFile());
-				for (String require : input.getRequires()) {
-					orderDependenciesForNamespace(input.getFile(), require,
-							searchSet, seenList, resultList);
+		boolean written;
+		AtomicFileWriter out = new AtomicFileWriter(outputFile);
+		try {
+			out.write("\n// This file was autogenerated by CalcDeps.java\n");
+			for (DependencyInfo fileDep : sortedDeps) {
+				if (fileDep != null) {
+					out.write(fileDep.toRequiresString(googleBaseFile));
 				}
-				resultList.add(input);
 			}
+			written = out.commitIfChanged();
+		} finally {
+			out.close();
 		}
-		return resultList;
-	}
-
-	/**
-	 * Will order the Dependencies for a single namespace.
-	 * 
-	 * @param inputFile
-	 *            the file
-	 * @param requireNamespace
-	 *            whether or not to require the namespace
-	 * @param searchSet
-	 *            the set to search through
-	 * @param seenList
-	 *            the list of objects that have been seen already (which may be
-	 *            added to)
-	 * @param resultList
-	 *            the resulting list which will be added to
-	 */
-	private static void orderDependenciesForNamespace(final File inputFile,
-			final String requireNamespace,
-			final HashMap<String, DependencyInfo> searchSet,
-			final HashSet<File> seenList,
-			final ArrayList<DependencyInfo> resultList) {
-		if (!searchSet.containsKey(requireNamespace)) {
-			LOGGER.error("Problem with require in file '" + inputFile.getAbsolutePath()
-					+ "'. Found goog.require for '" + requireNamespace
-					+ "', but did not find a corresponding goog.provide.");
+		if (written) {
+			LOGGER.info("Requires file written.");
+		} else {
+			LOGGER.info("Requires file unchanged.");
 		}
-		DependencyInfo dep = searchSet.get(requireNamespace);
-		if (!seenList.contains(dep.getFile())) {
-			seenList.add(dep.getFile());
-			for (String subRequire : dep.getRequires()) {
-				orderDependenciesForNamespace(dep.getFile(), subRequire,
-						searchSet, seenList, resultList);
-			}
-			resultList.add(dep);
-		}
-	}
-
-	/**
-	 * Build the search list for seraching for dependencies.
-	 * 
-	 * @param deps
-	 *            the external dependencies
-	 * @return the list of external dependencies, hashed by the namespace
-	 */
-	private static HashMap<String, DependencyInfo> buildSearchList(
-			final Collection<DependencyInfo> deps) {
-		HashMap<String, DependencyInfo> returnVal = new HashMap<String, DependencyInfo>();
-		for (DependencyInfo dep : deps) {
-			for (String provide : dep.getProvides()) {
-				returnVal.put(provide, dep);
-			}
-		}
-		return returnVal;
+		return written;
 	}
 
 	/**
@@ -295,18 +197,59 @@ public final class CalcDeps {
 	public static List<File> executeCalcDeps(final File googleBaseFile,
 			final Collection<File> inputs, final Collection<File> paths,
 			final File depsFile, final File requiresFile) throws IOException {
+		return executeCalcDeps(new DependencyGraph(googleBaseFile, null, 1),
+				inputs, paths, depsFile, requiresFile);
+	}
+
+	/**
+	 * This will sort the list of dependencies, write a dependency file, and
+	 * return the list of dependencies. Files are scanned into the given graph,
+	 * so any file that the graph has already seen will not be scanned again.
+	 * 
+	 * @param graph
+	 *            the graph that the files are scanned into
+	 * @param inputs
+	 *            the set of input files to parse for provides and requires
+	 * @param paths
+	 *            to additional resources that will have provides and requires
+	 * @param depsFile
+	 *            the deps file
+	 * @param requiresFile
+	 *            the requires file
+	 * @return the list of calculated dependencies, just in case it is needed
+	 * @throws IOException
+	 *             if there is a problem reading from any dependencies or
+	 *             writing the depenency file
+	 */
+	public static List<File> executeCalcDeps(final DependencyGraph graph,
+			final Collection<File> inputs, final Collection<File> paths,
+			final File depsFile, final File requiresFile) throws IOException {
+		File googleBaseFile = graph.getGoogleBaseFile();
 		LOGGER.debug("Finding Closure dependencies...");
-		List<DependencyInfo> sortedDeps = calculateDependencies(googleBaseFile,
-				inputs, paths);
+		List<DependencyInfo> sortedDeps = calculateDependencies(graph, inputs,
+				paths);
 
 		// create deps file
+		BuildTimings timings = graph.getBuildTimings();
+		long start = timings.start();
 		LOGGER.debug("Outputting Closure dependency file...");
-		outputDeps(googleBaseFile, sortedDeps, depsFile);
+		boolean depsWritten = outputDeps(googleBaseFile, sortedDeps, depsFile);
 
-		// create deps file
+		// create requires file
+		boolean requiresWritten = false;
 		if (requiresFile != null) {
 			LOGGER.debug("Outputting Closure dependency requires file...");
-			outputRequires(googleBaseFile, sortedDeps, requiresFile);
+			requiresWritten = outputRequires(googleBaseFile, sortedDeps,
+					requiresFile);
+		}
+		timings.stop(BuildTimings.DEPS_WRITING, start);
+		if (depsWritten) {
+			timings.count(BuildTimings.DEPS_WRITING,
+					BuildTimings.BYTES_WRITTEN, depsFile.length());
+		}
+		if (requiresWritten) {
+			timings.count(BuildTimings.DEPS_WRITING,
+					BuildTimings.BYTES_WRITTEN, requiresFile.length());
 		}
 
 		LOGGER.debug("Closure dependencies created");
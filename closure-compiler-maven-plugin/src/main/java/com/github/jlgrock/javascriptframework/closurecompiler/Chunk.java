@@ -0,0 +1,70 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a chunk of the compiled output, which is written to its own file
+ * so that it can be loaded separately from the rest of the code.
+ */
+public final class Chunk {
+	/**
+	 * The name of the chunk, which is also the name of the file it is written
+	 * to, without the extension.
+	 */
+	private String name;
+
+	/**
+	 * The namespaces that this chunk is loaded for.
+	 */
+	private List<String> entryPoints = new ArrayList<String>();
+
+	/**
+	 * The names of the chunks that must be loaded before this one.
+	 */
+	private List<String> dependencies = new ArrayList<String>();
+
+	/**
+	 * Constructor used by maven.
+	 */
+	public Chunk() {
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param chunkName
+	 *            the name of the chunk
+	 * @param chunkEntryPoints
+	 *            the namespaces that this chunk is loaded for
+	 * @param chunkDependencies
+	 *            the names of the chunks that must be loaded before this one
+	 */
+	public Chunk(final String chunkName, final List<String> chunkEntryPoints,
+			final List<String> chunkDependencies) {
+		this.name = chunkName;
+		this.entryPoints = new ArrayList<String>(chunkEntryPoints);
+		this.dependencies = new ArrayList<String>(chunkDependencies);
+	}
+
+	/**
+	 * @return The name of the chunk.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The namespaces that this chunk is loaded for.
+	 */
+	public List<String> getEntryPoints() {
+		return entryPoints;
+	}
+
+	/**
+	 * @return The names of the chunks that must be loaded before this one.
+	 */
+	public List<String> getDependencies() {
+		return dependencies;
+	}
+}
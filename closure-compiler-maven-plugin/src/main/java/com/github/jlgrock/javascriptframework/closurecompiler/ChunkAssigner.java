@@ -0,0 +1,222 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Shares the files to compile out between the chunks of the compiled output.
+ * Each file is put in the deepest chunk that every chunk needing it depends
+ * on, so that it is loaded once, and no earlier than it has to be. Files that
+ * are not needed by any entry point go in the first chunk, as they would
+ * otherwise be left out of the output altogether.
+ */
+public final class ChunkAssigner {
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(ChunkAssigner.class);
+
+	/**
+	 * Private constructor for utility class.
+	 */
+	private ChunkAssigner() {
+	}
+
+	/**
+	 * Share the files out between the chunks. The chunks must be listed after
+	 * the chunks they depend on, and every chunk must depend on the first one,
+	 * directly or indirectly.
+	 *
+	 * @param chunks
+	 *            the chunks to share the files between
+	 * @param leadingFiles
+	 *            files that go at the start of the first chunk, such as
+	 *            base.js, which have no dependency information
+	 * @param dependencies
+	 *            the dependency information of the rest of the files, in
+	 *            dependency order
+	 * @return the chunks with their files, in the same order as the chunks
+	 * @throws MojoExecutionException
+	 *             if the chunks are not set up correctly
+	 */
+	public static List<OutputChunk> assign(final List<Chunk> chunks,
+			final List<File> leadingFiles,
+			final List<DependencyInfo> dependencies)
+			throws MojoExecutionException {
+		if (chunks.isEmpty()) {
+			throw new MojoExecutionException("At least one chunk is required.");
+		}
+		Map<String, Set<String>> ancestors = calculateAncestors(chunks);
+		String root = chunks.get(0).getName();
+
+		// the chunks that need each file, starting with the entry points
+		Map<String, DependencyInfo> providers = new HashMap<String, DependencyInfo>();
+		for (DependencyInfo dep : dependencies) {
+			for (String provide : dep.getProvides()) {
+				providers.put(provide, dep);
+			}
+		}
+		Map<DependencyInfo, Set<String>> needers = new HashMap<DependencyInfo, Set<String>>();
+		for (Chunk chunk : chunks) {
+			for (String entryPoint : chunk.getEntryPoints()) {
+				DependencyInfo dep = providers.get(entryPoint);
+				if (dep == null) {
+					throw new MojoExecutionException("The entry point \""
+							+ entryPoint + "\" of chunk \"" + chunk.getName()
+							+ "\" is not provided by any file.");
+				}
+				addNeeder(needers, dep, chunk.getName());
+			}
+		}
+
+		// each file is needed by the chunks of the files that require it,
+		// which are all later in the list, so work backwards
+		Map<DependencyInfo, String> assigned = new HashMap<DependencyInfo, String>();
+		for (int i = dependencies.size() - 1; i >= 0; i--) {
+			DependencyInfo dep = dependencies.get(i);
+			Set<String> neededBy = needers.get(dep);
+			String chunk;
+			if (neededBy == null) {
+				LOGGER.debug("\"" + dep.getFilename()
+						+ "\" is not needed by any entry point, adding it to \""
+						+ root + "\".");
+				chunk = root;
+			} else {
+				chunk = findDeepestCommonAncestor(chunks, ancestors, neededBy);
+			}
+			assigned.put(dep, chunk);
+			for (String require : dep.getRequires()) {
+				DependencyInfo required = providers.get(require);
+				if (required != null && required != dep) {
+					addNeeder(needers, required, chunk);
+				}
+			}
+		}
+
+		Map<String, List<File>> inputs = new LinkedHashMap<String, List<File>>();
+		for (Chunk chunk : chunks) {
+			inputs.put(chunk.getName(), new ArrayList<File>());
+		}
+		inputs.get(root).addAll(leadingFiles);
+		for (DependencyInfo dep : dependencies) {
+			inputs.get(assigned.get(dep)).add(dep.getFile());
+		}
+
+		List<OutputChunk> result = new ArrayList<OutputChunk>();
+		for (Chunk chunk : chunks) {
+			List<File> chunkInputs = inputs.get(chunk.getName());
+			LOGGER.debug("Chunk \"" + chunk.getName() + "\" has "
+					+ chunkInputs.size() + " files.");
+			result.add(new OutputChunk(chunk.getName(), chunk
+					.getDependencies(), chunkInputs));
+		}
+		return result;
+	}
+
+	/**
+	 * Record that a chunk needs a file.
+	 *
+	 * @param needers
+	 *            the chunks that need each file
+	 * @param dep
+	 *            the file that is needed
+	 * @param chunk
+	 *            the name of the chunk that needs it
+	 */
+	private static void addNeeder(
+			final Map<DependencyInfo, Set<String>> needers,
+			final DependencyInfo dep, final String chunk) {
+		Set<String> neededBy = needers.get(dep);
+		if (neededBy == null) {
+			neededBy = new HashSet<String>();
+			needers.put(dep, neededBy);
+		}
+		neededBy.add(chunk);
+	}
+
+	/**
+	 * Work out which chunks each chunk depends on, directly or indirectly,
+	 * checking that the chunks are set up correctly along the way.
+	 *
+	 * @param chunks
+	 *            the chunks, listed after the chunks they depend on
+	 * @return the chunks each chunk depends on, including itself, by name
+	 * @throws MojoExecutionException
+	 *             if the chunks are not set up correctly
+	 */
+	private static Map<String, Set<String>> calculateAncestors(
+			final List<Chunk> chunks) throws MojoExecutionException {
+		String root = chunks.get(0).getName();
+		Map<String, Set<String>> ancestors = new HashMap<String, Set<String>>();
+		for (Chunk chunk : chunks) {
+			if (chunk.getName() == null || chunk.getName().length() == 0) {
+				throw new MojoExecutionException("Every chunk must have a name.");
+			}
+			if (ancestors.containsKey(chunk.getName())) {
+				throw new MojoExecutionException("There is more than one chunk named \""
+						+ chunk.getName() + "\".");
+			}
+			Set<String> chunkAncestors = new LinkedHashSet<String>();
+			chunkAncestors.add(chunk.getName());
+			for (String dependency : chunk.getDependencies()) {
+				Set<String> dependencyAncestors = ancestors.get(dependency);
+				if (dependencyAncestors == null) {
+					throw new MojoExecutionException("Chunk \"" + chunk.getName()
+							+ "\" depends on \"" + dependency
+							+ "\", which must be listed before it.");
+				}
+				chunkAncestors.addAll(dependencyAncestors);
+			}
+			if (!chunkAncestors.contains(root)) {
+				throw new MojoExecutionException("Chunk \"" + chunk.getName()
+						+ "\" must depend on the first chunk, \"" + root + "\".");
+			}
+			ancestors.put(chunk.getName(), chunkAncestors);
+		}
+		return ancestors;
+	}
+
+	/**
+	 * Find the deepest chunk that every one of a set of chunks depends on. If
+	 * there is more than one, the one listed first is used.
+	 *
+	 * @param chunks
+	 *            all of the chunks
+	 * @param ancestors
+	 *            the chunks each chunk depends on, including itself
+	 * @param neededBy
+	 *            the chunks to find the common ancestor of
+	 * @return the name of the common ancestor
+	 */
+	private static String findDeepestCommonAncestor(final List<Chunk> chunks,
+			final Map<String, Set<String>> ancestors, final Set<String> neededBy) {
+		String deepest = null;
+		int deepestCount = -1;
+		for (Chunk chunk : chunks) {
+			String candidate = chunk.getName();
+			boolean common = true;
+			for (String needer : neededBy) {
+				if (!ancestors.get(needer).contains(candidate)) {
+					common = false;
+					break;
+				}
+			}
+			int count = ancestors.get(candidate).size();
+			if (common && count > deepestCount) {
+				deepest = candidate;
+				deepestCount = count;
+			}
+		}
+		return deepest;
+	}
+}
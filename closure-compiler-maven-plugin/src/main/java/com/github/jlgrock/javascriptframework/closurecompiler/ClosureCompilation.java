@@ -0,0 +1,956 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.AtomicFileWriter;
+import com.github.jlgrock.javascriptframework.mavenutils.io.writers.ReplacingWriter;
+import com.github.jlgrock.javascriptframework.mavenutils.logging.Log4jOutputStream;
+import com.github.jlgrock.javascriptframework.mavenutils.mavenobjects.JsarRelativeLocations;
+import com.github.jlgrock.javascriptframework.mavenutils.pathing.RelativePath;
+import com.google.common.io.Files;
+import com.google.javascript.jscomp.CommandLineRunner;
+import com.google.javascript.jscomp.CompilationLevel;
+import com.google.javascript.jscomp.Compiler;
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
+import com.google.javascript.jscomp.JSError;
+import com.google.javascript.jscomp.JSModule;
+import com.google.javascript.jscomp.Result;
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.jscomp.SourceMap.DetailLevel;
+import com.google.javascript.jscomp.SourceMap.Format;
+import com.google.javascript.jscomp.WarningLevel;
+
+/**
+ * A single run of the closure compiler, producing one output file, or one file
+ * for each chunk along with a manifest describing them. This holds
+ * everything needed to run the compile, and nothing else, so that it can be
+ * run within the build or handed to the compile daemon to run there.
+ */
+public final class ClosureCompilation implements Serializable {
+	/**
+	 * Serial version id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(ClosureCompilation.class);
+
+	/**
+	 * The string to match the code fragment in the output wrapper.
+	 */
+	static final String OUTPUT_WRAPPER_MARKER = "%output%";
+
+	/**
+	 * The files to compile, in order.
+	 */
+	private final List<File> inputs;
+
+	/**
+	 * The extern files extracted from the dependencies.
+	 */
+	private final List<File> externs;
+
+	/**
+	 * The file to write the compiled code to.
+	 */
+	private final File outputFile;
+
+	/**
+	 * The file to write the source map to, or null for no source map.
+	 */
+	private File sourceMapFile;
+
+	/**
+	 * The compilation level, ignored for synchronous libraries.
+	 */
+	private String compileLevel;
+
+	/**
+	 * The error level.
+	 */
+	private String errorLevel;
+
+	/**
+	 * The source file language, ignored for synchronous libraries.
+	 */
+	private String languageIn;
+
+	/**
+	 * The output file language, ignored for synchronous libraries.
+	 */
+	private String languageOut;
+
+	/**
+	 * Whether or not to generate the exports.
+	 */
+	private boolean generateExports;
+
+	/**
+	 * The string to wrap around the code.
+	 */
+	private String outputWrapper = "";
+
+	/**
+	 * The parsed define configurations.
+	 */
+	private List<ParsedDefine> defines = Collections.emptyList();
+
+	/**
+	 * The base directory that contains the output files.
+	 */
+	private File frameworkTargetDirectory;
+
+	/**
+	 * The location of the closure library, whose files may be cached.
+	 */
+	private File closureLibraryLocation;
+
+	/**
+	 * Whether this generates a pretty printed synchronous debug or assert
+	 * library rather than the compiled output.
+	 */
+	private boolean syncLibrary;
+
+	/**
+	 * The chunks to split the compiled output into, or null to write a single
+	 * output file.
+	 */
+	private List<OutputChunk> chunks;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param inputFiles
+	 *            the files to compile, in order
+	 * @param externFiles
+	 *            the extern files extracted from the dependencies
+	 * @param output
+	 *            the file to write the compiled code to, or the manifest when
+	 *            the output is split into chunks
+	 */
+	public ClosureCompilation(final List<File> inputFiles,
+			final List<File> externFiles, final File output) {
+		this.inputs = new ArrayList<File>(inputFiles);
+		this.externs = new ArrayList<File>(externFiles);
+		this.outputFile = output;
+	}
+
+	/**
+	 * @return the file to write the compiled code to, or the manifest when the
+	 *         output is split into chunks
+	 */
+	public File getOutputFile() {
+		return outputFile;
+	}
+
+	/**
+	 * @param sourceMapFileIn
+	 *            the file to write the source map to, or null for no source map
+	 */
+	public void setSourceMapFile(final File sourceMapFileIn) {
+		this.sourceMapFile = sourceMapFileIn;
+	}
+
+	/**
+	 * @param compileLevelIn
+	 *            the compilation level, ignored for synchronous libraries
+	 */
+	public void setCompileLevel(final String compileLevelIn) {
+		this.compileLevel = compileLevelIn;
+	}
+
+	/**
+	 * @param errorLevelIn
+	 *            the error level
+	 */
+	public void setErrorLevel(final String errorLevelIn) {
+		this.errorLevel = errorLevelIn;
+	}
+
+	/**
+	 * @param languageInIn
+	 *            the source file language, ignored for synchronous libraries
+	 */
+	public void setLanguageIn(final String languageInIn) {
+		this.languageIn = languageInIn;
+	}
+
+	/**
+	 * @param languageOutIn
+	 *            the output file language, ignored for synchronous libraries
+	 */
+	public void setLanguageOut(final String languageOutIn) {
+		this.languageOut = languageOutIn;
+	}
+
+	/**
+	 * @param generateExportsIn
+	 *            whether or not to generate the exports
+	 */
+	public void setGenerateExports(final boolean generateExportsIn) {
+		this.generateExports = generateExportsIn;
+	}
+
+	/**
+	 * @param outputWrapperIn
+	 *            the string to wrap around the code
+	 */
+	public void setOutputWrapper(final String outputWrapperIn) {
+		this.outputWrapper = outputWrapperIn;
+	}
+
+	/**
+	 * @param definesIn
+	 *            the parsed define configurations
+	 */
+	public void setDefines(final List<ParsedDefine> definesIn) {
+		this.defines = new ArrayList<ParsedDefine>(definesIn);
+	}
+
+	/**
+	 * @param frameworkTargetDirectoryIn
+	 *            the base directory that contains the output files
+	 */
+	public void setFrameworkTargetDirectory(
+			final File frameworkTargetDirectoryIn) {
+		this.frameworkTargetDirectory = frameworkTargetDirectoryIn;
+	}
+
+	/**
+	 * @param closureLibraryLocationIn
+	 *            the location of the closure library
+	 */
+	public void setClosureLibraryLocation(final File closureLibraryLocationIn) {
+		this.closureLibraryLocation = closureLibraryLocationIn;
+	}
+
+	/**
+	 * @param syncLibraryIn
+	 *            whether this generates a pretty printed synchronous debug or
+	 *            assert library rather than the compiled output
+	 */
+	public void setSyncLibrary(final boolean syncLibraryIn) {
+		this.syncLibrary = syncLibraryIn;
+	}
+
+	/**
+	 * @param chunksIn
+	 *            the chunks to split the compiled output into, which replace
+	 *            the inputs, or null to write a single output file
+	 */
+	public void setChunks(final List<OutputChunk> chunksIn) {
+		if (chunksIn == null) {
+			this.chunks = null;
+		} else {
+			this.chunks = new ArrayList<OutputChunk>(chunksIn);
+		}
+	}
+
+	/**
+	 * Run the compiler and write the output, and the source map if there is
+	 * one.
+	 *
+	 * @param cache
+	 *            the cache of extern and closure library files, or null to
+	 *            read every file
+	 * @return true if the compile works, false otherwise
+	 * @throws MojoExecutionException
+	 *             if the options are set incorrectly for the compiler
+	 * @throws IOException
+	 *             if there is a problem reading or writing to the files
+	 */
+	public boolean execute(final SourceFileCache cache)
+			throws MojoExecutionException, IOException {
+		return execute(cache, new BuildTimings());
+	}
+
+	/**
+	 * Run the compiler and write the output, and the source map if there is
+	 * one, recording the time spent in each phase.
+	 *
+	 * @param cache
+	 *            the cache of extern and closure library files, or null to
+	 *            read every file
+	 * @param timings
+	 *            where the time spent compiling and writing is recorded
+	 * @return true if the compile works, false otherwise
+	 * @throws MojoExecutionException
+	 *             if the options are set incorrectly for the compiler
+	 * @throws IOException
+	 *             if there is a problem reading or writing to the files
+	 */
+	public boolean execute(final SourceFileCache cache,
+			final BuildTimings timings) throws MojoExecutionException,
+			IOException {
+		// the synchronous libraries are timed as a whole
+		String compilePhase = BuildTimings.COMPILATION;
+		String outputPhase = BuildTimings.OUTPUT_WRITING;
+		String sourceMapPhase = BuildTimings.SOURCE_MAP_WRITING;
+		if (syncLibrary) {
+			compilePhase = BuildTimings.SYNC_LIBRARY_GENERATION;
+			outputPhase = BuildTimings.SYNC_LIBRARY_GENERATION;
+			sourceMapPhase = BuildTimings.SYNC_LIBRARY_GENERATION;
+		}
+
+		CompilerOptions compilerOptions = new CompilerOptions();
+		if (syncLibrary) {
+			generateCompilerOptions(compilerOptions);
+			CompilationLevel.WHITESPACE_ONLY
+					.setOptionsForCompilationLevel(compilerOptions);
+			compilerOptions.setGenerateExports(generateExports);
+			compilerOptions.setPrettyPrint(true);
+			compilerOptions.setClosurePass(true);
+		} else {
+			CompilationLevel compilationLevel = null;
+			try {
+				compilationLevel = CompilationLevel.valueOf(compileLevel
+						.toUpperCase());
+				LOGGER.info("Compiler set to optimization level \""
+						+ compileLevel.toUpperCase() + "\".");
+			} catch (IllegalArgumentException e) {
+				LOGGER.error("Compilation level invalid.  Aborting.");
+				throw new MojoExecutionException(
+						"Compilation level invalid.  Aborting.");
+			}
+
+			final LanguageMode inMode;
+			try {
+				inMode = LanguageMode.valueOf(languageIn);
+			} catch (IllegalArgumentException e1) {
+				throw new MojoExecutionException("Invalid languageIn. Must be one of: "
+						+ Arrays.toString(LanguageMode.values()));
+			}
+
+			final LanguageMode outMode;
+			try {
+				outMode = LanguageMode.valueOf(languageOut);
+			} catch (IllegalArgumentException e1) {
+				throw new MojoExecutionException("Invalid languageOut. Must be one of: "
+						+ Arrays.toString(LanguageMode.values()));
+			}
+
+			compilerOptions.setLanguageIn(inMode);
+			compilerOptions.setLanguageOut(outMode);
+			generateCompilerOptions(compilerOptions);
+			compilationLevel.setOptionsForCompilationLevel(compilerOptions);
+			compilerOptions.setGenerateExports(generateExports);
+
+			if (chunks != null) {
+				// each chunk gets its own map, but the compiler only tracks
+				// positions when it has somewhere to write one
+				for (OutputChunk chunk : chunks) {
+					if (chunk.getSourceMapFile() != null) {
+						attachSourceMapFileToOptions(compilerOptions,
+								chunk.getSourceMapFile());
+						break;
+					}
+				}
+			} else if (sourceMapFile != null) {
+				attachSourceMapFileToOptions(compilerOptions, sourceMapFile);
+			}
+		}
+
+		List<SourceFile> externSources = calculateExternFiles(cache);
+
+		PrintStream ps = new PrintStream(new Log4jOutputStream(LOGGER,
+				Level.DEBUG), true);
+		Compiler compiler = new Compiler(ps);
+
+		List<SourceFile> allSources = null;
+		List<JSModule> modules = null;
+		if (chunks == null) {
+			allSources = convertToSourceFiles(inputs, false, cache);
+			for (SourceFile jsf : allSources) {
+				LOGGER.debug("source files: " + jsf.getOriginalPath());
+			}
+		} else {
+			modules = createModules(cache);
+		}
+
+		timings.countFilesRead(compilePhase, inputs);
+		long start = timings.start();
+		Result result = null;
+		try {
+			LOGGER.debug("externJSSourceFiles: " + externSources);
+			if (modules == null) {
+				LOGGER.debug("allSources: " + allSources);
+				result = compiler.compile(externSources, allSources,
+						compilerOptions);
+			} else {
+				result = compiler.compileModules(externSources, modules,
+						compilerOptions);
+			}
+		} catch (Exception e) {
+			LOGGER.error("There was a problem with the compile.  Please review input.");
+			e.printStackTrace();
+			throw new MojoExecutionException(e.getMessage(), e);
+		} finally {
+			timings.stop(compilePhase, start);
+		}
+
+		listErrors(result);
+
+		if (!result.success) {
+			return false;
+		}
+
+		if (modules != null) {
+			writeChunks(compiler, modules, result, timings);
+			return true;
+		}
+
+		Files.createParentDirs(outputFile);
+		start = timings.start();
+		if (!syncLibrary && sourceMapFile != null) {
+			String sourcemapLocation = RelativePath.getRelPathFromBase(
+					sourceMapFile, JsarRelativeLocations
+							.getDebugDepsLocation(frameworkTargetDirectory));
+
+			writeOutput(outputFile, compiler, outputWrapper,
+					OUTPUT_WRAPPER_MARKER, sourcemapLocation, sourceMapFile);
+			timings.stop(outputPhase, start);
+			start = timings.start();
+			writeSourceMap(outputFile, sourceMapFile, frameworkTargetDirectory,
+					result, outputWrapper, OUTPUT_WRAPPER_MARKER);
+			timings.stop(sourceMapPhase, start);
+			timings.count(sourceMapPhase, BuildTimings.BYTES_WRITTEN,
+					sourceMapFile.length());
+		} else {
+			writeOutput(outputFile, compiler, outputWrapper,
+					OUTPUT_WRAPPER_MARKER);
+			timings.stop(outputPhase, start);
+		}
+		timings.count(outputPhase, BuildTimings.BYTES_WRITTEN,
+				outputFile.length());
+
+		return true;
+	}
+
+	/**
+	 * Create a closure module for each chunk, with the same dependencies as
+	 * the chunk.
+	 *
+	 * @param cache
+	 *            the cache of extern and closure library files, can be null
+	 * @return the modules, in the same order as the chunks
+	 * @throws IOException
+	 *             if a cached file cannot be read
+	 */
+	private List<JSModule> createModules(final SourceFileCache cache)
+			throws IOException {
+		Map<String, JSModule> modulesByName = new HashMap<String, JSModule>();
+		List<JSModule> modules = new ArrayList<JSModule>();
+		for (OutputChunk chunk : chunks) {
+			JSModule module = new JSModule(chunk.getName());
+			for (SourceFile jsf : convertToSourceFiles(chunk.getInputs(),
+					false, cache)) {
+				LOGGER.debug("source files for " + chunk.getName() + ": "
+						+ jsf.getOriginalPath());
+				module.add(jsf);
+			}
+			for (String dependency : chunk.getDependencies()) {
+				module.addDependency(modulesByName.get(dependency));
+			}
+			modulesByName.put(chunk.getName(), module);
+			modules.add(module);
+		}
+		return modules;
+	}
+
+	/**
+	 * Write each compiled chunk, and its source map if it has one, followed by
+	 * the manifest.
+	 *
+	 * @param compiler
+	 *            the google compiler, after compiling the modules
+	 * @param modules
+	 *            the compiled modules, in the same order as the chunks
+	 * @param result
+	 *            the google compiler result
+	 * @param timings
+	 *            where the time spent writing is recorded
+	 * @throws IOException
+	 *             if there is a problem writing to the files
+	 */
+	private void writeChunks(final Compiler compiler,
+			final List<JSModule> modules, final Result result,
+			final BuildTimings timings) throws IOException {
+		for (int i = 0; i < chunks.size(); i++) {
+			OutputChunk chunk = chunks.get(i);
+			File chunkFile = chunk.getOutputFile();
+			File chunkSourceMap = chunk.getSourceMapFile();
+			Files.createParentDirs(chunkFile);
+			if (result.sourceMap != null) {
+				// the map is filled in as the code for the chunk is generated
+				result.sourceMap.reset();
+			}
+			long start = timings.start();
+			writeModuleOutput(chunkFile, compiler, modules.get(i),
+					outputWrapper, OUTPUT_WRAPPER_MARKER, chunkSourceMap);
+			timings.stop(BuildTimings.OUTPUT_WRITING, start);
+			timings.count(BuildTimings.OUTPUT_WRITING,
+					BuildTimings.BYTES_WRITTEN, chunkFile.length());
+			if (chunkSourceMap != null) {
+				start = timings.start();
+				writeSourceMap(chunkFile, chunkSourceMap,
+						frameworkTargetDirectory, result, outputWrapper,
+						OUTPUT_WRAPPER_MARKER);
+				timings.stop(BuildTimings.SOURCE_MAP_WRITING, start);
+				timings.count(BuildTimings.SOURCE_MAP_WRITING,
+						BuildTimings.BYTES_WRITTEN, chunkSourceMap.length());
+			}
+			LOGGER.info("Wrote chunk \"" + chunkFile.getName() + "\" ("
+					+ chunk.getInputs().size() + " files, "
+					+ chunkFile.length() + " bytes).");
+		}
+		writeManifest();
+	}
+
+	/**
+	 * Write the manifest, which lists the file of each chunk and the chunks it
+	 * depends on, in the order they must be loaded in.
+	 *
+	 * @throws IOException
+	 *             if there is a problem writing to the file
+	 */
+	private void writeManifest() throws IOException {
+		Files.createParentDirs(outputFile);
+		AtomicFileWriter out = new AtomicFileWriter(outputFile);
+		try {
+			out.append("{\n  \"chunks\": [");
+			for (int i = 0; i < chunks.size(); i++) {
+				OutputChunk chunk = chunks.get(i);
+				if (i > 0) {
+					out.append(',');
+				}
+				out.append("\n    {\"name\": ").append(quote(chunk.getName()));
+				out.append(", \"file\": ").append(
+						quote(chunk.getOutputFile().getName()));
+				if (chunk.getSourceMapFile() != null) {
+					out.append(", \"sourceMap\": ").append(
+							quote(chunk.getSourceMapFile().getName()));
+				}
+				out.append(", \"dependencies\": [");
+				for (int j = 0; j < chunk.getDependencies().size(); j++) {
+					if (j > 0) {
+						out.append(", ");
+					}
+					out.append(quote(chunk.getDependencies().get(j)));
+				}
+				out.append("]}");
+			}
+			out.append("\n  ]\n}\n");
+			out.commit();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Quote a string for use in the manifest.
+	 *
+	 * @param value
+	 *            the string to quote
+	 * @return the quoted string
+	 */
+	private static String quote(final String value) {
+		return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+
+	/**
+	 * A simple util to convert a collection of files to a list of closure
+	 * JSSourceFiles. Files that are the same for every module are taken from
+	 * the source file cache, if there is one.
+	 *
+	 * @param jsFiles
+	 *            the collection of files to convert
+	 * @param cacheAll
+	 *            whether every file should be cached, rather than only the
+	 *            closure library files
+	 * @param cache
+	 *            the cache of extern and closure library files, can be null
+	 * @return the list of google formatted objects
+	 * @throws IOException
+	 *             if a cached file cannot be read
+	 */
+	private List<SourceFile> convertToSourceFiles(final List<File> jsFiles,
+			final boolean cacheAll, final SourceFileCache cache)
+			throws IOException {
+		String libraryPath = closureLibraryLocation.getAbsolutePath()
+				+ File.separator;
+		List<SourceFile> jsSourceFiles = new ArrayList<SourceFile>();
+		for (File f : jsFiles) {
+			if (cache != null
+					&& (cacheAll || f.getAbsolutePath().startsWith(libraryPath))) {
+				jsSourceFiles.add(cache.getSourceFile(f));
+			} else {
+				jsSourceFiles.add(SourceFile.fromFile(f));
+			}
+		}
+		return jsSourceFiles;
+	}
+
+	/**
+	 * Combine the extern files extracted from the dependencies with the
+	 * default externs.
+	 *
+	 * @param cache
+	 *            the cache of extern and closure library files, can be null
+	 * @return the list of extern source files
+	 * @throws IOException
+	 *             if unable to read the default externs
+	 */
+	private List<SourceFile> calculateExternFiles(final SourceFileCache cache)
+			throws IOException {
+		List<SourceFile> externalSourceFiles = convertToSourceFiles(externs,
+				true, cache);
+		if (cache != null) {
+			externalSourceFiles.addAll(cache.getDefaultExterns());
+		} else {
+			externalSourceFiles.addAll(CommandLineRunner.getDefaultExterns());
+		}
+		LOGGER.debug("number of external files:" + externalSourceFiles.size());
+		return externalSourceFiles;
+	}
+
+	/**
+	 * Generate and attache the source map to the compiler options.
+	 *
+	 * @param compilerOptions
+	 *            the object to attach the options to
+	 * @param mapFile
+	 *            the file the source map is written to
+	 */
+	private static void attachSourceMapFileToOptions(
+			final CompilerOptions compilerOptions, final File mapFile) {
+		compilerOptions.setSourceMapFormat(Format.V3);
+		compilerOptions.setSourceMapDetailLevel(DetailLevel.ALL);
+		compilerOptions.setSourceMapOutputPath(mapFile.getAbsolutePath());
+	}
+
+	/**
+	 * Generate and attach the compiler options to the object passed in.
+	 *
+	 * @param compilerOptions
+	 *            the object to modify.
+	 * @throws MojoExecutionException
+	 *             if the option doesn't match one of the valid values
+	 */
+	private void generateCompilerOptions(final CompilerOptions compilerOptions)
+			throws MojoExecutionException {
+		try {
+			WarningLevel wLevel = null;
+			StrictLevel sLevel = null;
+			java.util.logging.Level logLevel = null;
+			switch (ErrorLevel.valueOf(errorLevel.toUpperCase())) {
+			case NONE:
+				wLevel = WarningLevel.QUIET;
+				logLevel = java.util.logging.Level.OFF;
+				break;
+			case SIMPLE:
+				wLevel = WarningLevel.DEFAULT;
+				logLevel = java.util.logging.Level.WARNING;
+				break;
+			case WARNING:
+				wLevel = WarningLevel.VERBOSE;
+				logLevel = java.util.logging.Level.ALL;
+				break;
+			case STRICT:
+				sLevel = StrictLevel.VERBOSE;
+				logLevel = java.util.logging.Level.ALL;
+				break;
+			default:
+				throw new MojoExecutionException(
+						"Invalid value for 'errorLevel' tag.");
+			}
+			Compiler.setLoggingLevel(logLevel);
+			if (wLevel != null) {
+				wLevel.setOptionsForWarningLevel(compilerOptions);
+			}
+			if (sLevel != null) {
+				sLevel.setOptionsForWarningLevel(compilerOptions);
+			}
+			for (ParsedDefine p : defines) {
+				if (p.getValueType().isAssignableFrom(String.class)) {
+					compilerOptions.setDefineToStringLiteral(p.getDefineName(),
+							(String) p.getValue());
+				} else if (p.getValueType().isAssignableFrom(Double.class)) {
+					compilerOptions.setDefineToDoubleLiteral(p.getDefineName(),
+							(Double) p.getValue());
+				} else if (p.getValueType().isAssignableFrom(Integer.class)) {
+					compilerOptions.setDefineToNumberLiteral(p.getDefineName(),
+							(Integer) p.getValue());
+				} else if (p.getValueType().isAssignableFrom(Boolean.class)) {
+					compilerOptions.setDefineToBooleanLiteral(
+							p.getDefineName(), (Boolean) p.getValue());
+				}
+			}
+		} catch (IllegalArgumentException iae) {
+			throw new MojoExecutionException(
+					"Invalid value for 'errorLevel' tag.");
+		} catch (NullPointerException npe) {
+			throw new MojoExecutionException("'errorLevel' cannot be null");
+		}
+	}
+
+	/**
+	 * List the errors that google is providing from the compiler output.
+	 *
+	 * @param result
+	 *            the results from the compiler
+	 */
+	private static void listErrors(final Result result) {
+		for (JSError warning : result.warnings) {
+			LOGGER.warn("[Goog.WARN]: " + warning.toString());
+		}
+
+		for (JSError error : result.errors) {
+			LOGGER.error("[Goog.ERROR]: " + error.toString());
+		}
+	}
+
+	/**
+	 * Will write the output file, including the wrapper around the code, if any
+	 * exist.
+	 *
+	 * @param outFile
+	 *            The file to write to
+	 * @param compiler
+	 *            The google compiler
+	 * @param wrapper
+	 *            the string to wrap around the code (using the codePlaceholder)
+	 * @param codePlaceholder
+	 *            the identifier for the code
+	 * @throws IOException
+	 *             when the file cannot be written to.
+	 */
+	static void writeOutput(final File outFile, final Compiler compiler,
+			final String wrapper, final String codePlaceholder)
+			throws IOException {
+		writeOutput(outFile, compiler, wrapper, codePlaceholder, null, null);
+	}
+
+	/**
+	 * Will write the output file, including the wrapper around the code, if any
+	 * exist.
+	 *
+	 * @param outFile
+	 *            The file to write to
+	 * @param compiler
+	 *            The google compiler
+	 * @param wrapper
+	 *            the string to wrap around the code (using the codePlaceholder)
+	 * @param codePlaceholder
+	 *            the identifier for the code
+	 * @param pathToSourceMapFile
+	 *            the path to the source map, which is placed in the output
+	 * @param sourceMapFile
+	 *            The file containing the source map information, can be null
+	 * @throws IOException
+	 *             when the file cannot be written to.
+	 */
+	static void writeOutput(final File outFile, final Compiler compiler,
+			final String wrapper, final String codePlaceholder,
+			final String pathToSourceMapFile, final File sourceMapFile)
+			throws IOException {
+		writeModuleOutput(outFile, compiler, null, wrapper,
+				codePlaceholder, sourceMapFile);
+	}
+
+	/**
+	 * Will write the output file for the whole program or a single module,
+	 * including the wrapper around the code, if any exist.
+	 *
+	 * @param outFile
+	 *            The file to write to
+	 * @param compiler
+	 *            The google compiler
+	 * @param module
+	 *            the module to write, or null for the whole program
+	 * @param wrapper
+	 *            the string to wrap around the code (using the codePlaceholder)
+	 * @param codePlaceholder
+	 *            the identifier for the code
+	 * @param sourceMapFile
+	 *            The file containing the source map information, can be null
+	 * @throws IOException
+	 *             when the file cannot be written to.
+	 */
+	private static void writeModuleOutput(final File outFile,
+			final Compiler compiler, final JSModule module,
+			final String wrapper, final String codePlaceholder,
+			final File sourceMapFile) throws IOException {
+		AtomicFileWriter out = new AtomicFileWriter(outFile);
+		try {
+			int pos = wrapper.indexOf(codePlaceholder);
+			LOGGER.debug("wrapper = " + wrapper);
+			if (pos != -1) {
+				String prefix = "";
+
+				if (pos > 0) {
+					prefix = wrapper.substring(0, pos);
+					LOGGER.debug("prefix" + prefix);
+					out.append(prefix);
+				}
+
+				writeCode(out, compiler, module, sourceMapFile != null);
+
+				int suffixStart = pos + codePlaceholder.length();
+				if (suffixStart != wrapper.length()) {
+					LOGGER.debug("suffix" + wrapper.substring(suffixStart));
+					// Something after placeholder?
+					out.append(wrapper.substring(suffixStart));
+				}
+				// Make sure we always end output with a line feed.
+			} else {
+				writeCode(out, compiler, module, sourceMapFile != null);
+			}
+			if (sourceMapFile != null) {
+				out.append('\n');
+				out.append("//@ sourceMappingURL=" + sourceMapFile.getName());
+			}
+			out.append('\n');
+			out.commit();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write the compiled code to the output. Without a source map, the code
+	 * for each input is written as it is generated rather than building the
+	 * whole program as a single string first. With a source map, the program
+	 * must be generated in one go so that the positions in the map line up.
+	 *
+	 * @param out
+	 *            the writer to write to
+	 * @param compiler
+	 *            The google compiler
+	 * @param module
+	 *            the module to write, or null for the whole program
+	 * @param hasSourceMap
+	 *            whether a source map is being generated
+	 * @throws IOException
+	 *             when the code cannot be written.
+	 */
+	private static void writeCode(final Writer out, final Compiler compiler,
+			final JSModule module, final boolean hasSourceMap)
+			throws IOException {
+		if (module != null) {
+			if (hasSourceMap) {
+				out.write(compiler.toSource(module));
+			} else {
+				for (String code : compiler.toSourceArray(module)) {
+					out.write(code);
+				}
+			}
+		} else if (hasSourceMap) {
+			out.write(compiler.toSource());
+		} else {
+			for (String code : compiler.toSourceArray()) {
+				out.write(code);
+			}
+		}
+	}
+
+	/**
+	 * Will write the sourceMap to a output file, will also change the prefix in
+	 * the source map if needed.
+	 *
+	 * @param originalFile
+	 *            The source file, just used to determine the path and name of
+	 *            the source map file
+	 * @param outputFile
+	 *            The output file where to place the source map content
+	 * @param frameworkTargetDirectory
+	 *            The base directory that contains the output files
+	 * @param result
+	 *            The google compiler result
+	 * @param wrapper
+	 *            the string to wrap around the code (using the codePlaceholder)
+	 * @param codePlaceholder
+	 *            the identifier for the code
+	 * @throws IOException
+	 *             when the file cannot be written to.
+	 */
+	static void writeSourceMap(final File originalFile, final File outputFile,
+			final File frameworkTargetDirectory, final Result result,
+			final String wrapper, final String codePlaceholder)
+			throws IOException {
+		if (result.sourceMap != null) {
+			int pos = wrapper.indexOf(codePlaceholder);
+			LOGGER.debug("wrapper = " + wrapper);
+			if (pos != -1) {
+				String prefix = "";
+				if (pos > 0) {
+					prefix = wrapper.substring(0, pos);
+					LOGGER.debug("prefix" + prefix);
+				}
+				result.sourceMap.setWrapperPrefix(prefix);
+			}
+
+			AtomicFileWriter fOut = new AtomicFileWriter(outputFile);
+			try {
+				ReplacingWriter out = createNormalizingWriter(fOut,
+						frameworkTargetDirectory);
+				result.sourceMap.appendTo(out, originalFile.getName());
+				out.append('\n');
+				out.finish();
+				fOut.commit();
+			} finally {
+				fOut.close();
+			}
+		} else {
+			LOGGER.warn("There is no source map present in the result!");
+		}
+	}
+
+	/**
+	 * Create a writer that replaces the file paths in the source map with the
+	 * actual paths as the source map is written. The relative path is only
+	 * calculated once and the source map is never held in memory.
+	 *
+	 * @param out
+	 *            The writer to write the normalized source map to.
+	 * @param frameworkTargetDirectory
+	 *            The current path to replace.
+	 * @return the writer to write the source map to, which must be finished
+	 *         once the source map has been written
+	 * @throws IOException
+	 *             if there is a problem reading the files
+	 *
+	 */
+	private static ReplacingWriter createNormalizingWriter(final Writer out,
+			final File frameworkTargetDirectory) throws IOException {
+		String relPath = RelativePath.getRelPathFromBase(JsarRelativeLocations
+				.getCompileLocation(frameworkTargetDirectory),
+				frameworkTargetDirectory);
+		String absolutePath = frameworkTargetDirectory.getAbsolutePath()
+				+ File.separator;
+		// the writers apply their replacements in the opposite order to the
+		// order they are created in. Don't you just have to love windows!
+		ReplacingWriter relativePaths = new ReplacingWriter(out,
+				absolutePath.replace('\\', '/'), relPath.replace('\\', '/'));
+		ReplacingWriter separators = new ReplacingWriter(relativePaths, "\\",
+				"/");
+		return new ReplacingWriter(separators, "\\\\", "\\");
+	}
+}
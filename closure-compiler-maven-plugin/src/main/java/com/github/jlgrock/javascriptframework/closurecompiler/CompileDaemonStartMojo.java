@@ -0,0 +1,223 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import com.github.jlgrock.javascriptframework.closurecompiler.daemon.CompileDaemon;
+import com.github.jlgrock.javascriptframework.closurecompiler.daemon.CompileDaemonClient;
+import com.github.jlgrock.javascriptframework.mavenutils.logging.MojoLogAppender;
+
+/**
+ * Start the compile daemon in the background, if it is not already running.
+ * Builds that set useCompileDaemon will then send their compiles to it, so
+ * that the compiler and the extern and closure library files stay loaded from
+ * one build to the next.
+ */
+@Mojo(name = "compile-daemon-start", requiresProject = false)
+public class CompileDaemonStartMojo extends AbstractMojo {
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(CompileDaemonStartMojo.class);
+
+	/**
+	 * How long to wait for the daemon to start, in milliseconds.
+	 */
+	private static final long STARTUP_TIMEOUT = 30000L;
+
+	/**
+	 * How long to wait between checks that the daemon has started, in
+	 * milliseconds.
+	 */
+	private static final long STARTUP_POLL_INTERVAL = 200L;
+
+	/**
+	 * The file the compile daemon writes its port to when it starts, and
+	 * removes when it stops. The default includes the plugin version, so each
+	 * version has its own daemon.
+	 */
+	@Parameter(property = "compileDaemonStateFile",
+			defaultValue = "${user.home}${file.separator}.closure-compile-daemon-${plugin.version}")
+	private File compileDaemonStateFile;
+
+	/**
+	 * The number of minutes the daemon waits without a compile before it
+	 * stops itself. This is <pre>60</pre> by default.
+	 */
+	@Parameter(property = "compileDaemonIdleTimeout", defaultValue = "60")
+	private int compileDaemonIdleTimeout;
+
+	/**
+	 * The maximum size, in megabytes, of the daemon's cache of extern and
+	 * closure library files. A value of 0 or less turns the cache off. This is
+	 * <pre>64</pre> by default.
+	 */
+	@Parameter(property = "sourceFileCacheSize", defaultValue = "64")
+	private int sourceFileCacheSize;
+
+	/**
+	 * The java executable used to run the daemon.
+	 */
+	@Parameter(property = "compileDaemonJava",
+			defaultValue = "${java.home}${file.separator}bin${file.separator}java")
+	private File compileDaemonJava;
+
+	/**
+	 * Extra arguments for the java virtual machine that runs the daemon, such
+	 * as "-Xmx1g".
+	 */
+	@Parameter(property = "compileDaemonJvmArgs")
+	private String compileDaemonJvmArgs;
+
+	@Override
+	public final void execute() throws MojoExecutionException,
+			MojoFailureException {
+		MojoLogAppender.beginLogging(this);
+		try {
+			if (CompileDaemonClient.ping(compileDaemonStateFile)) {
+				LOGGER.info("The compile daemon is already running.");
+				return;
+			}
+			List<String> command = new ArrayList<String>();
+			command.add(compileDaemonJava.getAbsolutePath());
+			if (compileDaemonJvmArgs != null
+					&& compileDaemonJvmArgs.trim().length() > 0) {
+				for (String arg : compileDaemonJvmArgs.trim().split("\\s+")) {
+					command.add(arg);
+				}
+			}
+			command.add("-cp");
+			command.add(buildClasspath());
+			command.add(CompileDaemon.class.getName());
+			command.add(compileDaemonStateFile.getAbsolutePath());
+			command.add(String.valueOf(compileDaemonIdleTimeout));
+			command.add(String.valueOf(sourceFileCacheSize));
+			LOGGER.debug("Starting the compile daemon with: " + command);
+
+			Process process = new ProcessBuilder(command).start();
+			// the daemon writes to its own log file, so nothing is read from it
+			IOUtils.closeQuietly(process.getOutputStream());
+			IOUtils.closeQuietly(process.getInputStream());
+			IOUtils.closeQuietly(process.getErrorStream());
+
+			waitForStart(process);
+		} catch (IOException e) {
+			throw new MojoExecutionException(
+					"Unable to start the compile daemon: " + e.getMessage(), e);
+		} finally {
+			MojoLogAppender.endLogging();
+		}
+	}
+
+	/**
+	 * Wait for the daemon to answer, failing if it stops or takes too long.
+	 *
+	 * @param process
+	 *            the daemon's process
+	 * @throws MojoExecutionException
+	 *             if the daemon does not start
+	 */
+	private void waitForStart(final Process process)
+			throws MojoExecutionException {
+		String logFile = compileDaemonStateFile.getAbsolutePath()
+				+ CompileDaemon.LOG_EXTENSION;
+		long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+		while (System.currentTimeMillis() < deadline) {
+			if (CompileDaemonClient.ping(compileDaemonStateFile)) {
+				LOGGER.info("Compile daemon started, logging to \"" + logFile
+						+ "\".");
+				return;
+			}
+			try {
+				int exitValue = process.exitValue();
+				throw new MojoExecutionException(
+						"The compile daemon stopped with exit code " + exitValue
+								+ ", see \"" + logFile + "\".");
+			} catch (IllegalThreadStateException e) {
+				// still running
+				LOGGER.debug("Waiting for the compile daemon to start.");
+			}
+			try {
+				Thread.sleep(STARTUP_POLL_INTERVAL);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		process.destroy();
+		throw new MojoExecutionException(
+				"The compile daemon did not start in time, see \"" + logFile
+						+ "\".");
+	}
+
+	/**
+	 * Build the class path for the daemon from the plugin's own class path.
+	 * Maven's plugin api is shared with the plugin rather than being on its
+	 * class path, so it is added separately.
+	 *
+	 * @return the class path
+	 * @throws MojoExecutionException
+	 *             if the class path cannot be determined
+	 */
+	private static String buildClasspath() throws MojoExecutionException {
+		Set<String> entries = new LinkedHashSet<String>();
+		ClassLoader loader = CompileDaemon.class.getClassLoader();
+		if (loader instanceof URLClassLoader) {
+			for (URL url : ((URLClassLoader) loader).getURLs()) {
+				entries.add(toPath(url));
+			}
+		} else {
+			entries.add(System.getProperty("java.class.path"));
+		}
+		entries.add(toPath(CompileDaemon.class.getProtectionDomain()
+				.getCodeSource().getLocation()));
+		entries.add(toPath(AbstractMojo.class.getProtectionDomain()
+				.getCodeSource().getLocation()));
+
+		StringBuilder classpath = new StringBuilder();
+		for (String entry : entries) {
+			if (classpath.length() > 0) {
+				classpath.append(File.pathSeparator);
+			}
+			classpath.append(entry);
+		}
+		return classpath.toString();
+	}
+
+	/**
+	 * Convert a class path url to a file path.
+	 *
+	 * @param url
+	 *            the url to convert
+	 * @return the absolute path
+	 * @throws MojoExecutionException
+	 *             if the url is not a file
+	 */
+	private static String toPath(final URL url) throws MojoExecutionException {
+		try {
+			return new File(url.toURI()).getAbsolutePath();
+		} catch (URISyntaxException e) {
+			throw new MojoExecutionException("Invalid class path entry \""
+					+ url + "\".", e);
+		} catch (IllegalArgumentException e) {
+			throw new MojoExecutionException("Invalid class path entry \""
+					+ url + "\".", e);
+		}
+	}
+}
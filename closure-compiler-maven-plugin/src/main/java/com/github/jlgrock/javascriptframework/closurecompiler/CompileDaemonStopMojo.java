@@ -0,0 +1,50 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+
+import org.apache.log4j.Logger;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import com.github.jlgrock.javascriptframework.closurecompiler.daemon.CompileDaemonClient;
+import com.github.jlgrock.javascriptframework.mavenutils.logging.MojoLogAppender;
+
+/**
+ * Stop the compile daemon started with the compile-daemon-start goal. Any
+ * compiles it is running are finished first.
+ */
+@Mojo(name = "compile-daemon-stop", requiresProject = false)
+public class CompileDaemonStopMojo extends AbstractMojo {
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(CompileDaemonStopMojo.class);
+
+	/**
+	 * The file the compile daemon writes its port to when it starts, and
+	 * removes when it stops. The default includes the plugin version, so each
+	 * version has its own daemon.
+	 */
+	@Parameter(property = "compileDaemonStateFile",
+			defaultValue = "${user.home}${file.separator}.closure-compile-daemon-${plugin.version}")
+	private File compileDaemonStateFile;
+
+	@Override
+	public final void execute() throws MojoExecutionException,
+			MojoFailureException {
+		MojoLogAppender.beginLogging(this);
+		try {
+			if (CompileDaemonClient.stop(compileDaemonStateFile)) {
+				LOGGER.info("The compile daemon has been asked to stop.");
+			} else {
+				LOGGER.info("The compile daemon is not running.");
+			}
+		} finally {
+			MojoLogAppender.endLogging();
+		}
+	}
+}
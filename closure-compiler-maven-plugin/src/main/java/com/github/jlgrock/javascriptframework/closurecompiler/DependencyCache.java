@@ -0,0 +1,481 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.AtomicFileWriter;
+import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryIO;
+import com.github.jlgrock.javascriptframework.mavenutils.io.HashUtils;
+
+/**
+ * A persistent cache of the dependency information (provides, requires and
+ * namespaces) parsed out of javascript files. Entries are keyed by the
+ * absolute path of the file and are considered valid as long as the size and
+ * last modified time of the file have not changed. If either has changed, the
+ * content hash of the file is compared before falling back to parsing the file
+ * again.
+ *
+ * Lookups are safe to make from multiple threads at once, so that files can
+ * be scanned in parallel.
+ */
+public final class DependencyCache {
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(DependencyCache.class);
+
+	/**
+	 * The default name of the cache file within the framework target
+	 * directory.
+	 */
+	public static final String CACHE_FILENAME = "dependency-cache.txt";
+
+	/**
+	 * The header written as the first line of the cache file. If the format
+	 * or the way files are scanned changes, this should be changed so that old
+	 * caches are discarded.
+	 */
+	private static final String HEADER = "# CalcDeps dependency cache v2";
+
+	/**
+	 * Added to the header when files are only scanned up to the first
+	 * statement that is not a declaration.
+	 */
+	private static final String HEADER_ONLY_SUFFIX = " (header only)";
+
+	/**
+	 * The separator between the fields of an entry.
+	 */
+	private static final String FIELD_SEPARATOR = "\t";
+
+	/**
+	 * The separator between the namespaces within a field.
+	 */
+	private static final String NAMESPACE_SEPARATOR = ",";
+
+	/**
+	 * The number of fields in an entry.
+	 */
+	private static final int FIELD_COUNT = 7;
+
+	/**
+	 * The location the cache is read from and written to.
+	 */
+	private final File cacheFile;
+
+	/**
+	 * Whether files are only scanned up to the first statement that is not a
+	 * declaration.
+	 */
+	private final boolean headerOnly;
+
+	/**
+	 * The entries read from the cache file, keyed by absolute path.
+	 */
+	private final Map<String, CacheEntry> entries = new ConcurrentHashMap<String, CacheEntry>();
+
+	/**
+	 * The paths that have been requested from the cache during this build.
+	 * Only these will be written back out, so that entries for deleted files
+	 * do not accumulate.
+	 */
+	private final Set<String> usedPaths = Collections
+			.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * The number of lookups that were served from the cache.
+	 */
+	private final AtomicInteger hits = new AtomicInteger();
+
+	/**
+	 * The number of lookups that required parsing the file.
+	 */
+	private final AtomicInteger misses = new AtomicInteger();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param cacheLocation
+	 *            the file the cache is read from and written to
+	 * @param headerOnlyScan
+	 *            whether files are only scanned up to the first statement
+	 *            that is not a declaration
+	 */
+	private DependencyCache(final File cacheLocation,
+			final boolean headerOnlyScan) {
+		this.cacheFile = cacheLocation;
+		this.headerOnly = headerOnlyScan;
+	}
+
+	/**
+	 * Load a cache from a file. If the file does not exist or cannot be read,
+	 * an empty cache is returned.
+	 *
+	 * @param cacheFile
+	 *            the file to load the cache from (and save it to later)
+	 * @return the cache
+	 */
+	public static DependencyCache load(final File cacheFile) {
+		return load(cacheFile, false);
+	}
+
+	/**
+	 * Load a cache from a file. If the file does not exist, cannot be read or
+	 * was written using a different scanning mode, an empty cache is returned.
+	 *
+	 * @param cacheFile
+	 *            the file to load the cache from (and save it to later)
+	 * @param headerOnlyScan
+	 *            whether files are only scanned up to the first statement
+	 *            that is not a declaration
+	 * @return the cache
+	 */
+	public static DependencyCache load(final File cacheFile,
+			final boolean headerOnlyScan) {
+		DependencyCache cache = new DependencyCache(cacheFile, headerOnlyScan);
+		if (cacheFile.isFile()) {
+			try {
+				cache.read();
+			} catch (IOException e) {
+				LOGGER.warn("Unable to read the dependency cache at \""
+						+ cacheFile.getAbsolutePath()
+						+ "\", all files will be rescanned: " + e.getMessage());
+				cache.entries.clear();
+			}
+		}
+		LOGGER.debug("Loaded " + cache.entries.size()
+				+ " entries from the dependency cache.");
+		return cache;
+	}
+
+	/**
+	 * Get the dependency information for a file, using the cached version if
+	 * the file has not changed since it was last parsed.
+	 *
+	 * @param file
+	 *            the file to get the dependency information for
+	 * @return the dependency information
+	 * @throws IOException
+	 *             if the file does not exist or cannot be parsed
+	 */
+	public DependencyInfo getDependencyInfo(final File file)
+			throws IOException {
+		if (!file.isFile()) {
+			throw new IOException("the File at location "
+					+ file.getCanonicalPath() + " does not exist");
+		}
+		String path = file.getAbsolutePath();
+		long size = file.length();
+		long lastModified = file.lastModified();
+
+		CacheEntry entry = entries.get(path);
+		usedPaths.add(path);
+		if (entry != null && entry.size == size
+				&& entry.lastModified == lastModified) {
+			hits.incrementAndGet();
+			return entry.toDependencyInfo(file);
+		}
+
+		byte[] content = FileUtils.readFileToByteArray(file);
+		String hash = HashUtils.hash(content);
+		if (entry != null && entry.hash.equals(hash)) {
+			hits.incrementAndGet();
+			entries.put(path, new CacheEntry(size, lastModified, entry));
+			return entry.toDependencyInfo(file);
+		}
+
+		misses.incrementAndGet();
+		DependencyInfo dep = AnnotationFileReader.parseForDependencyInfo(file,
+				content, headerOnly);
+		entries.put(path, new CacheEntry(size, lastModified, hash, dep));
+		return dep;
+	}
+
+	/**
+	 * Get the cached dependency information for a file, but only if the size
+	 * and last modified time of the file show that it has not changed. The
+	 * file itself is never read.
+	 *
+	 * @param file
+	 *            the file to get the dependency information for
+	 * @return the dependency information, or null if it is not cached or the
+	 *         file may have changed
+	 */
+	public DependencyInfo getDependencyInfoIfUnchanged(final File file) {
+		String path = file.getAbsolutePath();
+		CacheEntry entry = entries.get(path);
+		if (entry == null || entry.size != file.length()
+				|| entry.lastModified != file.lastModified()) {
+			return null;
+		}
+		usedPaths.add(path);
+		hits.incrementAndGet();
+		return entry.toDependencyInfo(file);
+	}
+
+	/**
+	 * Write the cache back to the file it was loaded from. Only the entries
+	 * that were used during this build are written. The file is replaced in
+	 * one step, so that a build that is interrupted cannot leave a partial
+	 * cache behind.
+	 *
+	 * @throws IOException
+	 *             if there is a problem writing the file
+	 */
+	public void save() throws IOException {
+		LOGGER.info("Dependency cache: " + hits + " files unchanged, " + misses
+				+ " files scanned.");
+		DirectoryIO.createDir(cacheFile.getParentFile());
+		Map<String, CacheEntry> sorted = new TreeMap<String, CacheEntry>();
+		for (String path : usedPaths) {
+			CacheEntry entry = entries.get(path);
+			if (entry != null) {
+				sorted.put(path, entry);
+			}
+		}
+		AtomicFileWriter out = new AtomicFileWriter(cacheFile);
+		try {
+			out.write(header());
+			out.write("\n");
+			for (Map.Entry<String, CacheEntry> e : sorted.entrySet()) {
+				CacheEntry entry = e.getValue();
+				out.write(e.getKey());
+				out.write(FIELD_SEPARATOR);
+				out.write(String.valueOf(entry.size));
+				out.write(FIELD_SEPARATOR);
+				out.write(String.valueOf(entry.lastModified));
+				out.write(FIELD_SEPARATOR);
+				out.write(entry.hash);
+				out.write(FIELD_SEPARATOR);
+				out.write(join(entry.provides));
+				out.write(FIELD_SEPARATOR);
+				out.write(join(entry.requires));
+				out.write(FIELD_SEPARATOR);
+				out.write(join(entry.namespaces));
+				out.write("\n");
+			}
+			out.commit();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Read the entries from the cache file.
+	 *
+	 * @throws IOException
+	 *             if there is a problem reading the file
+	 */
+	private void read() throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(cacheFile), "UTF-8"));
+		try {
+			String line = in.readLine();
+			if (!header().equals(line)) {
+				LOGGER.debug("Dependency cache format has changed, ignoring it.");
+				return;
+			}
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.split(FIELD_SEPARATOR, -1);
+				if (fields.length != FIELD_COUNT) {
+					throw new IOException("Corrupt dependency cache entry: "
+							+ line);
+				}
+				try {
+					CacheEntry entry = new CacheEntry(
+							Long.parseLong(fields[1]),
+							Long.parseLong(fields[2]), fields[3],
+							split(fields[4]), split(fields[5]),
+							split(fields[6]));
+					entries.put(fields[0], entry);
+				} catch (NumberFormatException e) {
+					throw new IOException("Corrupt dependency cache entry: "
+							+ line);
+				}
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * @return the first line of the cache file for the current scanning mode
+	 */
+	private String header() {
+		if (headerOnly) {
+			return HEADER + HEADER_ONLY_SUFFIX;
+		}
+		return HEADER;
+	}
+
+	/**
+	 * Join a collection of namespaces into a single field.
+	 *
+	 * @param namespaces
+	 *            the namespaces to join
+	 * @return the joined string
+	 */
+	private static String join(final Collection<String> namespaces) {
+		StringBuilder sb = new StringBuilder();
+		for (String namespace : namespaces) {
+			if (sb.length() > 0) {
+				sb.append(NAMESPACE_SEPARATOR);
+			}
+			sb.append(namespace);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Split a single field into its namespaces.
+	 *
+	 * @param field
+	 *            the field to split
+	 * @return the namespaces
+	 */
+	private static Set<String> split(final String field) {
+		Set<String> namespaces = new HashSet<String>();
+		if (field.length() > 0) {
+			for (String namespace : field.split(NAMESPACE_SEPARATOR)) {
+				namespaces.add(namespace);
+			}
+		}
+		return namespaces;
+	}
+
+	/**
+	 * A single cached file.
+	 */
+	private static final class CacheEntry {
+		/**
+		 * The size of the file when it was parsed.
+		 */
+		private final long size;
+
+		/**
+		 * The last modified time of the file when it was parsed.
+		 */
+		private final long lastModified;
+
+		/**
+		 * The hash of the content of the file when it was parsed.
+		 */
+		private final String hash;
+
+		/**
+		 * The provides found in the file.
+		 */
+		private final Set<String> provides;
+
+		/**
+		 * The requires found in the file.
+		 */
+		private final Set<String> requires;
+
+		/**
+		 * The namespaces found in the file.
+		 */
+		private final Set<String> namespaces;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param fileSize
+		 *            the size of the file
+		 * @param fileLastModified
+		 *            the last modified time of the file
+		 * @param fileHash
+		 *            the hash of the file content
+		 * @param fileProvides
+		 *            the provides found in the file
+		 * @param fileRequires
+		 *            the requires found in the file
+		 * @param fileNamespaces
+		 *            the namespaces found in the file
+		 */
+		private CacheEntry(final long fileSize, final long fileLastModified,
+				final String fileHash, final Set<String> fileProvides,
+				final Set<String> fileRequires, final Set<String> fileNamespaces) {
+			this.size = fileSize;
+			this.lastModified = fileLastModified;
+			this.hash = fileHash;
+			this.provides = fileProvides;
+			this.requires = fileRequires;
+			this.namespaces = fileNamespaces;
+		}
+
+		/**
+		 * Constructor.
+		 *
+		 * @param fileSize
+		 *            the size of the file
+		 * @param fileLastModified
+		 *            the last modified time of the file
+		 * @param fileHash
+		 *            the hash of the file content
+		 * @param dep
+		 *            the parsed dependency information
+		 */
+		private CacheEntry(final long fileSize, final long fileLastModified,
+				final String fileHash, final DependencyInfo dep) {
+			this(fileSize, fileLastModified, fileHash, new HashSet<String>(
+					dep.getProvides()), new HashSet<String>(dep.getRequires()),
+					new HashSet<String>(dep.getNamespaces()));
+		}
+
+		/**
+		 * Constructor for an entry whose file has been touched but whose
+		 * content has not changed.
+		 *
+		 * @param fileSize
+		 *            the new size of the file
+		 * @param fileLastModified
+		 *            the new last modified time of the file
+		 * @param previous
+		 *            the entry for the unchanged content
+		 */
+		private CacheEntry(final long fileSize, final long fileLastModified,
+				final CacheEntry previous) {
+			this(fileSize, fileLastModified, previous.hash, previous.provides,
+					previous.requires, previous.namespaces);
+		}
+
+		/**
+		 * Create a new dependency info object from the cached information.
+		 *
+		 * @param file
+		 *            the file the information belongs to
+		 * @return the dependency info
+		 */
+		private DependencyInfo toDependencyInfo(final File file) {
+			DependencyInfo dep = new DependencyInfo(file);
+			for (String provide : provides) {
+				dep.addToProvides(provide);
+			}
+			for (String require : requires) {
+				dep.addToRequires(require);
+			}
+			for (String namespace : namespaces) {
+				dep.addToNamespaces(namespace);
+			}
+			return dep;
+		}
+	}
+}
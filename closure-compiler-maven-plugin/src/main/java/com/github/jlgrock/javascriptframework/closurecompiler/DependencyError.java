@@ -0,0 +1,154 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A problem found while ordering the dependencies of a set of files.
+ */
+public final class DependencyError {
+
+	/**
+	 * The kinds of problems that can be found.
+	 */
+	public enum Type {
+		/**
+		 * A file has a goog.require for a namespace that no file provides.
+		 */
+		MISSING_PROVIDE,
+
+		/**
+		 * A file depends, directly or indirectly, on itself.
+		 */
+		CYCLE
+	}
+
+	/**
+	 * The kind of problem.
+	 */
+	private final Type type;
+
+	/**
+	 * The file that the problem was found in.
+	 */
+	private final File file;
+
+	/**
+	 * The namespace that was required.
+	 */
+	private final String namespace;
+
+	/**
+	 * The files that make up the cycle, empty if this is not a cycle.
+	 */
+	private final List<File> cycle;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param errorType
+	 *            the kind of problem
+	 * @param errorFile
+	 *            the file that the problem was found in
+	 * @param requiredNamespace
+	 *            the namespace that was required
+	 * @param cycleFiles
+	 *            the files that make up the cycle
+	 */
+	private DependencyError(final Type errorType, final File errorFile,
+			final String requiredNamespace, final List<File> cycleFiles) {
+		this.type = errorType;
+		this.file = errorFile;
+		this.namespace = requiredNamespace;
+		this.cycle = Collections.unmodifiableList(new ArrayList<File>(
+				cycleFiles));
+	}
+
+	/**
+	 * Create an error for a goog.require that has no matching goog.provide.
+	 *
+	 * @param file
+	 *            the file with the goog.require
+	 * @param namespace
+	 *            the namespace that was required
+	 * @return the error
+	 */
+	public static DependencyError missingProvide(final File file,
+			final String namespace) {
+		return new DependencyError(Type.MISSING_PROVIDE, file, namespace,
+				Collections.<File> emptyList());
+	}
+
+	/**
+	 * Create an error for a circular dependency.
+	 *
+	 * @param file
+	 *            the file with the goog.require that closes the cycle
+	 * @param namespace
+	 *            the namespace that was required
+	 * @param cycle
+	 *            the files that make up the cycle, starting with the file that
+	 *            was required
+	 * @return the error
+	 */
+	public static DependencyError cycle(final File file,
+			final String namespace, final List<File> cycle) {
+		return new DependencyError(Type.CYCLE, file, namespace, cycle);
+	}
+
+	/**
+	 * @return the kind of problem
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the file that the problem was found in
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the namespace that was required
+	 */
+	public String getNamespace() {
+		return namespace;
+	}
+
+	/**
+	 * @return the files that make up the cycle, empty if this is not a cycle
+	 */
+	public List<File> getCycle() {
+		return cycle;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		if (type == Type.MISSING_PROVIDE) {
+			sb.append("Problem with require in file '");
+			sb.append(file.getAbsolutePath());
+			sb.append("'. Found goog.require for '");
+			sb.append(namespace);
+			sb.append("', but did not find a corresponding goog.provide.");
+		} else {
+			sb.append("Circular dependency found through goog.require for '");
+			sb.append(namespace);
+			sb.append("' in file '");
+			sb.append(file.getAbsolutePath());
+			sb.append("': ");
+			for (File f : cycle) {
+				sb.append(f.getName());
+				sb.append(" -> ");
+			}
+			if (!cycle.isEmpty()) {
+				sb.append(cycle.get(0).getName());
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,63 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when the dependencies of a set of files cannot be ordered, for
+ * example because a goog.require has no matching goog.provide. All of the
+ * problems that were found are included, not just the first.
+ */
+public class DependencyException extends IOException {
+
+	/**
+	 * Serial version id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The problems that were found.
+	 */
+	private final List<DependencyError> errors;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dependencyErrors
+	 *            the problems that were found
+	 */
+	public DependencyException(final List<DependencyError> dependencyErrors) {
+		super(buildMessage(dependencyErrors));
+		this.errors = Collections.unmodifiableList(new ArrayList<DependencyError>(
+				dependencyErrors));
+	}
+
+	/**
+	 * @return the problems that were found
+	 */
+	public final List<DependencyError> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Build the exception message from the problems that were found.
+	 *
+	 * @param dependencyErrors
+	 *            the problems that were found
+	 * @return the message
+	 */
+	private static String buildMessage(
+			final List<DependencyError> dependencyErrors) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Unable to resolve the dependencies (");
+		sb.append(dependencyErrors.size());
+		sb.append(" problem(s)):");
+		for (DependencyError error : dependencyErrors) {
+			sb.append("\n  ");
+			sb.append(error);
+		}
+		return sb.toString();
+	}
+}
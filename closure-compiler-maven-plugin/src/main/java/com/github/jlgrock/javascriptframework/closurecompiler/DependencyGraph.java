@@ -0,0 +1,374 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.ParallelFileProcessor;
+import com.github.jlgrock.javascriptframework.mavenutils.io.ParallelFileProcessor.FileTask;
+
+/**
+ * The dependency information for every file that has been scanned during a
+ * single execution. A graph is built up as it is queried, so that it can be
+ * shared between several calculations (for example the assert, debug and test
+ * dependency files), and any file that is used by more than one of them is
+ * only ever scanned once.
+ *
+ * With lazy resolution turned on, the search path is only used to find the
+ * file that provides each namespace, and only the files that are actually
+ * reached by following goog.require statements from the inputs are sorted and
+ * written out. The provides are taken from the library index or the
+ * dependency cache whenever possible. A file that has to be scanned is only
+ * scanned once, and all of its dependency information is kept in the graph
+ * and the cache, so it is not scanned again if it is reached.
+ */
+public final class DependencyGraph {
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(DependencyGraph.class);
+
+	/**
+	 * The location of base.js in the google library, which is never scanned.
+	 */
+	private final File googleBaseFile;
+
+	/**
+	 * The cache of previously parsed files, may be null.
+	 */
+	private final DependencyCache cache;
+
+	/**
+	 * The number of threads to scan files with.
+	 */
+	private final int scanThreads;
+
+	/**
+	 * The root directory of the library that the index describes.
+	 */
+	private final File libraryRoot;
+
+	/**
+	 * The pre-built index of the library, may be null.
+	 */
+	private final LibraryIndex libraryIndex;
+
+	/**
+	 * The dependency information for each file that has been scanned so far.
+	 */
+	private final Map<File, DependencyInfo> nodes = new HashMap<File, DependencyInfo>();
+
+	/**
+	 * Whether only the files reachable from the inputs are fully scanned.
+	 */
+	private boolean lazyResolution;
+
+	/**
+	 * Whether files are only scanned up to the first statement that is not a
+	 * declaration.
+	 */
+	private boolean headerOnlyScan;
+
+	/**
+	 * Where the files scanned are counted.
+	 */
+	private BuildTimings timings = new BuildTimings();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param googleBase
+	 *            the location of base.js in the google library
+	 * @param dependencyCache
+	 *            the cache of previously parsed files, may be null
+	 * @param threads
+	 *            the number of threads to scan files with
+	 */
+	public DependencyGraph(final File googleBase,
+			final DependencyCache dependencyCache, final int threads) {
+		this(googleBase, dependencyCache, threads, null, null);
+	}
+
+	/**
+	 * Constructor for a graph that will take the dependency information of
+	 * library files from a pre-built index rather than scanning them.
+	 *
+	 * @param googleBase
+	 *            the location of base.js in the google library
+	 * @param dependencyCache
+	 *            the cache of previously parsed files, may be null
+	 * @param threads
+	 *            the number of threads to scan files with
+	 * @param indexedLibraryRoot
+	 *            the root directory of the library that the index describes
+	 * @param index
+	 *            the pre-built index of the library, may be null
+	 */
+	public DependencyGraph(final File googleBase,
+			final DependencyCache dependencyCache, final int threads,
+			final File indexedLibraryRoot, final LibraryIndex index) {
+		this.googleBaseFile = googleBase;
+		this.cache = dependencyCache;
+		this.scanThreads = threads;
+		this.libraryRoot = indexedLibraryRoot;
+		this.libraryIndex = index;
+	}
+
+	/**
+	 * @return the location of base.js in the google library
+	 */
+	public File getGoogleBaseFile() {
+		return googleBaseFile;
+	}
+
+	/**
+	 * @return whether only the files reachable from the inputs are fully
+	 *         scanned
+	 */
+	public boolean isLazyResolution() {
+		return lazyResolution;
+	}
+
+	/**
+	 * @param lazy
+	 *            whether only the files reachable from the inputs should be
+	 *            fully scanned
+	 */
+	public void setLazyResolution(final boolean lazy) {
+		this.lazyResolution = lazy;
+	}
+
+	/**
+	 * @return whether files are only scanned up to the first statement that
+	 *         is not a declaration
+	 */
+	public boolean isHeaderOnlyScan() {
+		return headerOnlyScan;
+	}
+
+	/**
+	 * Set whether files are only scanned up to the first statement that is not
+	 * a declaration. This does not affect files read from the dependency
+	 * cache, which has its own setting.
+	 *
+	 * @param headerOnly
+	 *            whether to stop scanning at the first statement that is not a
+	 *            declaration
+	 */
+	public void setHeaderOnlyScan(final boolean headerOnly) {
+		this.headerOnlyScan = headerOnly;
+	}
+
+	/**
+	 * @return where the time spent calculating dependencies is recorded
+	 */
+	public BuildTimings getBuildTimings() {
+		return timings;
+	}
+
+	/**
+	 * @param buildTimings
+	 *            where the time spent calculating dependencies is recorded
+	 */
+	public void setBuildTimings(final BuildTimings buildTimings) {
+		this.timings = buildTimings;
+	}
+
+	/**
+	 * @return the number of files that have been scanned so far
+	 */
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * Forget what is known about files that have changed or been removed, so
+	 * that they are scanned again the next time they are asked for. This lets
+	 * a graph be kept between builds rather than starting again each time.
+	 *
+	 * @param files
+	 *            the files that have changed or been removed
+	 */
+	public void invalidate(final Collection<File> files) {
+		for (File file : files) {
+			nodes.remove(file);
+		}
+	}
+
+	/**
+	 * Get the dependency information for a collection of files. Any file that
+	 * has not been seen before by this graph is scanned, the rest are returned
+	 * as they were found the first time. Duplicate files and base.js are
+	 * skipped.
+	 *
+	 * @param files
+	 *            the files to get the dependency information for
+	 * @return the dependency information, in the same order as the files
+	 * @throws IOException
+	 *             if there is a problem parsing the files for dependency info
+	 */
+	public List<DependencyInfo> getDependencyInfo(final Collection<File> files)
+			throws IOException {
+		Set<File> unique = new LinkedHashSet<File>(files);
+		unique.remove(googleBaseFile);
+
+		List<File> unscanned = new ArrayList<File>();
+		int indexed = 0;
+		for (File file : unique) {
+			if (!nodes.containsKey(file)) {
+				DependencyInfo dep = null;
+				if (libraryIndex != null) {
+					dep = libraryIndex.lookup(libraryRoot, file);
+				}
+				if (dep == null) {
+					unscanned.add(file);
+				} else {
+					nodes.put(file, dep);
+					indexed++;
+				}
+			}
+		}
+		LOGGER.debug("Scanning " + unscanned.size() + " of " + unique.size()
+				+ " files for dependency information (" + indexed
+				+ " read from the library index).");
+		scan(unscanned);
+
+		List<DependencyInfo> result = new ArrayList<DependencyInfo>(
+				unique.size());
+		for (File file : unique) {
+			result.add(nodes.get(file));
+		}
+		return result;
+	}
+
+	/**
+	 * Get the dependency information for the files on the search path that can
+	 * be reached from the inputs by following goog.require statements. The
+	 * other files on the search path are only used to find what they provide,
+	 * which is taken from the library index or the cache whenever possible.
+	 *
+	 * @param inputs
+	 *            the dependency information of the inputs
+	 * @param paths
+	 *            the files that may be used to satisfy a goog.require
+	 * @return the dependency information of the reachable files, in the same
+	 *         order as the paths
+	 * @throws IOException
+	 *             if there is a problem parsing the files
+	 */
+	public List<DependencyInfo> getReachableDependencyInfo(
+			final Collection<DependencyInfo> inputs,
+			final Collection<File> paths) throws IOException {
+		Set<File> unique = new LinkedHashSet<File>(paths);
+		unique.remove(googleBaseFile);
+		Map<String, File> providers = buildProvideIndex(unique);
+
+		Set<File> reached = new HashSet<File>();
+		List<DependencyInfo> frontier = new ArrayList<DependencyInfo>(inputs);
+		while (!frontier.isEmpty()) {
+			List<File> next = new ArrayList<File>();
+			for (DependencyInfo dep : frontier) {
+				for (String require : dep.getRequires()) {
+					File provider = providers.get(require);
+					if (provider != null && reached.add(provider)) {
+						next.add(provider);
+					}
+				}
+			}
+			frontier = getDependencyInfo(next);
+		}
+		LOGGER.debug("Reached " + reached.size() + " of " + unique.size()
+				+ " files on the search path.");
+
+		List<File> reachedInOrder = new ArrayList<File>(reached.size());
+		for (File file : unique) {
+			if (reached.contains(file)) {
+				reachedInOrder.add(file);
+			}
+		}
+		return getDependencyInfo(reachedInOrder);
+	}
+
+	/**
+	 * Build an index of which file provides each namespace. When more than one
+	 * file provides a namespace, the last one wins, the same as when the
+	 * search path is fully scanned.
+	 *
+	 * @param files
+	 *            the files on the search path
+	 * @return the file that provides each namespace
+	 * @throws IOException
+	 *             if there is a problem scanning the files
+	 */
+	private Map<String, File> buildProvideIndex(final Set<File> files)
+			throws IOException {
+		List<File> unscanned = new ArrayList<File>();
+		for (File file : files) {
+			if (!nodes.containsKey(file)) {
+				DependencyInfo dep = null;
+				if (libraryIndex != null) {
+					dep = libraryIndex.lookup(libraryRoot, file);
+				}
+				if (dep == null && cache != null) {
+					dep = cache.getDependencyInfoIfUnchanged(file);
+				}
+				if (dep == null) {
+					unscanned.add(file);
+				} else {
+					nodes.put(file, dep);
+				}
+			}
+		}
+		LOGGER.debug("Scanning " + unscanned.size() + " of " + files.size()
+				+ " files on the search path for goog.provide statements.");
+		// the whole of each scan is kept, so that the files that are reached
+		// are not scanned a second time
+		scan(unscanned);
+
+		Map<String, File> providers = new HashMap<String, File>();
+		for (File file : files) {
+			for (String provide : nodes.get(file).getProvides()) {
+				providers.put(provide, file);
+			}
+		}
+		return providers;
+	}
+
+	/**
+	 * Scan files for their provides and requires and add them to the graph.
+	 *
+	 * @param files
+	 *            the files to scan
+	 * @throws IOException
+	 *             if there is a problem parsing the files
+	 */
+	private void scan(final List<File> files) throws IOException {
+		timings.countFilesRead(BuildTimings.DEPENDENCY_SCANNING, files);
+		List<DependencyInfo> deps = ParallelFileProcessor.process(files,
+				new FileTask<DependencyInfo>() {
+					@Override
+					public DependencyInfo process(final File file)
+							throws IOException {
+						if (cache == null) {
+							return AnnotationFileReader.parseForDependencyInfo(
+									file, headerOnlyScan);
+						}
+						return cache.getDependencyInfo(file);
+					}
+				}, scanThreads);
+		for (int i = 0; i < files.size(); i++) {
+			nodes.put(files.get(i), deps.get(i));
+		}
+	}
+}
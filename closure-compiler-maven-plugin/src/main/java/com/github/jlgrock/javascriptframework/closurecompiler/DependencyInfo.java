@@ -40,6 +40,7 @@ public class DependencyInfo implements Comparable<DependencyInfo> {
 		this.file = parsedFile;
 		this.provides = new HashSet<String>();
 		this.requires = new HashSet<String>();
+		this.namespaces = new HashSet<String>();
 	}
 
 	/**
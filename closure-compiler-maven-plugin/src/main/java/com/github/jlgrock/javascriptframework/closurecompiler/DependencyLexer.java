@@ -0,0 +1,460 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * A single pass scanner that finds the goog.provide, goog.require and
+ * namespace (ns:) statements in the raw bytes of a javascript file. Like the
+ * regular expressions in {@link AnnotationFileReader}, a statement is only
+ * recognized when it starts at the beginning of a line, but unlike them,
+ * statements that are inside comments or strings are ignored.
+ *
+ * In header only mode, scanning stops at the first statement that is not one
+ * of these declarations (comments, blank lines and string directives such as
+ * "use strict" are skipped over). Closure files declare their provides and
+ * requires at the top, so this avoids reading the rest of the file, but any
+ * declaration that comes after other code will be missed.
+ */
+public final class DependencyLexer {
+
+	/**
+	 * The bytes of the goog.provide function name.
+	 */
+	private static final byte[] PROVIDE = ascii("goog.provide");
+
+	/**
+	 * The bytes of the goog.require function name.
+	 */
+	private static final byte[] REQUIRE = ascii("goog.require");
+
+	/**
+	 * The bytes of the namespace label.
+	 */
+	private static final byte[] NAMESPACE = ascii("ns:");
+
+	/**
+	 * The characters after which a "/" starts a regular expression literal
+	 * rather than a division.
+	 */
+	private static final String REGEX_PRECEDERS = "(,=:[!&|?{};+-*%<>~^";
+
+	/**
+	 * The bytes that can be skipped over in ordinary code without any special
+	 * handling, indexed by unsigned byte value.
+	 */
+	private static final boolean[] PLAIN = new boolean[256];
+
+	static {
+		for (int i = 0; i < PLAIN.length; i++) {
+			PLAIN[i] = true;
+		}
+		for (char c : "\n/\"'`".toCharArray()) {
+			PLAIN[c] = false;
+		}
+	}
+
+	/**
+	 * The content being scanned.
+	 */
+	private final byte[] buf;
+
+	/**
+	 * Whether to stop at the first statement that is not a declaration.
+	 */
+	private final boolean headerOnly;
+
+	/**
+	 * The dependency information being built.
+	 */
+	private final DependencyInfo dep;
+
+	/**
+	 * The current position in the content.
+	 */
+	private int pos;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file
+	 *            the file the content was read from
+	 * @param content
+	 *            the content to scan
+	 * @param stopAfterHeader
+	 *            whether to stop at the first statement that is not a
+	 *            declaration
+	 */
+	private DependencyLexer(final File file, final byte[] content,
+			final boolean stopAfterHeader) {
+		this.buf = content;
+		this.headerOnly = stopAfterHeader;
+		this.dep = new DependencyInfo(file);
+	}
+
+	/**
+	 * Scan the content of a file for its goog.provide, goog.require and
+	 * namespace statements.
+	 *
+	 * @param file
+	 *            the file the content was read from
+	 * @param content
+	 *            the content of the file
+	 * @param headerOnly
+	 *            whether to stop at the first statement that is not a
+	 *            declaration
+	 * @return the dependency info object, populated with the information
+	 */
+	public static DependencyInfo scan(final File file, final byte[] content,
+			final boolean headerOnly) {
+		DependencyLexer lexer = new DependencyLexer(file, content, headerOnly);
+		lexer.run();
+		return lexer.dep;
+	}
+
+	/**
+	 * Scan the content.
+	 */
+	private void run() {
+		int lineStart = 0;
+		while (pos < buf.length) {
+			byte c = buf[pos];
+			switch (c) {
+			case '\n':
+				pos++;
+				lineStart = pos;
+				break;
+			case ' ':
+			case '\t':
+			case '\r':
+			case '\f':
+			case 0x0B:
+				pos++;
+				break;
+			case ';':
+				pos++;
+				break;
+			case '"':
+			case '\'':
+			case '`':
+				skipString(c);
+				break;
+			case '/':
+				if (peek(1) == '/') {
+					skipLineComment();
+					break;
+				} else if (peek(1) == '*') {
+					skipBlockComment();
+					break;
+				}
+				if (headerOnly) {
+					return;
+				}
+				if (isRegexAllowed()) {
+					skipRegex();
+				} else {
+					pos++;
+				}
+				break;
+			default:
+				if (pos == lineStart && readDeclaration()) {
+					break;
+				}
+				if (headerOnly) {
+					return;
+				}
+				pos++;
+				while (pos < buf.length && PLAIN[buf[pos] & 0xFF]) {
+					pos++;
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Try to read a declaration at the current position. If one is found, it
+	 * is added to the dependency info and the position is moved past it.
+	 *
+	 * @return true if a declaration was read
+	 */
+	private boolean readDeclaration() {
+		String namespace;
+		if (startsWith(PROVIDE)) {
+			namespace = readCall(PROVIDE.length);
+			if (namespace != null) {
+				dep.addToProvides(namespace);
+				return true;
+			}
+		} else if (startsWith(REQUIRE)) {
+			namespace = readCall(REQUIRE.length);
+			if (namespace != null) {
+				dep.addToRequires(namespace);
+				return true;
+			}
+		} else if (startsWith(NAMESPACE)) {
+			namespace = readNamespaceLine();
+			if (namespace != null) {
+				dep.addToNamespaces(namespace);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Read the quoted argument of a goog.provide or goog.require call, along
+	 * with an optional trailing semicolon.
+	 *
+	 * @param nameLength
+	 *            the length of the function name at the current position
+	 * @return the argument, or null if this is not a simple call
+	 */
+	private String readCall(final int nameLength) {
+		int p = skipSpaces(pos + nameLength);
+		if (p >= buf.length || buf[p] != '(') {
+			return null;
+		}
+		p = skipSpaces(p + 1);
+		if (p >= buf.length || (buf[p] != '\'' && buf[p] != '"')) {
+			return null;
+		}
+		byte quote = buf[p];
+		int start = p + 1;
+		int end = start;
+		while (end < buf.length && buf[end] != quote) {
+			if (buf[end] == '\n' || buf[end] == ')') {
+				return null;
+			}
+			end++;
+		}
+		if (end == start || end >= buf.length) {
+			return null;
+		}
+		p = skipSpaces(end + 1);
+		if (p >= buf.length || buf[p] != ')') {
+			return null;
+		}
+		p = skipSpaces(p + 1);
+		if (p < buf.length && buf[p] == ';') {
+			p++;
+		}
+		pos = p;
+		return decode(start, end);
+	}
+
+	/**
+	 * Read a namespace label, which must be the only thing on its line.
+	 *
+	 * @return the namespace, or null if this is not a namespace label
+	 */
+	private String readNamespaceLine() {
+		int start = pos + NAMESPACE.length;
+		int p = start;
+		boolean expectWord = true;
+		while (p < buf.length) {
+			byte c = buf[p];
+			if (isWordChar(c)) {
+				expectWord = false;
+			} else if (c == '.' && !expectWord) {
+				expectWord = true;
+			} else {
+				break;
+			}
+			p++;
+		}
+		if (expectWord) {
+			return null;
+		}
+		if (p < buf.length && buf[p] != '\n' && buf[p] != '\r') {
+			return null;
+		}
+		pos = p;
+		return decode(start, p);
+	}
+
+	/**
+	 * Skip a string or template literal starting at the current position.
+	 * Strings that are not terminated on the same line are treated as ending
+	 * there.
+	 *
+	 * @param quote
+	 *            the quote character that started the string
+	 */
+	private void skipString(final byte quote) {
+		pos++;
+		while (pos < buf.length) {
+			byte c = buf[pos];
+			if (c == '\\') {
+				pos += 2;
+				continue;
+			}
+			if (c == quote) {
+				pos++;
+				return;
+			}
+			if (c == '\n' && quote != '`') {
+				return;
+			}
+			pos++;
+		}
+	}
+
+	/**
+	 * Check whether a "/" at the current position would start a regular
+	 * expression literal, based on the character before it.
+	 *
+	 * @return true if a regular expression literal is allowed here
+	 */
+	private boolean isRegexAllowed() {
+		int p = pos - 1;
+		while (p >= 0 && (buf[p] == ' ' || buf[p] == '\t' || buf[p] == '\r'
+				|| buf[p] == '\n' || buf[p] == '\f' || buf[p] == 0x0B)) {
+			p--;
+		}
+		return p < 0 || REGEX_PRECEDERS.indexOf(buf[p]) >= 0;
+	}
+
+	/**
+	 * Skip a regular expression literal starting at the current position.
+	 */
+	private void skipRegex() {
+		pos++;
+		boolean inClass = false;
+		while (pos < buf.length) {
+			byte c = buf[pos];
+			if (c == '\\') {
+				pos += 2;
+				continue;
+			}
+			if (c == '\n') {
+				return;
+			}
+			pos++;
+			if (c == '[') {
+				inClass = true;
+			} else if (c == ']') {
+				inClass = false;
+			} else if (c == '/' && !inClass) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Skip a line comment starting at the current position, leaving the
+	 * position at the end of the line.
+	 */
+	private void skipLineComment() {
+		while (pos < buf.length && buf[pos] != '\n') {
+			pos++;
+		}
+	}
+
+	/**
+	 * Skip a block comment starting at the current position.
+	 */
+	private void skipBlockComment() {
+		pos += 2;
+		while (pos < buf.length) {
+			if (buf[pos] == '*' && peek(1) == '/') {
+				pos += 2;
+				return;
+			}
+			pos++;
+		}
+	}
+
+	/**
+	 * Skip any spaces or tabs.
+	 *
+	 * @param from
+	 *            the position to start at
+	 * @return the position of the first character that is not a space or tab
+	 */
+	private int skipSpaces(final int from) {
+		int p = from;
+		while (p < buf.length && (buf[p] == ' ' || buf[p] == '\t')) {
+			p++;
+		}
+		return p;
+	}
+
+	/**
+	 * Look at a character ahead of the current position.
+	 *
+	 * @param offset
+	 *            how far ahead to look
+	 * @return the character, or 0 if past the end of the content
+	 */
+	private byte peek(final int offset) {
+		int p = pos + offset;
+		if (p < buf.length) {
+			return buf[p];
+		}
+		return 0;
+	}
+
+	/**
+	 * Check whether the content at the current position starts with the given
+	 * bytes.
+	 *
+	 * @param prefix
+	 *            the bytes to check for
+	 * @return true if the content matches
+	 */
+	private boolean startsWith(final byte[] prefix) {
+		if (pos + prefix.length > buf.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (buf[pos + i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decode part of the content.
+	 *
+	 * @param start
+	 *            the first byte
+	 * @param end
+	 *            the byte after the last
+	 * @return the decoded string
+	 */
+	private String decode(final int start, final int end) {
+		try {
+			return new String(buf, start, end - start, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// every JVM is required to support UTF-8
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param c
+	 *            the character to check
+	 * @return true if the character would match \w in a regular expression
+	 */
+	private static boolean isWordChar(final byte c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+				|| (c >= '0' && c <= '9') || c == '_';
+	}
+
+	/**
+	 * Convert an ascii string to bytes.
+	 *
+	 * @param s
+	 *            the string
+	 * @return the bytes
+	 */
+	private static byte[] ascii(final String s) {
+		byte[] bytes = new byte[s.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) s.charAt(i);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,220 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Orders a set of files so that every file comes after the files it requires.
+ * This walks the goog.require graph depth first, the same way as the google
+ * python script, but uses an explicit stack rather than recursion so that
+ * very deep require chains cannot overflow the call stack. Each file and each
+ * goog.require is visited at most once.
+ */
+public final class DependencySorter {
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(DependencySorter.class);
+
+	/**
+	 * A node that has not been visited yet.
+	 */
+	private static final byte UNVISITED = 0;
+
+	/**
+	 * A node whose requires are still being visited.
+	 */
+	private static final byte IN_PROGRESS = 1;
+
+	/**
+	 * A node that has been added to the result.
+	 */
+	private static final byte DONE = 2;
+
+	/**
+	 * The dependency information for each node, indexed by node id.
+	 */
+	private final List<DependencyInfo> nodes = new ArrayList<DependencyInfo>();
+
+	/**
+	 * The node id of each file.
+	 */
+	private final Map<File, Integer> fileIds = new HashMap<File, Integer>();
+
+	/**
+	 * The node id of the file that provides each namespace.
+	 */
+	private final Map<String, Integer> provideIds = new HashMap<String, Integer>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param deps
+	 *            the files that may be used to satisfy a goog.require
+	 */
+	public DependencySorter(final Collection<DependencyInfo> deps) {
+		for (DependencyInfo dep : deps) {
+			int id = idOf(dep);
+			for (String provide : dep.getProvides()) {
+				provideIds.put(provide, id);
+			}
+		}
+	}
+
+	/**
+	 * Order the inputs and everything they require. The inputs keep their
+	 * relative order, and each one is preceded by any of its requirements that
+	 * have not already been included.
+	 *
+	 * @param inputs
+	 *            the files to order
+	 * @return the inputs and the files they require, in dependency order
+	 * @throws DependencyException
+	 *             if a goog.require has no matching goog.provide
+	 */
+	public List<DependencyInfo> sort(final Collection<DependencyInfo> inputs)
+			throws DependencyException {
+		for (DependencyInfo input : inputs) {
+			idOf(input);
+		}
+		int size = nodes.size();
+		byte[] state = new byte[size];
+		int[][] edges = new int[size][];
+		String[][] edgeNamespaces = new String[size][];
+		int[] stackPosition = new int[size];
+
+		int[] stack = new int[size];
+		int[] nextEdge = new int[size];
+		int depth = 0;
+
+		List<DependencyInfo> result = new ArrayList<DependencyInfo>();
+		List<DependencyError> missing = new ArrayList<DependencyError>();
+		List<DependencyError> cycles = new ArrayList<DependencyError>();
+
+		for (DependencyInfo input : inputs) {
+			int root = fileIds.get(input.getFile());
+			if (state[root] != UNVISITED) {
+				continue;
+			}
+			state[root] = IN_PROGRESS;
+			stackPosition[root] = depth;
+			stack[depth] = root;
+			nextEdge[depth] = 0;
+			depth++;
+
+			while (depth > 0) {
+				int current = stack[depth - 1];
+				if (edges[current] == null) {
+					resolveEdges(current, edges, edgeNamespaces, missing);
+				}
+				int edge = nextEdge[depth - 1];
+				if (edge < edges[current].length) {
+					nextEdge[depth - 1]++;
+					int next = edges[current][edge];
+					if (state[next] == UNVISITED) {
+						state[next] = IN_PROGRESS;
+						stackPosition[next] = depth;
+						stack[depth] = next;
+						nextEdge[depth] = 0;
+						depth++;
+					} else if (state[next] == IN_PROGRESS) {
+						List<File> cycle = new ArrayList<File>();
+						for (int i = stackPosition[next]; i < depth; i++) {
+							cycle.add(nodes.get(stack[i]).getFile());
+						}
+						cycles.add(DependencyError.cycle(nodes.get(current)
+								.getFile(), edgeNamespaces[current][edge], cycle));
+					}
+				} else {
+					depth--;
+					state[current] = DONE;
+					result.add(nodes.get(current));
+				}
+			}
+		}
+
+		for (DependencyError cycle : cycles) {
+			LOGGER.warn(cycle);
+		}
+		if (!missing.isEmpty()) {
+			for (DependencyError error : missing) {
+				LOGGER.error(error);
+			}
+			List<DependencyError> errors = new ArrayList<DependencyError>(
+					missing);
+			errors.addAll(cycles);
+			throw new DependencyException(errors);
+		}
+		return result;
+	}
+
+	/**
+	 * Look up the nodes that provide each of the requires of a node. Any
+	 * require that cannot be found is added to the list of missing provides.
+	 *
+	 * @param id
+	 *            the node to resolve
+	 * @param edges
+	 *            the resolved node ids, indexed by node id
+	 * @param edgeNamespaces
+	 *            the namespace of each resolved edge, indexed by node id
+	 * @param missing
+	 *            the list of missing provides to add to
+	 */
+	private void resolveEdges(final int id, final int[][] edges,
+			final String[][] edgeNamespaces,
+			final List<DependencyError> missing) {
+		DependencyInfo dep = nodes.get(id);
+		Collection<String> requires = dep.getRequires();
+		int[] targets = new int[requires.size()];
+		String[] namespaces = new String[requires.size()];
+		int count = 0;
+		for (String require : requires) {
+			Integer target = provideIds.get(require);
+			if (target == null) {
+				missing.add(DependencyError.missingProvide(dep.getFile(),
+						require));
+			} else {
+				targets[count] = target;
+				namespaces[count] = require;
+				count++;
+			}
+		}
+		if (count < targets.length) {
+			int[] trimmedTargets = new int[count];
+			String[] trimmedNamespaces = new String[count];
+			System.arraycopy(targets, 0, trimmedTargets, 0, count);
+			System.arraycopy(namespaces, 0, trimmedNamespaces, 0, count);
+			targets = trimmedTargets;
+			namespaces = trimmedNamespaces;
+		}
+		edges[id] = targets;
+		edgeNamespaces[id] = namespaces;
+	}
+
+	/**
+	 * Get the node id of a file, assigning it a new one if it has not been
+	 * seen before.
+	 *
+	 * @param dep
+	 *            the dependency information for the file
+	 * @return the node id
+	 */
+	private int idOf(final DependencyInfo dep) {
+		Integer id = fileIds.get(dep.getFile());
+		if (id == null) {
+			id = nodes.size();
+			nodes.add(dep);
+			fileIds.put(dep.getFile(), id);
+		}
+		return id;
+	}
+}
@@ -0,0 +1,239 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import com.github.jlgrock.javascriptframework.jspreprocessor.CompilePreProcessor;
+import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryPoller;
+import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryPoller.Changes;
+import com.github.jlgrock.javascriptframework.mavenutils.mavenobjects.JsarRelativeLocations;
+
+/**
+ * Watch the source and test javascript directories and keep the generated
+ * files up to date as files change, until the build is stopped. Only the
+ * files that changed are preprocessed again and scanned for dependency
+ * information, then the assert, debug and test dependency and requires files
+ * are regenerated. The outputs can also be recompiled once the files have
+ * stopped changing for a while.
+ *
+ * This expects the project to have been built once already, so that the
+ * dependencies have been extracted to the framework target directory.
+ */
+@Mojo(name = "watch")
+public class JsClosureWatchMojo extends AbstractClosureCompileMojo {
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(JsClosureWatchMojo.class);
+
+	/**
+	 * The directory containing the javascript source files, which must match
+	 * the source directory of the compile-preprocessors goal.
+	 */
+	@Parameter(defaultValue = "${basedir}${file.separator}src${file.separator}main${file.separator}javascript")
+	private File sourceDirectory;
+
+	/**
+	 * How often to look for changed files, in milliseconds. This is
+	 * <pre>500</pre> by default.
+	 */
+	@Parameter(property = "watchPollInterval", defaultValue = "500")
+	private long watchPollInterval;
+
+	/**
+	 * Whether or not to recompile the outputs once the files have stopped
+	 * changing. This is <pre>false</pre> by default.
+	 */
+	@Parameter(property = "watchRecompile", defaultValue = "false")
+	private boolean watchRecompile;
+
+	/**
+	 * How long the files must go without changing before the outputs are
+	 * recompiled, in milliseconds. This is <pre>2000</pre> by default.
+	 */
+	@Parameter(property = "watchQuietPeriod", defaultValue = "2000")
+	private long watchQuietPeriod;
+
+	/**
+	 * Whether the build information is added to the header of each
+	 * preprocessed file, which must match the skipBuildInfo setting of the
+	 * compile-preprocessors goal.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean skipBuildInfo;
+
+	/**
+	 * The project being built.
+	 */
+	@Parameter(defaultValue = "${project}", readonly = true, required = true)
+	private MavenProject project;
+
+	@Override
+	protected final void run() throws MojoExecutionException,
+			MojoFailureException, IOException {
+		DirectoryPoller sources = new DirectoryPoller(sourceDirectory, "js");
+		DirectoryPoller tests = new DirectoryPoller(getTestSourceDirectory(),
+				"js");
+
+		// the first look reports every file, but only the ones that have
+		// changed since the last build need to be preprocessed
+		List<File> outOfDate = new ArrayList<File>();
+		for (File file : sources.poll().getChanged()) {
+			File copy = getCopy(file, JsarRelativeLocations
+					.getDebugSourceLocation(getFrameworkTargetDirectory()));
+			if (!copy.isFile() || copy.lastModified() < file.lastModified()) {
+				outOfDate.add(file);
+			}
+		}
+		tests.poll();
+		preprocess(outOfDate);
+
+		DependencyGraph graph = initialize();
+		rebuild(graph, watchRecompile);
+		LOGGER.info("Watching \"" + sourceDirectory.getAbsolutePath()
+				+ "\" and \"" + getTestSourceDirectory().getAbsolutePath()
+				+ "\" for changes.");
+
+		long changedAt = -1;
+		while (true) {
+			try {
+				Thread.sleep(watchPollInterval);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			Changes sourceChanges = sources.poll();
+			Changes testChanges = tests.poll();
+			if (!sourceChanges.isEmpty() || !testChanges.isEmpty()) {
+				List<File> touched = new ArrayList<File>();
+				touched.addAll(preprocess(sourceChanges.getChanged()));
+				touched.addAll(removeCopies(sourceChanges.getRemoved()));
+				touched.addAll(testChanges.getChanged());
+				touched.addAll(testChanges.getRemoved());
+				LOGGER.info((sourceChanges.getChanged().size()
+						+ sourceChanges.getRemoved().size()
+						+ testChanges.getChanged().size() + testChanges
+						.getRemoved().size()) + " files changed.");
+				graph.invalidate(touched);
+				rebuild(graph, false);
+				changedAt = System.currentTimeMillis();
+			} else if (watchRecompile && changedAt >= 0
+					&& System.currentTimeMillis() - changedAt >= watchQuietPeriod) {
+				rebuild(graph, true);
+				changedAt = -1;
+			}
+		}
+	}
+
+	/**
+	 * Regenerate the dependency and requires files, and compile if asked to.
+	 * Failures are logged rather than stopping the watch, so that they can be
+	 * fixed while it carries on.
+	 *
+	 * @param graph
+	 *            the dependency graph kept between builds
+	 * @param compile
+	 *            whether to compile the outputs
+	 * @throws MojoExecutionException
+	 *             if the options are set incorrectly
+	 */
+	private void rebuild(final DependencyGraph graph, final boolean compile)
+			throws MojoExecutionException {
+		long start = System.currentTimeMillis();
+		try {
+			build(graph, compile);
+			LOGGER.info("Build finished in "
+					+ (System.currentTimeMillis() - start) + "ms.");
+		} catch (MojoFailureException e) {
+			LOGGER.error(e.getMessage());
+		} catch (IOException e) {
+			LOGGER.error("Build failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Preprocess source files into the assertion and debug source
+	 * directories, the same as the compile-preprocessors goal does.
+	 *
+	 * @param files
+	 *            the source files to preprocess
+	 * @return the preprocessed copies that were written
+	 */
+	private List<File> preprocess(final List<File> files) {
+		File assertDir = JsarRelativeLocations
+				.getAssertionSourceLocation(getFrameworkTargetDirectory());
+		File debugDir = JsarRelativeLocations
+				.getDebugSourceLocation(getFrameworkTargetDirectory());
+		List<File> copies = new ArrayList<File>();
+		for (File file : files) {
+			File assertCopy = getCopy(file, assertDir);
+			File debugCopy = getCopy(file, debugDir);
+			try {
+				String header = null;
+				if (skipBuildInfo) {
+					header = CompilePreProcessor.buildInfo(project);
+				}
+				CompilePreProcessor.preprocessFile(file, assertCopy, debugCopy,
+						header);
+			} catch (IOException e) {
+				LOGGER.error("Unable to preprocess \"" + file + "\": "
+						+ e.getMessage());
+			} catch (IllegalArgumentException e) {
+				LOGGER.error(e.getMessage());
+			}
+			copies.add(assertCopy);
+			copies.add(debugCopy);
+		}
+		return copies;
+	}
+
+	/**
+	 * Delete the preprocessed copies of source files that have been removed.
+	 *
+	 * @param files
+	 *            the source files that were removed
+	 * @return the preprocessed copies
+	 */
+	private List<File> removeCopies(final List<File> files) {
+		File assertDir = JsarRelativeLocations
+				.getAssertionSourceLocation(getFrameworkTargetDirectory());
+		File debugDir = JsarRelativeLocations
+				.getDebugSourceLocation(getFrameworkTargetDirectory());
+		List<File> copies = new ArrayList<File>();
+		for (File file : files) {
+			copies.add(getCopy(file, assertDir));
+			copies.add(getCopy(file, debugDir));
+		}
+		for (File copy : copies) {
+			if (copy.exists() && !copy.delete()) {
+				LOGGER.warn("Unable to delete \"" + copy + "\".");
+			}
+		}
+		return copies;
+	}
+
+	/**
+	 * Get where the preprocessed copy of a source file is written.
+	 *
+	 * @param file
+	 *            the source file
+	 * @param destDir
+	 *            the directory the copies are written to
+	 * @return the copy
+	 */
+	private File getCopy(final File file, final File destDir) {
+		String relativePath = file.getAbsolutePath().substring(
+				sourceDirectory.getAbsolutePath().length() + 1);
+		return new File(destDir, relativePath);
+	}
+}
@@ -0,0 +1,386 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.HashUtils;
+import com.github.jlgrock.javascriptframework.mavenutils.mavenobjects.JsarRelativeLocations;
+
+/**
+ * A pre-built index of the provides, requires and namespaces of every file in
+ * a javascript library. The index for the bundled closure library is
+ * generated when this plugin is built (see {@link LibraryIndexGenerator}) so
+ * that the library files do not have to be scanned on every build.
+ *
+ * The index records the hash of the library zip it was generated from, and
+ * is only used for a library that was extracted from a zip with the same
+ * hash, which the jsdependency plugin records in a file alongside the
+ * extracted library. This is checked once for each library directory, so the
+ * library files themselves are never read. Pointing the plugin at any other
+ * copy of the library simply causes its files to be scanned as normal.
+ *
+ * Entries are keyed by the path of the file relative to the root of the
+ * library, and also record the size of the file. An entry is only used if a
+ * file exists at that location with the same size.
+ */
+public final class LibraryIndex {
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(LibraryIndex.class);
+
+	/**
+	 * The name of the classpath resource holding the index for the bundled
+	 * closure library.
+	 */
+	public static final String CLOSURE_LIBRARY_INDEX = "closure-library-index.txt";
+
+	/**
+	 * The header written as the first line of the index. If the format
+	 * changes, this should be changed so that old indexes are ignored.
+	 */
+	private static final String HEADER = "# Library dependency index v3";
+
+	/**
+	 * The separator between the fields of an entry.
+	 */
+	private static final String FIELD_SEPARATOR = "\t";
+
+	/**
+	 * The separator between the namespaces within a field.
+	 */
+	private static final String NAMESPACE_SEPARATOR = ",";
+
+	/**
+	 * The number of fields in an entry.
+	 */
+	private static final int FIELD_COUNT = 5;
+
+	/**
+	 * The hash of the library zip the index was generated from.
+	 */
+	private final String libraryHash;
+
+	/**
+	 * The entries, keyed by the path relative to the library root using "/" as
+	 * the separator.
+	 */
+	private final Map<String, Entry> entries = new TreeMap<String, Entry>();
+
+	/**
+	 * Whether each library directory that has been looked in was extracted
+	 * from the zip the index was generated from.
+	 */
+	private final Map<File, Boolean> checkedRoots = new HashMap<File, Boolean>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param hash
+	 *            the hash of the library zip the index is generated from, as
+	 *            calculated by {@link HashUtils}
+	 */
+	public LibraryIndex(final String hash) {
+		this.libraryHash = hash;
+	}
+
+	/**
+	 * Load the index for the bundled closure library from the classpath.
+	 *
+	 * @return the index, or null if it is not available
+	 */
+	public static LibraryIndex loadClosureLibraryIndex() {
+		InputStream in = LibraryIndex.class.getClassLoader()
+				.getResourceAsStream(CLOSURE_LIBRARY_INDEX);
+		if (in == null) {
+			LOGGER.debug("No closure library index is available.");
+			return null;
+		}
+		try {
+			LibraryIndex index = read(in);
+			LOGGER.debug("Loaded " + index.entries.size()
+					+ " entries from the closure library index.");
+			return index;
+		} catch (IOException e) {
+			LOGGER.warn("Unable to read the closure library index, the library will be scanned instead: "
+					+ e.getMessage());
+			return null;
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Read an index from a stream. The stream is not closed.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 * @return the index
+	 * @throws IOException
+	 *             if the stream cannot be read or is not a valid index
+	 */
+	public static LibraryIndex read(final InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+				"UTF-8"));
+		String line = reader.readLine();
+		if (!HEADER.equals(line)) {
+			throw new IOException("Unrecognized library index format");
+		}
+		String hash = reader.readLine();
+		if (hash == null || hash.length() == 0) {
+			throw new IOException("The library index has no library hash");
+		}
+		LibraryIndex index = new LibraryIndex(hash);
+		while ((line = reader.readLine()) != null) {
+			String[] fields = line.split(FIELD_SEPARATOR, -1);
+			if (fields.length != FIELD_COUNT) {
+				throw new IOException("Corrupt library index entry: " + line);
+			}
+			try {
+				index.entries.put(fields[0],
+						new Entry(Long.parseLong(fields[1]), split(fields[2]),
+								split(fields[3]), split(fields[4])));
+			} catch (NumberFormatException e) {
+				throw new IOException("Corrupt library index entry: " + line);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Add a file to the index.
+	 *
+	 * @param relativePath
+	 *            the path of the file relative to the library root, using "/"
+	 *            as the separator
+	 * @param size
+	 *            the size of the file
+	 * @param dep
+	 *            the dependency information parsed from the file
+	 */
+	public void add(final String relativePath, final long size,
+			final DependencyInfo dep) {
+		entries.put(relativePath, new Entry(size, new HashSet<String>(
+				dep.getProvides()), new HashSet<String>(dep.getRequires()),
+				new HashSet<String>(dep.getNamespaces())));
+	}
+
+	/**
+	 * @return the number of files in the index
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Write the index. The writer is not closed.
+	 *
+	 * @param out
+	 *            the writer to write to
+	 * @throws IOException
+	 *             if there is a problem writing
+	 */
+	public void write(final Writer out) throws IOException {
+		out.write(HEADER);
+		out.write("\n");
+		out.write(libraryHash);
+		out.write("\n");
+		for (Map.Entry<String, Entry> e : entries.entrySet()) {
+			Entry entry = e.getValue();
+			out.write(e.getKey());
+			out.write(FIELD_SEPARATOR);
+			out.write(String.valueOf(entry.size));
+			out.write(FIELD_SEPARATOR);
+			out.write(join(entry.provides));
+			out.write(FIELD_SEPARATOR);
+			out.write(join(entry.requires));
+			out.write(FIELD_SEPARATOR);
+			out.write(join(entry.namespaces));
+			out.write("\n");
+		}
+	}
+
+	/**
+	 * Get the dependency information for a file in the library, if the
+	 * library was extracted from the zip the index was generated from and the
+	 * index has an entry of the same size for the file.
+	 *
+	 * @param libraryRoot
+	 *            the root directory of the library on disk
+	 * @param file
+	 *            the file to look up
+	 * @return the dependency information, or null if the file must be scanned
+	 */
+	public DependencyInfo lookup(final File libraryRoot, final File file) {
+		String relativePath = relativize(libraryRoot, file);
+		if (relativePath == null) {
+			return null;
+		}
+		Entry entry = entries.get(relativePath);
+		if (entry == null || entry.size != file.length()
+				|| !isExtractedLibrary(libraryRoot)) {
+			return null;
+		}
+		DependencyInfo dep = new DependencyInfo(file);
+		for (String provide : entry.provides) {
+			dep.addToProvides(provide);
+		}
+		for (String require : entry.requires) {
+			dep.addToRequires(require);
+		}
+		for (String namespace : entry.namespaces) {
+			dep.addToNamespaces(namespace);
+		}
+		return dep;
+	}
+
+	/**
+	 * Check whether a library directory was extracted from the zip the index
+	 * was generated from. The answer is remembered, so the hash file is only
+	 * read once for each directory.
+	 *
+	 * @param libraryRoot
+	 *            the root directory of the library
+	 * @return true if the index describes the library
+	 */
+	private synchronized boolean isExtractedLibrary(final File libraryRoot) {
+		Boolean matches = checkedRoots.get(libraryRoot);
+		if (matches == null) {
+			File hashFile = new File(libraryRoot,
+					JsarRelativeLocations.CLOSURE_LIBRARY_HASH_FILENAME);
+			String hash = null;
+			try {
+				if (hashFile.isFile()) {
+					hash = FileUtils.readFileToString(hashFile, "UTF-8").trim();
+				}
+			} catch (IOException e) {
+				LOGGER.debug("Unable to read \"" + hashFile + "\": "
+						+ e.getMessage());
+			}
+			matches = Boolean.valueOf(libraryHash.equals(hash));
+			if (!matches.booleanValue()) {
+				LOGGER.debug("The library at \"" + libraryRoot
+						+ "\" was not extracted from the indexed library, so it"
+						+ " will be scanned.");
+			}
+			checkedRoots.put(libraryRoot, matches);
+		}
+		return matches.booleanValue();
+	}
+
+	/**
+	 * Find the path of a file relative to the library root.
+	 *
+	 * @param libraryRoot
+	 *            the root directory of the library
+	 * @param file
+	 *            the file
+	 * @return the relative path using "/" as the separator, or null if the
+	 *         file is not within the library
+	 */
+	private static String relativize(final File libraryRoot, final File file) {
+		String root = libraryRoot.getAbsolutePath() + File.separator;
+		String path = file.getAbsolutePath();
+		if (!path.startsWith(root)) {
+			return null;
+		}
+		return path.substring(root.length()).replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Join a collection of namespaces into a single field. The namespaces are
+	 * sorted so that the generated index is the same on every build.
+	 *
+	 * @param namespaces
+	 *            the namespaces to join
+	 * @return the joined string
+	 */
+	private static String join(final Collection<String> namespaces) {
+		StringBuilder sb = new StringBuilder();
+		for (String namespace : new TreeSet<String>(namespaces)) {
+			if (sb.length() > 0) {
+				sb.append(NAMESPACE_SEPARATOR);
+			}
+			sb.append(namespace);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Split a single field into its namespaces.
+	 *
+	 * @param field
+	 *            the field to split
+	 * @return the namespaces
+	 */
+	private static Set<String> split(final String field) {
+		Set<String> namespaces = new HashSet<String>();
+		if (field.length() > 0) {
+			for (String namespace : field.split(NAMESPACE_SEPARATOR)) {
+				namespaces.add(namespace);
+			}
+		}
+		return namespaces;
+	}
+
+	/**
+	 * A single indexed file.
+	 */
+	private static final class Entry {
+		/**
+		 * The size of the file.
+		 */
+		private final long size;
+
+		/**
+		 * The provides found in the file.
+		 */
+		private final Set<String> provides;
+
+		/**
+		 * The requires found in the file.
+		 */
+		private final Set<String> requires;
+
+		/**
+		 * The namespaces found in the file.
+		 */
+		private final Set<String> namespaces;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param fileSize
+		 *            the size of the file
+		 * @param fileProvides
+		 *            the provides found in the file
+		 * @param fileRequires
+		 *            the requires found in the file
+		 * @param fileNamespaces
+		 *            the namespaces found in the file
+		 */
+		private Entry(final long fileSize, final Set<String> fileProvides,
+				final Set<String> fileRequires, final Set<String> fileNamespaces) {
+			this.size = fileSize;
+			this.provides = fileProvides;
+			this.requires = fileRequires;
+			this.namespaces = fileNamespaces;
+		}
+	}
+}
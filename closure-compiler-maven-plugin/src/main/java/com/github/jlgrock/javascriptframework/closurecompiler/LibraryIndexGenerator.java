@@ -0,0 +1,97 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryIO;
+import com.github.jlgrock.javascriptframework.mavenutils.io.HashUtils;
+
+/**
+ * Generates a {@link LibraryIndex} from a zipped javascript library. This is
+ * run while building the plugin to index the bundled closure library, and is
+ * not used at runtime.
+ *
+ * The zip is expected to have a single top level directory (as the closure
+ * library zip does), which is removed from the indexed paths, since the
+ * library is renamed when it is extracted.
+ */
+public final class LibraryIndexGenerator {
+
+	/**
+	 * Private Constructor for Utility Class.
+	 */
+	private LibraryIndexGenerator() {
+	}
+
+	/**
+	 * Build an index from a zipped library.
+	 *
+	 * @param zipFile
+	 *            the zipped library
+	 * @return the index
+	 * @throws IOException
+	 *             if the zip cannot be read or a file cannot be parsed
+	 */
+	public static LibraryIndex generate(final File zipFile) throws IOException {
+		LibraryIndex index = new LibraryIndex(HashUtils.hash(zipFile));
+		ZipInputStream in = new ZipInputStream(new BufferedInputStream(
+				new FileInputStream(zipFile)));
+		try {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				String name = entry.getName();
+				if (entry.isDirectory() || !name.endsWith(".js")) {
+					continue;
+				}
+				String relativePath = name.substring(name.indexOf('/') + 1);
+				byte[] content = IOUtils.toByteArray(in);
+				index.add(relativePath, content.length, AnnotationFileReader
+						.parseForDependencyInfo(new File(relativePath), content,
+								false));
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		return index;
+	}
+
+	/**
+	 * Generate an index.
+	 *
+	 * @param args
+	 *            the location of the zipped library and the location to write
+	 *            the index to
+	 * @throws IOException
+	 *             if the zip cannot be read or the index cannot be written
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length != 2) {
+			throw new IllegalArgumentException(
+					"Usage: LibraryIndexGenerator <library zip> <output file>");
+		}
+		File zipFile = new File(args[0]);
+		File outputFile = new File(args[1]);
+
+		LibraryIndex index = generate(zipFile);
+		DirectoryIO.createDir(outputFile.getParentFile());
+		Writer out = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(outputFile), "UTF-8"));
+		try {
+			index.write(out);
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+		System.out.println("Indexed " + index.size() + " files from "
+				+ zipFile.getName() + " into " + outputFile.getAbsolutePath());
+	}
+}
@@ -0,0 +1,121 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A chunk of the compiled output once the files to compile have been shared
+ * out between the chunks.
+ */
+public final class OutputChunk implements Serializable {
+	/**
+	 * Serial version id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The name of the chunk.
+	 */
+	private final String name;
+
+	/**
+	 * The names of the chunks that must be loaded before this one.
+	 */
+	private final List<String> dependencies;
+
+	/**
+	 * The files compiled into this chunk, in dependency order.
+	 */
+	private final List<File> inputs;
+
+	/**
+	 * The file to write the compiled chunk to.
+	 */
+	private File outputFile;
+
+	/**
+	 * The file to write the source map of the chunk to, or null for no source
+	 * map.
+	 */
+	private File sourceMapFile;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param chunkName
+	 *            the name of the chunk
+	 * @param chunkDependencies
+	 *            the names of the chunks that must be loaded before this one
+	 * @param chunkInputs
+	 *            the files compiled into this chunk, in dependency order
+	 */
+	public OutputChunk(final String chunkName,
+			final List<String> chunkDependencies, final List<File> chunkInputs) {
+		this.name = chunkName;
+		this.dependencies = Collections.unmodifiableList(new ArrayList<String>(
+				chunkDependencies));
+		this.inputs = Collections.unmodifiableList(new ArrayList<File>(
+				chunkInputs));
+	}
+
+	/**
+	 * @return the name of the chunk
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the names of the chunks that must be loaded before this one
+	 */
+	public List<String> getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * @return the files compiled into this chunk, in dependency order
+	 */
+	public List<File> getInputs() {
+		return inputs;
+	}
+
+	/**
+	 * @return the file to write the compiled chunk to
+	 */
+	public File getOutputFile() {
+		return outputFile;
+	}
+
+	/**
+	 * @param outputFileIn
+	 *            the file to write the compiled chunk to
+	 */
+	public void setOutputFile(final File outputFileIn) {
+		this.outputFile = outputFileIn;
+	}
+
+	/**
+	 * @return the file to write the source map of the chunk to, or null for
+	 *         no source map
+	 */
+	public File getSourceMapFile() {
+		return sourceMapFile;
+	}
+
+	/**
+	 * @param sourceMapFileIn
+	 *            the file to write the source map of the chunk to, or null for
+	 *            no source map
+	 */
+	public void setSourceMapFile(final File sourceMapFileIn) {
+		this.sourceMapFile = sourceMapFileIn;
+	}
+
+	@Override
+	public String toString() {
+		return name + dependencies + inputs;
+	}
+}
@@ -1,5 +1,6 @@
 package com.github.jlgrock.javascriptframework.closurecompiler;
 
+import java.io.Serializable;
 import java.util.HashMap;
 
 import org.apache.maven.plugin.MojoExecutionException;
@@ -8,7 +9,11 @@ import org.apache.maven.plugin.MojoExecutionException;
  * Strictly typed version of
  * {@link com.github.jlgrock.javascriptframework.closurecompiler.Define Define}.
  */
-public final class ParsedDefine {
+public final class ParsedDefine implements Serializable {
+	/**
+	 * Serial version id.
+	 */
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The types supported when parsing a Define object.
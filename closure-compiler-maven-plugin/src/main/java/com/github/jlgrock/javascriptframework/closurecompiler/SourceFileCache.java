@@ -0,0 +1,302 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.HashUtils;
+import com.google.javascript.jscomp.CommandLineRunner;
+import com.google.javascript.jscomp.SourceFile;
+
+/**
+ * A cache of the content of javascript files that are the same for every
+ * module of a build, such as externs and the closure library, so that they
+ * are only read once per JVM rather than once per compile. There is a single
+ * shared instance, which lives for as long as the plugin is loaded, so later
+ * modules in the same maven session reuse what earlier modules read.
+ *
+ * Entries are keyed by the absolute path of the file. An entry is reused as
+ * long as the size and last modified time of the file have not changed, or
+ * failing that, as long as the content hash has not changed. The cache is
+ * bounded by the total size of the content it holds, and the least recently
+ * used entries are evicted first.
+ *
+ * Only the content is shared. Every lookup returns a new {@link SourceFile},
+ * since the compiler changes its source files as it uses them and compiles
+ * may run at the same time.
+ *
+ * Lookups are safe to make from multiple threads at once.
+ */
+public final class SourceFileCache {
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(SourceFileCache.class);
+
+	/**
+	 * The number of bytes in a megabyte.
+	 */
+	private static final long MEGABYTE = 1024L * 1024L;
+
+	/**
+	 * The approximate number of bytes of memory used for each character of
+	 * content.
+	 */
+	private static final int BYTES_PER_CHAR = 2;
+
+	/**
+	 * The instance shared by every execution in this JVM.
+	 */
+	private static SourceFileCache shared;
+
+	/**
+	 * The maximum total size of the content held, in bytes.
+	 */
+	private long maxBytes;
+
+	/**
+	 * The total size of the content held, in bytes.
+	 */
+	private long currentBytes;
+
+	/**
+	 * The entries, keyed by absolute path, from least to most recently used.
+	 */
+	private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>(
+			16, 0.75f, true);
+
+	/**
+	 * The names of the default externs that are packaged with the compiler,
+	 * loaded on first use.
+	 */
+	private List<String> defaultExternNames;
+
+	/**
+	 * The content of the default externs that are packaged with the compiler,
+	 * in the same order as their names.
+	 */
+	private List<String> defaultExternCode;
+
+	/**
+	 * The number of lookups that were served from the cache.
+	 */
+	private int hits;
+
+	/**
+	 * The number of lookups that required reading the file.
+	 */
+	private int misses;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxSize
+	 *            the maximum total size of the content held, in bytes
+	 */
+	private SourceFileCache(final long maxSize) {
+		this.maxBytes = maxSize;
+	}
+
+	/**
+	 * Get the cache shared by every execution in this JVM, creating it if
+	 * needed. If the cache already exists with a different size, it is resized
+	 * to the new size.
+	 *
+	 * @param maxMegabytes
+	 *            the maximum total size of the content held, in megabytes
+	 * @return the shared cache
+	 */
+	public static synchronized SourceFileCache getShared(
+			final int maxMegabytes) {
+		long maxSize = maxMegabytes * MEGABYTE;
+		if (shared == null) {
+			shared = new SourceFileCache(maxSize);
+		} else {
+			shared.resize(maxSize);
+		}
+		return shared;
+	}
+
+	/**
+	 * Get a new compiler source file for a file, using the cached content if
+	 * the file has not changed since it was last read.
+	 *
+	 * @param file
+	 *            the file to get the source file for
+	 * @return the source file
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public SourceFile getSourceFile(final File file) throws IOException {
+		String path = file.getAbsolutePath();
+		long size = file.length();
+		long lastModified = file.lastModified();
+		CacheEntry entry;
+		synchronized (this) {
+			entry = entries.get(path);
+			if (entry != null && entry.size == size
+					&& entry.lastModified == lastModified) {
+				hits++;
+				return SourceFile.fromCode(file.getPath(), entry.code);
+			}
+		}
+
+		byte[] content = FileUtils.readFileToByteArray(file);
+		String hash = HashUtils.hash(content);
+		synchronized (this) {
+			if (entry != null && entry.hash.equals(hash)) {
+				hits++;
+				put(path, new CacheEntry(size, lastModified, hash, entry.code));
+				return SourceFile.fromCode(file.getPath(), entry.code);
+			}
+			misses++;
+		}
+		String code = new String(content, "UTF-8");
+		synchronized (this) {
+			put(path, new CacheEntry(size, lastModified, hash, code));
+		}
+		return SourceFile.fromCode(file.getPath(), code);
+	}
+
+	/**
+	 * Get new compiler source files for the default externs that are packaged
+	 * with the compiler. These are only read the first time they are
+	 * requested.
+	 *
+	 * @return the default externs
+	 * @throws IOException
+	 *             if the externs cannot be read
+	 */
+	public synchronized List<SourceFile> getDefaultExterns()
+			throws IOException {
+		if (defaultExternNames == null) {
+			List<String> names = new ArrayList<String>();
+			List<String> code = new ArrayList<String>();
+			for (SourceFile extern : CommandLineRunner.getDefaultExterns()) {
+				names.add(extern.getName());
+				code.add(extern.getCode());
+			}
+			defaultExternNames = names;
+			defaultExternCode = code;
+		}
+		List<SourceFile> externs = new ArrayList<SourceFile>(
+				defaultExternNames.size());
+		for (int i = 0; i < defaultExternNames.size(); i++) {
+			externs.add(SourceFile.fromCode(defaultExternNames.get(i),
+					defaultExternCode.get(i)));
+		}
+		return externs;
+	}
+
+	/**
+	 * Log how well the cache has been used so far.
+	 */
+	public synchronized void logStatistics() {
+		LOGGER.info("Source file cache: " + hits + " files reused, " + misses
+				+ " files read, " + entries.size() + " files ("
+				+ (currentBytes / MEGABYTE) + "MB) held.");
+	}
+
+	/**
+	 * Change the maximum total size of the content held, evicting entries if
+	 * needed.
+	 *
+	 * @param maxSize
+	 *            the new maximum, in bytes
+	 */
+	private synchronized void resize(final long maxSize) {
+		maxBytes = maxSize;
+		evict();
+	}
+
+	/**
+	 * Add or replace an entry, then evict the least recently used entries
+	 * until the cache is within its size.
+	 *
+	 * @param path
+	 *            the absolute path of the file
+	 * @param entry
+	 *            the entry for the file
+	 */
+	private void put(final String path, final CacheEntry entry) {
+		CacheEntry previous = entries.put(path, entry);
+		if (previous != null) {
+			currentBytes -= previous.bytes;
+		}
+		currentBytes += entry.bytes;
+		evict();
+	}
+
+	/**
+	 * Evict the least recently used entries until the cache is within its
+	 * size.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, CacheEntry>> it = entries.entrySet()
+				.iterator();
+		while (currentBytes > maxBytes && it.hasNext()) {
+			currentBytes -= it.next().getValue().bytes;
+			it.remove();
+		}
+	}
+
+	/**
+	 * A single cached file.
+	 */
+	private static final class CacheEntry {
+		/**
+		 * The size of the file when it was read.
+		 */
+		private final long size;
+
+		/**
+		 * The last modified time of the file when it was read.
+		 */
+		private final long lastModified;
+
+		/**
+		 * The hash of the content of the file when it was read.
+		 */
+		private final String hash;
+
+		/**
+		 * The content of the file.
+		 */
+		private final String code;
+
+		/**
+		 * The approximate memory used by the content, in bytes.
+		 */
+		private final long bytes;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param fileSize
+		 *            the size of the file
+		 * @param fileLastModified
+		 *            the last modified time of the file
+		 * @param fileHash
+		 *            the hash of the file content
+		 * @param content
+		 *            the content of the file
+		 */
+		private CacheEntry(final long fileSize, final long fileLastModified,
+				final String fileHash, final String content) {
+			this.size = fileSize;
+			this.lastModified = fileLastModified;
+			this.hash = fileHash;
+			this.code = content;
+			this.bytes = (long) content.length() * BYTES_PER_CHAR;
+		}
+	}
+}
@@ -0,0 +1,321 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.AtomicFileWriter;
+import com.github.jlgrock.javascriptframework.mavenutils.pathing.RelativePath;
+
+/**
+ * Builds a synchronous debug or assert library by concatenating files that
+ * are already in dependency order, rather than running them through the
+ * compiler. The javascript is never parsed: the only change made to the files
+ * is that goog.require statements at the start of a line are blanked out,
+ * since every required namespace has already been provided by an earlier file.
+ * Lines are never added or removed within a file, so the source map written
+ * alongside the library is an index map with one section per file, each of
+ * which maps every line straight back to the same line of its file.
+ *
+ * The files are read and written as UTF-8. The library and its source map are
+ * each replaced in one step, and are left alone when they have not changed.
+ */
+public final class SyncLibraryConcatenator {
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(SyncLibraryConcatenator.class);
+
+	/**
+	 * The name of the google require function.
+	 */
+	private static final String REQUIRE = "goog.require";
+
+	/**
+	 * The file being written.
+	 */
+	private final File outputFile;
+
+	/**
+	 * The writer the library is written to.
+	 */
+	private final Writer out;
+
+	/**
+	 * The number of complete lines written so far.
+	 */
+	private int line;
+
+	/**
+	 * The number of characters written so far on the current line.
+	 */
+	private int column;
+
+	/**
+	 * The source map section for each file written, in order.
+	 */
+	private final List<Section> sections = new ArrayList<Section>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param output
+	 *            the file being written
+	 * @param writer
+	 *            the writer the library is written to
+	 */
+	private SyncLibraryConcatenator(final File output, final Writer writer) {
+		this.outputFile = output;
+		this.out = writer;
+	}
+
+	/**
+	 * Concatenate files into a single library.
+	 *
+	 * @param inputs
+	 *            the files to concatenate, in dependency order
+	 * @param outputFile
+	 *            the library to write
+	 * @param sourceMapFile
+	 *            the index source map to write, or null for no source map
+	 * @param frameworkTargetDirectory
+	 *            the base directory that contains the output files, which
+	 *            paths in the source map are made relative to
+	 * @param prefix
+	 *            the code to write before the first file
+	 * @param suffix
+	 *            the code to write after the last file
+	 * @throws IOException
+	 *             if there is a problem reading or writing any of the files
+	 */
+	public static void concatenate(final List<File> inputs,
+			final File outputFile, final File sourceMapFile,
+			final File frameworkTargetDirectory, final String prefix,
+			final String suffix) throws IOException {
+		AtomicFileWriter writer = new AtomicFileWriter(outputFile);
+		SyncLibraryConcatenator concatenator = new SyncLibraryConcatenator(
+				outputFile, writer);
+		boolean written;
+		try {
+			concatenator.writeCode(prefix);
+			for (File input : inputs) {
+				concatenator.writeFile(input);
+			}
+			concatenator.writeCode(suffix);
+			if (sourceMapFile != null) {
+				concatenator.writeCode("\n//@ sourceMappingURL="
+						+ sourceMapFile.getName());
+			}
+			concatenator.writeCode("\n");
+			written = writer.commitIfChanged();
+		} finally {
+			writer.close();
+		}
+		if (written) {
+			LOGGER.debug("concatenated " + inputs.size() + " files into "
+					+ outputFile.getName());
+		} else {
+			LOGGER.debug(outputFile.getName() + " is unchanged");
+		}
+		if (sourceMapFile != null) {
+			concatenator.writeSourceMap(sourceMapFile, frameworkTargetDirectory);
+		}
+	}
+
+	/**
+	 * Write some generated code, keeping track of the position in the output.
+	 *
+	 * @param code
+	 *            the code to write
+	 * @throws IOException
+	 *             if there is a problem writing the output
+	 */
+	private void writeCode(final String code) throws IOException {
+		out.write(code);
+		for (int i = 0; i < code.length(); i++) {
+			if (code.charAt(i) == '\n') {
+				line++;
+				column = 0;
+			} else {
+				column++;
+			}
+		}
+	}
+
+	/**
+	 * Write the content of a file on a new line, blanking out any
+	 * goog.require statements, and record its source map section.
+	 *
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 *             if there is a problem reading the file or writing the output
+	 */
+	private void writeFile(final File file) throws IOException {
+		String content = FileUtils.readFileToString(file, "UTF-8");
+		if (content.length() == 0) {
+			return;
+		}
+		if (column != 0) {
+			writeCode("\n");
+		}
+		int lines = 0;
+		int start = 0;
+		while (start < content.length()) {
+			int end = content.indexOf('\n', start);
+			if (end == -1) {
+				end = content.length();
+			}
+			String text = content.substring(start, end);
+			if (!isRequireLine(text)) {
+				out.write(text);
+			} else if (text.endsWith("\r")) {
+				out.write('\r');
+			}
+			out.write('\n');
+			lines++;
+			start = end + 1;
+		}
+		sections.add(new Section(file, line, column, lines));
+		line += lines;
+		column = 0;
+	}
+
+	/**
+	 * Check whether a line holds nothing but a goog.require statement.
+	 *
+	 * @param text
+	 *            the line, without its line feed
+	 * @return true if the line should be blanked out
+	 */
+	private static boolean isRequireLine(final String text) {
+		if (!text.startsWith(REQUIRE)) {
+			return false;
+		}
+		Matcher m = AnnotationFileReader.REQ_REGEX.matcher(text);
+		if (!m.lookingAt()) {
+			return false;
+		}
+		String rest = text.substring(m.end()).trim();
+		return rest.length() == 0 || ";".equals(rest);
+	}
+
+	/**
+	 * Write the index source map for the library.
+	 *
+	 * @param sourceMapFile
+	 *            the file to write the source map to
+	 * @param frameworkTargetDirectory
+	 *            the base directory that contains the output files
+	 * @throws IOException
+	 *             if there is a problem writing the source map
+	 */
+	private void writeSourceMap(final File sourceMapFile,
+			final File frameworkTargetDirectory) throws IOException {
+		String basePath = frameworkTargetDirectory.getAbsolutePath()
+				+ File.separator;
+		String relPath = RelativePath.getRelPathFromBase(
+				sourceMapFile.getParentFile(), frameworkTargetDirectory);
+		AtomicFileWriter map = new AtomicFileWriter(sourceMapFile);
+		try {
+			map.write("{\"version\":3,\"file\":\"");
+			map.write(escape(outputFile.getName()));
+			map.write("\",\"sections\":[");
+			for (int i = 0; i < sections.size(); i++) {
+				Section section = sections.get(i);
+				String source = section.file.getAbsolutePath();
+				if (source.startsWith(basePath)) {
+					source = relPath + source.substring(basePath.length());
+				}
+				if (i > 0) {
+					map.write(',');
+				}
+				map.write("\n{\"offset\":{\"line\":");
+				map.write(String.valueOf(section.line));
+				map.write(",\"column\":");
+				map.write(String.valueOf(section.column));
+				map.write("},\"map\":{\"version\":3,\"file\":\"");
+				map.write(escape(outputFile.getName()));
+				map.write("\",\"sources\":[\"");
+				// Don't you just have to love windows!
+				map.write(escape(source.replace('\\', '/')));
+				map.write("\"],\"names\":[],\"mappings\":\"");
+				// the first line maps to line 0, column 0 of the only source
+				// and every line after it maps to the next line of the source
+				map.write("AAAA");
+				for (int l = 1; l < section.lines; l++) {
+					map.write(";AACA");
+				}
+				map.write("\"}}");
+			}
+			map.write("\n]}\n");
+			map.commitIfChanged();
+		} finally {
+			map.close();
+		}
+	}
+
+	/**
+	 * Escape a string for use in a JSON string literal.
+	 *
+	 * @param value
+	 *            the string to escape
+	 * @return the escaped string
+	 */
+	private static String escape(final String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	/**
+	 * The position of a single file within the library.
+	 */
+	private static final class Section {
+		/**
+		 * The file that was written.
+		 */
+		private final File file;
+
+		/**
+		 * The line of the library the file starts on.
+		 */
+		private final int line;
+
+		/**
+		 * The column of the library the file starts on.
+		 */
+		private final int column;
+
+		/**
+		 * The number of lines in the file.
+		 */
+		private final int lines;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param sectionFile
+		 *            the file that was written
+		 * @param startLine
+		 *            the line of the library the file starts on
+		 * @param startColumn
+		 *            the column of the library the file starts on
+		 * @param lineCount
+		 *            the number of lines in the file
+		 */
+		private Section(final File sectionFile, final int startLine,
+				final int startColumn, final int lineCount) {
+			this.file = sectionFile;
+			this.line = startLine;
+			this.column = startColumn;
+			this.lines = lineCount;
+		}
+	}
+}
@@ -0,0 +1,536 @@
+package com.github.jlgrock.javascriptframework.closurecompiler.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import com.github.jlgrock.javascriptframework.closurecompiler.ClosureCompilation;
+import com.github.jlgrock.javascriptframework.closurecompiler.SourceFileCache;
+import com.github.jlgrock.javascriptframework.mavenutils.io.AtomicFileWriter;
+import com.github.jlgrock.javascriptframework.mavenutils.logging.MojoLogAppender;
+import com.github.jlgrock.javascriptframework.mavenutils.logging.MojoLogAppender.BufferedMessage;
+import com.google.javascript.jscomp.Compiler;
+
+/**
+ * A long lived process that runs closure compiles sent to it by builds. The
+ * compiler classes stay loaded and warmed up, and the extern and closure
+ * library files are kept in a {@link SourceFileCache}, so each compile only
+ * has to read the files that changed.
+ *
+ * The daemon only listens on the loopback address. When it starts, it writes
+ * its port and a random token to a state file that only the current user can
+ * read, and every request must start with that token. It stops when asked to,
+ * or once it has had no requests for the idle timeout, and removes the state
+ * file when it does.
+ *
+ * Each request starts with the token, the protocol version and the versions
+ * of the plugin and the compiler. If any of the versions differ from the
+ * daemon's, it answers that they do not match and the build compiles without
+ * it, since the classes of the two would not agree. Otherwise the request
+ * goes on with a command and, for a compile, the {@link ClosureCompilation}
+ * to run, written with java serialization. The daemon replies with a
+ * {@link CompileResponse} that includes everything the compile logged, so the
+ * build can show it as if the compile had run there.
+ */
+public final class CompileDaemon {
+	/**
+	 * The command to run a compile.
+	 */
+	static final String COMPILE = "compile";
+
+	/**
+	 * The command to check that the daemon is running.
+	 */
+	static final String PING = "ping";
+
+	/**
+	 * The command to stop the daemon.
+	 */
+	static final String STOP = "stop";
+
+	/**
+	 * The version of the requests and responses. This must change whenever
+	 * they change in a way the daemon or builds of other versions would not
+	 * understand. Every version must start a request with the token and this
+	 * version, so that a mismatch can always be answered.
+	 */
+	static final int PROTOCOL_VERSION = 1;
+
+	/**
+	 * The version used when the actual version cannot be found.
+	 */
+	static final String UNKNOWN_VERSION = "unknown";
+
+	/**
+	 * The name of the port in the state file.
+	 */
+	static final String PORT_PROPERTY = "port";
+
+	/**
+	 * The name of the token in the state file.
+	 */
+	static final String TOKEN_PROPERTY = "token";
+
+	/**
+	 * The extension added to the state file to name the daemon's log file.
+	 */
+	public static final String LOG_EXTENSION = ".log";
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(CompileDaemon.class);
+
+	/**
+	 * The properties maven packages with the plugin, which include its
+	 * version.
+	 */
+	private static final String POM_PROPERTIES = "/META-INF/maven/"
+			+ "com.github.jlgrock.javascript-framework/"
+			+ "closure-compiler-maven-plugin/pom.properties";
+
+	/**
+	 * The version of this plugin.
+	 */
+	static final String PLUGIN_VERSION = readPluginVersion();
+
+	/**
+	 * The version of the closure compiler.
+	 */
+	static final String COMPILER_VERSION = readCompilerVersion();
+
+	/**
+	 * How long to wait for a connection before checking whether the daemon
+	 * has been idle for too long, in milliseconds.
+	 */
+	private static final int ACCEPT_TIMEOUT = 1000;
+
+	/**
+	 * The number of connections that can be waiting to be accepted.
+	 */
+	private static final int BACKLOG = 50;
+
+	/**
+	 * The number of random bits in the token.
+	 */
+	private static final int TOKEN_BITS = 130;
+
+	/**
+	 * The radix the token is written in.
+	 */
+	private static final int TOKEN_RADIX = 32;
+
+	/**
+	 * The number of milliseconds in a minute.
+	 */
+	private static final long MILLIS_PER_MINUTE = 60L * 1000L;
+
+	/**
+	 * The number of arguments the daemon is started with.
+	 */
+	private static final int ARGUMENT_COUNT = 3;
+
+	/**
+	 * The file the port and token are written to.
+	 */
+	private final File stateFile;
+
+	/**
+	 * How long the daemon waits without a request before stopping, in
+	 * milliseconds.
+	 */
+	private final long idleTimeout;
+
+	/**
+	 * The cache of extern and closure library files, or null if it is turned
+	 * off.
+	 */
+	private final SourceFileCache sourceFileCache;
+
+	/**
+	 * The plugin version requests must be sent with.
+	 */
+	private final String pluginVersion;
+
+	/**
+	 * The compiler version requests must be sent with.
+	 */
+	private final String compilerVersion;
+
+	/**
+	 * The token every request must start with.
+	 */
+	private final String token = new BigInteger(TOKEN_BITS, new SecureRandom())
+			.toString(TOKEN_RADIX);
+
+	/**
+	 * The number of requests being handled.
+	 */
+	private final AtomicInteger activeRequests = new AtomicInteger();
+
+	/**
+	 * The time the last request finished.
+	 */
+	private volatile long lastActivity;
+
+	/**
+	 * Whether the daemon has been asked to stop.
+	 */
+	private volatile boolean stopped;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param state
+	 *            the file to write the port and token to
+	 * @param idleTimeoutMillis
+	 *            how long to wait without a request before stopping, in
+	 *            milliseconds
+	 * @param cacheMegabytes
+	 *            the maximum size of the cache of extern and closure library
+	 *            files, in megabytes, or 0 or less to turn it off
+	 */
+	public CompileDaemon(final File state, final long idleTimeoutMillis,
+			final int cacheMegabytes) {
+		this(state, idleTimeoutMillis, cacheMegabytes, PLUGIN_VERSION,
+				COMPILER_VERSION);
+	}
+
+	/**
+	 * Constructor for a daemon that claims to be running other versions.
+	 *
+	 * @param state
+	 *            the file to write the port and token to
+	 * @param idleTimeoutMillis
+	 *            how long to wait without a request before stopping, in
+	 *            milliseconds
+	 * @param cacheMegabytes
+	 *            the maximum size of the cache of extern and closure library
+	 *            files, in megabytes, or 0 or less to turn it off
+	 * @param plugin
+	 *            the plugin version requests must be sent with
+	 * @param compiler
+	 *            the compiler version requests must be sent with
+	 */
+	CompileDaemon(final File state, final long idleTimeoutMillis,
+			final int cacheMegabytes, final String plugin,
+			final String compiler) {
+		this.stateFile = state.getAbsoluteFile();
+		this.idleTimeout = idleTimeoutMillis;
+		this.pluginVersion = plugin;
+		this.compilerVersion = compiler;
+		if (cacheMegabytes > 0) {
+			this.sourceFileCache = SourceFileCache.getShared(cacheMegabytes);
+		} else {
+			this.sourceFileCache = null;
+		}
+	}
+
+	/**
+	 * Start the daemon. The arguments are the state file, the idle timeout in
+	 * minutes, and the size of the source file cache in megabytes. Everything
+	 * the daemon logs is written to the state file with ".log" added to it.
+	 *
+	 * @param args
+	 *            the arguments
+	 * @throws IOException
+	 *             if the daemon cannot listen for requests
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length != ARGUMENT_COUNT) {
+			System.err.println("Usage: " + CompileDaemon.class.getName()
+					+ " <state file> <idle timeout minutes> <cache megabytes>");
+			System.exit(1);
+		}
+		File state = new File(args[0]);
+		PrintStream log = new PrintStream(new FileOutputStream(
+				state.getPath() + LOG_EXTENSION), true, "UTF-8");
+		System.setOut(log);
+		System.setErr(log);
+		MojoLogAppender.beginLogging(new SystemStreamLog() {
+			@Override
+			public boolean isDebugEnabled() {
+				// the build decides whether to show the debug messages
+				return true;
+			}
+		});
+		new CompileDaemon(state, Long.parseLong(args[1]) * MILLIS_PER_MINUTE,
+				Integer.parseInt(args[2])).run();
+	}
+
+	/**
+	 * Listen for requests until the daemon is stopped or has been idle for
+	 * too long.
+	 *
+	 * @throws IOException
+	 *             if the daemon cannot listen for requests or write the state
+	 *             file
+	 */
+	public void run() throws IOException {
+		ServerSocket serverSocket = new ServerSocket(0, BACKLOG,
+				InetAddress.getByName(null));
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			serverSocket.setSoTimeout(ACCEPT_TIMEOUT);
+			writeState(serverSocket.getLocalPort());
+			LOGGER.info("Compile daemon listening on port "
+					+ serverSocket.getLocalPort() + ".");
+			lastActivity = System.currentTimeMillis();
+			while (!stopped && !isIdle()) {
+				final Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (SocketTimeoutException e) {
+					continue;
+				}
+				activeRequests.incrementAndGet();
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							handle(socket);
+						} finally {
+							close(socket);
+							lastActivity = System.currentTimeMillis();
+							activeRequests.decrementAndGet();
+						}
+					}
+				});
+			}
+		} finally {
+			deleteState();
+			serverSocket.close();
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (sourceFileCache != null) {
+				sourceFileCache.logStatistics();
+			}
+			LOGGER.info("Compile daemon stopped.");
+		}
+	}
+
+	/**
+	 * Stop listening for requests. Requests that are being handled are
+	 * finished first.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * @return true if no requests are being handled and none have been for the
+	 *         idle timeout
+	 */
+	private boolean isIdle() {
+		return activeRequests.get() == 0
+				&& System.currentTimeMillis() - lastActivity > idleTimeout;
+	}
+
+	/**
+	 * Handle a single request.
+	 *
+	 * @param socket
+	 *            the connection the request was made on
+	 */
+	private void handle(final Socket socket) {
+		try {
+			ObjectOutputStream out = new ObjectOutputStream(
+					new BufferedOutputStream(socket.getOutputStream()));
+			out.flush();
+			ObjectInputStream in = new ObjectInputStream(
+					new BufferedInputStream(socket.getInputStream()));
+			if (!token.equals(in.readUTF())) {
+				LOGGER.warn("Ignoring a request without the right token.");
+				return;
+			}
+			int protocol = in.readInt();
+			String plugin = in.readUTF();
+			String compiler = in.readUTF();
+			boolean matches = protocol == PROTOCOL_VERSION
+					&& pluginVersion.equals(plugin)
+					&& compilerVersion.equals(compiler);
+			out.writeBoolean(matches);
+			if (!matches) {
+				LOGGER.warn("Refusing a request from a build with "
+						+ describeVersions(protocol, plugin, compiler) + ".");
+				out.writeUTF(describeVersions(PROTOCOL_VERSION, pluginVersion,
+						compilerVersion));
+				out.flush();
+				return;
+			}
+			out.flush();
+			String command = in.readUTF();
+			CompileResponse response;
+			if (COMPILE.equals(command)) {
+				response = compile((ClosureCompilation) in.readObject());
+			} else if (STOP.equals(command)) {
+				LOGGER.info("Compile daemon asked to stop.");
+				stop();
+				response = new CompileResponse(Boolean.TRUE, null,
+						Collections.<BufferedMessage> emptyList());
+			} else if (PING.equals(command)) {
+				response = new CompileResponse(Boolean.TRUE, null,
+						Collections.<BufferedMessage> emptyList());
+			} else {
+				LOGGER.warn("Ignoring unknown command \"" + command + "\".");
+				return;
+			}
+			out.writeObject(response);
+			out.flush();
+		} catch (IOException e) {
+			LOGGER.warn("Unable to handle a request: " + e.getMessage());
+		} catch (ClassNotFoundException e) {
+			LOGGER.warn("Unable to read a request: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Run a compile, collecting everything it logs.
+	 *
+	 * @param compilation
+	 *            the compile to run
+	 * @return the response to send back
+	 */
+	private CompileResponse compile(final ClosureCompilation compilation) {
+		LOGGER.info("Compiling \"" + compilation.getOutputFile() + "\".");
+		Boolean result = null;
+		Exception error = null;
+		List<BufferedMessage> messages;
+		MojoLogAppender.beginBuffering();
+		try {
+			result = Boolean.valueOf(compilation.execute(sourceFileCache));
+		} catch (Exception e) {
+			LOGGER.debug("Compile failed.", e);
+			error = e;
+		} finally {
+			messages = MojoLogAppender.endBuffering();
+		}
+		return new CompileResponse(result, error, messages);
+	}
+
+	/**
+	 * Describe the versions a daemon or build is running, for messages.
+	 *
+	 * @param protocol
+	 *            the protocol version
+	 * @param plugin
+	 *            the plugin version
+	 * @param compiler
+	 *            the compiler version
+	 * @return the description
+	 */
+	static String describeVersions(final int protocol, final String plugin,
+			final String compiler) {
+		return "protocol " + protocol + ", plugin " + plugin + " and compiler "
+				+ compiler;
+	}
+
+	/**
+	 * @return the version of this plugin, or "unknown" if it is not running
+	 *         from a packaged plugin
+	 */
+	private static String readPluginVersion() {
+		InputStream in = CompileDaemon.class.getResourceAsStream(POM_PROPERTIES);
+		if (in == null) {
+			return UNKNOWN_VERSION;
+		}
+		try {
+			Properties properties = new Properties();
+			properties.load(in);
+			return properties.getProperty("version", UNKNOWN_VERSION);
+		} catch (IOException e) {
+			LOGGER.debug("Unable to read the plugin version: " + e.getMessage());
+			return UNKNOWN_VERSION;
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * @return the version of the closure compiler, or "unknown" if it does not
+	 *         say
+	 */
+	private static String readCompilerVersion() {
+		String version = Compiler.getReleaseVersion();
+		if (version == null) {
+			return UNKNOWN_VERSION;
+		}
+		return version;
+	}
+
+	/**
+	 * Write the port and token to the state file, which only the current
+	 * user is able to read. The file is restricted before the token is
+	 * written to it, so there is no time at which anyone else could read it.
+	 *
+	 * @param port
+	 *            the port the daemon is listening on
+	 * @throws IOException
+	 *             if the state file cannot be written, or cannot be
+	 *             restricted to the current user
+	 */
+	private void writeState(final int port) throws IOException {
+		Properties state = new Properties();
+		state.setProperty(PORT_PROPERTY, String.valueOf(port));
+		state.setProperty(TOKEN_PROPERTY, token);
+		AtomicFileWriter out = new AtomicFileWriter(stateFile, true);
+		try {
+			state.store(out, "Closure compile daemon");
+			out.commit();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Delete the state file, unless another daemon has replaced it since.
+	 */
+	private void deleteState() {
+		Properties state = CompileDaemonClient.readState(stateFile);
+		if (state != null && token.equals(state.getProperty(TOKEN_PROPERTY))
+				&& !stateFile.delete()) {
+			LOGGER.warn("Unable to delete \"" + stateFile + "\".");
+		}
+	}
+
+	/**
+	 * Close a connection, ignoring any problems doing so.
+	 *
+	 * @param socket
+	 *            the connection to close
+	 */
+	static void close(final Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			LOGGER.debug("Unable to close connection: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package com.github.jlgrock.javascriptframework.closurecompiler.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Properties;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import com.github.jlgrock.javascriptframework.closurecompiler.ClosureCompilation;
+import com.github.jlgrock.javascriptframework.mavenutils.logging.MojoLogAppender;
+
+/**
+ * Sends requests to the compile daemon. If the daemon cannot be reached, or
+ * is running different versions of the plugin or compiler than this build,
+ * the requests return null rather than failing, so that the build can carry
+ * on without it.
+ */
+public final class CompileDaemonClient {
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(CompileDaemonClient.class);
+
+	/**
+	 * How long to wait to connect to the daemon, in milliseconds.
+	 */
+	private static final int CONNECT_TIMEOUT = 2000;
+
+	/**
+	 * Should not use constructor for utility class.
+	 */
+	private CompileDaemonClient() {
+	}
+
+	/**
+	 * Run a compile on the daemon. Everything the compile logs is written to
+	 * the log here.
+	 *
+	 * @param stateFile
+	 *            the file the daemon wrote its port to
+	 * @param compilation
+	 *            the compile to run
+	 * @return whether the compile worked, or null if the daemon could not be
+	 *         used
+	 * @throws MojoExecutionException
+	 *             if the options are set incorrectly for the compiler
+	 * @throws IOException
+	 *             if there is a problem reading or writing to the files
+	 */
+	public static Boolean compile(final File stateFile,
+			final ClosureCompilation compilation)
+			throws MojoExecutionException, IOException {
+		CompileResponse response = send(stateFile, CompileDaemon.COMPILE,
+				compilation);
+		if (response == null) {
+			return null;
+		}
+		MojoLogAppender.replay(response.getMessages());
+		Exception error = response.getError();
+		if (error instanceof MojoExecutionException) {
+			throw (MojoExecutionException) error;
+		} else if (error instanceof IOException) {
+			throw (IOException) error;
+		} else if (error != null) {
+			throw new MojoExecutionException(error.getMessage(), error);
+		}
+		return response.getResult();
+	}
+
+	/**
+	 * Check whether the daemon is running.
+	 *
+	 * @param stateFile
+	 *            the file the daemon wrote its port to
+	 * @return true if the daemon answered and is running the same versions
+	 */
+	public static boolean ping(final File stateFile) {
+		return send(stateFile, CompileDaemon.PING, null) != null;
+	}
+
+	/**
+	 * Ask the daemon to stop once it has finished the compiles it is running.
+	 *
+	 * @param stateFile
+	 *            the file the daemon wrote its port to
+	 * @return true if the daemon was running the same versions and has been
+	 *         asked to stop
+	 */
+	public static boolean stop(final File stateFile) {
+		return send(stateFile, CompileDaemon.STOP, null) != null;
+	}
+
+	/**
+	 * Read the port and token the daemon wrote when it started.
+	 *
+	 * @param stateFile
+	 *            the file the daemon wrote its port to
+	 * @return the state, or null if there is no readable state file
+	 */
+	static Properties readState(final File stateFile) {
+		if (!stateFile.isFile()) {
+			return null;
+		}
+		Properties state = new Properties();
+		InputStream in = null;
+		try {
+			in = new FileInputStream(stateFile);
+			state.load(in);
+			return state;
+		} catch (IOException e) {
+			LOGGER.debug("Unable to read \"" + stateFile + "\": "
+					+ e.getMessage());
+			return null;
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Send a request to the daemon and wait for the response.
+	 *
+	 * @param stateFile
+	 *            the file the daemon wrote its port to
+	 * @param command
+	 *            the command to send
+	 * @param compilation
+	 *            the compile to send with the command, can be null
+	 * @return the response, or null if the daemon could not be reached or is
+	 *         running different versions
+	 */
+	private static CompileResponse send(final File stateFile,
+			final String command, final ClosureCompilation compilation) {
+		Properties state = readState(stateFile);
+		if (state == null) {
+			return null;
+		}
+		Socket socket = new Socket();
+		try {
+			int port = Integer.parseInt(state.getProperty(
+					CompileDaemon.PORT_PROPERTY, ""));
+			socket.connect(new InetSocketAddress(InetAddress.getByName(null),
+					port), CONNECT_TIMEOUT);
+			ObjectOutputStream out = new ObjectOutputStream(
+					new BufferedOutputStream(socket.getOutputStream()));
+			out.writeUTF(state.getProperty(CompileDaemon.TOKEN_PROPERTY, ""));
+			out.writeInt(CompileDaemon.PROTOCOL_VERSION);
+			out.writeUTF(CompileDaemon.PLUGIN_VERSION);
+			out.writeUTF(CompileDaemon.COMPILER_VERSION);
+			out.flush();
+			ObjectInputStream in = new ObjectInputStream(
+					new BufferedInputStream(socket.getInputStream()));
+			if (!in.readBoolean()) {
+				LOGGER.warn("The compile daemon is running " + in.readUTF()
+						+ ", but this build has "
+						+ CompileDaemon.describeVersions(
+								CompileDaemon.PROTOCOL_VERSION,
+								CompileDaemon.PLUGIN_VERSION,
+								CompileDaemon.COMPILER_VERSION)
+						+ ", so it will not be used.");
+				return null;
+			}
+			out.writeUTF(command);
+			if (compilation != null) {
+				out.writeObject(compilation);
+			}
+			out.flush();
+			return (CompileResponse) in.readObject();
+		} catch (NumberFormatException e) {
+			LOGGER.debug("Invalid port in \"" + stateFile + "\".");
+			return null;
+		} catch (IOException e) {
+			LOGGER.debug("Unable to reach the compile daemon: "
+					+ e.getMessage());
+			return null;
+		} catch (ClassNotFoundException e) {
+			LOGGER.debug("Unable to read the compile daemon's response: "
+					+ e.getMessage());
+			return null;
+		} finally {
+			CompileDaemon.close(socket);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.github.jlgrock.javascriptframework.closurecompiler.daemon;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.jlgrock.javascriptframework.mavenutils.logging.MojoLogAppender.BufferedMessage;
+
+/**
+ * What the compile daemon sends back for a request.
+ */
+final class CompileResponse implements Serializable {
+	/**
+	 * Serial version id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Whether the compile worked, or null if it failed with an exception.
+	 */
+	private final Boolean result;
+
+	/**
+	 * The exception the compile failed with, can be null.
+	 */
+	private final Exception error;
+
+	/**
+	 * The messages logged while the request was handled.
+	 */
+	private final ArrayList<BufferedMessage> messages;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param requestResult
+	 *            whether the compile worked, or null if it failed with an
+	 *            exception
+	 * @param requestError
+	 *            the exception the compile failed with, can be null
+	 * @param requestMessages
+	 *            the messages logged while the request was handled
+	 */
+	CompileResponse(final Boolean requestResult, final Exception requestError,
+			final List<BufferedMessage> requestMessages) {
+		this.result = requestResult;
+		this.error = requestError;
+		this.messages = new ArrayList<BufferedMessage>(requestMessages);
+	}
+
+	/**
+	 * @return whether the compile worked, or null if it failed with an
+	 *         exception
+	 */
+	Boolean getResult() {
+		return result;
+	}
+
+	/**
+	 * @return the exception the compile failed with, can be null
+	 */
+	Exception getError() {
+		return error;
+	}
+
+	/**
+	 * @return the messages logged while the request was handled
+	 */
+	List<BufferedMessage> getMessages() {
+		return messages;
+	}
+}
@@ -0,0 +1,6 @@
+/**
+ * A long lived process that runs closure compiles for builds, so that the
+ * compiler and the extern and closure library files stay loaded between them.
+ * @since 1.0
+ */
+package com.github.jlgrock.javascriptframework.closurecompiler.daemon;
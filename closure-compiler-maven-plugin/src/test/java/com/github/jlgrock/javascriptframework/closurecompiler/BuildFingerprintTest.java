@@ -0,0 +1,99 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BuildFingerprintTest {
+
+	private File directory;
+
+	private File manifestFile;
+
+	private File source;
+
+	private File output;
+
+	private List<File> inputs;
+
+	private Map<String, String> options;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"),
+				"build-fingerprint-test-" + System.nanoTime());
+		manifestFile = new File(directory, BuildFingerprint.MANIFEST_FILENAME);
+		source = new File(directory, "a.js");
+		output = new File(directory, "out-min.js");
+		FileUtils.writeStringToFile(source, "goog.provide('a');\n");
+		FileUtils.writeStringToFile(output, "compiled");
+		inputs = Arrays.asList(source);
+		options = new HashMap<String, String>();
+		options.put("compileLevel", "ADVANCED_OPTIMIZATIONS");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	private String fingerprint() throws IOException {
+		return BuildFingerprint.load(manifestFile).calculate(inputs,
+				Collections.<File> emptyList(), options);
+	}
+
+	private void recordAndSave(final String fingerprint) throws IOException {
+		BuildFingerprint manifest = BuildFingerprint.load(manifestFile);
+		manifest.record(output, fingerprint);
+		manifest.save();
+	}
+
+	@Test
+	public void testUnchangedInputsAreUpToDate() throws IOException {
+		String fingerprint = fingerprint();
+		recordAndSave(fingerprint);
+
+		assertEquals(fingerprint, fingerprint());
+		assertTrue(BuildFingerprint.load(manifestFile).isUpToDate(output,
+				fingerprint));
+	}
+
+	@Test
+	public void testChangedContentOrOptionsAreNotUpToDate() throws IOException {
+		String fingerprint = fingerprint();
+		recordAndSave(fingerprint);
+
+		FileUtils.writeStringToFile(source, "goog.provide('b');\n");
+		String changedContent = fingerprint();
+		assertFalse(BuildFingerprint.load(manifestFile).isUpToDate(output,
+				changedContent));
+
+		options.put("compileLevel", "SIMPLE_OPTIMIZATIONS");
+		assertFalse(changedContent.equals(fingerprint()));
+	}
+
+	@Test
+	public void testMissingOutputsAreNotUpToDate() throws IOException {
+		String fingerprint = fingerprint();
+		recordAndSave(fingerprint);
+
+		BuildFingerprint manifest = BuildFingerprint.load(manifestFile);
+		assertFalse(manifest.isUpToDate(output, fingerprint, new File(
+				directory, "out-min.js.smap")));
+		output.delete();
+		assertFalse(manifest.isUpToDate(output, fingerprint));
+	}
+}
@@ -0,0 +1,61 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BuildTimingsTest {
+
+	private File dir;
+
+	@Before
+	public void setUp() {
+		dir = new File(System.getProperty("java.io.tmpdir"),
+				"build-timings-test-" + System.nanoTime());
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(dir);
+	}
+
+	@Test
+	public void testPhasesAddUp() throws IOException {
+		File a = new File(dir, "a.js");
+		File b = new File(dir, "b.js");
+		FileUtils.writeStringToFile(a, "var a;");
+		FileUtils.writeStringToFile(b, "var bb;");
+
+		BuildTimings timings = new BuildTimings();
+		timings.stop(BuildTimings.SORTING, timings.start());
+		timings.countFilesRead(BuildTimings.DEPENDENCY_SCANNING,
+				Arrays.asList(a));
+		timings.countFilesRead(BuildTimings.DEPENDENCY_SCANNING,
+				Arrays.asList(b));
+		assertEquals(2, timings.getCount(BuildTimings.DEPENDENCY_SCANNING,
+				BuildTimings.FILES));
+		assertEquals(13, timings.getCount(BuildTimings.DEPENDENCY_SCANNING,
+				BuildTimings.BYTES_READ));
+		assertEquals(0, timings.getCount(BuildTimings.COMPILATION,
+				BuildTimings.FILES));
+
+		String summary = timings.summarize();
+		assertTrue(summary, summary.startsWith("Build timings: total "));
+		assertTrue(summary, summary.contains("sorting "));
+
+		File json = new File(dir, BuildTimings.TIMINGS_FILENAME);
+		timings.write(json);
+		String written = FileUtils.readFileToString(json);
+		assertTrue(written, written.contains("{\"name\": \"sorting\""));
+		assertTrue(written, written.contains("\"files\": 2, \"bytesRead\": 13}"));
+		assertTrue(written, written.contains("\"peakHeapUpperBoundBytes\": "));
+	}
+}
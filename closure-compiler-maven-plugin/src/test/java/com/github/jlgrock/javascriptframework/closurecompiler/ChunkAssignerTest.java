@@ -0,0 +1,100 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Test;
+
+public class ChunkAssignerTest {
+
+	private static final List<String> NONE = Collections.emptyList();
+
+	private final File base = new File("base.js");
+
+	private DependencyInfo dep(final String name, final String... requires) {
+		DependencyInfo dep = new DependencyInfo(new File(name + ".js"));
+		dep.addToProvides(name);
+		for (String require : requires) {
+			dep.addToRequires(require);
+		}
+		return dep;
+	}
+
+	private List<String> names(final OutputChunk chunk) {
+		List<String> names = new ArrayList<String>();
+		for (File file : chunk.getInputs()) {
+			names.add(file.getName());
+		}
+		return names;
+	}
+
+	@Test
+	public void testAssign() throws MojoExecutionException {
+		List<DependencyInfo> deps = Arrays.asList(dep("lib"),
+				dep("shared", "lib"), dep("landing", "lib"),
+				dep("editor", "shared"), dep("reports", "shared"),
+				dep("unused"));
+		List<Chunk> chunks = Arrays.asList(
+				new Chunk("main", Arrays.asList("landing"), NONE),
+				new Chunk("editor", Arrays.asList("editor"),
+						Arrays.asList("main")),
+				new Chunk("reports", Arrays.asList("reports"),
+						Arrays.asList("main")));
+
+		List<OutputChunk> result = ChunkAssigner.assign(chunks,
+				Arrays.asList(base), deps);
+		assertEquals(3, result.size());
+		// shared is needed by both editor and reports, so it goes in main
+		assertEquals(Arrays.asList("base.js", "lib.js", "shared.js",
+				"landing.js", "unused.js"), names(result.get(0)));
+		assertEquals(Arrays.asList("editor.js"), names(result.get(1)));
+		assertEquals(Arrays.asList("reports.js"), names(result.get(2)));
+		assertEquals(Arrays.asList("main"), result.get(1).getDependencies());
+	}
+
+	@Test
+	public void testAssignToDeepestCommonChunk()
+			throws MojoExecutionException {
+		List<DependencyInfo> deps = Arrays.asList(dep("lib"),
+				dep("widgets", "lib"), dep("editor", "widgets"),
+				dep("preview", "widgets"));
+		List<Chunk> chunks = Arrays.asList(
+				new Chunk("main", Arrays.asList("lib"), NONE),
+				new Chunk("ui", NONE, Arrays.asList("main")),
+				new Chunk("editor", Arrays.asList("editor"),
+						Arrays.asList("ui")),
+				new Chunk("preview", Arrays.asList("preview"),
+						Arrays.asList("ui")));
+
+		List<OutputChunk> result = ChunkAssigner.assign(chunks,
+				Arrays.asList(base), deps);
+		assertEquals(Arrays.asList("base.js", "lib.js"), names(result.get(0)));
+		assertEquals(Arrays.asList("widgets.js"), names(result.get(1)));
+		assertEquals(Arrays.asList("editor.js"), names(result.get(2)));
+		assertEquals(Arrays.asList("preview.js"), names(result.get(3)));
+	}
+
+	@Test(expected = MojoExecutionException.class)
+	public void testDependencyMustBeListedFirst()
+			throws MojoExecutionException {
+		List<Chunk> chunks = Arrays.asList(new Chunk("main", NONE, NONE),
+				new Chunk("editor", NONE, Arrays.asList("reports")),
+				new Chunk("reports", NONE, Arrays.asList("main")));
+		ChunkAssigner.assign(chunks, Arrays.asList(base),
+				new ArrayList<DependencyInfo>());
+	}
+
+	@Test(expected = MojoExecutionException.class)
+	public void testUnknownEntryPoint() throws MojoExecutionException {
+		List<Chunk> chunks = Arrays.asList(new Chunk("main",
+				Arrays.asList("missing"), NONE));
+		ChunkAssigner.assign(chunks, Arrays.asList(base),
+				Arrays.asList(dep("lib")));
+	}
+}
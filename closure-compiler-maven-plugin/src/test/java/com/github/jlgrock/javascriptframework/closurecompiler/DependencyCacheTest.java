@@ -0,0 +1,135 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.HashUtils;
+
+public class DependencyCacheTest {
+
+	private static final String HEADER = "# CalcDeps dependency cache v2";
+
+	private File directory;
+
+	private File cacheFile;
+
+	private File source;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"),
+				"dependency-cache-test-" + System.nanoTime());
+		cacheFile = new File(directory, DependencyCache.CACHE_FILENAME);
+		source = new File(directory, "a.js");
+		FileUtils.writeStringToFile(source,
+				"goog.provide('a');\ngoog.require('b');\n", "UTF-8");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	/**
+	 * Write a cache file with a single entry for the source file, which
+	 * claims that it provides "cached".
+	 */
+	private void writeCache(final String header, final long size,
+			final long lastModified, final String hash) throws IOException {
+		FileUtils.writeStringToFile(cacheFile, header + "\n"
+				+ source.getAbsolutePath() + "\t" + size + "\t" + lastModified
+				+ "\t" + hash + "\tcached\tb\t\n", "UTF-8");
+	}
+
+	private String sourceHash() throws IOException {
+		return HashUtils.hash(FileUtils.readFileToByteArray(source));
+	}
+
+	private static void assertNamespaces(final Collection<String> actual,
+			final String... expected) {
+		assertEquals(new HashSet<String>(Arrays.asList(expected)),
+				new HashSet<String>(actual));
+	}
+
+	@Test
+	public void testSavedEntriesAreReused() throws IOException {
+		DependencyCache cache = DependencyCache.load(cacheFile);
+		assertNamespaces(cache.getDependencyInfo(source).getProvides(), "a");
+		cache.save();
+		// no temporary file is left next to the cache
+		assertEquals(2, directory.list().length);
+
+		// same size and modification time, so the file is not read again
+		long lastModified = source.lastModified();
+		FileUtils.writeStringToFile(source,
+				"goog.provide('c');\ngoog.require('b');\n", "UTF-8");
+		assertTrue(source.setLastModified(lastModified));
+
+		DependencyInfo dep = DependencyCache.load(cacheFile)
+				.getDependencyInfo(source);
+		assertNamespaces(dep.getProvides(), "a");
+		assertNamespaces(dep.getRequires(), "b");
+	}
+
+	@Test
+	public void testChangedTimeFallsBackToHash() throws IOException {
+		writeCache(HEADER, source.length(), source.lastModified() - 1000,
+				sourceHash());
+		assertNamespaces(DependencyCache.load(cacheFile)
+				.getDependencyInfo(source).getProvides(), "cached");
+
+		writeCache(HEADER, source.length() + 1, source.lastModified(),
+				sourceHash());
+		assertNamespaces(DependencyCache.load(cacheFile)
+				.getDependencyInfo(source).getProvides(), "cached");
+
+		writeCache(HEADER, source.length() + 1, source.lastModified(),
+				"0000");
+		assertNamespaces(DependencyCache.load(cacheFile)
+				.getDependencyInfo(source).getProvides(), "a");
+	}
+
+	@Test
+	public void testHeaderOnlyCacheIsKeptSeparate() throws IOException {
+		writeCache(HEADER + " (header only)", source.length(),
+				source.lastModified(), sourceHash());
+		assertNamespaces(DependencyCache.load(cacheFile, true)
+				.getDependencyInfo(source).getProvides(), "cached");
+		assertNamespaces(DependencyCache.load(cacheFile, false)
+				.getDependencyInfo(source).getProvides(), "a");
+
+		DependencyCache cache = DependencyCache.load(cacheFile, true);
+		cache.getDependencyInfo(source);
+		cache.save();
+		assertTrue(FileUtils.readFileToString(cacheFile, "UTF-8").startsWith(
+				HEADER + " (header only)\n"));
+	}
+
+	@Test
+	public void testCorruptCacheIsIgnored() throws IOException {
+		FileUtils.writeStringToFile(cacheFile, HEADER + "\n"
+				+ source.getAbsolutePath() + "\t" + source.length() + "\t"
+				+ source.lastModified() + "\t" + sourceHash() + "\tcached\n",
+				"UTF-8");
+		assertNamespaces(DependencyCache.load(cacheFile)
+				.getDependencyInfo(source).getProvides(), "a");
+
+		writeCache(HEADER, source.length(), source.lastModified(), sourceHash());
+		FileUtils.writeStringToFile(cacheFile, FileUtils.readFileToString(
+				cacheFile, "UTF-8").replace("\t" + source.length() + "\t",
+				"\tten\t"), "UTF-8");
+		assertNamespaces(DependencyCache.load(cacheFile)
+				.getDependencyInfo(source).getProvides(), "a");
+	}
+}
@@ -0,0 +1,97 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DependencyGraphTest {
+
+	private File dir;
+
+	private File base;
+
+	private List<File> paths;
+
+	private File input;
+
+	private File write(final String name, final String content)
+			throws IOException {
+		File file = new File(dir, name);
+		FileUtils.writeStringToFile(file, content);
+		return file;
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		dir = new File(System.getProperty("java.io.tmpdir"),
+				"dependency-graph-test-" + System.nanoTime());
+		base = write("base.js", "");
+		paths = Arrays.asList(base,
+				write("lib.js", "goog.provide('lib');\n"),
+				write("mid.js", "goog.provide('mid');\ngoog.require('lib');\n"),
+				write("unused.js",
+						"goog.provide('unused');\ngoog.require('lib');\n"));
+		input = write("input.js", "goog.provide('input');\ngoog.require('mid');\n");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(dir);
+	}
+
+	private List<String> sortedNames(final DependencyGraph graph)
+			throws IOException {
+		List<String> names = new ArrayList<String>();
+		for (File file : CalcDeps.executeCalcDeps(graph, Arrays.asList(input),
+				paths, new File(dir, "deps.js"), null)) {
+			names.add(file.getName());
+		}
+		return names;
+	}
+
+	@Test
+	public void testFilesAreOnlyScannedOnce() throws IOException {
+		DependencyGraph graph = new DependencyGraph(base, null, 1);
+		sortedNames(graph);
+		sortedNames(graph);
+		assertEquals(4, graph.size());
+	}
+
+	@Test
+	public void testLazyResolutionMatchesFullScan() throws IOException {
+		DependencyGraph lazyGraph = new DependencyGraph(base, null, 2);
+		lazyGraph.setLazyResolution(true);
+
+		assertEquals(sortedNames(new DependencyGraph(base, null, 1)),
+				sortedNames(lazyGraph));
+		assertEquals(4, lazyGraph.size());
+	}
+
+	@Test
+	public void testLazyResolutionScansEachFileOnce() throws IOException {
+		File cacheFile = new File(dir, DependencyCache.CACHE_FILENAME);
+		DependencyCache cache = DependencyCache.load(cacheFile);
+		DependencyGraph graph = new DependencyGraph(base, cache, 2);
+		graph.setLazyResolution(true);
+		sortedNames(graph);
+
+		// input.js, lib.js, mid.js and unused.js
+		assertEquals(4, graph.getBuildTimings().getCount(
+				BuildTimings.DEPENDENCY_SCANNING, BuildTimings.FILES));
+
+		// unused.js was not reached, but what was found in it is still cached
+		cache.save();
+		assertTrue(FileUtils.readFileToString(cacheFile).contains(
+				new File(dir, "unused.js").getAbsolutePath()));
+	}
+}
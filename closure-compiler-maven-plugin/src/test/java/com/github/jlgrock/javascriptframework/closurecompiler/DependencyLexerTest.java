@@ -0,0 +1,63 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class DependencyLexerTest {
+
+	private static DependencyInfo scan(final String content,
+			final boolean headerOnly) throws UnsupportedEncodingException {
+		return DependencyLexer.scan(new File("test.js"),
+				content.getBytes("UTF-8"), headerOnly);
+	}
+
+	private static void assertNamespaces(final Collection<String> actual,
+			final String... expected) {
+		assertEquals(new TreeSet<String>(Arrays.asList(expected)),
+				new TreeSet<String>(actual));
+	}
+
+	@Test
+	public void testDeclarations() throws UnsupportedEncodingException {
+		DependencyInfo dep = scan("goog.provide('a.b');\r\n"
+				+ "goog.provide( \"a.c\" );\n" + "goog.require('d.e')\n"
+				+ "ns:my.namespace\r\n" + "ns:not valid\n" + "var x = 1;\n"
+				+ "goog.require('f.g');\n", false);
+		assertNamespaces(dep.getProvides(), "a.b", "a.c");
+		assertNamespaces(dep.getRequires(), "d.e", "f.g");
+		assertNamespaces(dep.getNamespaces(), "my.namespace");
+	}
+
+	@Test
+	public void testCommentsAndStringsAreSkipped()
+			throws UnsupportedEncodingException {
+		DependencyInfo dep = scan("/*\ngoog.require('in.block');\n*/\n"
+				+ "// goog.require('in.line');\n"
+				+ "var s = 'unterminated\n" + "goog.require('after.string');\n"
+				+ "var t = \"\\\"\n" + "goog.require('after.escape');\n"
+				+ "var r = /'/;\n" + "goog.require('after.regex');\n"
+				+ "  goog.require('indented');\n", false);
+		assertNamespaces(dep.getRequires(), "after.string", "after.escape",
+				"after.regex");
+	}
+
+	@Test
+	public void testHeaderOnlyStopsAtFirstStatement()
+			throws UnsupportedEncodingException {
+		String content = "/** @fileoverview test */\n'use strict';\n"
+				+ "goog.provide('a');\n\n// comment\ngoog.require('b');\n"
+				+ "a.x = function() {};\ngoog.require('c');\n";
+		DependencyInfo header = scan(content, true);
+		assertNamespaces(header.getProvides(), "a");
+		assertNamespaces(header.getRequires(), "b");
+
+		assertNamespaces(scan(content, false).getRequires(), "b", "c");
+	}
+}
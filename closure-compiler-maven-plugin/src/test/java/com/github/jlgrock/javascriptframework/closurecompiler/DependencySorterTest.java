@@ -0,0 +1,95 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DependencySorterTest {
+
+	private static DependencyInfo dep(final String name, final String provide,
+			final String... requires) {
+		DependencyInfo dep = new DependencyInfo(new File(name + ".js"));
+		if (provide != null) {
+			dep.addToProvides(provide);
+		}
+		for (String require : requires) {
+			dep.addToRequires(require);
+		}
+		return dep;
+	}
+
+	private static List<String> names(final List<DependencyInfo> deps) {
+		List<String> names = new ArrayList<String>();
+		for (DependencyInfo dep : deps) {
+			names.add(dep.getFile().getName());
+		}
+		return names;
+	}
+
+	@Test
+	public void testRequiresComeFirst() throws DependencyException {
+		DependencyInfo a = dep("a", "a");
+		DependencyInfo b = dep("b", "b", "a");
+		DependencyInfo c = dep("c", "c", "b");
+		DependencyInfo unused = dep("unused", "unused");
+		DependencyInfo input = dep("input", null, "c", "a");
+
+		List<DependencyInfo> sorted = new DependencySorter(Arrays.asList(
+				unused, c, b, a)).sort(Collections.singletonList(input));
+		assertEquals(Arrays.asList("a.js", "b.js", "c.js", "input.js"),
+				names(sorted));
+	}
+
+	@Test
+	public void testDeepChainDoesNotOverflow() throws DependencyException {
+		int depth = 100000;
+		List<DependencyInfo> deps = new ArrayList<DependencyInfo>();
+		deps.add(dep("n0", "n0"));
+		for (int i = 1; i < depth; i++) {
+			deps.add(dep("n" + i, "n" + i, "n" + (i - 1)));
+		}
+		DependencyInfo input = dep("input", null, "n" + (depth - 1));
+
+		List<DependencyInfo> sorted = new DependencySorter(deps)
+				.sort(Collections.singletonList(input));
+		assertEquals(depth + 1, sorted.size());
+		assertEquals("n0.js", sorted.get(0).getFile().getName());
+		assertEquals("input.js", sorted.get(depth).getFile().getName());
+	}
+
+	@Test
+	public void testCycleIsBrokenAndSorted() throws DependencyException {
+		DependencyInfo a = dep("a", "a", "b");
+		DependencyInfo b = dep("b", "b", "a");
+		DependencyInfo input = dep("input", null, "a");
+
+		List<DependencyInfo> sorted = new DependencySorter(Arrays.asList(a, b))
+				.sort(Collections.singletonList(input));
+		assertEquals(Arrays.asList("b.js", "a.js", "input.js"), names(sorted));
+	}
+
+	@Test
+	public void testMissingProvidesAreReported() {
+		DependencyInfo a = dep("a", "a", "missing.one");
+		DependencyInfo input = dep("input", null, "a", "missing.two");
+
+		try {
+			new DependencySorter(Arrays.asList(a)).sort(Collections
+					.singletonList(input));
+			fail("expected a DependencyException");
+		} catch (DependencyException e) {
+			assertEquals(2, e.getErrors().size());
+			for (DependencyError error : e.getErrors()) {
+				assertEquals(DependencyError.Type.MISSING_PROVIDE,
+						error.getType());
+			}
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.jlgrock.javascriptframework.mavenutils.mavenobjects.JsarRelativeLocations;
+
+public class LibraryIndexTest {
+
+	private static final String LIBRARY_HASH = "0123456789abcdef";
+
+	private File libraryRoot;
+
+	private File indexedFile;
+
+	@Before
+	public void setUp() throws IOException {
+		libraryRoot = new File(System.getProperty("java.io.tmpdir"),
+				"library-index-test-" + System.nanoTime());
+		indexedFile = new File(libraryRoot, "closure/goog/array/array.js");
+		FileUtils.writeStringToFile(indexedFile,
+				"goog.provide('goog.array');\ngoog.require('goog.asserts');\n");
+		writeLibraryHash(LIBRARY_HASH);
+	}
+
+	private void writeLibraryHash(final String hash) throws IOException {
+		FileUtils.writeStringToFile(new File(libraryRoot,
+				JsarRelativeLocations.CLOSURE_LIBRARY_HASH_FILENAME), hash,
+				"UTF-8");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(libraryRoot);
+	}
+
+	private LibraryIndex indexOf(final long size) throws IOException {
+		LibraryIndex index = new LibraryIndex(LIBRARY_HASH);
+		index.add("closure/goog/array/array.js", size,
+				AnnotationFileReader.parseForDependencyInfo(indexedFile));
+		return index;
+	}
+
+	private LibraryIndex roundTrip(final LibraryIndex index) throws IOException {
+		StringWriter out = new StringWriter();
+		index.write(out);
+		return LibraryIndex.read(new ByteArrayInputStream(out.toString()
+				.getBytes("UTF-8")));
+	}
+
+	@Test
+	public void testLookupAfterRoundTrip() throws IOException {
+		DependencyInfo dep = roundTrip(indexOf(indexedFile.length())).lookup(libraryRoot, indexedFile);
+		assertNotNull(dep);
+		assertEquals(indexedFile, dep.getFile());
+		assertEquals("goog.array", dep.getProvides().iterator().next());
+		assertEquals("goog.asserts", dep.getRequires().iterator().next());
+	}
+
+	@Test
+	public void testChangedOrUnknownFilesAreNotFound() throws IOException {
+		LibraryIndex index = indexOf(indexedFile.length() + 1);
+
+		assertNull(index.lookup(libraryRoot, indexedFile));
+		assertNull(index.lookup(libraryRoot, new File(libraryRoot,
+				"closure/goog/other.js")));
+		assertNull(index.lookup(new File(libraryRoot, "elsewhere"),
+				indexedFile));
+	}
+
+	@Test
+	public void testOtherLibrariesAreNotUsed() throws IOException {
+		writeLibraryHash("fedcba9876543210");
+		assertNull(indexOf(indexedFile.length()).lookup(libraryRoot,
+				indexedFile));
+
+		FileUtils.forceDelete(new File(libraryRoot,
+				JsarRelativeLocations.CLOSURE_LIBRARY_HASH_FILENAME));
+		assertNull(indexOf(indexedFile.length()).lookup(libraryRoot,
+				indexedFile));
+	}
+
+	@Test
+	public void testLibraryIsOnlyCheckedOnce() throws IOException {
+		LibraryIndex index = indexOf(indexedFile.length());
+		assertNotNull(index.lookup(libraryRoot, indexedFile));
+		writeLibraryHash("fedcba9876543210");
+		assertNotNull(index.lookup(libraryRoot, indexedFile));
+	}
+}
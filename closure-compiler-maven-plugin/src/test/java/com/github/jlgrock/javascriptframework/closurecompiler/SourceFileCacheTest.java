@@ -0,0 +1,58 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.javascript.jscomp.SourceFile;
+
+public class SourceFileCacheTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = new File(System.getProperty("java.io.tmpdir"),
+				"source-file-cache-test-" + System.nanoTime() + ".js");
+		FileUtils.writeStringToFile(file, "var a = 1;\n");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(file);
+	}
+
+	@Test
+	public void testUnchangedFilesAreReused() throws IOException {
+		SourceFileCache cache = SourceFileCache.getShared(1);
+		SourceFile first = cache.getSourceFile(file);
+		assertEquals("var a = 1;\n", first.getCode());
+
+		// the content is reused while the size and time are the same
+		long lastModified = file.lastModified();
+		FileUtils.writeStringToFile(file, "var a = 2;\n");
+		file.setLastModified(lastModified);
+		assertEquals("var a = 1;\n", cache.getSourceFile(file).getCode());
+
+		file.setLastModified(lastModified + 10000);
+		assertEquals("var a = 2;\n", cache.getSourceFile(file).getCode());
+	}
+
+	@Test
+	public void testSourceFilesAreNotShared() throws IOException {
+		SourceFileCache cache = SourceFileCache.getShared(1);
+		SourceFile first = cache.getSourceFile(file);
+		SourceFile second = cache.getSourceFile(file);
+		assertNotSame(first, second);
+		assertEquals(first.getCode(), second.getCode());
+		assertNotSame(cache.getDefaultExterns().get(0), cache
+				.getDefaultExterns().get(0));
+	}
+}
@@ -0,0 +1,80 @@
+package com.github.jlgrock.javascriptframework.closurecompiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SyncLibraryConcatenatorTest {
+
+	private File directory;
+
+	private File compiled;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"),
+				"sync-library-test-" + System.nanoTime());
+		compiled = new File(directory, "compiled");
+		compiled.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	@Test
+	public void testConcatenatesInOrderAndBlanksRequires() throws IOException {
+		File a = new File(directory, "src/a.js");
+		File b = new File(directory, "src/b.js");
+		FileUtils.writeStringToFile(a, "goog.provide('a');\na.x = 1;");
+		FileUtils.writeStringToFile(b, "goog.provide('b');\n"
+				+ "goog.require('a');\n" + "goog.require('a'); a.x++;\n"
+				+ "b.y = a.x;\n");
+		File output = new File(compiled, "lib-debug-min.js");
+		File map = new File(compiled, "lib-debug-min.js.smap");
+
+		SyncLibraryConcatenator.concatenate(Arrays.asList(a, b), output, map,
+				directory, "(function(){", "})();");
+
+		assertEquals("(function(){\n" + "goog.provide('a');\na.x = 1;\n"
+				+ "goog.provide('b');\n\n" + "goog.require('a'); a.x++;\n"
+				+ "b.y = a.x;\n" + "})();\n"
+				+ "//@ sourceMappingURL=lib-debug-min.js.smap\n",
+				FileUtils.readFileToString(output));
+
+		String sourceMap = FileUtils.readFileToString(map);
+		assertTrue(sourceMap.contains("\"offset\":{\"line\":1,\"column\":0}"));
+		assertTrue(sourceMap.contains("\"sources\":[\"../src/a.js\"]"));
+		assertTrue(sourceMap.contains("\"offset\":{\"line\":3,\"column\":0}"));
+		assertTrue(sourceMap.contains("\"mappings\":\"AAAA;AACA;AACA;AACA\""));
+	}
+
+	@Test
+	public void testUnchangedLibraryIsLeftAlone() throws IOException {
+		File a = new File(directory, "src/a.js");
+		FileUtils.writeStringToFile(a, "goog.provide('a');\n");
+		File output = new File(compiled, "lib-debug-min.js");
+		File map = new File(compiled, "lib-debug-min.js.smap");
+		SyncLibraryConcatenator.concatenate(Arrays.asList(a), output, map,
+				directory, "", "");
+
+		long lastModified = output.lastModified() - 60000;
+		assertTrue(output.setLastModified(lastModified));
+		assertTrue(map.setLastModified(lastModified));
+		SyncLibraryConcatenator.concatenate(Arrays.asList(a), output, map,
+				directory, "", "");
+		assertEquals(lastModified, output.lastModified());
+		assertEquals(lastModified, map.lastModified());
+		// no temporary files are left behind
+		assertEquals(2, compiled.list().length);
+	}
+}
@@ -0,0 +1,163 @@
+package com.github.jlgrock.javascriptframework.closurecompiler.daemon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompileDaemonTest {
+
+	private File stateFile;
+
+	@Before
+	public void setUp() {
+		stateFile = new File(System.getProperty("java.io.tmpdir"),
+				"compile-daemon-test-" + System.nanoTime());
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(stateFile);
+	}
+
+	@Test
+	public void testNotRunning() {
+		assertFalse(CompileDaemonClient.ping(stateFile));
+		assertFalse(CompileDaemonClient.stop(stateFile));
+	}
+
+	@Test
+	public void testStartPingStop() throws Exception {
+		final CompileDaemon daemon = new CompileDaemon(stateFile, 60000L, 0);
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					daemon.run();
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		thread.start();
+		try {
+			long deadline = System.currentTimeMillis() + 10000L;
+			while (!CompileDaemonClient.ping(stateFile)
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(50L);
+			}
+			assertTrue(CompileDaemonClient.ping(stateFile));
+			assertTrue(CompileDaemonClient.stop(stateFile));
+			thread.join(10000L);
+			assertFalse(thread.isAlive());
+			assertFalse(stateFile.exists());
+		} finally {
+			daemon.stop();
+		}
+	}
+
+	@Test
+	public void testWrongTokenIsIgnored() throws Exception {
+		final CompileDaemon daemon = new CompileDaemon(stateFile, 60000L, 0);
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					daemon.run();
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		thread.start();
+		try {
+			long deadline = System.currentTimeMillis() + 10000L;
+			while (!CompileDaemonClient.ping(stateFile)
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(50L);
+			}
+			String state = FileUtils.readFileToString(stateFile, "ISO-8859-1");
+			File forged = new File(stateFile.getPath() + ".forged");
+			try {
+				FileUtils.writeStringToFile(forged,
+						state.replaceAll("token=.*", "token=wrong"),
+						"ISO-8859-1");
+				assertFalse(CompileDaemonClient.stop(forged));
+			} finally {
+				FileUtils.deleteQuietly(forged);
+			}
+			assertTrue(CompileDaemonClient.ping(stateFile));
+		} finally {
+			daemon.stop();
+			thread.join(10000L);
+		}
+	}
+
+	@Test
+	public void testMismatchedVersionsAreRefused() throws Exception {
+		final CompileDaemon daemon = new CompileDaemon(stateFile, 60000L, 0,
+				"other", CompileDaemon.COMPILER_VERSION);
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					daemon.run();
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		thread.start();
+		try {
+			long deadline = System.currentTimeMillis() + 10000L;
+			while (!stateFile.exists()
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(50L);
+			}
+			Properties state = CompileDaemonClient.readState(stateFile);
+			Socket socket = new Socket(InetAddress.getByName(null),
+					Integer.parseInt(state
+							.getProperty(CompileDaemon.PORT_PROPERTY)));
+			try {
+				ObjectOutputStream out = new ObjectOutputStream(
+						new BufferedOutputStream(socket.getOutputStream()));
+				out.writeUTF(state.getProperty(CompileDaemon.TOKEN_PROPERTY));
+				out.writeInt(CompileDaemon.PROTOCOL_VERSION);
+				out.writeUTF(CompileDaemon.PLUGIN_VERSION);
+				out.writeUTF(CompileDaemon.COMPILER_VERSION);
+				out.flush();
+				ObjectInputStream in = new ObjectInputStream(
+						new BufferedInputStream(socket.getInputStream()));
+				assertFalse(in.readBoolean());
+				assertEquals(CompileDaemon.describeVersions(
+						CompileDaemon.PROTOCOL_VERSION, "other",
+						CompileDaemon.COMPILER_VERSION), in.readUTF());
+			} finally {
+				CompileDaemon.close(socket);
+			}
+
+			// the build carries on without the daemon, which keeps running
+			assertFalse(CompileDaemonClient.ping(stateFile));
+			assertFalse(CompileDaemonClient.stop(stateFile));
+			assertTrue(thread.isAlive());
+			assertTrue(stateFile.exists());
+		} finally {
+			daemon.stop();
+			thread.join(10000L);
+		}
+	}
+}
@@ -2,8 +2,11 @@ package com.github.jlgrock.javascriptframework.jsdependency;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
 import java.util.Set;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.AbstractMojo;
@@ -13,6 +16,7 @@ import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.FileUtils;
 
 import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryIO;
+import com.github.jlgrock.javascriptframework.mavenutils.io.HashUtils;
 import com.github.jlgrock.javascriptframework.mavenutils.io.ResourceIO;
 import com.github.jlgrock.javascriptframework.mavenutils.io.ZipUtils;
 import com.github.jlgrock.javascriptframework.mavenutils.logging.MojoLogAppender;
@@ -112,7 +116,8 @@ public abstract class AbstractDependencyMojo extends AbstractMojo {
 
 	/**
 	 * Extracts the closure library and renames it to a standard so that it can be referenced
-	 * at a later point.
+	 * at a later point. The hash of the zip is written alongside the files, so that
+	 * the compiler can tell that its index of the library applies to them.
 	 * @throws IOException if there is a problem reading the artifact
 	 */
 	protected final void extractAndRenameLibrary() throws IOException {
@@ -129,6 +134,17 @@ public abstract class AbstractDependencyMojo extends AbstractMojo {
 				ResourceIO.getResourceAsZipStream(zipName),
 				getFrameworkTargetDirectory());
 		FileUtils.rename(libFile, stdFile);
+
+		MessageDigest digest = HashUtils.newDigest();
+		InputStream zip = ResourceIO.getResourceAsStream(zipName);
+		try {
+			HashUtils.update(digest, zip);
+		} finally {
+			IOUtils.closeQuietly(zip);
+		}
+		FileUtils.fileWrite(new File(stdFile,
+				JsarRelativeLocations.CLOSURE_LIBRARY_HASH_FILENAME)
+				.getAbsolutePath(), "UTF-8", HashUtils.toHex(digest.digest()));
 	}
 	
 	/**
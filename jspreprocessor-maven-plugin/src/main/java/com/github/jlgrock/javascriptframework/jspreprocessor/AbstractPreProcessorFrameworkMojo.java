@@ -1,6 +1,8 @@
 package com.github.jlgrock.javascriptframework.jspreprocessor;
 
 import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryIO;
+import com.github.jlgrock.javascriptframework.mavenutils.io.ParallelFileProcessor;
+import com.github.jlgrock.javascriptframework.mavenutils.io.ParallelFileProcessor.FileTask;
 import com.github.jlgrock.javascriptframework.mavenutils.logging.MojoLogAppender;
 import com.github.jlgrock.javascriptframework.mavenutils.mavenobjects.JsarRelativeLocations;
 import com.github.jlgrock.javascriptframework.mavenutils.pathing.FileListBuilder;
@@ -13,6 +15,7 @@ import org.apache.maven.project.MavenProject;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -34,6 +37,32 @@ public abstract class AbstractPreProcessorFrameworkMojo extends AbstractMojo {
     @Parameter( defaultValue = "${project}", readonly = true )
 	private MavenProject project;
 
+	/**
+	 * The number of threads used to preprocess the source files. Each file is
+	 * preprocessed independently, and every file that fails is reported
+	 * together rather than stopping at the first. A value of 0 or less will
+	 * use one thread per available processor. This is <pre>1</pre> by default.
+	 */
+	@Parameter(defaultValue = "1")
+	private int preprocessThreads;
+
+	/**
+	 * Whether or not to only preprocess the source files that are new or have
+	 * changed since the last build, rather than deleting and regenerating all
+	 * of the processed files. The outputs of source files that have been
+	 * deleted are removed. A manifest of what was preprocessed is kept in the
+	 * framework target directory. This is <pre>true</pre> by default.
+	 */
+	@Parameter(defaultValue = "true")
+	private boolean incrementalPreprocess;
+
+	/**
+	 * The version of this plugin, which is one of the settings the files are
+	 * preprocessed with.
+	 */
+	@Parameter(defaultValue = "${plugin.version}", readonly = true)
+	private String pluginVersion;
+
 	/**
 	 * The Logger.
 	 */
@@ -52,12 +81,22 @@ public abstract class AbstractPreProcessorFrameworkMojo extends AbstractMojo {
 			File externsDir = JsarRelativeLocations
 					.getExternsLocation(getFrameworkTargetDirectory());
 			
-			DirectoryIO.recursivelyDeleteDirectory(topLevelProcessedDir);
 			File source = getSourceDirectory();
 			File externs = getExternsDirectory();
+			PreProcessManifest manifest = null;
+			if (incrementalPreprocess) {
+				manifest = PreProcessManifest.load(new File(
+						getFrameworkTargetDirectory(),
+						PreProcessManifest.MANIFEST_FILENAME),
+						getPreprocessSettings());
+			}
+			// without a record of what is there, start from scratch
+			if (manifest == null || !manifest.hasEntries(source)) {
+				DirectoryIO.recursivelyDeleteDirectory(topLevelProcessedDir);
+			}
 			if (source.exists()) {
-				copyAndPreprocessDirectory(source, topLevelAssertionDir, false);
-				copyAndPreprocessDirectory(source, topLevelProcessedDir, true);
+				copyAndPreprocessDirectory(source, topLevelAssertionDir,
+						topLevelProcessedDir, manifest);
 				if (externs.exists()) {
 					DirectoryIO.copyDirectory(externs, externsDir);
 				}
@@ -77,21 +116,60 @@ public abstract class AbstractPreProcessorFrameworkMojo extends AbstractMojo {
 	}
 
 	/**
-	 * Copy the content and augment it for all files in the given source directory.
+	 * Copy the content and augment it for all files in the given source directory,
+	 * into both the assertion and the debug directories.
 	 * @param srcDir the source directory
-	 * @param destDir the directory to copy the augmented files to
-	 * @param removeAssertions whether or not to remove assertions
+	 * @param assertionDir the directory to copy the files with augmented assertions to
+	 * @param debugDir the directory to copy the files with removed assertions to
+	 * @param manifest the record of what has already been preprocessed, or null to
+	 *            preprocess every file
 	 * @throws IOException if there was a problem reading or writing to files in the srcDir or destDir
 	 */
 	private void copyAndPreprocessDirectory(final File srcDir,
-			final File destDir, final boolean removeAssertions)
-			throws IOException {
+			final File assertionDir, final File debugDir,
+			final PreProcessManifest manifest) throws IOException {
 		List<File> files = FileListBuilder.buildFilteredList(srcDir, "js");
-		for (File file : files) {
-			File copiedFile = makeRelativeFile(file, destDir);
-			copyAndPreprocessFile(file, copiedFile, removeAssertions);
+		List<File> changed = files;
+		if (manifest != null) {
+			int pruned = manifest.prune(srcDir, files);
+			changed = new ArrayList<File>();
+			for (File file : files) {
+				if (!manifest.isUpToDate(file,
+						makeRelativeFile(file, assertionDir),
+						makeRelativeFile(file, debugDir))) {
+					changed.add(file);
+				}
+			}
+			LOGGER.info("Preprocessing " + changed.size() + " of "
+					+ files.size() + " files, removed the outputs of "
+					+ pruned + " deleted files.");
 		}
 
+		int threads = ParallelFileProcessor.resolveThreadCount(preprocessThreads);
+		LOGGER.debug("preprocessing " + changed.size() + " files using up to "
+				+ threads + " threads");
+		try {
+			ParallelFileProcessor.process(changed, new FileTask<File>() {
+				@Override
+				public File process(final File file) throws Exception {
+					File assertionFile = makeRelativeFile(file, assertionDir);
+					File debugFile = makeRelativeFile(file, debugDir);
+					if (manifest != null) {
+						manifest.invalidate(file);
+					}
+					copyAndPreprocessFile(file, assertionFile, debugFile);
+					if (manifest != null) {
+						manifest.record(file, assertionFile, debugFile);
+					}
+					return file;
+				}
+			}, threads);
+		} finally {
+			// keep what did work, so that only the failures are redone
+			if (manifest != null) {
+				manifest.save();
+			}
+		}
 	}
 
 	/**
@@ -119,6 +197,34 @@ public abstract class AbstractPreProcessorFrameworkMojo extends AbstractMojo {
 			final File destFile, final boolean removeAssertions)
 			throws IOException;
 
+	/**
+	 * Copy and preprocess each file into both of its destinations. By default
+	 * the file is processed once for each, preprocessors that can write both
+	 * from a single read should override this.
+	 * 
+	 * @param srcFile the source file to read from
+	 * @param assertionFile the destination to write with assertions augmented
+	 * @param debugFile the destination to write with assertions removed
+	 * @throws IOException if there was a problem reading or writing to files
+	 */
+	void copyAndPreprocessFile(final File srcFile, final File assertionFile,
+			final File debugFile) throws IOException {
+		copyAndPreprocessFile(srcFile, assertionFile, false);
+		copyAndPreprocessFile(srcFile, debugFile, true);
+	}
+
+	/**
+	 * Describe everything other than the content of a source file that
+	 * affects what it is preprocessed into. When this changes, every file is
+	 * preprocessed again. Preprocessors with settings of their own should add
+	 * them to this.
+	 * 
+	 * @return the settings
+	 */
+	protected String getPreprocessSettings() {
+		return getClass().getName() + " " + pluginVersion;
+	}
+
 	/**
 	 * Accessor method for source directory.
 	 * 
@@ -1,20 +1,20 @@
 package com.github.jlgrock.javascriptframework.jspreprocessor;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.maven.project.MavenProject;
 
+import com.github.jlgrock.javascriptframework.jspreprocessor.processors.AssertTransform;
 import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryIO;
 
 /**
@@ -22,6 +22,11 @@ import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryIO;
  * copy from src/main/javascript to /target/javascript-generated and replace any
  * references to $$assert.
  * 
+ * Each file is read once and passed through every {@link SourceTransform}
+ * registered with the plugin's class loader, of which the handling of
+ * $$assert ({@link AssertTransform}) is one. Other transforms can be added by
+ * adding a jar that registers them as a dependency of the plugin.
+ * 
  * @author <a href="mailto:grantjl@umich.edu">Justin Grant</a>
  * @requiresProject
  * @goal compile-preprocessors
@@ -32,6 +37,10 @@ public class CompilePreProcessor extends AbstractPreProcessorFrameworkMojo {
 	 * The pattern that matches requires, provides, and assignment operators.
 	 * Basically, the only ways you should be using $assert statements other
 	 * than calling it directly. This is used to ignore these types.
+	 * 
+	 * @deprecated in 1.18.4 - assertions are now found by
+	 *             {@link AssertTransform}, which skips strings and
+	 *             assignments as the source is read.
 	 */
 	public static final String ASSERT_REQUIRE_REGEX_STR = "(\\s*\\$\\$assert\\s*=.*)|"
 			+ "(.*=\\s\\$\\$assert.*)|(.*?goog.require\\s*?\\(\\s*[\\\"']"
@@ -39,27 +48,36 @@ public class CompilePreProcessor extends AbstractPreProcessorFrameworkMojo {
 
 	/**
 	 * The regular expression to find assert statements on a string.
+	 * 
+	 * @deprecated in 1.18.4 - assertions are now found by
+	 *             {@link AssertTransform}.
 	 */
 	public static final String ASSERT_REGEX_STR = ".*?(\\$\\$assert).*";
 
 	/**
 	 * The pattern based off of the ASSERT_REQUIRE_REGEX_STR.
+	 * 
+	 * @deprecated in 1.18.4 - assertions are now found by
+	 *             {@link AssertTransform}.
 	 */
 	public static final Pattern ASSERT_REQUIRE_PATTERN = Pattern
 			.compile(ASSERT_REQUIRE_REGEX_STR);
 
 	/**
 	 * The pattern based off of the ASSERT_REGEX_STR.
+	 * 
+	 * @deprecated in 1.18.4 - assertions are now found by
+	 *             {@link AssertTransform}.
 	 */
 	public static final Pattern ASSERT_PATTERN = Pattern
 			.compile(ASSERT_REGEX_STR);
 
 	/**
-	 * The amount of characters allowed to read ahead in the assertion
-	 * replacement before determining that it should stop looking for the ending
-	 * character.
+	 * The transforms registered with the plugin, which are applied to every
+	 * file.
 	 */
-	public static final int READ_AHEAD_LIMIT = 400;
+	private static final TransformPipeline PIPELINE = TransformPipeline
+			.load(CompilePreProcessor.class.getClassLoader());
 
 	/**
 	 * @parameter default-value=
@@ -87,6 +105,22 @@ public class CompilePreProcessor extends AbstractPreProcessorFrameworkMojo {
 	 */
 	private boolean skipBuildInfo;
 
+	@Override
+	protected final String getPreprocessSettings() {
+		StringBuilder settings = new StringBuilder(
+				super.getPreprocessSettings());
+		settings.append(" transforms=").append(PIPELINE.describe());
+		if (skipBuildInfo) {
+			// the time of the build is not included, as it always changes
+			settings.append(" buildInfo=")
+					.append(getProject().getGroupId()).append(':')
+					.append(getProject().getArtifactId()).append(':')
+					.append(getProject().getPackaging()).append(':')
+					.append(getProject().getVersion());
+		}
+		return settings.toString();
+	}
+
 	@Override
 	public final File getSourceDirectory() {
 		return sourceDirectory;
@@ -113,7 +147,7 @@ public class CompilePreProcessor extends AbstractPreProcessorFrameworkMojo {
 	 * @param lineNumber
 	 *            the lineNumber to use in assertion expansion
 	 * @param removeAssertions
-	 *            whether to return the empty string or return the augmented
+	 *            whether to return an empty statement or return the augmented
 	 *            assertion
 	 * @return the new assertion expression
 	 * @throws IOException
@@ -122,212 +156,93 @@ public class CompilePreProcessor extends AbstractPreProcessorFrameworkMojo {
 	protected static String assertReplacement(final Reader readerIn,
 			final String fileName, final String lineNumber,
 			final boolean removeAssertions) throws IOException {
-		// assume within the content of the assert statement
-		StringBuffer sb1 = new StringBuffer();
-		StringBuffer sb2 = new StringBuffer();
-
-		char expressionChar;
-		char lastChar = ' ';
-		boolean startedExpressionReading = false;
-		boolean singleLineComments = false;
-		boolean commentBlock = false;
-		int parenthesisCount = 0;
-		@SuppressWarnings("unused")
-		int curlyBraceCount = 0;
-		int brackets = 0;
-		boolean doubleQuotes = false;
-		boolean singleQuotes = false;
-		boolean commaBreak = false;
-		int expressionCharInt = -1;
-		int charCount = 0;
-
-		while ((expressionCharInt = readerIn.read()) != -1) {
-			charCount++;
-			if (charCount > READ_AHEAD_LIMIT) {
-				throw new IllegalArgumentException(
-						"Too many characters reached before the end of the $$assert expression at line "
-								+ lineNumber
-								+ " of file "
-								+ fileName
-								+ ".  Please keep these under "
-								+ READ_AHEAD_LIMIT + " characters.");
-			}
-			expressionChar = (char) expressionCharInt;
-			// if (expressionChar != )
-			// eat up whitespace before and after assertion
-			if (parenthesisCount == 0) {
-				if (isWhitespace(expressionChar)) {
-					continue;
-					// ignore ending semicolon
-				} else if (startedExpressionReading && expressionChar == ';') {
-					break;
-					// break on anything that is not a semicolon
-				} else if (startedExpressionReading
-						&& !isWhitespace(expressionChar)) {
-					break;
-					// if we are running into anything that is not a semicolon
-					// or
-					// whitespace, throw an exception
-				} else if (!startedExpressionReading && expressionChar != '('
-						&& !isWhitespace(expressionChar)) {
-					throw new IllegalArgumentException(
-							"The $$assert expression on line " + lineNumber
-									+ " of file " + fileName + " is not valid.");
-				}
-			}
-
-			// determine comma break
-			if (parenthesisCount == 1 && expressionChar == ',' && brackets == 0
-					&& !doubleQuotes && !singleQuotes) {
-				commaBreak = true;
-			// determine whether and which string to append to
-			} else if (parenthesisCount > 1
-					|| (parenthesisCount == 1 && expressionChar != ')')) {
-				if (!commaBreak) {
-					sb1.append(expressionChar);
-				} else {
-					sb2.append(expressionChar);
-				}
-			}
-
-			// comment block
-			if (singleLineComments && expressionChar == '\n') {
-				singleLineComments = false;
-			} else if (commentBlock && lastChar == '*' && expressionChar == '/') {
-				commentBlock = false;
-			} else {
-				// determine comment blocks
-				if (lastChar == '/' && expressionChar == '/') {
-					singleLineComments = true;
-				} else if (lastChar == '/' && expressionChar == '*') {
-					commentBlock = true;
-					// keep track of double quotes
-				} else if (expressionChar == '"' && !doubleQuotes) {
-					doubleQuotes = true;
-				} else if (expressionChar == '"' && doubleQuotes) {
-					if (lastChar != '\\') {
-						doubleQuotes = false;
-					}
-					// keep track of single quotes
-				} else if (expressionChar == '\'' && !singleQuotes) {
-					singleQuotes = true;
-				} else if (expressionChar == '\'' && singleQuotes) {
-					if (lastChar != '\\') {
-						singleQuotes = false;
-					}
-
-					// keep track of brackets
-				} else if (expressionChar == '[') {
-					brackets++;
-				} else if (expressionChar == ']') {
-					brackets--;
-
-					// keep track of curly braces
-				} else if (expressionChar == '{') {
-					curlyBraceCount++;
-				} else if (expressionChar == '}') {
-					curlyBraceCount--;
-					// keep track of parenthesis
-				} else if (expressionChar == '(') {
-					if (parenthesisCount == 0) {
-						startedExpressionReading = true;
-					}
-					parenthesisCount++;
-				} else if (expressionChar == ')') {
-					parenthesisCount--;
-				}
-			}
-			lastChar = expressionChar;
-		}
-		if (expressionCharInt == -1 && parenthesisCount > 0) {
-			throw new IllegalArgumentException(
-					"The $$assert expression on line "
-							+ lineNumber
-							+ " of file "
-							+ fileName
-							+ " has not been terminated before the end of the file.");
+		// the assertion is read either way, so that it is validated and the
+		// reader is left after it
+		StringWriter assertStmt = new StringWriter();
+		StringWriter debugStmt = new StringWriter();
+		TransformPipeline.transformWord(new AssertTransform(),
+				AssertTransform.ASSERT, readerIn, assertStmt, debugStmt,
+				fileName, Integer.parseInt(lineNumber));
+		if (removeAssertions) {
+			return debugStmt.toString();
 		}
+		return assertStmt.toString();
+	}
 
-		String expression = sb1.toString();
-		String expressionString = null;
-		if (expression == null || expression.equals("")) {
-			expression = null;
-			expressionString = "";
-		} else {
-			expressionString = escapeStringForJson(expression);
-		}
-		String message = sb2.toString();
-		if (message == null || message.equals("")) {
-			message = null;
-		}
-		String assertStmt = null;
-		if (!removeAssertions) {
-			assertStmt = "$$assert( " + expression + " , " + message
-					+ ", { 'file' : '" + fileName + "', 'line' : '"
-					+ lineNumber + "', 'expression' : '" + expressionString
-					+ "' } );";
-		} else {
-			assertStmt = "";
-		}
-		return assertStmt;
+	@Override
+	protected final void copyAndPreprocessFile(final File srcFile,
+			final File destFile, final boolean removeAssertions)
+			throws IOException {
+		preprocessFile(srcFile, destFile, removeAssertions, getHeaderInfo());
+	}
+
+	@Override
+	final void copyAndPreprocessFile(final File srcFile,
+			final File assertionFile, final File debugFile) throws IOException {
+		preprocessFile(srcFile, assertionFile, debugFile, getHeaderInfo());
 	}
 
 	/**
-	 * Escapes the string for output in the augmented assert statement.
+	 * Get the build information to add to the header of each processed file.
 	 * 
-	 * @param stringIn
-	 *            the string to escape
-	 * @return the esaped string
+	 * @return the header, or null if it is not to be added
 	 */
-	private static String escapeStringForJson(final String stringIn) {
-		return stringIn.replaceAll("\r\n", "").replaceAll("\n", "")
-				.replaceAll("\r", "").replaceAll("\\\\", "\\\\\\\\")
-				.replaceAll("'", "\\\\\\'");
+	private String getHeaderInfo() {
+		if (skipBuildInfo) {
+			return buildInfo(getProject());
+		}
+		return null;
 	}
 
 	/**
-	 * Whether the character evaluated is whitespace, for assert parsing
-	 * purposes.
-	 * 
-	 * @param expressionChar
-	 *            the character to evaluate
-	 * @return true if it is a form of whitespace, otherwise false
+	 * Preprocess a single file, without adding any build information. This
+	 * allows a file to be preprocessed again on its own when it changes,
+	 * rather than preprocessing the whole source directory.
+	 *
+	 * @param srcFile
+	 *            the file to read from
+	 * @param destFile
+	 *            the file to write to, whose directory is created if needed
+	 * @param removeAssertions
+	 *            if true, removes them, if false, augments the assertion
+	 *            objects
+	 * @throws IOException
+	 *             if there is a problem reading or writing the files
 	 */
-	private static boolean isWhitespace(final char expressionChar) {
-		boolean returnVal = false;
-		switch (expressionChar) {
-		case ' ':
-		case '\t':
-		case '\n':
-		case '\f':
-		case '\r':
-			returnVal = true;
-			break;
-		default:
-			returnVal = false;
-			break;
-		}
-		return returnVal;
+	public static void preprocessFile(final File srcFile, final File destFile,
+			final boolean removeAssertions) throws IOException {
+		preprocessFile(srcFile, destFile, removeAssertions, null);
 	}
 
-	@Override
-	protected final void copyAndPreprocessFile(final File srcFile,
-			final File destFile, final boolean removeAssertions)
+	/**
+	 * Preprocess a single file, starting it with the build information given.
+	 *
+	 * @param srcFile
+	 *            the file to read from
+	 * @param destFile
+	 *            the file to write to, whose directory is created if needed
+	 * @param removeAssertions
+	 *            if true, removes them, if false, augments the assertion
+	 *            objects
+	 * @param header
+	 *            the build information to start the file with, as made by
+	 *            {@link #buildInfo(MavenProject)}, or null for none
+	 * @throws IOException
+	 *             if there is a problem reading or writing the files
+	 */
+	public static void preprocessFile(final File srcFile, final File destFile,
+			final boolean removeAssertions, final String header)
 			throws IOException {
 		DirectoryIO.createDir(destFile.getParentFile());
 
-		destFile.getParentFile().mkdirs();
-
 		Reader fis = null;
 		Writer fos = null;
 		try {
 			fis = new FileReader(srcFile);
 			fos = new FileWriter(destFile);
-
-			if (skipBuildInfo) {
-				addHeaderInfo(fos);
+			if (header != null) {
+				fos.write(header);
 			}
-
 			readAndWriteBuffer(fis, fos, srcFile.getName(), removeAssertions);
 		} finally {
 			IOUtils.closeQuietly(fos);
@@ -335,6 +250,70 @@ public class CompilePreProcessor extends AbstractPreProcessorFrameworkMojo {
 		}
 	}
 
+	/**
+	 * Preprocess a single file into both its assertion and debug copies,
+	 * without adding any build information. The file is only read once.
+	 *
+	 * @param srcFile
+	 *            the file to read from
+	 * @param assertionFile
+	 *            the file to write with the assertions augmented, whose
+	 *            directory is created if needed
+	 * @param debugFile
+	 *            the file to write with the assertions removed, whose
+	 *            directory is created if needed
+	 * @throws IOException
+	 *             if there is a problem reading or writing the files
+	 */
+	public static void preprocessFile(final File srcFile,
+			final File assertionFile, final File debugFile) throws IOException {
+		preprocessFile(srcFile, assertionFile, debugFile, null);
+	}
+
+	/**
+	 * Preprocess a single file into both its assertion and debug copies,
+	 * starting each with the build information given. The file is only read
+	 * once.
+	 *
+	 * @param srcFile
+	 *            the file to read from
+	 * @param assertionFile
+	 *            the file to write with the assertions augmented, whose
+	 *            directory is created if needed
+	 * @param debugFile
+	 *            the file to write with the assertions removed, whose
+	 *            directory is created if needed
+	 * @param header
+	 *            the build information to start both files with, as made by
+	 *            {@link #buildInfo(MavenProject)}, or null for none
+	 * @throws IOException
+	 *             if there is a problem reading or writing the files
+	 */
+	public static void preprocessFile(final File srcFile,
+			final File assertionFile, final File debugFile,
+			final String header) throws IOException {
+		DirectoryIO.createDir(assertionFile.getParentFile());
+		DirectoryIO.createDir(debugFile.getParentFile());
+
+		Reader fis = null;
+		Writer assertionOut = null;
+		Writer debugOut = null;
+		try {
+			fis = new FileReader(srcFile);
+			assertionOut = new FileWriter(assertionFile);
+			debugOut = new FileWriter(debugFile);
+			if (header != null) {
+				assertionOut.write(header);
+				debugOut.write(header);
+			}
+			readAndWriteBuffers(fis, assertionOut, debugOut, srcFile.getName());
+		} finally {
+			IOUtils.closeQuietly(debugOut);
+			IOUtils.closeQuietly(assertionOut);
+			IOUtils.closeQuietly(fis);
+		}
+	}
+
 	/**
 	 * Will read from a source, augment or remove the assertion statements, and
 	 * write the output to the buffer.
@@ -351,66 +330,53 @@ public class CompilePreProcessor extends AbstractPreProcessorFrameworkMojo {
 	 * @throws IOException
 	 *             if there is a problem reading or writing the files
 	 */
-	private static void readAndWriteBuffer(final Reader iReader,
+	static void readAndWriteBuffer(final Reader iReader,
 			final Writer oWriter, final String srcFileName,
 			final boolean removeAssertions) throws IOException {
-		int lineNumber = 0;
-		BufferedReader bufferedIn = new BufferedReader(iReader);
-		BufferedWriter bufferedOut = new BufferedWriter(oWriter);
-
-		String line = null;
-		bufferedIn.mark(READ_AHEAD_LIMIT);
-		while ((line = bufferedIn.readLine()) != null) {
-			lineNumber++;
-			Matcher matcher = ASSERT_PATTERN.matcher(line);
-			Matcher exceptionsMatcher = ASSERT_REQUIRE_PATTERN.matcher(line);
-			if (matcher.matches() && !exceptionsMatcher.matches()) {
-				bufferedIn.reset();
-				// gobble up the part before the assertion on this line
-				for (int i = 1; i <= matcher.start(1); i++) {
-					int c = bufferedIn.read();
-					bufferedOut.write(c);
-				}
-
-				// read past the assert statement
-				for (int i = 1; i <= "$$assert".length(); i++) {
-					bufferedIn.read();
-				}
-				// adjust $$assert statement
-				String out = CompilePreProcessor.assertReplacement(bufferedIn,
-						srcFileName, String.valueOf(lineNumber),
-						removeAssertions);
-				bufferedOut.write(out);
-
-				lineNumber--;
-			} else {
-				bufferedOut.write(line);
-				bufferedOut.newLine();
-			}
-			bufferedIn.mark(READ_AHEAD_LIMIT);
+		if (removeAssertions) {
+			readAndWriteBuffers(iReader, null, oWriter, srcFileName);
+		} else {
+			readAndWriteBuffers(iReader, oWriter, null, srcFileName);
 		}
-		bufferedOut.flush();
 	}
 
 	/**
-	 * Add the header info via a Writer object.
+	 * Will read from a source once, apply every registered transform, and
+	 * write it both with the assertion statements augmented and with them
+	 * removed.
 	 * 
-	 * @param out
-	 *            the writer object
+	 * @param iReader
+	 *            the place to read from
+	 * @param assertionWriter
+	 *            the place to write the augmented assertions to, or null
+	 * @param debugWriter
+	 *            the place to write to with the assertions removed, or null
+	 * @param srcFileName
+	 *            the name of the current source file for use in writing
 	 * @throws IOException
-	 *             if there are problems writing
+	 *             if there is a problem reading or writing the files
+	 */
+	static void readAndWriteBuffers(final Reader iReader,
+			final Writer assertionWriter, final Writer debugWriter,
+			final String srcFileName) throws IOException {
+		PIPELINE.transform(iReader, assertionWriter, debugWriter, srcFileName);
+	}
+
+	/**
+	 * Get the build information for the header of a processed file.
+	 * 
+	 * @param project
+	 *            the project being built
+	 * @return the header lines
 	 */
-	private void addHeaderInfo(final Writer out) throws IOException {
-		BufferedWriter bufferedOut = new BufferedWriter(out);
-		bufferedOut.write("// Time of Build="
-				+ CompilePreProcessor.now("yyyy.MM.dd G 'at' hh:mm:ss z"));
-		bufferedOut.newLine();
-		bufferedOut.write("// Version=" + getProject().getVersion());
-		bufferedOut.newLine();
-		bufferedOut.write("// Coordinates=" + getProject().getGroupId() + ":"
-				+ getProject().getArtifactId() + ":"
-				+ getProject().getPackaging());
-		bufferedOut.newLine();
+	public static String buildInfo(final MavenProject project) {
+		String newLine = System.getProperty("line.separator");
+		return "// Time of Build="
+				+ CompilePreProcessor.now("yyyy.MM.dd G 'at' hh:mm:ss z")
+				+ newLine + "// Version=" + project.getVersion() + newLine
+				+ "// Coordinates=" + project.getGroupId() + ":"
+				+ project.getArtifactId() + ":" + project.getPackaging()
+				+ newLine;
 	}
 
 	/**
@@ -0,0 +1,362 @@
+package com.github.jlgrock.javascriptframework.jspreprocessor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.AtomicFileWriter;
+import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryIO;
+import com.github.jlgrock.javascriptframework.mavenutils.io.HashUtils;
+
+/**
+ * A manifest of each source file that has been preprocessed, the hash of its
+ * content when it was preprocessed, the hash of the settings it was
+ * preprocessed with, and the output files that were written from it. A source
+ * file only needs to be preprocessed again if its content or the settings
+ * have changed, or one of its outputs is missing, and the outputs of source
+ * files that no longer exist can be deleted. The settings are anything other
+ * than the content that affects the output, such as the plugin version and
+ * the transforms that are applied.
+ *
+ * Several source directories can share a manifest, since only the entries
+ * within a source directory are pruned when it is preprocessed. Entries are
+ * safe to check and record from multiple threads at once, so that files can
+ * be preprocessed in parallel.
+ */
+public final class PreProcessManifest {
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(PreProcessManifest.class);
+
+	/**
+	 * The default name of the manifest file within the framework target
+	 * directory.
+	 */
+	public static final String MANIFEST_FILENAME = "preprocess-manifest.txt";
+
+	/**
+	 * The header written as the first line of the manifest file. If the way
+	 * files are preprocessed changes, this should be changed so that every
+	 * file is preprocessed again.
+	 */
+	private static final String HEADER = "# Preprocessor manifest v4";
+
+	/**
+	 * The separator between the source, its hashes and its outputs.
+	 */
+	private static final String FIELD_SEPARATOR = "\t";
+
+	/**
+	 * The location the manifest is read from and written to.
+	 */
+	private final File manifestFile;
+
+	/**
+	 * The hash of the settings that affect the output of the current build.
+	 */
+	private final String settingsHash;
+
+	/**
+	 * The hashes and outputs of each source file, keyed by the absolute path
+	 * of the source file. The first element is the hash of the content and
+	 * the second is the hash of the settings.
+	 */
+	private final Map<String, List<String>> entries = new ConcurrentHashMap<String, List<String>>();
+
+	/**
+	 * The content hashes of the source files checked so far, keyed by
+	 * absolute path, so that they are only read once.
+	 */
+	private final Map<String, String> fileHashes = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param manifestLocation
+	 *            the file the manifest is read from and written to
+	 * @param settings
+	 *            the settings that affect the output of the current build
+	 */
+	private PreProcessManifest(final File manifestLocation,
+			final String settings) {
+		this.manifestFile = manifestLocation;
+		this.settingsHash = HashUtils.hash(settings);
+	}
+
+	/**
+	 * Load a manifest from a file. If the file does not exist or cannot be
+	 * read, an empty manifest is returned and every file will be preprocessed.
+	 *
+	 * @param manifestFile
+	 *            the file to load the manifest from (and save it to later)
+	 * @return the manifest
+	 */
+	public static PreProcessManifest load(final File manifestFile) {
+		return load(manifestFile, "");
+	}
+
+	/**
+	 * Load a manifest from a file. If the file does not exist or cannot be
+	 * read, an empty manifest is returned and every file will be preprocessed.
+	 * Files that were preprocessed with different settings are not up to
+	 * date.
+	 *
+	 * @param manifestFile
+	 *            the file to load the manifest from (and save it to later)
+	 * @param settings
+	 *            the settings that affect the output of the current build
+	 * @return the manifest
+	 */
+	public static PreProcessManifest load(final File manifestFile,
+			final String settings) {
+		PreProcessManifest manifest = new PreProcessManifest(manifestFile,
+				settings);
+		if (manifestFile.isFile()) {
+			try {
+				manifest.read();
+			} catch (IOException e) {
+				LOGGER.warn("Unable to read the preprocessor manifest at \""
+						+ manifestFile.getAbsolutePath()
+						+ "\", all files will be preprocessed: "
+						+ e.getMessage());
+				manifest.entries.clear();
+			}
+		}
+		return manifest;
+	}
+
+	/**
+	 * Check whether the manifest has any entries for source files within a
+	 * directory.
+	 *
+	 * @param sourceDirectory
+	 *            the source directory
+	 * @return true if any file within the directory has been recorded
+	 */
+	public boolean hasEntries(final File sourceDirectory) {
+		String prefix = prefix(sourceDirectory);
+		for (String source : entries.keySet()) {
+			if (source.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check whether a source file was last preprocessed with its current
+	 * content and the current settings into the given outputs, and all of
+	 * them still exist.
+	 *
+	 * @param source
+	 *            the source file
+	 * @param outputs
+	 *            the files the source file would be preprocessed into
+	 * @return true if the source file does not need to be preprocessed again
+	 * @throws IOException
+	 *             if there is a problem reading the source file
+	 */
+	public boolean isUpToDate(final File source, final File... outputs)
+			throws IOException {
+		List<String> entry = entries.get(source.getAbsolutePath());
+		if (entry == null || !entry.equals(toEntry(source, outputs))) {
+			return false;
+		}
+		for (File output : outputs) {
+			if (!output.isFile()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Record that a source file has been preprocessed into the given outputs.
+	 *
+	 * @param source
+	 *            the source file
+	 * @param outputs
+	 *            the files the source file was preprocessed into
+	 * @throws IOException
+	 *             if there is a problem reading the source file
+	 */
+	public void record(final File source, final File... outputs)
+			throws IOException {
+		entries.put(source.getAbsolutePath(), toEntry(source, outputs));
+	}
+
+	/**
+	 * Remove the entry for a source file, so that it will be preprocessed
+	 * again. This should be called before its outputs are overwritten, in
+	 * case the build fails part way through.
+	 *
+	 * @param source
+	 *            the source file
+	 */
+	public void invalidate(final File source) {
+		entries.remove(source.getAbsolutePath());
+	}
+
+	/**
+	 * Delete the outputs of every recorded source file within a directory that
+	 * is no longer one of the given source files, and remove their entries.
+	 *
+	 * @param sourceDirectory
+	 *            the source directory
+	 * @param sources
+	 *            the source files that currently exist within the directory
+	 * @return the number of source files whose outputs were removed
+	 */
+	public int prune(final File sourceDirectory, final Collection<File> sources) {
+		String prefix = prefix(sourceDirectory);
+		Set<String> current = new HashSet<String>();
+		for (File source : sources) {
+			current.add(source.getAbsolutePath());
+		}
+		int pruned = 0;
+		for (String source : new ArrayList<String>(entries.keySet())) {
+			if (!source.startsWith(prefix) || current.contains(source)) {
+				continue;
+			}
+			List<String> entry = entries.remove(source);
+			for (String output : entry.subList(2, entry.size())) {
+				File outputFile = new File(output);
+				if (outputFile.exists() && !outputFile.delete()) {
+					LOGGER.warn("Unable to delete stale output \"" + output
+							+ "\".");
+				}
+			}
+			LOGGER.debug("Removed the outputs of deleted source \"" + source
+					+ "\".");
+			pruned++;
+		}
+		return pruned;
+	}
+
+	/**
+	 * Write the manifest back to the file it was loaded from.
+	 *
+	 * @throws IOException
+	 *             if there is a problem writing the file
+	 */
+	public void save() throws IOException {
+		DirectoryIO.createDir(manifestFile.getParentFile());
+		AtomicFileWriter out = new AtomicFileWriter(manifestFile);
+		try {
+			out.write(HEADER);
+			out.write("\n");
+			for (Map.Entry<String, List<String>> e : new TreeMap<String, List<String>>(
+					entries).entrySet()) {
+				out.write(e.getKey());
+				for (String field : e.getValue()) {
+					out.write(FIELD_SEPARATOR);
+					out.write(field);
+				}
+				out.write("\n");
+			}
+			out.commitIfChanged();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Read the entries from the manifest file.
+	 *
+	 * @throws IOException
+	 *             if there is a problem reading the file
+	 */
+	private void read() throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(manifestFile), "UTF-8"));
+		try {
+			String line = in.readLine();
+			if (!HEADER.equals(line)) {
+				LOGGER.debug("Preprocessor manifest format has changed, ignoring it.");
+				return;
+			}
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.split(FIELD_SEPARATOR);
+				if (fields.length < 3) {
+					throw new IOException(
+							"Corrupt preprocessor manifest entry: " + line);
+				}
+				entries.put(fields[0], new ArrayList<String>(Arrays.asList(
+						fields).subList(1, fields.length)));
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Build the entry for a source file: the hash of its content, the hash of
+	 * the settings, then its outputs.
+	 *
+	 * @param source
+	 *            the source file
+	 * @param outputs
+	 *            the files the source file is preprocessed into
+	 * @return the entry
+	 * @throws IOException
+	 *             if there is a problem reading the source file
+	 */
+	private List<String> toEntry(final File source, final File... outputs)
+			throws IOException {
+		List<String> entry = new ArrayList<String>(outputs.length + 2);
+		entry.add(hashFile(source));
+		entry.add(settingsHash);
+		for (File output : outputs) {
+			entry.add(output.getAbsolutePath());
+		}
+		return entry;
+	}
+
+	/**
+	 * Get the content hash of a file, reading it only the first time it is
+	 * requested.
+	 *
+	 * @param file
+	 *            the file to hash
+	 * @return the hex encoded hash
+	 * @throws IOException
+	 *             if there is a problem reading the file
+	 */
+	private String hashFile(final File file) throws IOException {
+		String path = file.getAbsolutePath();
+		String hash = fileHashes.get(path);
+		if (hash == null) {
+			hash = HashUtils.hash(file);
+			fileHashes.put(path, hash);
+		}
+		return hash;
+	}
+
+	/**
+	 * The prefix of the absolute paths of every file within a directory.
+	 *
+	 * @param directory
+	 *            the directory
+	 * @return the prefix
+	 */
+	private static String prefix(final File directory) {
+		return directory.getAbsolutePath() + File.separator;
+	}
+}
@@ -0,0 +1,44 @@
+package com.github.jlgrock.javascriptframework.jspreprocessor;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * A streaming transform of javascript source, applied by the preprocessor as
+ * it copies each file. Every transform acts on particular words in the code,
+ * such as "$$assert" or "console", and all of the transforms share a single
+ * pass over each file, in which strings, comments and regular expression
+ * literals are skipped over for them.
+ *
+ * Transforms are found with a {@link java.util.ServiceLoader}, so a new one
+ * is added by listing its class in a
+ * META-INF/services/com.github.jlgrock.javascriptframework.jspreprocessor.SourceTransform
+ * file and adding its jar as a dependency of the plugin. The same instance is
+ * used for every file, and files may be preprocessed in parallel, so a
+ * transform must be thread safe.
+ */
+public interface SourceTransform {
+
+	/**
+	 * @return the words in the code that this transform acts on
+	 */
+	Set<String> getWords();
+
+	/**
+	 * Transform the code at one of the words, which has just been read. Any
+	 * more of the code that the transform needs is read through the context,
+	 * and whatever should replace the word and what was read is written to
+	 * it. If the transform returns false, the word is copied as it is, so it
+	 * must not read anything in that case.
+	 *
+	 * @param word
+	 *            the word that was read
+	 * @param context
+	 *            the file being transformed
+	 * @return true if the word was transformed, false to leave it alone
+	 * @throws IOException
+	 *             if there is a problem reading or writing
+	 */
+	boolean transform(String word, TransformContext context)
+			throws IOException;
+}
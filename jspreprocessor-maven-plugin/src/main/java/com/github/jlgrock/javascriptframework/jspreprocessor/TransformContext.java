@@ -0,0 +1,115 @@
+package com.github.jlgrock.javascriptframework.jspreprocessor;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The view of a file being preprocessed that is given to a
+ * {@link SourceTransform} when it finds one of its words. Everything read
+ * through it is consumed, and is dropped from the output unless it is written
+ * back.
+ *
+ * Each file is written to up to two outputs: one with the assertions
+ * augmented and one with them removed, for debugging.
+ */
+public interface TransformContext {
+
+	/**
+	 * @return the name of the file being transformed
+	 */
+	String getFileName();
+
+	/**
+	 * @return the line of the file that is being read, starting at 1
+	 */
+	int getLineNumber();
+
+	/**
+	 * @return the last character of code before the word that was not
+	 *         whitespace or part of a comment, or 0 at the start of the file
+	 */
+	char getPreviousSignificant();
+
+	/**
+	 * Look past any whitespace at the next character, without reading
+	 * anything.
+	 *
+	 * @return the next character that is not whitespace, or -1 at the end of
+	 *         the file
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	int peekSignificant() throws IOException;
+
+	/**
+	 * If the next character that is not whitespace is the given one, read up
+	 * to and including it. Otherwise nothing is read.
+	 *
+	 * @param c
+	 *            the character to read
+	 * @return true if the character was read
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	boolean skip(char c) throws IOException;
+
+	/**
+	 * If the next thing that is not whitespace is a word, read up to the end
+	 * of it. Otherwise nothing is read.
+	 *
+	 * @return the word, or null if there was none
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	String readWord() throws IOException;
+
+	/**
+	 * Read the arguments of a call, from the "(" that must be the next
+	 * character that is not whitespace, up to and including the ")" that
+	 * closes it. The arguments are split at the commas outside of any
+	 * brackets, strings, comments or regular expression literals, and are
+	 * returned exactly as they are in the file. There is always at least one
+	 * argument, which is empty for "()".
+	 *
+	 * @param name
+	 *            the name of what is being called, used in errors
+	 * @return the text of each argument
+	 * @throws IOException
+	 *             if there is a problem reading
+	 * @throws IllegalArgumentException
+	 *             if there are no arguments, or they are not closed before
+	 *             the end of the statement or file
+	 */
+	List<String> readArguments(String name) throws IOException;
+
+	/**
+	 * Write code to every output. Line endings are replaced with the platform
+	 * line separator.
+	 *
+	 * @param code
+	 *            the code to write
+	 * @throws IOException
+	 *             if there is a problem writing
+	 */
+	void write(String code) throws IOException;
+
+	/**
+	 * Write text to the output with the assertions augmented only, as it is.
+	 *
+	 * @param text
+	 *            the text to write
+	 * @throws IOException
+	 *             if there is a problem writing
+	 */
+	void writeToAssertionOutput(String text) throws IOException;
+
+	/**
+	 * Write text to the output with the assertions removed only, as it is.
+	 *
+	 * @param text
+	 *            the text to write
+	 * @throws IOException
+	 *             if there is a problem writing
+	 */
+	void writeToDebugOutput(String text) throws IOException;
+}
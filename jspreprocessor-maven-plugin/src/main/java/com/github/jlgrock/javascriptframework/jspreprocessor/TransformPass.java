@@ -0,0 +1,745 @@
+package com.github.jlgrock.javascriptframework.jspreprocessor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single pass, character level scan of a javascript file that applies the
+ * transforms of a {@link TransformPipeline}. The file is streamed through
+ * once, keeping track of strings, comments and regular expression literals,
+ * and whenever a word in the code is one that a transform acts on, that
+ * transform is given the chance to rewrite it. Everything else is copied to
+ * both outputs, and nothing is read twice.
+ *
+ * Line endings in the code are written as the platform line separator, and a
+ * line separator is added to the end of the file if it does not end with a
+ * line ending or a transformed word.
+ */
+final class TransformPass implements TransformContext {
+
+	/**
+	 * The characters after which a "/" starts a regular expression literal
+	 * rather than a division.
+	 */
+	private static final String REGEX_PRECEDERS = "(,=:[!&|?{};+-*%<>~^";
+
+	/**
+	 * The keywords after which a "/" starts a regular expression literal
+	 * rather than a division.
+	 */
+	private static final String[] REGEX_KEYWORDS = { "return", "typeof",
+			"instanceof", "in", "of", "new", "delete", "void", "throw",
+			"case", "do", "else" };
+
+	/**
+	 * The separator written in place of each line ending in the code.
+	 */
+	private static final String LINE_SEPARATOR = System
+			.getProperty("line.separator");
+
+	/**
+	 * The number of characters read at a time, which is also the number of
+	 * characters of code collected before it is written out.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The transforms to apply.
+	 */
+	private final TransformPipeline pipeline;
+
+	/**
+	 * The input being transformed.
+	 */
+	private final Reader in;
+
+	/**
+	 * The characters read from the input that have not been consumed yet,
+	 * which grows if a transform looks further ahead than it holds.
+	 */
+	private char[] buf = new char[BUFFER_SIZE];
+
+	/**
+	 * The position of the next character in the buffer.
+	 */
+	private int pos;
+
+	/**
+	 * The end of the characters in the buffer.
+	 */
+	private int limit;
+
+	/**
+	 * The place to write the augmented assertions to, or null.
+	 */
+	private final Writer assertionOut;
+
+	/**
+	 * The place to write to with the assertions removed, or null.
+	 */
+	private final Writer debugOut;
+
+	/**
+	 * The code read since the last write, which goes to both outputs.
+	 */
+	private final StringBuilder out = new StringBuilder(BUFFER_SIZE * 2);
+
+	/**
+	 * The name of the file being transformed.
+	 */
+	private final String fileName;
+
+	/**
+	 * The line of the input that is being read.
+	 */
+	private int lineNumber;
+
+	/**
+	 * Whether anything has been written to the current line of the code since
+	 * the last line ending or transformed word.
+	 */
+	private boolean lineHasContent;
+
+	/**
+	 * The last character of code that was not whitespace or a comment, or 0
+	 * at the start of the input.
+	 */
+	private char lastSignificant;
+
+	/**
+	 * Whether the last word of code was a keyword that can be followed by a
+	 * regular expression literal.
+	 */
+	private boolean afterRegexKeyword;
+
+	/**
+	 * Whether the transform that was last given a word has written any code.
+	 */
+	private boolean wroteCode;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param transforms
+	 *            the transforms to apply
+	 * @param reader
+	 *            the input to transform
+	 * @param assertionWriter
+	 *            the place to write the augmented assertions to, or null
+	 * @param debugWriter
+	 *            the place to write to with the assertions removed, or null
+	 * @param srcFileName
+	 *            the name of the file being transformed
+	 * @param firstLine
+	 *            the line number of the start of the input
+	 */
+	TransformPass(final TransformPipeline transforms, final Reader reader,
+			final Writer assertionWriter, final Writer debugWriter,
+			final String srcFileName, final int firstLine) {
+		this.pipeline = transforms;
+		this.in = reader;
+		this.assertionOut = assertionWriter;
+		this.debugOut = debugWriter;
+		this.fileName = srcFileName;
+		this.lineNumber = firstLine;
+	}
+
+	/**
+	 * Transform the whole input.
+	 *
+	 * @throws IOException
+	 *             if there is a problem reading or writing
+	 */
+	void run() throws IOException {
+		int c;
+		while ((c = read()) != -1) {
+			copyToken((char) c, out);
+			if (out.length() >= BUFFER_SIZE) {
+				writeCode();
+			}
+		}
+		if (lineHasContent) {
+			out.append(LINE_SEPARATOR);
+		}
+		finish();
+	}
+
+	/**
+	 * Apply a transform to input that starts just after one of its words, as
+	 * if the word had just been read from the code. Only what the transform
+	 * reads is consumed.
+	 *
+	 * @param transform
+	 *            the transform
+	 * @param word
+	 *            the word
+	 * @return whether the transform transformed the word
+	 * @throws IOException
+	 *             if there is a problem reading or writing
+	 */
+	boolean runOnce(final SourceTransform transform, final String word)
+			throws IOException {
+		boolean transformed = transform.transform(word, this);
+		finish();
+		return transformed;
+	}
+
+	@Override
+	public String getFileName() {
+		return fileName;
+	}
+
+	@Override
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public char getPreviousSignificant() {
+		return lastSignificant;
+	}
+
+	@Override
+	public int peekSignificant() throws IOException {
+		int offset = 0;
+		int c;
+		while (isWhitespace(c = peek(offset))) {
+			offset++;
+		}
+		return c;
+	}
+
+	@Override
+	public boolean skip(final char c) throws IOException {
+		if (peekSignificant() != c) {
+			return false;
+		}
+		skipWhitespace();
+		read();
+		return true;
+	}
+
+	@Override
+	public String readWord() throws IOException {
+		int c = peekSignificant();
+		if (c == -1 || !isWordChar((char) c)) {
+			return null;
+		}
+		skipWhitespace();
+		StringBuilder word = new StringBuilder();
+		while ((c = peek(0)) != -1 && isWordChar((char) c)) {
+			word.append((char) read());
+		}
+		return word.toString();
+	}
+
+	@Override
+	public List<String> readArguments(final String name) throws IOException {
+		int line = lineNumber;
+		if (!skip('(')) {
+			throw notValid(name, line);
+		}
+		List<String> arguments = new ArrayList<String>();
+		StringBuilder argument = new StringBuilder();
+		// the arguments are not part of the code around them
+		char previous = lastSignificant;
+		boolean previousRegexKeyword = afterRegexKeyword;
+		setLastSignificant('(');
+		int depth = 0;
+		int c;
+		while ((c = read()) != -1) {
+			if (depth == 0) {
+				if (c == ')') {
+					arguments.add(argument.toString());
+					lastSignificant = previous;
+					afterRegexKeyword = previousRegexKeyword;
+					return arguments;
+				} else if (c == ',') {
+					arguments.add(argument.toString());
+					argument.setLength(0);
+					setLastSignificant(',');
+					continue;
+				} else if (c == ';') {
+					throw notValid(name, line);
+				}
+			}
+			if (c == '(' || c == '[' || c == '{') {
+				depth++;
+			} else if ((c == ')' || c == ']' || c == '}') && depth > 0) {
+				depth--;
+			}
+			copyToken((char) c, argument);
+		}
+		throw new IllegalArgumentException("The " + name
+				+ " expression on line " + line + " of file " + fileName
+				+ " has not been terminated before the end of the file.");
+	}
+
+	@Override
+	public void write(final String code) throws IOException {
+		for (int i = 0; i < code.length(); i++) {
+			char c = code.charAt(i);
+			if (c == '\r' && i + 1 < code.length() && code.charAt(i + 1) == '\n') {
+				continue;
+			} else if (c == '\n' || c == '\r') {
+				out.append(LINE_SEPARATOR);
+				lineHasContent = false;
+			} else {
+				out.append(c);
+				lineHasContent = true;
+				wroteCode = true;
+				if (!isWhitespace(c)) {
+					setLastSignificant(c);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void writeToAssertionOutput(final String text) throws IOException {
+		writeCode();
+		if (assertionOut != null) {
+			assertionOut.write(text);
+		}
+	}
+
+	@Override
+	public void writeToDebugOutput(final String text) throws IOException {
+		writeCode();
+		if (debugOut != null) {
+			debugOut.write(text);
+		}
+	}
+
+	/**
+	 * Copy the token that starts with the given character. Strings, comments
+	 * and regular expression literals are copied whole, and when copying
+	 * code, words that a transform acts on are given to it.
+	 *
+	 * @param c
+	 *            the first character of the token, which has been read
+	 * @param target
+	 *            where to copy the token to
+	 * @throws IOException
+	 *             if there is a problem reading or writing
+	 */
+	private void copyToken(final char c, final StringBuilder target)
+			throws IOException {
+		switch (c) {
+		case '\n':
+		case '\r':
+		case ' ':
+		case '\t':
+		case '\f':
+		case 0x0B:
+			put(c, target);
+			break;
+		case '"':
+		case '\'':
+		case '`':
+			copyString(c, target);
+			setLastSignificant(c);
+			break;
+		case '/':
+			if (peek(0) == '/') {
+				copyLineComment(c, target);
+			} else if (peek(0) == '*') {
+				copyBlockComment(c, target);
+			} else {
+				if (isRegexAllowed()) {
+					copyRegex(c, target);
+				} else {
+					put(c, target);
+				}
+				setLastSignificant(c);
+			}
+			break;
+		default:
+			if (isWordChar(c)) {
+				copyWord(c, target);
+			} else {
+				put(c, target);
+				setLastSignificant(c);
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Copy a word, such as an identifier, keyword or number. If it is in the
+	 * code and a transform acts on it, the transform is applied instead.
+	 *
+	 * @param first
+	 *            the first character of the word, which has been read
+	 * @param target
+	 *            where to copy the word to
+	 * @throws IOException
+	 *             if there is a problem reading or writing
+	 */
+	private void copyWord(final char first, final StringBuilder target)
+			throws IOException {
+		int start = target.length();
+		put(first, target);
+		int c;
+		while ((c = peek(0)) != -1 && isWordChar((char) c)) {
+			put((char) read(), target);
+		}
+		if (target == out && pipeline.mayTransform(target, start)) {
+			String word = target.substring(start);
+			List<SourceTransform> transforms = pipeline.getTransforms(word);
+			if (transforms != null) {
+				target.setLength(start);
+				for (SourceTransform transform : transforms) {
+					wroteCode = false;
+					if (transform.transform(word, this)) {
+						if (!wroteCode) {
+							// the statement the word was in has been removed
+							lineHasContent = false;
+							setLastSignificant(';');
+						}
+						return;
+					}
+				}
+				target.append(word);
+			}
+		}
+		afterRegexKeyword = false;
+		for (String keyword : REGEX_KEYWORDS) {
+			if (isWord(target, start, keyword)) {
+				afterRegexKeyword = true;
+				break;
+			}
+		}
+		lastSignificant = target.charAt(target.length() - 1);
+	}
+
+	/**
+	 * Copy a string or template literal, after its opening quote has been
+	 * read. Strings that are not terminated on the same line are treated as
+	 * ending there.
+	 *
+	 * @param quote
+	 *            the quote character that started the string
+	 * @param target
+	 *            where to copy the string to
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	private void copyString(final char quote, final StringBuilder target)
+			throws IOException {
+		put(quote, target);
+		int c;
+		while ((c = peek(0)) != -1) {
+			if ((c == '\n' || c == '\r') && quote != '`') {
+				return;
+			}
+			put((char) read(), target);
+			if (c == quote) {
+				return;
+			} else if (c == '\\' && (c = read()) != -1) {
+				put((char) c, target);
+				if (c == '\r' && peek(0) == '\n') {
+					// a line continuation with a \r\n line ending
+					put((char) read(), target);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copy a regular expression literal, after its opening "/" has been read.
+	 *
+	 * @param slash
+	 *            the opening "/"
+	 * @param target
+	 *            where to copy the literal to
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	private void copyRegex(final char slash, final StringBuilder target)
+			throws IOException {
+		put(slash, target);
+		boolean inClass = false;
+		int c;
+		while ((c = peek(0)) != -1 && c != '\n' && c != '\r') {
+			put((char) read(), target);
+			if (c == '\\' && (c = peek(0)) != -1 && c != '\n' && c != '\r') {
+				put((char) read(), target);
+			} else if (c == '[') {
+				inClass = true;
+			} else if (c == ']') {
+				inClass = false;
+			} else if (c == '/' && !inClass) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Copy a line comment, after its first "/" has been read, leaving the line
+	 * ending to be read next.
+	 *
+	 * @param slash
+	 *            the first "/"
+	 * @param target
+	 *            where to copy the comment to
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	private void copyLineComment(final char slash, final StringBuilder target)
+			throws IOException {
+		put(slash, target);
+		int c;
+		while ((c = peek(0)) != -1 && c != '\n' && c != '\r') {
+			put((char) read(), target);
+		}
+	}
+
+	/**
+	 * Copy a block comment, after its first "/" has been read.
+	 *
+	 * @param slash
+	 *            the first "/"
+	 * @param target
+	 *            where to copy the comment to
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	private void copyBlockComment(final char slash, final StringBuilder target)
+			throws IOException {
+		put(slash, target);
+		put((char) read(), target);
+		int c;
+		while ((c = read()) != -1) {
+			put((char) c, target);
+			if (c == '*' && peek(0) == '/') {
+				put((char) read(), target);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Check whether a "/" in the code would start a regular expression
+	 * literal, based on what came before it.
+	 *
+	 * @return true if a regular expression literal is allowed here
+	 */
+	private boolean isRegexAllowed() {
+		return lastSignificant == 0 || afterRegexKeyword
+				|| REGEX_PRECEDERS.indexOf(lastSignificant) >= 0;
+	}
+
+	/**
+	 * Record the last character of code that was not whitespace or a comment.
+	 *
+	 * @param c
+	 *            the character
+	 */
+	private void setLastSignificant(final char c) {
+		lastSignificant = c;
+		afterRegexKeyword = false;
+	}
+
+	/**
+	 * Read and drop any whitespace.
+	 *
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	private void skipWhitespace() throws IOException {
+		while (isWhitespace(peek(0))) {
+			read();
+		}
+	}
+
+	/**
+	 * Put a character that has been read. Line endings put in the code are
+	 * replaced with the platform line separator, and are left as they are
+	 * elsewhere.
+	 *
+	 * @param c
+	 *            the character
+	 * @param target
+	 *            where to put the character
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	private void put(final char c, final StringBuilder target)
+			throws IOException {
+		if (target != out) {
+			target.append(c);
+		} else if (c == '\n' || c == '\r') {
+			// the separator for a \r\n line ending is put for the \n
+			if (c == '\n' || peek(0) != '\n') {
+				target.append(LINE_SEPARATOR);
+				lineHasContent = false;
+			}
+		} else {
+			target.append(c);
+			lineHasContent = true;
+		}
+	}
+
+	/**
+	 * Write the code read since the last write to both outputs.
+	 *
+	 * @throws IOException
+	 *             if there is a problem writing
+	 */
+	private void writeCode() throws IOException {
+		if (out.length() == 0) {
+			return;
+		}
+		String code = out.toString();
+		if (assertionOut != null) {
+			assertionOut.write(code);
+		}
+		if (debugOut != null) {
+			debugOut.write(code);
+		}
+		out.setLength(0);
+	}
+
+	/**
+	 * Write the rest of the code and flush both outputs.
+	 *
+	 * @throws IOException
+	 *             if there is a problem writing
+	 */
+	private void finish() throws IOException {
+		writeCode();
+		if (assertionOut != null) {
+			assertionOut.flush();
+		}
+		if (debugOut != null) {
+			debugOut.flush();
+		}
+	}
+
+	/**
+	 * Read the next character, counting the lines.
+	 *
+	 * @return the character, or -1 at the end of the input
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	private int read() throws IOException {
+		if (pos >= limit && !fill(1)) {
+			return -1;
+		}
+		char c = buf[pos++];
+		if (c == '\n' || (c == '\r' && peek(0) != '\n')) {
+			lineNumber++;
+		}
+		return c;
+	}
+
+	/**
+	 * Look at a character ahead without reading it.
+	 *
+	 * @param offset
+	 *            how far past the next character to look
+	 * @return the character, or -1 if it is past the end of the input
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	private int peek(final int offset) throws IOException {
+		if (pos + offset >= limit && !fill(offset + 1)) {
+			return -1;
+		}
+		return buf[pos + offset];
+	}
+
+	/**
+	 * Read more of the input into the buffer, keeping the characters that
+	 * have not been consumed yet.
+	 *
+	 * @param needed
+	 *            the number of characters that are needed after the current
+	 *            position
+	 * @return false if the end of the input was reached first
+	 * @throws IOException
+	 *             if there is a problem reading
+	 */
+	private boolean fill(final int needed) throws IOException {
+		if (pos > 0) {
+			System.arraycopy(buf, pos, buf, 0, limit - pos);
+			limit -= pos;
+			pos = 0;
+		}
+		while (limit < needed) {
+			if (limit == buf.length) {
+				buf = Arrays.copyOf(buf, buf.length * 2);
+			}
+			int n = in.read(buf, limit, buf.length - limit);
+			if (n < 0) {
+				return false;
+			}
+			limit += n;
+		}
+		return true;
+	}
+
+	/**
+	 * @param name
+	 *            the name of what is being called
+	 * @param line
+	 *            the line the call is on
+	 * @return the exception for a call that is not valid
+	 */
+	private IllegalArgumentException notValid(final String name, final int line) {
+		return new IllegalArgumentException("The " + name
+				+ " expression on line " + line + " of file " + fileName
+				+ " is not valid.");
+	}
+
+	/**
+	 * Check whether the text from a position to the end of a builder is a
+	 * given word.
+	 *
+	 * @param text
+	 *            the builder
+	 * @param start
+	 *            the position the word starts at
+	 * @param word
+	 *            the word to compare with
+	 * @return true if the text is the word
+	 */
+	private static boolean isWord(final StringBuilder text, final int start,
+			final String word) {
+		if (text.length() - start != word.length()) {
+			return false;
+		}
+		for (int i = 0; i < word.length(); i++) {
+			if (text.charAt(start + i) != word.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param c
+	 *            the character to check
+	 * @return true if the character can be part of an identifier or number
+	 */
+	private static boolean isWordChar(final char c) {
+		return Character.isJavaIdentifierPart(c)
+				&& !Character.isIdentifierIgnorable(c);
+	}
+
+	/**
+	 * @param c
+	 *            the character to check, or -1
+	 * @return true if the character is whitespace or a line ending
+	 */
+	private static boolean isWhitespace(final int c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f'
+				|| c == 0x0B;
+	}
+}
@@ -0,0 +1,230 @@
+package com.github.jlgrock.javascriptframework.jspreprocessor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.HashUtils;
+
+/**
+ * A set of {@link SourceTransform}s that are applied together, in a single
+ * pass over each file. When more than one transform acts on the same word,
+ * they are tried in the order they were given, until one transforms it.
+ */
+public final class TransformPipeline {
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(TransformPipeline.class);
+
+	/**
+	 * The transforms, in the order they are tried.
+	 */
+	private final List<SourceTransform> transforms;
+
+	/**
+	 * The transforms that act on each word.
+	 */
+	private final Map<String, List<SourceTransform>> transformsByWord = new HashMap<String, List<SourceTransform>>();
+
+	/**
+	 * The first character of each word that a transform acts on, so that most
+	 * words can be passed over without looking them up.
+	 */
+	private final String firstChars;
+
+	/**
+	 * The length of the longest word that a transform acts on.
+	 */
+	private final int longestWord;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param transformsIn
+	 *            the transforms, in the order they are tried
+	 */
+	public TransformPipeline(final List<SourceTransform> transformsIn) {
+		this.transforms = Collections
+				.unmodifiableList(new ArrayList<SourceTransform>(transformsIn));
+		StringBuilder first = new StringBuilder();
+		int longest = 0;
+		for (SourceTransform transform : transforms) {
+			for (String word : transform.getWords()) {
+				List<SourceTransform> forWord = transformsByWord.get(word);
+				if (forWord == null) {
+					forWord = new ArrayList<SourceTransform>();
+					transformsByWord.put(word, forWord);
+				}
+				forWord.add(transform);
+				if (first.indexOf(word.substring(0, 1)) < 0) {
+					first.append(word.charAt(0));
+				}
+				longest = Math.max(longest, word.length());
+			}
+		}
+		this.firstChars = first.toString();
+		this.longestWord = longest;
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param transformsIn
+	 *            the transforms, in the order they are tried
+	 */
+	public TransformPipeline(final SourceTransform... transformsIn) {
+		this(Arrays.asList(transformsIn));
+	}
+
+	/**
+	 * Create a pipeline of every transform that is registered as a service
+	 * with the given class loader, in the order they are found.
+	 *
+	 * @param classLoader
+	 *            the class loader to find the transforms with
+	 * @return the pipeline
+	 */
+	public static TransformPipeline load(final ClassLoader classLoader) {
+		List<SourceTransform> found = new ArrayList<SourceTransform>();
+		for (SourceTransform transform : ServiceLoader.load(
+				SourceTransform.class, classLoader)) {
+			LOGGER.debug("Loaded source transform "
+					+ transform.getClass().getName());
+			found.add(transform);
+		}
+		return new TransformPipeline(found);
+	}
+
+	/**
+	 * @return the transforms, in the order they are tried
+	 */
+	public List<SourceTransform> getTransforms() {
+		return transforms;
+	}
+
+	/**
+	 * Describe the transforms, so that a change to them can be detected. This
+	 * is the class name of each transform, in the order they are tried, along
+	 * with a hash of its class file, so that a transform that is upgraded
+	 * without being renamed is still seen as a change.
+	 *
+	 * @return the description
+	 */
+	public String describe() {
+		StringBuilder sb = new StringBuilder();
+		for (SourceTransform transform : transforms) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			Class<?> transformClass = transform.getClass();
+			sb.append(transformClass.getName());
+			InputStream in = transformClass.getResourceAsStream("/"
+					+ transformClass.getName().replace('.', '/') + ".class");
+			if (in != null) {
+				try {
+					sb.append('@').append(
+							HashUtils.hash(IOUtils.toByteArray(in)));
+				} catch (IOException e) {
+					LOGGER.debug("Unable to read the class of transform "
+							+ transformClass.getName());
+				} finally {
+					IOUtils.closeQuietly(in);
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Read from a source once, applying every transform, and write it both
+	 * with the assertion statements augmented and with them removed.
+	 *
+	 * @param reader
+	 *            the place to read from
+	 * @param assertionWriter
+	 *            the place to write the augmented assertions to, or null
+	 * @param debugWriter
+	 *            the place to write to with the assertions removed, or null
+	 * @param srcFileName
+	 *            the name of the current source file for use in writing
+	 * @throws IOException
+	 *             if there is a problem reading or writing
+	 */
+	public void transform(final Reader reader, final Writer assertionWriter,
+			final Writer debugWriter, final String srcFileName)
+			throws IOException {
+		new TransformPass(this, reader, assertionWriter, debugWriter,
+				srcFileName, 1).run();
+	}
+
+	/**
+	 * Apply a single transform to input that starts just after one of its
+	 * words, as if the word had just been read from the code. Only what the
+	 * transform reads is consumed.
+	 *
+	 * @param transform
+	 *            the transform
+	 * @param word
+	 *            the word
+	 * @param reader
+	 *            the input after the word
+	 * @param assertionWriter
+	 *            the place to write the augmented assertions to, or null
+	 * @param debugWriter
+	 *            the place to write to with the assertions removed, or null
+	 * @param srcFileName
+	 *            the name of the file the input is from
+	 * @param lineNumber
+	 *            the line of the file that the word is on
+	 * @return whether the transform transformed the word
+	 * @throws IOException
+	 *             if there is a problem reading or writing
+	 */
+	static boolean transformWord(final SourceTransform transform,
+			final String word, final Reader reader,
+			final Writer assertionWriter, final Writer debugWriter,
+			final String srcFileName, final int lineNumber)
+			throws IOException {
+		return new TransformPass(new TransformPipeline(transform), reader,
+				assertionWriter, debugWriter, srcFileName, lineNumber)
+				.runOnce(transform, word);
+	}
+
+	/**
+	 * Check whether a word might be one that a transform acts on, without
+	 * creating a string of it.
+	 *
+	 * @param text
+	 *            the text the word is at the end of
+	 * @param start
+	 *            the position the word starts at
+	 * @return false if no transform acts on the word
+	 */
+	boolean mayTransform(final StringBuilder text, final int start) {
+		return text.length() - start <= longestWord
+				&& firstChars.indexOf(text.charAt(start)) >= 0;
+	}
+
+	/**
+	 * @param word
+	 *            a word in the code
+	 * @return the transforms that act on the word, or null if there are none
+	 */
+	List<SourceTransform> getTransforms(final String word) {
+		return transformsByWord.get(word);
+	}
+}
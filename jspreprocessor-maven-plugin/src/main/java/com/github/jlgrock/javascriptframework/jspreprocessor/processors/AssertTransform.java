@@ -0,0 +1,107 @@
+package com.github.jlgrock.javascriptframework.jspreprocessor.processors;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.github.jlgrock.javascriptframework.jspreprocessor.SourceTransform;
+import com.github.jlgrock.javascriptframework.jspreprocessor.TransformContext;
+
+/**
+ * Augments each $$assert statement with the file, line and expression text
+ * in the output with the assertions, and replaces it with an empty statement
+ * in the debug output, so that an assertion that is the whole body of an
+ * if, else or loop does not leave it without one. Assignments of the $$assert function itself are left alone. There is no
+ * limit on the length of an assertion.
+ */
+public class AssertTransform implements SourceTransform {
+
+	/**
+	 * The word that this transform acts on.
+	 */
+	public static final String ASSERT = "$$assert";
+
+	@Override
+	public final Set<String> getWords() {
+		return Collections.singleton(ASSERT);
+	}
+
+	@Override
+	public final boolean transform(final String word,
+			final TransformContext context) throws IOException {
+		if (context.getPreviousSignificant() == '='
+				|| context.peekSignificant() == '=') {
+			// an assignment of the assert function itself
+			return false;
+		}
+		int line = context.getLineNumber();
+		if (context.peekSignificant() != '(') {
+			throw new IllegalArgumentException("The " + ASSERT
+					+ " expression on line " + line + " of file "
+					+ context.getFileName() + " is not valid.");
+		}
+		List<String> arguments = context.readArguments(ASSERT);
+
+		// the message is everything after the first comma
+		StringBuilder message = new StringBuilder();
+		for (int i = 1; i < arguments.size(); i++) {
+			if (i > 1) {
+				message.append(',');
+			}
+			message.append(arguments.get(i));
+		}
+		context.writeToAssertionOutput(augmented(arguments.get(0),
+				message.toString(), context.getFileName(), line));
+		context.writeToDebugOutput(";");
+
+		// drop the semicolon ending the statement, and any whitespace before
+		// it, but keep the whitespace if there is no semicolon
+		context.skip(';');
+		return true;
+	}
+
+	/**
+	 * Build the augmented version of an assertion.
+	 *
+	 * @param expression
+	 *            the text of the expression being asserted
+	 * @param message
+	 *            the text of the message
+	 * @param fileName
+	 *            the filename to use in the expansion
+	 * @param line
+	 *            the line number to use in the expansion
+	 * @return the augmented assertion
+	 */
+	public static String augmented(final String expression,
+			final String message, final String fileName, final int line) {
+		String expressionOut = expression;
+		String expressionString = "";
+		if (expression.length() == 0) {
+			expressionOut = null;
+		} else {
+			expressionString = escapeStringForJson(expression);
+		}
+		String messageOut = message;
+		if (message.length() == 0) {
+			messageOut = null;
+		}
+		return "$$assert( " + expressionOut + " , " + messageOut
+				+ ", { 'file' : '" + fileName + "', 'line' : '" + line
+				+ "', 'expression' : '" + expressionString + "' } );";
+	}
+
+	/**
+	 * Escapes the string for output in the augmented assert statement.
+	 *
+	 * @param stringIn
+	 *            the string to escape
+	 * @return the esaped string
+	 */
+	public static String escapeStringForJson(final String stringIn) {
+		return stringIn.replaceAll("\r\n", "").replaceAll("\n", "")
+				.replaceAll("\r", "").replaceAll("\\\\", "\\\\\\\\")
+				.replaceAll("'", "\\\\\\'");
+	}
+}
@@ -4,6 +4,8 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.lang.reflect.Array;
 
+import com.github.jlgrock.javascriptframework.jspreprocessor.processors.AssertTransform;
+
 import spock.lang.Specification;
 
 class CompilePreProcessorTest extends Specification {
@@ -209,17 +211,17 @@ class CompilePreProcessorTest extends Specification {
 	
 	def "test escape String with single quotes"() {
 		expect:
-		CompilePreProcessor.escapeStringForJson("test's") == "test\\'s"
+		AssertTransform.escapeStringForJson("test's") == "test\\'s"
 	}
 	
 	def "test escape String with backslashes"() {
 		expect:
-		CompilePreProcessor.escapeStringForJson("test \\t") == "test \\\\t"
+		AssertTransform.escapeStringForJson("test \\t") == "test \\\\t"
 	}
 	
 	def "test escape String with backslashes and quotes"() {
 		expect:
-		CompilePreProcessor.escapeStringForJson("test \\t steve's place") == "test \\\\t steve\\'s place"
+		AssertTransform.escapeStringForJson("test \\t steve's place") == "test \\\\t steve\\'s place"
 	}
 	
 	def "buffer should throw exception for bad code" () {
@@ -313,29 +315,35 @@ that spans multiple lines before finishing */ ,  "My Message", { \'file\' : \'te
 		thrown(IllegalArgumentException)
 	}
 	
-	def "too many characters before end of assert" () {
-		char[] stringBuff = '''return $$assert(                       
-                                                              
-                                                              
-                                                              
-                                                              
-                                                              
-                                                              
-                                                              
-                                                              
-                                                              
-                                                              
-                                                              
-                                                              
-                                                              
-                                                              
-x>4)'''.toCharArray()
+	def "no limit on the length of an assert" () {
+		setup:
+		def expression = (1..100).collect { "x$it > 0" }.join(' && ')
+		char[] stringBuff = ('return $$assert(' + expression + ', "too long");').toCharArray()
 		def charReader = new CharArrayReader(stringBuff)
 		def charWriter = new CharArrayWriter()
-		when:
 		CompilePreProcessor.readAndWriteBuffer(charReader, charWriter, "testfile.js", false)
-		then:
-		thrown(IllegalArgumentException)
+		expect:
+		charWriter.toString() == 'return $$assert( ' + expression + ' ,  "too long", { \'file\' : \'testfile.js\', \'line\' : \'1\', \'expression\' : \'' + expression + '\' } );'
+	}
+
+	def "ignores asserts in comments and strings" () {
+		setup:
+		char[] stringBuff = '// $$assert(x)\nvar s = "$$assert(y)";'.toCharArray()
+		def charReader = new CharArrayReader(stringBuff)
+		def charWriter = new CharArrayWriter()
+		CompilePreProcessor.readAndWriteBuffer(charReader, charWriter, "testfile.js", true)
+		expect:
+		charWriter.toString().readLines() == ['// $$assert(x)', 'var s = "$$assert(y)";']
+	}
+
+	def "leaves an empty statement in place of a removed assert" () {
+		setup:
+		char[] stringBuff = 'if (a) $$assert(a /* ) */, /\\)/.test(b))\nelse c();'.toCharArray()
+		def charReader = new CharArrayReader(stringBuff)
+		def charWriter = new CharArrayWriter()
+		CompilePreProcessor.readAndWriteBuffer(charReader, charWriter, "testfile.js", true)
+		expect:
+		charWriter.toString().readLines() == ['if (a) ;', 'else c();']
 	}
 	
 	def "run into semicolon within string in a buffer" () {
@@ -367,10 +375,22 @@ x>4)'''.toCharArray()
 		def charWriter = new CharArrayWriter()
 		CompilePreProcessor.readAndWriteBuffer(charReader, charWriter, "testfile.js", true)
 		expect:
-		charWriter.toString() == 'return '
+		charWriter.toString() == 'return ;'
 		
 	}
 	
+	def "augments and removes assertions in a single read" () {
+		setup:
+		char[] stringBuff = 'return $$assert(x>=";")'.toCharArray()
+		def charReader = new CharArrayReader(stringBuff)
+		def assertionWriter = new CharArrayWriter()
+		def debugWriter = new CharArrayWriter()
+		CompilePreProcessor.readAndWriteBuffers(charReader, assertionWriter, debugWriter, "testfile.js")
+		expect:
+		assertionWriter.toString() == 'return $$assert( x>=";" , null, { \'file\' : \'testfile.js\', \'line\' : \'1\', \'expression\' : \'x>=";"\' } );'
+		debugWriter.toString() == 'return ;'
+	}
+	
 	def "doesn't match goog.requires" () {
 		setup:
 		char[] stringBuff = '   goog.require   ("\$\$assert") ; '.toCharArray()
@@ -0,0 +1,137 @@
+package com.github.jlgrock.javascriptframework.jspreprocessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.jlgrock.javascriptframework.jspreprocessor.processors.AssertTransform;
+
+public class PreProcessManifestTest {
+
+	/**
+	 * A transform that never transforms anything.
+	 */
+	private static class NoTransform implements SourceTransform {
+		@Override
+		public Set<String> getWords() {
+			return Collections.singleton("none");
+		}
+
+		@Override
+		public boolean transform(final String word,
+				final TransformContext context) {
+			return false;
+		}
+	}
+
+	private File directory;
+
+	private File manifestFile;
+
+	private File sourceDir;
+
+	private File source;
+
+	private File assertionOutput;
+
+	private File debugOutput;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"),
+				"preprocess-manifest-test-" + System.nanoTime());
+		manifestFile = new File(directory, PreProcessManifest.MANIFEST_FILENAME);
+		sourceDir = new File(directory, "src");
+		source = new File(sourceDir, "a.js");
+		assertionOutput = new File(directory, "assert/a.js");
+		debugOutput = new File(directory, "debug/a.js");
+		FileUtils.writeStringToFile(source, "$$assert(a);\n");
+		FileUtils.writeStringToFile(assertionOutput, "assert");
+		FileUtils.writeStringToFile(debugOutput, "debug");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	private void recordAndSave() throws IOException {
+		PreProcessManifest manifest = PreProcessManifest.load(manifestFile);
+		manifest.record(source, assertionOutput, debugOutput);
+		manifest.save();
+	}
+
+	@Test
+	public void testUnchangedSourceIsUpToDate() throws IOException {
+		assertFalse(PreProcessManifest.load(manifestFile).hasEntries(sourceDir));
+		recordAndSave();
+
+		PreProcessManifest manifest = PreProcessManifest.load(manifestFile);
+		assertTrue(manifest.hasEntries(sourceDir));
+		assertTrue(manifest.isUpToDate(source, assertionOutput, debugOutput));
+	}
+
+	@Test
+	public void testChangedSourceOrMissingOutputIsNotUpToDate()
+			throws IOException {
+		recordAndSave();
+
+		FileUtils.writeStringToFile(source, "$$assert(b);\n");
+		assertFalse(PreProcessManifest.load(manifestFile).isUpToDate(source,
+				assertionOutput, debugOutput));
+
+		recordAndSave();
+		assertTrue(debugOutput.delete());
+		assertFalse(PreProcessManifest.load(manifestFile).isUpToDate(source,
+				assertionOutput, debugOutput));
+	}
+
+	@Test
+	public void testPruneDeletesOutputsOfRemovedSources() throws IOException {
+		recordAndSave();
+		File other = new File(directory, "other/b.js");
+		FileUtils.writeStringToFile(other, "");
+		PreProcessManifest manifest = PreProcessManifest.load(manifestFile);
+		manifest.record(other, new File(directory, "other-out.js"));
+
+		assertEquals(0, manifest.prune(sourceDir, Arrays.asList(source)));
+		assertTrue(debugOutput.isFile());
+
+		assertEquals(1, manifest.prune(sourceDir, Collections.<File> emptyList()));
+		assertFalse(assertionOutput.exists());
+		assertFalse(debugOutput.exists());
+		assertFalse(manifest.hasEntries(sourceDir));
+		// files outside of the source directory are left alone
+		assertTrue(manifest.hasEntries(other.getParentFile()));
+	}
+
+	@Test
+	public void testChangedTransformsAreNotUpToDate() throws IOException {
+		String settings = new TransformPipeline(new AssertTransform())
+				.describe();
+		PreProcessManifest manifest = PreProcessManifest.load(manifestFile,
+				settings);
+		manifest.record(source, assertionOutput, debugOutput);
+		manifest.save();
+		assertTrue(PreProcessManifest.load(manifestFile, settings).isUpToDate(
+				source, assertionOutput, debugOutput));
+
+		String added = new TransformPipeline(new AssertTransform(),
+				new NoTransform()).describe();
+		assertFalse(PreProcessManifest.load(manifestFile, added).isUpToDate(
+				source, assertionOutput, debugOutput));
+		assertFalse(PreProcessManifest.load(manifestFile).isUpToDate(source,
+				assertionOutput, debugOutput));
+	}
+}
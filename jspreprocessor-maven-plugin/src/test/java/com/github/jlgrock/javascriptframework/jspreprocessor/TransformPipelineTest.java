@@ -0,0 +1,101 @@
+package com.github.jlgrock.javascriptframework.jspreprocessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.github.jlgrock.javascriptframework.jspreprocessor.processors.AssertTransform;
+
+public class TransformPipelineTest {
+
+	private static final String NL = System.getProperty("line.separator");
+
+	/**
+	 * Replaces DEBUG with false, unless it is being assigned to.
+	 */
+	private static class InlineDebug implements SourceTransform {
+		@Override
+		public Set<String> getWords() {
+			return Collections.singleton("DEBUG");
+		}
+
+		@Override
+		public boolean transform(final String word,
+				final TransformContext context) throws IOException {
+			if (context.peekSignificant() == '=') {
+				return false;
+			}
+			context.write("false");
+			return true;
+		}
+	}
+
+	/**
+	 * Removes calls to console.log.
+	 */
+	private static class StripConsoleLog implements SourceTransform {
+		@Override
+		public Set<String> getWords() {
+			return Collections.singleton("console");
+		}
+
+		@Override
+		public boolean transform(final String word,
+				final TransformContext context) throws IOException {
+			if (context.peekSignificant() != '.') {
+				return false;
+			}
+			context.skip('.');
+			String method = context.readWord();
+			if (!"log".equals(method)) {
+				context.write(word + "." + method);
+				return true;
+			}
+			context.readArguments(word + "." + method);
+			context.skip(';');
+			return true;
+		}
+	}
+
+	private static String[] transform(final TransformPipeline pipeline,
+			final String content) throws IOException {
+		StringWriter assertionOut = new StringWriter();
+		StringWriter debugOut = new StringWriter();
+		pipeline.transform(new StringReader(content), assertionOut, debugOut,
+				"test.js");
+		return new String[] { assertionOut.toString(), debugOut.toString() };
+	}
+
+	@Test
+	public void testTransformsComposeInOnePass() throws IOException {
+		TransformPipeline pipeline = new TransformPipeline(
+				new AssertTransform(), new InlineDebug(),
+				new StripConsoleLog());
+		String[] out = transform(pipeline, "var DEBUG = true;\n"
+				+ "if (DEBUG) { console.log('a, b', f(1, 2)); }\n"
+				+ "console.warn('DEBUG');\n$$assert(x);\n");
+		String expected = "var DEBUG = true;" + NL + "if (false) {  }" + NL
+				+ "console.warn('DEBUG');" + NL;
+		assertEquals(expected + "$$assert( x , null, { 'file' : 'test.js', "
+				+ "'line' : '4', 'expression' : 'x' } );" + NL, out[0]);
+		assertEquals(expected + ";" + NL, out[1]);
+	}
+
+	@Test
+	public void testLoadsRegisteredTransforms() {
+		TransformPipeline pipeline = TransformPipeline.load(getClass()
+				.getClassLoader());
+		boolean foundAssert = false;
+		for (SourceTransform transform : pipeline.getTransforms()) {
+			foundAssert |= transform instanceof AssertTransform;
+		}
+		assertTrue(foundAssert);
+	}
+}
@@ -0,0 +1,91 @@
+package com.github.jlgrock.javascriptframework.jspreprocessor.processors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.github.jlgrock.javascriptframework.jspreprocessor.TransformPipeline;
+
+public class AssertTransformTest {
+
+	private static final String NL = System.getProperty("line.separator");
+
+	private static String augmented(final String expression,
+			final String message, final int line) {
+		return "$$assert( " + expression + " , " + message
+				+ ", { 'file' : 'test.js', 'line' : '" + line
+				+ "', 'expression' : '" + expression + "' } );";
+	}
+
+	private static String[] rewrite(final String content) throws IOException {
+		StringWriter assertionOut = new StringWriter();
+		StringWriter debugOut = new StringWriter();
+		new TransformPipeline(new AssertTransform()).transform(
+				new StringReader(content), assertionOut, debugOut, "test.js");
+		return new String[] { assertionOut.toString(), debugOut.toString() };
+	}
+
+	@Test
+	public void testRewritesAssertsAndKeepsLineNumbers() throws IOException {
+		String[] out = rewrite("var a = 1;\r\n$$assert(a,\n 'm');\n"
+				+ "b(); $$assert(b) ;c();\n");
+		assertEquals("var a = 1;" + NL + augmented("a", "\n 'm'", 2) + NL
+				+ "b(); " + augmented("b", "null", 4) + "c();" + NL, out[0]);
+		assertEquals("var a = 1;" + NL + ";" + NL + "b(); ;c();" + NL, out[1]);
+	}
+
+	@Test
+	public void testSkipsCommentsStringsAndRegexLiterals() throws IOException {
+		String content = "// $$assert(a)\n/* $$assert(b) */\n"
+				+ "var s = '$$assert(c)', t = \"\\\"$$assert(d)\";\n"
+				+ "var r = /'$$assert(e)/;\n" + "goog.require('$$assert');\n"
+				+ "$$assert = function() {};\nvar f = $$assert;\n"
+				+ "$$assertLike(g);\n";
+		String expected = content.replace("\n", NL);
+		String[] out = rewrite(content);
+		assertEquals(expected, out[0]);
+		assertEquals(expected, out[1]);
+	}
+
+	@Test
+	public void testParenthesesInsideAssertArguments() throws IOException {
+		String[] out = rewrite("$$assert(f(a, [b, {c: 1}]) /* ) */ && /\\)/"
+				+ ".test(')'), \"m, n\")\nx();");
+		assertEquals("$$assert( f(a, [b, {c: 1}]) /* ) */ && /\\)/.test(')') , "
+				+ " \"m, n\", { 'file' : 'test.js', 'line' : '1', 'expression' : "
+				+ "'f(a, [b, {c: 1}]) /* ) */ && /\\\\)/.test(\\')\\')' } );"
+				+ NL + "x();" + NL, out[0]);
+		assertEquals(";" + NL + "x();" + NL, out[1]);
+	}
+
+	@Test
+	public void testLongAssert() throws IOException {
+		StringBuilder expression = new StringBuilder("a0");
+		for (int i = 1; i < 5000; i++) {
+			expression.append(" && a").append(i);
+		}
+		String[] out = rewrite("$$assert(" + expression + ");");
+		assertEquals(augmented(expression.toString(), "null", 1), out[0]);
+		assertEquals(";", out[1]);
+	}
+
+	@Test
+	public void testInvalidAsserts() throws IOException {
+		String[] invalid = { "$$assert, (a);", "$$assert(a;\nb();",
+				"$$assert(a, 'b'" };
+		for (String content : invalid) {
+			try {
+				rewrite(content);
+				fail("Expected " + content + " to be rejected");
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().contains("line 1 of file test.js"));
+			}
+		}
+	}
+}
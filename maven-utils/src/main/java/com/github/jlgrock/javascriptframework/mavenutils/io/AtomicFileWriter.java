@@ -0,0 +1,259 @@
+package com.github.jlgrock.javascriptframework.mavenutils.io;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * A buffered UTF-8 writer that writes to a temporary file next to the target
+ * file, and only replaces the target file when {@link #commit()} is called.
+ * Anything reading the target file will either see the previous version or
+ * the complete new version, never a partially written one. If the writer is
+ * closed without being committed, the temporary file is deleted and the
+ * target file is left alone.
+ *
+ * Generated files that are usually the same from one build to the next can
+ * use {@link #commitIfChanged()} instead, which leaves the target file, and
+ * its modification time, alone when the content has not changed.
+ *
+ * <pre>
+ * AtomicFileWriter out = new AtomicFileWriter(file);
+ * try {
+ *     out.write(content);
+ *     out.commit();
+ * } finally {
+ *     out.close();
+ * }
+ * </pre>
+ */
+public class AtomicFileWriter extends Writer {
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(AtomicFileWriter.class);
+
+	/**
+	 * The size of the write buffer.
+	 */
+	private static final int BUFFER_SIZE = 65536;
+
+	/**
+	 * The file to replace on commit.
+	 */
+	private final File target;
+
+	/**
+	 * The temporary file being written.
+	 */
+	private final File temp;
+
+	/**
+	 * The writer for the temporary file.
+	 */
+	private final Writer out;
+
+	/**
+	 * The stream that hashes what is written to the temporary file.
+	 */
+	private final DigestOutputStream digestStream;
+
+	/**
+	 * Whether the temporary file has been closed.
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Constructor. The parent directory of the target file must exist.
+	 *
+	 * @param targetFile
+	 *            the file to replace on commit
+	 * @throws IOException
+	 *             if the temporary file cannot be created
+	 */
+	public AtomicFileWriter(final File targetFile) throws IOException {
+		this(targetFile, false);
+	}
+
+	/**
+	 * Constructor. The parent directory of the target file must exist.
+	 *
+	 * @param targetFile
+	 *            the file to replace on commit
+	 * @param ownerOnly
+	 *            if true, the temporary file is made readable and writable
+	 *            only by the current user before anything is written to it,
+	 *            so the target file is never readable by anyone else
+	 * @throws IOException
+	 *             if the temporary file cannot be created, or cannot be
+	 *             restricted to the current user
+	 */
+	public AtomicFileWriter(final File targetFile, final boolean ownerOnly)
+			throws IOException {
+		this.target = targetFile;
+		this.temp = File.createTempFile(targetFile.getName() + ".", ".tmp",
+				targetFile.getAbsoluteFile().getParentFile());
+		if (ownerOnly && !restrictToOwner(temp)) {
+			deleteTemp();
+			throw new IOException("Unable to restrict \""
+					+ temp.getAbsolutePath() + "\" to the current user.");
+		}
+		FileOutputStream stream = new FileOutputStream(temp);
+		try {
+			this.digestStream = new DigestOutputStream(stream,
+					HashUtils.newDigest());
+			this.out = new BufferedWriter(new OutputStreamWriter(digestStream,
+					"UTF-8"), BUFFER_SIZE);
+		} catch (IOException e) {
+			IOUtils.closeQuietly(stream);
+			deleteTemp();
+			throw e;
+		}
+	}
+
+	@Override
+	public final void write(final char[] cbuf, final int off, final int len)
+			throws IOException {
+		out.write(cbuf, off, len);
+	}
+
+	@Override
+	public final void write(final String str, final int off, final int len)
+			throws IOException {
+		out.write(str, off, len);
+	}
+
+	@Override
+	public final void write(final int c) throws IOException {
+		out.write(c);
+	}
+
+	@Override
+	public final void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Finish writing and replace the target file with what has been written.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written or the target file cannot be
+	 *             replaced
+	 */
+	public final void commit() throws IOException {
+		finish();
+		replaceTarget();
+	}
+
+	/**
+	 * Finish writing and replace the target file with what has been written,
+	 * unless the target file already has exactly the same content, in which
+	 * case the target file is not touched.
+	 *
+	 * @return true if the target file was replaced, false if it was unchanged
+	 * @throws IOException
+	 *             if the file cannot be written or the target file cannot be
+	 *             read or replaced
+	 */
+	public final boolean commitIfChanged() throws IOException {
+		finish();
+		boolean unchanged;
+		try {
+			unchanged = target.isFile()
+					&& target.length() == temp.length()
+					&& HashUtils.hash(target).equals(
+							HashUtils.toHex(digestStream.getMessageDigest()
+									.digest()));
+		} catch (IOException e) {
+			deleteTemp();
+			throw e;
+		}
+		if (unchanged) {
+			deleteTemp();
+			return false;
+		}
+		replaceTarget();
+		return true;
+	}
+
+	/**
+	 * Close the temporary file so that it can replace the target file.
+	 *
+	 * @throws IOException
+	 *             if the writer has already been closed, or the temporary file
+	 *             cannot be written
+	 */
+	private void finish() throws IOException {
+		if (closed) {
+			throw new IOException("The writer for \"" + target.getName()
+					+ "\" has already been closed.");
+		}
+		closed = true;
+		try {
+			out.close();
+		} catch (IOException e) {
+			deleteTemp();
+			throw e;
+		}
+	}
+
+	/**
+	 * Replace the target file with the temporary file.
+	 *
+	 * @throws IOException
+	 *             if the target file cannot be replaced
+	 */
+	private void replaceTarget() throws IOException {
+		if (!temp.renameTo(target)) {
+			// windows will not rename over an existing file
+			if (!target.delete() || !temp.renameTo(target)) {
+				deleteTemp();
+				throw new IOException("Could not replace \""
+						+ target.getAbsolutePath() + "\".");
+			}
+		}
+	}
+
+	/**
+	 * Close the writer. If it has not been committed, what has been written is
+	 * thrown away and the target file is left alone.
+	 */
+	@Override
+	public final void close() {
+		if (!closed) {
+			closed = true;
+			IOUtils.closeQuietly(out);
+			deleteTemp();
+		}
+	}
+
+	/**
+	 * Make a file readable and writable only by its owner.
+	 *
+	 * @param file
+	 *            the file to restrict
+	 * @return true if every permission was changed
+	 */
+	private static boolean restrictToOwner(final File file) {
+		return file.setReadable(false, false) && file.setReadable(true, true)
+				&& file.setWritable(false, false)
+				&& file.setWritable(true, true);
+	}
+
+	/**
+	 * Delete the temporary file.
+	 */
+	private void deleteTemp() {
+		if (temp.exists() && !temp.delete()) {
+			LOGGER.warn("Unable to delete temporary file \""
+					+ temp.getAbsolutePath() + "\".");
+		}
+	}
+}
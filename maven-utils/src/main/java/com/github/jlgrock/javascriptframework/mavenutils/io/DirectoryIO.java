@@ -61,7 +61,8 @@ public final class DirectoryIO {
 		}
 		
 		if (!dir.exists()) {
-			if (!dir.mkdirs()) {
+			// another thread may have created it in the meantime
+			if (!dir.mkdirs() && !dir.isDirectory()) {
 				throw new IOException("Can not create dir " + dir);
 			}
 		}
@@ -0,0 +1,179 @@
+package com.github.jlgrock.javascriptframework.mavenutils.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jlgrock.javascriptframework.mavenutils.pathing.FileListBuilder;
+
+/**
+ * Finds the files in a directory that have been added, changed or removed
+ * since the last time it was looked at, by comparing the size and last
+ * modified time of each file. This works on any file system and needs nothing
+ * more than being called every so often.
+ */
+public class DirectoryPoller {
+	/**
+	 * The directory being watched.
+	 */
+	private final File directory;
+
+	/**
+	 * The extension of the files being watched.
+	 */
+	private final String extension;
+
+	/**
+	 * The size and last modified time of each file the last time the
+	 * directory was looked at, keyed by file.
+	 */
+	private Map<File, FileState> snapshot = new HashMap<File, FileState>();
+
+	/**
+	 * Constructor. No files are reported until the first call to
+	 * {@link #poll()}, which reports every file as added.
+	 *
+	 * @param watchedDirectory
+	 *            the directory to watch, which does not have to exist yet
+	 * @param fileExtension
+	 *            the extension of the files to watch, without the period
+	 */
+	public DirectoryPoller(final File watchedDirectory,
+			final String fileExtension) {
+		this.directory = watchedDirectory;
+		this.extension = fileExtension;
+	}
+
+	/**
+	 * @return the directory being watched
+	 */
+	public final File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Look at the directory and find out what has changed since it was last
+	 * looked at.
+	 *
+	 * @return the changes
+	 */
+	public final Changes poll() {
+		Map<File, FileState> current = new HashMap<File, FileState>();
+		List<File> changed = new ArrayList<File>();
+		if (directory.isDirectory()) {
+			for (File file : FileListBuilder.buildFilteredList(directory,
+					extension)) {
+				FileState state = new FileState(file.length(),
+						file.lastModified());
+				current.put(file, state);
+				if (!state.equals(snapshot.get(file))) {
+					changed.add(file);
+				}
+			}
+		}
+		List<File> removed = new ArrayList<File>();
+		for (File file : snapshot.keySet()) {
+			if (!current.containsKey(file)) {
+				removed.add(file);
+			}
+		}
+		snapshot = current;
+		return new Changes(changed, removed);
+	}
+
+	/**
+	 * The files that were added, changed or removed between two looks at the
+	 * directory.
+	 */
+	public static final class Changes {
+		/**
+		 * The files that were added or changed.
+		 */
+		private final List<File> changed;
+
+		/**
+		 * The files that were removed.
+		 */
+		private final List<File> removed;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param changedFiles
+		 *            the files that were added or changed
+		 * @param removedFiles
+		 *            the files that were removed
+		 */
+		private Changes(final List<File> changedFiles,
+				final List<File> removedFiles) {
+			this.changed = Collections.unmodifiableList(changedFiles);
+			this.removed = Collections.unmodifiableList(removedFiles);
+		}
+
+		/**
+		 * @return the files that were added or changed
+		 */
+		public List<File> getChanged() {
+			return changed;
+		}
+
+		/**
+		 * @return the files that were removed
+		 */
+		public List<File> getRemoved() {
+			return removed;
+		}
+
+		/**
+		 * @return true if nothing was added, changed or removed
+		 */
+		public boolean isEmpty() {
+			return changed.isEmpty() && removed.isEmpty();
+		}
+	}
+
+	/**
+	 * The size and last modified time of a file.
+	 */
+	private static final class FileState {
+		/**
+		 * The size of the file.
+		 */
+		private final long size;
+
+		/**
+		 * The last modified time of the file.
+		 */
+		private final long lastModified;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param fileSize
+		 *            the size of the file
+		 * @param fileLastModified
+		 *            the last modified time of the file
+		 */
+		private FileState(final long fileSize, final long fileLastModified) {
+			this.size = fileSize;
+			this.lastModified = fileLastModified;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof FileState)) {
+				return false;
+			}
+			FileState other = (FileState) obj;
+			return size == other.size && lastModified == other.lastModified;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (size ^ lastModified);
+		}
+	}
+}
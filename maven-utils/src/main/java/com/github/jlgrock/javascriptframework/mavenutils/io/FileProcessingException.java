@@ -0,0 +1,100 @@
+package com.github.jlgrock.javascriptframework.mavenutils.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thrown when one or more files could not be processed. Every failing file is
+ * kept, along with the reason it failed, so that all of the problems can be
+ * reported at once rather than just the first.
+ */
+public class FileProcessingException extends IOException {
+
+	/**
+	 * Serial version id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The failures, in the order the files were given.
+	 */
+	private final Map<File, Throwable> failures = new LinkedHashMap<File, Throwable>();
+
+	/**
+	 * Constructor for an exception that will have failures added to it.
+	 */
+	public FileProcessingException() {
+		super();
+	}
+
+	/**
+	 * Constructor for an exception that was not caused by a single file.
+	 *
+	 * @param message
+	 *            the message
+	 * @param cause
+	 *            the cause
+	 */
+	public FileProcessingException(final String message, final Throwable cause) {
+		super(message);
+		initCause(cause);
+	}
+
+	/**
+	 * Record a failure.
+	 *
+	 * @param file
+	 *            the file that failed
+	 * @param cause
+	 *            the reason it failed
+	 */
+	public final void addFailure(final File file, final Throwable cause) {
+		failures.put(file, cause);
+		if (getCause() == null) {
+			initCause(cause);
+		}
+	}
+
+	/**
+	 * @return true if any failures have been recorded
+	 */
+	public final boolean hasFailures() {
+		return !failures.isEmpty();
+	}
+
+	/**
+	 * @return the failures, keyed by the file that failed
+	 */
+	public final Map<File, Throwable> getFailures() {
+		return Collections.unmodifiableMap(failures);
+	}
+
+	/**
+	 * @return the files that failed
+	 */
+	public final List<File> getFailedFiles() {
+		return new ArrayList<File>(failures.keySet());
+	}
+
+	@Override
+	public final String getMessage() {
+		if (failures.isEmpty()) {
+			return super.getMessage();
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(failures.size());
+		sb.append(" file(s) could not be processed:");
+		for (Map.Entry<File, Throwable> failure : failures.entrySet()) {
+			sb.append("\n  ");
+			sb.append(failure.getKey().getAbsolutePath());
+			sb.append(": ");
+			sb.append(failure.getValue().getMessage());
+		}
+		return sb.toString();
+	}
+}
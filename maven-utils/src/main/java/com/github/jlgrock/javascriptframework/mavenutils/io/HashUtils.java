@@ -0,0 +1,159 @@
+package com.github.jlgrock.javascriptframework.mavenutils.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A general usage class for calculating content hashes of files and strings.
+ */
+public final class HashUtils {
+
+	/**
+	 * The digest algorithm used for all hashes.
+	 */
+	public static final String ALGORITHM = "SHA-1";
+
+	/**
+	 * The default buffer size for reading.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The characters used for hex encoding.
+	 */
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Private Constructor for utility classes.
+	 */
+	private HashUtils() {
+	}
+
+	/**
+	 * Create a new digest.
+	 *
+	 * @return the message digest
+	 */
+	public static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// every JVM is required to support SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Calculate the hash of the contents of a file.
+	 *
+	 * @param file
+	 *            the file to hash
+	 * @return the hex encoded hash
+	 * @throws IOException
+	 *             if there is a problem reading the file
+	 */
+	public static String hash(final File file) throws IOException {
+		MessageDigest digest = newDigest();
+		InputStream in = new BufferedInputStream(new FileInputStream(file),
+				BUFFER_SIZE);
+		try {
+			update(digest, in);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Calculate the hash of a byte array.
+	 *
+	 * @param content
+	 *            the bytes to hash
+	 * @return the hex encoded hash
+	 */
+	public static String hash(final byte[] content) {
+		return toHex(newDigest().digest(content));
+	}
+
+	/**
+	 * Calculate the hash of a string, using its UTF-8 representation.
+	 *
+	 * @param content
+	 *            the string to hash
+	 * @return the hex encoded hash
+	 */
+	public static String hash(final String content) {
+		return hash(toBytes(content));
+	}
+
+	/**
+	 * Add the contents of a stream to a digest. The stream is not closed.
+	 *
+	 * @param digest
+	 *            the digest to update
+	 * @param in
+	 *            the stream to read from
+	 * @throws IOException
+	 *             if there is a problem reading the stream
+	 */
+	public static void update(final MessageDigest digest, final InputStream in)
+			throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			digest.update(buffer, 0, count);
+		}
+	}
+
+	/**
+	 * Add a string to a digest, using its UTF-8 representation.
+	 *
+	 * @param digest
+	 *            the digest to update
+	 * @param content
+	 *            the string to add
+	 */
+	public static void update(final MessageDigest digest, final String content) {
+		digest.update(toBytes(content));
+	}
+
+	/**
+	 * Hex encode a byte array.
+	 *
+	 * @param bytes
+	 *            the bytes to encode
+	 * @return the hex string
+	 */
+	public static String toHex(final byte[] bytes) {
+		char[] out = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			out[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			out[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(out);
+	}
+
+	/**
+	 * Convert a string to UTF-8.
+	 *
+	 * @param content
+	 *            the string to convert
+	 * @return the bytes
+	 */
+	private static byte[] toBytes(final String content) {
+		try {
+			return content.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			// every JVM is required to support UTF-8
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.github.jlgrock.javascriptframework.mavenutils.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs an independent task against each file in a list, optionally spreading
+ * the work over a bounded pool of threads. Results are always returned in the
+ * same order as the files were given, regardless of the order the tasks
+ * complete in. Every file is processed even if some of them fail, and all of
+ * the failures are reported together at the end.
+ */
+public final class ParallelFileProcessor {
+
+	/**
+	 * The Logger.
+	 */
+	private static final Logger LOGGER = Logger
+			.getLogger(ParallelFileProcessor.class);
+
+	/**
+	 * A task to run against a single file.
+	 *
+	 * @param <T>
+	 *            the result of processing a file
+	 */
+	public interface FileTask<T> {
+		/**
+		 * Process a single file. Implementations must be safe to call from
+		 * multiple threads at once.
+		 *
+		 * @param file
+		 *            the file to process
+		 * @return the result of processing the file
+		 * @throws Exception
+		 *             if the file could not be processed
+		 */
+		T process(File file) throws Exception;
+	}
+
+	/**
+	 * Private Constructor for utility classes.
+	 */
+	private ParallelFileProcessor() {
+	}
+
+	/**
+	 * Resolve a configured parallelism level into a number of threads. Any
+	 * value less than one means one thread per available processor.
+	 *
+	 * @param parallelism
+	 *            the configured level
+	 * @return the number of threads to use
+	 */
+	public static int resolveThreadCount(final int parallelism) {
+		if (parallelism < 1) {
+			return Runtime.getRuntime().availableProcessors();
+		}
+		return parallelism;
+	}
+
+	/**
+	 * Process each of the files with the given task.
+	 *
+	 * @param <T>
+	 *            the result of processing a file
+	 * @param files
+	 *            the files to process
+	 * @param task
+	 *            the task to run against each file
+	 * @param threads
+	 *            the maximum number of files to process at once, if one or
+	 *            less the files are processed on the calling thread
+	 * @return the results, in the same order as the files
+	 * @throws FileProcessingException
+	 *             if the task failed for one or more of the files
+	 */
+	public static <T> List<T> process(final List<File> files,
+			final FileTask<T> task, final int threads)
+			throws FileProcessingException {
+		List<T> results = new ArrayList<T>(files.size());
+		FileProcessingException failures = new FileProcessingException();
+		if (threads <= 1 || files.size() <= 1) {
+			for (File file : files) {
+				try {
+					results.add(task.process(file));
+				} catch (Exception e) {
+					failures.addFailure(file, e);
+					results.add(null);
+				}
+			}
+		} else {
+			int poolSize = Math.min(threads, files.size());
+			LOGGER.debug("processing " + files.size() + " files using "
+					+ poolSize + " threads");
+			ExecutorService executor = Executors.newFixedThreadPool(poolSize,
+					new WorkerThreadFactory());
+			try {
+				List<Future<T>> futures = new ArrayList<Future<T>>(
+						files.size());
+				for (final File file : files) {
+					futures.add(executor.submit(new Callable<T>() {
+						@Override
+						public T call() throws Exception {
+							return task.process(file);
+						}
+					}));
+				}
+				for (int i = 0; i < futures.size(); i++) {
+					try {
+						results.add(futures.get(i).get());
+					} catch (ExecutionException e) {
+						failures.addFailure(files.get(i), e.getCause());
+						results.add(null);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new FileProcessingException(
+						"Interrupted while processing files", e);
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		if (failures.hasFailures()) {
+			throw failures;
+		}
+		return results;
+	}
+
+	/**
+	 * Creates daemon worker threads so that an abandoned pool can never keep
+	 * the build from exiting.
+	 */
+	private static final class WorkerThreadFactory implements ThreadFactory {
+		/**
+		 * The number of threads created so far, used for naming.
+		 */
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(r, "file-processor-"
+					+ count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.github.jlgrock.javascriptframework.mavenutils.io.writers;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A writer that replaces every occurrence of one string with another as the
+ * content passes through it, without holding more than the length of the
+ * string being replaced in memory. Occurrences are replaced from left to right
+ * and never overlap, the same as {@link String#replace(CharSequence,
+ * CharSequence)}. Several of these can be chained to apply replacements one
+ * after another.
+ */
+public class ReplacingWriter extends FilterWriter {
+	/**
+	 * The string to replace.
+	 */
+	private final String originalString;
+
+	/**
+	 * The string replacing the original string.
+	 */
+	private final String replacementString;
+
+	/**
+	 * The characters written so far that could be the start of the string to
+	 * replace.
+	 */
+	private final StringBuilder pending = new StringBuilder();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param out the writer to write to
+	 * @param original the string to replace, which cannot be empty
+	 * @param replacement the string replacing the original string
+	 */
+	public ReplacingWriter(final Writer out, final String original,
+			final String replacement) {
+		super(out);
+		if (original.length() == 0) {
+			throw new IllegalArgumentException(
+					"the string to replace cannot be empty");
+		}
+		this.originalString = original;
+		this.replacementString = replacement;
+	}
+
+	@Override
+	public final void write(final int c) throws IOException {
+		pending.append((char) c);
+		if (pending.length() == originalString.length()
+				&& originalString.contentEquals(pending)) {
+			out.write(replacementString);
+			pending.setLength(0);
+			return;
+		}
+		// give up on the earliest possible matches until what is left could
+		// still be the start of the original string
+		int skip = 0;
+		while (skip < pending.length() && !isOriginalPrefix(skip)) {
+			skip++;
+		}
+		if (skip > 0) {
+			for (int i = 0; i < skip; i++) {
+				out.write(pending.charAt(i));
+			}
+			pending.delete(0, skip);
+		}
+	}
+
+	@Override
+	public final void write(final char[] cbuf, final int off, final int len)
+			throws IOException {
+		for (int i = off; i < off + len; i++) {
+			write(cbuf[i]);
+		}
+	}
+
+	@Override
+	public final void write(final String str, final int off, final int len)
+			throws IOException {
+		for (int i = off; i < off + len; i++) {
+			write(str.charAt(i));
+		}
+	}
+
+	/**
+	 * Flush the underlying writer. Any characters that could still be the
+	 * start of the string to replace are held back until more is written or
+	 * the writer is closed.
+	 *
+	 * @throws IOException if the underlying writer cannot be flushed
+	 */
+	@Override
+	public final void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Write out any characters that were held back, without closing the
+	 * underlying writer. If the underlying writer is also a replacing writer,
+	 * it is finished too, so that a whole chain can be finished at once. Once
+	 * finished, nothing more should be written.
+	 *
+	 * @throws IOException if the characters cannot be written
+	 */
+	public final void finish() throws IOException {
+		out.write(pending.toString());
+		pending.setLength(0);
+		if (out instanceof ReplacingWriter) {
+			((ReplacingWriter) out).finish();
+		}
+	}
+
+	@Override
+	public final void close() throws IOException {
+		finish();
+		out.close();
+	}
+
+	/**
+	 * Check whether the pending characters from an offset onwards are the
+	 * start of the original string.
+	 *
+	 * @param from the offset into the pending characters
+	 * @return true if they could still become the original string
+	 */
+	private boolean isOriginalPrefix(final int from) {
+		for (int i = from; i < pending.length(); i++) {
+			if (pending.charAt(i) != originalString.charAt(i - from)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
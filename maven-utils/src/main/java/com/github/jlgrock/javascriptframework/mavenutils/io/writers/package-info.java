@@ -0,0 +1,5 @@
+/**
+ * Writers that transform their content as it is written.
+ * @since 1.0
+ */
+package com.github.jlgrock.javascriptframework.mavenutils.io.writers;
@@ -1,5 +1,10 @@
 package com.github.jlgrock.javascriptframework.mavenutils.logging;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.log4j.AppenderSkeleton;
 import org.apache.log4j.Level;
 import org.apache.log4j.spi.LoggingEvent;
@@ -19,6 +24,12 @@ public class MojoLogAppender extends AppenderSkeleton {
 	 */
 	private static Log mavenLog;
 
+	/**
+	 * The messages held back on each thread that is buffering, or null for
+	 * threads that are not.
+	 */
+	private static final ThreadLocal<List<BufferedMessage>> BUFFER = new ThreadLocal<List<BufferedMessage>>();
+
 	/**
 	 * Use this to start logging in any mojo.  This should be the first thing
 	 * instantiated in the Mojo
@@ -29,6 +40,16 @@ public class MojoLogAppender extends AppenderSkeleton {
 		mavenLog = mojo.getLog();
 	}
 
+	/**
+	 * Use this to start logging to a log that does not belong to a mojo, such
+	 * as in a process that runs outside of maven.
+	 * 
+	 * @param log The log to write to
+	 */
+	public static void beginLogging(final Log log) {
+		mavenLog = log;
+	}
+
 	/**
 	 * Use this to stop logging in the mojo.  This should be the last thing run,
 	 * preferably in a finally block so that it will always output to the console,
@@ -55,6 +76,71 @@ public class MojoLogAppender extends AppenderSkeleton {
 			throwable = event.getThrowableInformation().getThrowable();
 		}
 
+		List<BufferedMessage> buffer = BUFFER.get();
+		if (buffer != null) {
+			buffer.add(new BufferedMessage(level, text, throwable));
+			return;
+		}
+		write(level, text, throwable);
+	}
+
+	/**
+	 * Start holding back the messages logged on the current thread, rather
+	 * than writing them to the maven log straight away. This allows the output
+	 * of tasks that run at the same time to be written out one task after
+	 * another.
+	 */
+	public static void beginBuffering() {
+		BUFFER.set(new ArrayList<BufferedMessage>());
+	}
+
+	/**
+	 * Stop holding back the messages logged on the current thread.
+	 * 
+	 * @return the messages that were held back since buffering began
+	 */
+	public static List<BufferedMessage> endBuffering() {
+		List<BufferedMessage> buffer = BUFFER.get();
+		BUFFER.remove();
+		if (buffer == null) {
+			return Collections.emptyList();
+		}
+		return buffer;
+	}
+
+	/**
+	 * Write messages that were held back to the maven log. If the current
+	 * thread is buffering, the messages are added to its buffer instead.
+	 * 
+	 * @param messages
+	 *            the messages, as returned by {@link #endBuffering()}
+	 */
+	public static void replay(final List<BufferedMessage> messages) {
+		List<BufferedMessage> buffer = BUFFER.get();
+		if (buffer != null) {
+			buffer.addAll(messages);
+			return;
+		}
+		if (mavenLog == null) {
+			return;
+		}
+		for (BufferedMessage message : messages) {
+			write(message.level, message.text, message.throwable);
+		}
+	}
+
+	/**
+	 * Write a formatted message to the maven log.
+	 * 
+	 * @param level
+	 *            the level of the message
+	 * @param text
+	 *            the formatted message
+	 * @param throwable
+	 *            the throwable logged with the message, can be null
+	 */
+	private static void write(final Level level, final String text,
+			final Throwable throwable) {
 		if (Level.DEBUG.equals(level)) {
 			if (throwable != null) {
 				mavenLog.debug(text, throwable);
@@ -97,4 +183,48 @@ public class MojoLogAppender extends AppenderSkeleton {
 	public final boolean requiresLayout() {
 		return true;
 	}
+
+	/**
+	 * A formatted message that was held back while buffering. These can be
+	 * serialized, so that messages logged in another process can be replayed
+	 * here.
+	 */
+	public static final class BufferedMessage implements Serializable {
+		/**
+		 * Serial version id.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The level of the message.
+		 */
+		private final Level level;
+
+		/**
+		 * The formatted message.
+		 */
+		private final String text;
+
+		/**
+		 * The throwable logged with the message, can be null.
+		 */
+		private final Throwable throwable;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param messageLevel
+		 *            the level of the message
+		 * @param messageText
+		 *            the formatted message
+		 * @param messageThrowable
+		 *            the throwable logged with the message, can be null
+		 */
+		private BufferedMessage(final Level messageLevel,
+				final String messageText, final Throwable messageThrowable) {
+			this.level = messageLevel;
+			this.text = messageText;
+			this.throwable = messageThrowable;
+		}
+	}
 }
@@ -11,6 +11,12 @@ public final class JsarRelativeLocations {
 	 */
 	public static final String CLOSURE_LIBRARY_LOCATION = "closure-library";
 
+	/**
+	 * The file within the extracted closure library that holds the hash of
+	 * the zip it was extracted from.
+	 */
+	public static final String CLOSURE_LIBRARY_HASH_FILENAME = "library-hash.txt";
+
 	/**
 	 * The location of the extern files in the jsar.
 	 */
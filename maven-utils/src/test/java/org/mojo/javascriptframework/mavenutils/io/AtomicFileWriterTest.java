@@ -0,0 +1,102 @@
+package org.mojo.javascriptframework.mavenutils.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.AtomicFileWriter;
+
+public class AtomicFileWriterTest {
+
+	private File directory;
+
+	private File target;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"),
+				"atomic-writer-test-" + System.nanoTime());
+		target = new File(directory, "out.js");
+		FileUtils.writeStringToFile(target, "previous", "UTF-8");
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	@Test
+	public void testCommitReplacesTarget() throws IOException {
+		AtomicFileWriter out = new AtomicFileWriter(target);
+		try {
+			out.write("var s = '\u00e9';");
+			assertEquals("previous", FileUtils.readFileToString(target, "UTF-8"));
+			out.commit();
+		} finally {
+			out.close();
+		}
+		assertEquals("var s = '\u00e9';",
+				FileUtils.readFileToString(target, "UTF-8"));
+		assertEquals(1, directory.list().length);
+	}
+
+	@Test
+	public void testCloseWithoutCommitLeavesTarget() throws IOException {
+		AtomicFileWriter out = new AtomicFileWriter(target);
+		out.write("partial");
+		out.close();
+		assertEquals("previous", FileUtils.readFileToString(target, "UTF-8"));
+		assertEquals(1, directory.list().length);
+	}
+
+	@Test
+	public void testCommitIfChangedLeavesSameContent() throws IOException {
+		long lastModified = target.lastModified() - 60000;
+		assertTrue(target.setLastModified(lastModified));
+		AtomicFileWriter out = new AtomicFileWriter(target);
+		try {
+			out.write("previous");
+			assertFalse(out.commitIfChanged());
+		} finally {
+			out.close();
+		}
+		assertEquals(lastModified, target.lastModified());
+		assertEquals(1, directory.list().length);
+	}
+
+	@Test
+	public void testCommitIfChangedReplacesDifferentContent()
+			throws IOException {
+		AtomicFileWriter out = new AtomicFileWriter(target);
+		try {
+			out.write("previouS");
+			assertTrue(out.commitIfChanged());
+		} finally {
+			out.close();
+		}
+		assertEquals("previouS", FileUtils.readFileToString(target, "UTF-8"));
+		assertEquals(1, directory.list().length);
+	}
+
+	@Test
+	public void testOwnerOnlyCommitIsReadableByOwner() throws IOException {
+		AtomicFileWriter out = new AtomicFileWriter(target, true);
+		try {
+			out.write("secret");
+			out.commit();
+		} finally {
+			out.close();
+		}
+		assertEquals("secret", FileUtils.readFileToString(target, "UTF-8"));
+		assertTrue(target.canRead() && target.canWrite());
+		assertEquals(1, directory.list().length);
+	}
+}
@@ -0,0 +1,54 @@
+package org.mojo.javascriptframework.mavenutils.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryPoller;
+import com.github.jlgrock.javascriptframework.mavenutils.io.DirectoryPoller.Changes;
+
+public class DirectoryPollerTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() {
+		directory = new File(System.getProperty("java.io.tmpdir"),
+				"directory-poller-test-" + System.nanoTime());
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	@Test
+	public void testChanges() throws IOException {
+		File a = new File(directory, "a.js");
+		File b = new File(directory, "sub/b.js");
+		FileUtils.writeStringToFile(a, "var a;");
+		FileUtils.writeStringToFile(b, "var b;");
+		FileUtils.writeStringToFile(new File(directory, "c.txt"), "c");
+
+		DirectoryPoller poller = new DirectoryPoller(directory, "js");
+		Changes changes = poller.poll();
+		assertEquals(2, changes.getChanged().size());
+		assertTrue(changes.getChanged().containsAll(Arrays.asList(a, b)));
+		assertTrue(poller.poll().isEmpty());
+
+		FileUtils.writeStringToFile(a, "var a = 1;");
+		FileUtils.deleteQuietly(b);
+		changes = poller.poll();
+		assertEquals(Arrays.asList(a), changes.getChanged());
+		assertEquals(Arrays.asList(b), changes.getRemoved());
+		assertTrue(poller.poll().isEmpty());
+	}
+}
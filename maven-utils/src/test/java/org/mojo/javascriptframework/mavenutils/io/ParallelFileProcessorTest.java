@@ -0,0 +1,69 @@
+package org.mojo.javascriptframework.mavenutils.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.FileProcessingException;
+import com.github.jlgrock.javascriptframework.mavenutils.io.ParallelFileProcessor;
+import com.github.jlgrock.javascriptframework.mavenutils.io.ParallelFileProcessor.FileTask;
+
+public class ParallelFileProcessorTest {
+
+	private static final FileTask<String> NAME_TASK = new FileTask<String>() {
+		@Override
+		public String process(final File file) throws Exception {
+			if (file.getName().startsWith("bad")) {
+				throw new IOException("cannot read " + file.getName());
+			}
+			return file.getName();
+		}
+	};
+
+	private static List<File> files(final String... names) {
+		List<File> files = new ArrayList<File>();
+		for (String name : names) {
+			files.add(new File(name));
+		}
+		return files;
+	}
+
+	@Test
+	public void testResultsKeepInputOrder() throws IOException {
+		List<File> files = new ArrayList<File>();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 200; i++) {
+			files.add(new File("file" + i + ".js"));
+			expected.add("file" + i + ".js");
+		}
+		Assert.assertEquals(expected,
+				ParallelFileProcessor.process(files, NAME_TASK, 1));
+		Assert.assertEquals(expected,
+				ParallelFileProcessor.process(files, NAME_TASK, 8));
+	}
+
+	@Test
+	public void testAllFailuresAreReported() {
+		List<File> files = files("a.js", "bad1.js", "b.js", "bad2.js");
+		for (int threads : new int[] {1, 4}) {
+			try {
+				ParallelFileProcessor.process(files, NAME_TASK, threads);
+				Assert.fail("expected a FileProcessingException");
+			} catch (FileProcessingException e) {
+				Assert.assertEquals(files("bad1.js", "bad2.js"),
+						e.getFailedFiles());
+			}
+		}
+	}
+
+	@Test
+	public void testResolveThreadCount() {
+		Assert.assertEquals(3, ParallelFileProcessor.resolveThreadCount(3));
+		Assert.assertEquals(Runtime.getRuntime().availableProcessors(),
+				ParallelFileProcessor.resolveThreadCount(0));
+	}
+}
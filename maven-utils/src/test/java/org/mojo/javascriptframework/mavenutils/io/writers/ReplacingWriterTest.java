@@ -0,0 +1,52 @@
+package org.mojo.javascriptframework.mavenutils.io.writers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.github.jlgrock.javascriptframework.mavenutils.io.writers.ReplacingWriter;
+
+public class ReplacingWriterTest {
+
+	private String replace(final String content, final String original,
+			final String replacement) throws IOException {
+		StringWriter out = new StringWriter();
+		ReplacingWriter writer = new ReplacingWriter(out, original,
+				replacement);
+		// write one character at a time so that matches span writes
+		for (int i = 0; i < content.length(); i++) {
+			writer.write(content.charAt(i));
+		}
+		writer.close();
+		return out.toString();
+	}
+
+	@Test
+	public void testMatchesStringReplace() throws IOException {
+		String[] contents = { "", "aaa", "abababa", "xaabaaab", "aab", "a",
+				"C:\\\\work\\\\target\\\\x.js" };
+		String[][] replacements = { { "aa", "b" }, { "aab", "" },
+				{ "aba", "[aba]" }, { "\\\\", "\\" }, { "a", "aa" } };
+		for (String content : contents) {
+			for (String[] r : replacements) {
+				assertEquals(content + " / " + r[0],
+						content.replace(r[0], r[1]),
+						replace(content, r[0], r[1]));
+			}
+		}
+	}
+
+	@Test
+	public void testChainedWritersAreFinishedTogether() throws IOException {
+		StringWriter out = new StringWriter();
+		ReplacingWriter separators = new ReplacingWriter(out, "\\", "/");
+		ReplacingWriter collapse = new ReplacingWriter(separators, "\\\\",
+				"\\");
+		collapse.write("{\"sources\":[\"C:\\\\a\\\\b.js\\\\");
+		collapse.finish();
+		assertEquals("{\"sources\":[\"C:/a/b.js/", out.toString());
+	}
+}